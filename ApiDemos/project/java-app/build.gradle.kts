@@ -50,6 +50,13 @@ android {
 
     flavorDimensions.add("version")
 
+    testOptions {
+        unitTests.all {
+            // Benchmarks in the unit tests are skipped unless the build is run with -Pbenchmarks.
+            it.systemProperty("benchmarks", project.hasProperty("benchmarks"))
+        }
+    }
+
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_17
         targetCompatibility = JavaVersion.VERSION_17
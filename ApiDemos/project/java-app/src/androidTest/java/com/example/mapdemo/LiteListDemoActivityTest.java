@@ -0,0 +1,117 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Intent;
+import android.os.Build;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.view.FrameMetrics;
+import android.view.Window;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Scrolls {@link LiteListDemoActivity} through 1,000 rows and reports the janky frames, the mean
+ * frame time, how long the first map image took to appear and the memory the rows' images use.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LiteListDemoActivityTest {
+
+    private static final String TAG = "LiteListBenchmark";
+    private static final int ROWS = 1_000;
+    private static final long FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+    private static final long TIMEOUT_MILLIS = 120_000;
+
+    @Test
+    public void scrollBenchmark() throws InterruptedException {
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.N);
+        Intent intent = new Intent(ApplicationProvider.getApplicationContext(),
+                LiteListDemoActivity.class)
+                .putExtra(LiteListDemoActivity.EXTRA_ROW_COUNT, ROWS);
+        AtomicInteger frames = new AtomicInteger();
+        AtomicInteger jankFrames = new AtomicInteger();
+        AtomicLong frameNanos = new AtomicLong();
+        HandlerThread metricsThread = new HandlerThread("frame-metrics");
+        metricsThread.start();
+        Window.OnFrameMetricsAvailableListener listener = (window, metrics, dropped) -> {
+            frames.incrementAndGet();
+            long duration = metrics.getMetric(FrameMetrics.TOTAL_DURATION);
+            frameNanos.addAndGet(duration);
+            if (duration > FRAME_NANOS) {
+                jankFrames.incrementAndGet();
+            }
+        };
+
+        try (ActivityScenario<LiteListDemoActivity> scenario = ActivityScenario.launch(intent)) {
+            waitFor(scenario, activity -> activity.mFirstMapImageMillis >= 0);
+            scenario.onActivity(activity -> {
+                activity.getWindow().addOnFrameMetricsAvailableListener(listener,
+                        new Handler(metricsThread.getLooper()));
+                activity.mRecyclerView.smoothScrollToPosition(ROWS - 1);
+            });
+            waitFor(scenario, activity -> ((LinearLayoutManager) activity.mRecyclerView
+                    .getLayoutManager()).findLastVisibleItemPosition() == ROWS - 1);
+
+            scenario.onActivity(activity -> {
+                activity.getWindow().removeOnFrameMetricsAvailableListener(listener);
+                Log.i(TAG, String.format("%d rows: first map image after %dms, %d of %d frames"
+                                + " janky, %.1fms mean frame time, %d warm maps, %d created while"
+                                + " scrolling, %d maps rendered, %dKB of images in memory, %dKB PSS",
+                        ROWS, activity.mFirstMapImageMillis, jankFrames.get(), frames.get(),
+                        frameNanos.get() / 1e6 / Math.max(1, frames.get()),
+                        activity.mMapPool.getWarmHits(), activity.mMapPool.getColdCreates(),
+                        activity.mSnapshots.getMisses(), activity.mSnapshots.getMemoryBytes() / 1024,
+                        Debug.getPss()));
+                // Rows scrolled away before their snapshot was taken render again, but most rows
+                // show a cached image.
+                assertThat(activity.mSnapshots.getMisses()).isLessThan(ROWS / 2);
+            });
+        } finally {
+            metricsThread.quitSafely();
+        }
+        assertThat(frames.get()).isGreaterThan(0);
+    }
+
+    private interface Condition {
+        boolean isMet(LiteListDemoActivity activity);
+    }
+
+    private static void waitFor(ActivityScenario<LiteListDemoActivity> scenario,
+            Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        boolean[] met = new boolean[1];
+        while (System.currentTimeMillis() < deadline) {
+            scenario.onActivity(activity -> met[0] = condition.isMet(activity));
+            if (met[0]) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Timed out after " + TIMEOUT_MILLIS + "ms");
+    }
+}
@@ -15,55 +15,170 @@
 
 package com.example.mapdemo;
 
+import com.example.mapdemo.lite.MapViewPool;
+import com.example.mapdemo.lite.SnapshotCache;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.GoogleMapOptions;
 import com.google.android.gms.maps.MapView;
 import com.google.android.gms.maps.MapsInitializer;
 import com.google.android.gms.maps.OnMapReadyCallback;
+import com.google.android.gms.maps.model.CameraPosition;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
 
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
  * This shows to include a map in lite mode in a ListView.
  * Note the use of the view holder pattern with the
  * {@link com.google.android.gms.maps.OnMapReadyCallback}.
+ * <p>
+ * A row never changes, so it only renders its lite map once: the map's
+ * {@link GoogleMap#snapshot snapshot} goes into a {@link SnapshotCache}, and from then on the row
+ * shows that image, even after a restart. The lite maps that render the snapshots come from a
+ * {@link MapViewPool} that creates them while the UI thread is idle, and go back to it as soon as
+ * the snapshot is taken. Tapping a row replaces its image with a live, interactive map.
  */
 public class LiteListDemoActivity extends SamplesBaseActivity {
 
-    private RecyclerView mRecyclerView;
+    /** The number of rows to show, cycling through the locations. Used by the scroll benchmark. */
+    static final String EXTRA_ROW_COUNT = "row_count";
+
+    /** Enough maps to render every row on screen in the grid layout at once. */
+    private static final int MAP_POOL_SIZE = 10;
+
+    private static final long SNAPSHOT_DISK_BYTES = 20L * 1024 * 1024;
+
+    private static final SnapshotCache.Codec<Bitmap> BITMAP_CODEC =
+            new SnapshotCache.Codec<Bitmap>() {
+                @Override
+                public long sizeOf(Bitmap image) {
+                    return image.getAllocationByteCount();
+                }
+
+                @Override
+                public void encode(Bitmap image, OutputStream out) throws IOException {
+                    if (!image.compress(Bitmap.CompressFormat.PNG, 100, out)) {
+                        throw new IOException("Cannot encode snapshot");
+                    }
+                }
+
+                @Override
+                public Bitmap decode(InputStream in) {
+                    return BitmapFactory.decodeStream(in);
+                }
+            };
+
+    RecyclerView mRecyclerView;
 
     private LinearLayoutManager mLinearLayoutManager;
     private GridLayoutManager mGridLayoutManager;
 
+    MapViewPool<LiteMap> mMapPool;
+
+    SnapshotCache<Bitmap> mSnapshots;
+
+    private ExecutorService mSnapshotIo;
+
+    /** The row showing a live map, if any. Only one row does at a time. */
+    private MapAdapter.ViewHolder mLiveRow;
+
+    private long mCreatedAtMillis;
+
+    /** Milliseconds from {@link #onCreate} until the first row showed its map, or -1. */
+    long mFirstMapImageMillis = -1;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        mCreatedAtMillis = SystemClock.uptimeMillis();
         setContentView(com.example.common_ui.R.layout.lite_list_demo);
 
+        mMapPool = new MapViewPool<>(new MapViewPool.Host<LiteMap>() {
+            @Override
+            public LiteMap create() {
+                return new LiteMap(LiteListDemoActivity.this);
+            }
+
+            @Override
+            public void destroy(LiteMap liteMap) {
+                liteMap.view.onDestroy();
+            }
+        }, MapViewPool.uiThreadIdle(), MAP_POOL_SIZE);
+        mMapPool.prewarm();
+
+        // An eighth of the heap for the snapshots in memory; the rest spill to the cache directory.
+        mSnapshotIo = Executors.newSingleThreadExecutor();
+        mSnapshots = new SnapshotCache<>(BITMAP_CODEC, Runtime.getRuntime().maxMemory() / 8,
+                new File(getCacheDir(), "lite_snapshots"), SNAPSHOT_DISK_BYTES, mSnapshotIo,
+                ContextCompat.getMainExecutor(this));
+
         mGridLayoutManager = new GridLayoutManager(this, 2);
         mLinearLayoutManager = new LinearLayoutManager(this);
 
         // Set up the RecyclerView
+        int rowCount = getIntent().getIntExtra(EXTRA_ROW_COUNT, LIST_LOCATIONS.length);
         mRecyclerView = findViewById(com.example.common_ui.R.id.recycler_view);
         mRecyclerView.setHasFixedSize(true);
         mRecyclerView.setLayoutManager(mLinearLayoutManager);
-        mRecyclerView.setAdapter(new MapAdapter(LIST_LOCATIONS));
+        mRecyclerView.setAdapter(new MapAdapter(LIST_LOCATIONS, rowCount));
         mRecyclerView.setRecyclerListener(mRecycleListener);
         applyInsets(findViewById(com.example.common_ui.R.id.map_container));
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (mLiveRow != null) {
+            mLiveRow.liveMap.onResume();
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        if (mLiveRow != null) {
+            mLiveRow.liveMap.onPause();
+        }
+        super.onPause();
+    }
+
+    @Override
+    protected void onDestroy() {
+        if (mLiveRow != null) {
+            mLiveRow.hideLiveMap();
+        }
+        mMapPool.close();
+        // Lets the snapshots still being written finish.
+        mSnapshotIo.shutdown();
+        super.onDestroy();
+    }
+
     /** Create a menu to switch between Linear and Grid LayoutManager. */
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
@@ -82,19 +197,107 @@ public class LiteListDemoActivity extends SamplesBaseActivity {
         return true;
     }
 
+    private void onMapImageShown() {
+        if (mFirstMapImageMillis < 0) {
+            mFirstMapImageMillis = SystemClock.uptimeMillis() - mCreatedAtMillis;
+        }
+    }
+
     /**
-     * Adapter that displays a title and {@link com.google.android.gms.maps.MapView} for each item.
-     * The layout is defined in <code>lite_list_demo_row.xml</code>. It contains a MapView
-     * that is programatically initialised in
-     * {@link #(int, android.view.View, android.view.ViewGroup)}
+     * A pooled lite mode {@link MapView} and the one marker it shows. The map keeps its marker
+     * between rows, so showing another location only moves the camera and the marker.
+     */
+    class LiteMap implements OnMapReadyCallback {
+
+        final MapView view;
+        private GoogleMap map;
+        private Marker marker;
+        private NamedLocation location;
+        private boolean loaded;
+        private Runnable onLoaded;
+
+        LiteMap(Context context) {
+            view = new MapView(context, new GoogleMapOptions()
+                    .liteMode(true)
+                    .mapType(GoogleMap.MAP_TYPE_NORMAL)
+                    .mapToolbarEnabled(false));
+            // Initialise the MapView
+            view.onCreate(null);
+            // Set the map ready callback to receive the GoogleMap object
+            view.getMapAsync(this);
+        }
+
+        @Override
+        public void onMapReady(GoogleMap googleMap) {
+            MapsInitializer.initialize(getApplicationContext());
+            map = googleMap;
+            update();
+        }
+
+        /**
+         * Shows {@code location}, keeping the map transparent until its new image has loaded, and
+         * then runs {@code onLoaded}, if not null.
+         */
+        void show(NamedLocation location, Runnable onLoaded) {
+            this.onLoaded = onLoaded;
+            if (location == this.location) {
+                if (loaded && onLoaded != null) {
+                    onLoaded.run();
+                }
+                return;
+            }
+            this.location = location;
+            loaded = false;
+            // Fade the old location out rather than hiding the view, which still has to render.
+            view.setAlpha(0f);
+            update();
+        }
+
+        /** Takes a snapshot of {@code location}, or gives up if the map moved on in the meantime. */
+        void snapshot(NamedLocation location, GoogleMap.SnapshotReadyCallback callback) {
+            if (map == null || location != this.location) return;
+            map.snapshot(bitmap -> {
+                if (bitmap != null && location == this.location) {
+                    callback.onSnapshotReady(bitmap);
+                }
+            });
+        }
+
+        private void update() {
+            if (map == null || location == null) return;
+
+            // Move the camera and this map's marker to the location.
+            map.moveCamera(CameraUpdateFactory.newLatLngZoom(location.location, 13f));
+            if (marker == null) {
+                marker = map.addMarker(new MarkerOptions().position(location.location));
+            } else {
+                marker.setPosition(location.location);
+            }
+            map.setOnMapLoadedCallback(() -> {
+                loaded = true;
+                view.setAlpha(1f);
+                if (onLoaded != null) {
+                    onLoaded.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * Adapter that displays a title and a map image for each item.
+     * The layout is defined in <code>lite_list_demo_row.xml</code>. Its MapView is only a
+     * placeholder for the image, and for the maps each row shows above the image while rendering
+     * it or when tapped.
      */
     private class MapAdapter extends RecyclerView.Adapter<MapAdapter.ViewHolder> {
 
         private final NamedLocation[] namedLocations;
+        private final int rowCount;
 
-        private MapAdapter(NamedLocation[] locations) {
+        private MapAdapter(NamedLocation[] locations, int rowCount) {
             super();
             namedLocations = locations;
+            this.rowCount = rowCount;
         }
 
         @Override
@@ -117,94 +320,149 @@ public class LiteListDemoActivity extends SamplesBaseActivity {
 
         @Override
         public int getItemCount() {
-            return namedLocations.length;
+            return rowCount;
         }
 
         /**
          * Holder for Views used in the {@link LiteListDemoActivity.MapAdapter}.
-         * Once the  the <code>map</code> field is set, otherwise it is null.
-         * When the {@link #onMapReady(com.google.android.gms.maps.GoogleMap)} callback is received and
-         * the {@link com.google.android.gms.maps.GoogleMap} is ready, it stored in the {@link #map}
-         * field. The map is then initialised with the NamedLocation that is stored as the tag of the
-         * MapView. This ensures that the map is initialised with the latest data that it should
-         * display.
+         * The <code>snapshot</code> view takes the place and the layout parameters of the
+         * placeholder MapView from the layout. While the row has no snapshot yet, the
+         * <code>liteMap</code> field holds the pooled map rendering it; after a tap, the
+         * <code>liveMap</code> field holds the live map. Otherwise both are null.
          */
-        class ViewHolder extends RecyclerView.ViewHolder implements OnMapReadyCallback {
+        class ViewHolder extends RecyclerView.ViewHolder {
 
-            MapView mapView;
             TextView title;
-            GoogleMap map;
+            ImageView snapshot;
+            LiteMap liteMap;
+            MapView liveMap;
             View layout;
 
+            private final FrameLayout mapSlot;
+            private NamedLocation location;
+
             private ViewHolder(View itemView) {
                 super(itemView);
                 layout = itemView;
-                mapView = layout.findViewById(com.example.common_ui.R.id.lite_listrow_map);
                 title = layout.findViewById(com.example.common_ui.R.id.lite_listrow_text);
-                if (mapView != null) {
-                    // Initialise the MapView
-                    mapView.onCreate(null);
-                    // Set the map ready callback to receive the GoogleMap object
-                    mapView.getMapAsync(this);
+                View placeholder = layout.findViewById(com.example.common_ui.R.id.lite_listrow_map);
+                ViewGroup parent = (ViewGroup) placeholder.getParent();
+                mapSlot = new FrameLayout(layout.getContext());
+                mapSlot.setId(placeholder.getId());
+                int index = parent.indexOfChild(placeholder);
+                parent.removeView(placeholder);
+                parent.addView(mapSlot, index, placeholder.getLayoutParams());
+                snapshot = new ImageView(layout.getContext());
+                snapshot.setScaleType(ImageView.ScaleType.CENTER_CROP);
+                mapSlot.addView(snapshot, matchParent());
+                layout.setOnClickListener(v -> showLiveMap());
+            }
+
+            private void bindView(int pos) {
+                NamedLocation item = namedLocations[pos % namedLocations.length];
+                // Store a reference of the ViewHolder object in the layout.
+                layout.setTag(this);
+                title.setText(item.name);
+                if (item == location) {
+                    return;
                 }
+                unbind();
+                location = item;
+                mSnapshots.get(item.name, bitmap -> {
+                    if (location != item) {
+                        // The row was bound to another location in the meantime.
+                        return;
+                    }
+                    if (bitmap != null) {
+                        showSnapshot(bitmap);
+                    } else {
+                        render(item);
+                    }
+                });
             }
 
-            @Override
-            public void onMapReady(GoogleMap googleMap) {
-                MapsInitializer.initialize(getApplicationContext());
-                map = googleMap;
-                setMapLocation();
+            /** Renders the row's location on a pooled lite map and keeps a snapshot of it. */
+            private void render(NamedLocation item) {
+                LiteMap renderer = mMapPool.acquire();
+                liteMap = renderer;
+                mapSlot.addView(renderer.view, matchParent());
+                renderer.show(item, () -> renderer.snapshot(item, bitmap -> {
+                    mSnapshots.put(item.name, bitmap);
+                    if (liteMap == renderer && location == item) {
+                        showSnapshot(bitmap);
+                        releaseLiteMap();
+                    }
+                }));
             }
 
-            /**
-             * Displays a {@link LiteListDemoActivity.NamedLocation} on a
-             * {@link com.google.android.gms.maps.GoogleMap}.
-             * Adds a marker and centers the camera on the NamedLocation with the normal map type.
-             */
-            private void setMapLocation() {
-                if (map == null) return;
+            private void showSnapshot(Bitmap bitmap) {
+                snapshot.setImageBitmap(bitmap);
+                onMapImageShown();
+            }
 
-                NamedLocation data = (NamedLocation) mapView.getTag();
-                if (data == null) return;
+            /** Shows a live map above the image, in place of the one another row may show. */
+            private void showLiveMap() {
+                if (liveMap != null || location == null) return;
+                if (mLiveRow != null) {
+                    mLiveRow.hideLiveMap();
+                }
+                NamedLocation item = location;
+                liveMap = new MapView(layout.getContext(), new GoogleMapOptions()
+                        .camera(CameraPosition.fromLatLngZoom(item.location, 13f)));
+                liveMap.onCreate(null);
+                liveMap.onResume();
+                liveMap.getMapAsync(map ->
+                        map.addMarker(new MarkerOptions().position(item.location)));
+                mapSlot.addView(liveMap, matchParent());
+                mLiveRow = this;
+            }
 
-                // Add a marker for this item and set the camera
-                map.moveCamera(CameraUpdateFactory.newLatLngZoom(data.location, 13f));
-                map.addMarker(new MarkerOptions().position(data.location));
+            private void hideLiveMap() {
+                if (liveMap == null) return;
+                mapSlot.removeView(liveMap);
+                liveMap.onPause();
+                liveMap.onDestroy();
+                liveMap = null;
+                if (mLiveRow == this) {
+                    mLiveRow = null;
+                }
+            }
 
-                // Set the map type back to normal.
-                map.setMapType(GoogleMap.MAP_TYPE_NORMAL);
+            private void releaseLiteMap() {
+                if (liteMap == null) return;
+                // Cancels this row's snapshot, if the map has not loaded yet.
+                liteMap.show(liteMap.location, null);
+                mapSlot.removeView(liteMap.view);
+                mMapPool.release(liteMap);
+                liteMap = null;
             }
 
-            private void bindView(int pos) {
-                NamedLocation item = namedLocations[pos];
-                // Store a reference of the ViewHolder object in the layout.
-                layout.setTag(this);
-                // Store a reference to the item in the mapView's tag. We use it to get the
-                // coordinate of a location, when setting the map location.
-                mapView.setTag(item);
-                setMapLocation();
-                title.setText(item.name);
+            /** Gives back the row's maps and forgets its image. */
+            private void unbind() {
+                releaseLiteMap();
+                hideLiveMap();
+                snapshot.setImageDrawable(null);
+                location = null;
             }
         }
     }
 
+    private static FrameLayout.LayoutParams matchParent() {
+        return new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
+    }
+
     /**
-     * RecycleListener that completely clears the {@link com.google.android.gms.maps.GoogleMap}
-     * attached to a row in the RecyclerView.
-     * Sets the map type to {@link com.google.android.gms.maps.GoogleMap#MAP_TYPE_NONE} and clears
-     * the map.
+     * RecycleListener that gives the maps of a row in the RecyclerView back, to the
+     * {@link MapViewPool} for the map rendering its snapshot. The snapshot stays cached.
      */
     private final RecyclerView.RecyclerListener mRecycleListener = new RecyclerView.RecyclerListener() {
 
         @Override
         public void onViewRecycled(RecyclerView.ViewHolder holder) {
             MapAdapter.ViewHolder mapHolder = (MapAdapter.ViewHolder) holder;
-            if (mapHolder != null && mapHolder.map != null) {
-                // Clear the map and free up resources by changing the map type to none.
-                // Also reset the map when it gets reattached to layout, so the previous map would
-                // not be displayed.
-                mapHolder.map.clear();
-                mapHolder.map.setMapType(GoogleMap.MAP_TYPE_NONE);
+            if (mapHolder != null) {
+                mapHolder.unbind();
             }
         }
     };
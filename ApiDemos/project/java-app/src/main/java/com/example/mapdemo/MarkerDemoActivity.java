@@ -17,6 +17,7 @@ package com.example.mapdemo;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.GoogleMap.InfoWindowAdapter;
+import com.google.android.gms.maps.GoogleMap.OnCameraIdleListener;
 import com.google.android.gms.maps.GoogleMap.OnInfoWindowClickListener;
 import com.google.android.gms.maps.GoogleMap.OnInfoWindowCloseListener;
 import com.google.android.gms.maps.GoogleMap.OnInfoWindowLongClickListener;
@@ -35,10 +36,12 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.SystemClock;
+import android.util.SparseIntArray;
 
 import com.example.common_ui.R;
+import com.example.mapdemo.anim.MarkerAnimator;
+import com.example.mapdemo.markers.MarkerBatcher;
+import com.example.mapdemo.markers.MarkerVirtualizer;
 
 import androidx.annotation.ColorInt;
 import androidx.annotation.DrawableRes;
@@ -48,7 +51,7 @@ import android.text.SpannableString;
 import android.text.style.ForegroundColorSpan;
 import android.view.View;
 import android.view.animation.BounceInterpolator;
-import android.view.animation.Interpolator;
+import android.view.animation.DecelerateInterpolator;
 import android.widget.CheckBox;
 import android.widget.ImageView;
 import android.widget.RadioGroup;
@@ -58,8 +61,6 @@ import android.widget.SeekBar.OnSeekBarChangeListener;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
 
 /**
@@ -73,6 +74,7 @@ public class MarkerDemoActivity extends SamplesBaseActivity implements
         OnSeekBarChangeListener,
         OnInfoWindowLongClickListener,
         OnInfoWindowCloseListener,
+        OnCameraIdleListener,
         OnMapAndViewReadyListener.OnGlobalLayoutAndMapReadyListener {
 
     private static final LatLng BRISBANE = new LatLng(-27.47093, 153.0235);
@@ -89,6 +91,26 @@ public class MarkerDemoActivity extends SamplesBaseActivity implements
 
     private static final LatLng ALICE_SPRINGS = new LatLng(-24.6980, 133.8807);
 
+    /** The rainbow is this many nested arcs of markers, arc 0 the outermost. */
+    private static final int RAINBOW_ARCS = 100;
+
+    private static final int MARKERS_PER_ARC = 1000;
+
+    /** Steps along an arc between its consecutive definitions; coprime with MARKERS_PER_ARC. */
+    private static final int RAINBOW_STRIDE = 619;
+
+    /** Distinct marker hues in the rainbow, each with one shared icon. */
+    private static final int RAINBOW_HUES = 12;
+
+    /** Upper bound on the rainbow markers shown at once. */
+    private static final int MAX_ATTACHED_RAINBOW_MARKERS = 300;
+
+    /** Upper bound on the hidden rainbow markers kept on the map for reuse. */
+    private static final int MAX_POOLED_RAINBOW_MARKERS = 150;
+
+    /** How long each frame may spend on rainbow marker changes. */
+    private static final long RAINBOW_FRAME_BUDGET_MS = 4;
+
     private com.example.common_ui.databinding.MarkerDemoBinding binding;
 
     /** Demonstrates customizing the info window and/or its contents. */
@@ -200,7 +222,36 @@ public class MarkerDemoActivity extends SamplesBaseActivity implements
      */
     private Marker mLastSelectedMarker;
 
-    private final List<Marker> mMarkerRainbow = new ArrayList<>();
+    /**
+     * Shows only the rainbow markers near the visible region. Its handles are keys of
+     * {@link #mRainbowBatcher}, which makes the map calls a few milliseconds per frame.
+     */
+    private MarkerVirtualizer<Integer> mMarkerRainbow;
+
+    private MarkerBatcher<Integer, MarkerOptions, Marker> mRainbowBatcher;
+
+    /** Collects the virtualizer's map changes until the camera idle that made them is done. */
+    private MarkerBatcher<Integer, MarkerOptions, Marker>.Transaction mRainbowChanges;
+
+    /** The definition each rainbow key currently shows. */
+    private final SparseIntArray mRainbowDefinitions = new SparseIntArray();
+
+    private int mNextRainbowKey;
+
+    private double[] mRainbowLatitudes;
+
+    private double[] mRainbowLongitudes;
+
+    private BitmapDescriptor[] mRainbowIcons;
+
+    /** Runs the Perth bounce and the Adelaide fade, and any other marker animation. */
+    private MarkerAnimator<Marker> mAnimator;
+
+    /** Default marker icons by whole degree of hue, created as animations need them. */
+    private final BitmapDescriptor[] mHueIcons = new BitmapDescriptor[360];
+
+    /** The hue last applied to the Adelaide marker, where its next hue animation starts. */
+    private float mAdelaideHue = BitmapDescriptorFactory.HUE_RED;
 
     private final Random mRandom = new Random();
 
@@ -234,6 +285,19 @@ public class MarkerDemoActivity extends SamplesBaseActivity implements
         applyInsets(binding.mapContainer);
     }
 
+    @Override
+    protected void onDestroy() {
+        // The animation scheduler and the frame callbacks outlive the activity; stop them from
+        // touching the destroyed map.
+        if (mAnimator != null) {
+            mAnimator.cancelAll();
+        }
+        if (mRainbowBatcher != null) {
+            mRainbowBatcher.release();
+        }
+        super.onDestroy();
+    }
+
     @Override
     public void onMapReady(GoogleMap map) {
         mMap = map;
@@ -241,6 +305,64 @@ public class MarkerDemoActivity extends SamplesBaseActivity implements
         // Hide the zoom controls as the button panel will cover it.
         mMap.getUiSettings().setZoomControlsEnabled(false);
 
+        mAnimator = new MarkerAnimator<>(new MarkerAnimator.Host<Marker>() {
+            @Override
+            public void setPosition(Marker marker, double latitude, double longitude) {
+                marker.setPosition(new LatLng(latitude, longitude));
+            }
+
+            @Override
+            public void setAlpha(Marker marker, float alpha) {
+                marker.setAlpha(alpha);
+            }
+
+            @Override
+            public void setRotation(Marker marker, float rotation) {
+                marker.setRotation(rotation);
+            }
+
+            @Override
+            public void setHue(Marker marker, float hue) {
+                int degree = (int) hue;
+                if (mHueIcons[degree] == null) {
+                    mHueIcons[degree] = BitmapDescriptorFactory.defaultMarker(degree);
+                }
+                marker.setIcon(mHueIcons[degree]);
+                if (marker.equals(mAdelaide)) {
+                    mAdelaideHue = hue;
+                }
+            }
+
+            @Override
+            public void setAnchor(Marker marker, float u, float v) {
+                marker.setAnchor(u, v);
+            }
+        });
+
+        mRainbowBatcher = new MarkerBatcher<>(new MarkerBatcher.Host<MarkerOptions, Marker>() {
+            @Override
+            public Marker add(MarkerOptions options) {
+                return mMap.addMarker(options);
+            }
+
+            @Override
+            public void update(Marker marker, MarkerOptions options) {
+                // Reusing a hidden marker is much cheaper than adding a new one.
+                marker.setPosition(options.getPosition());
+                marker.setTitle(options.getTitle());
+                marker.setIcon(options.getIcon());
+                marker.setFlat(options.isFlat());
+                marker.setRotation(options.getRotation());
+                marker.setVisible(options.isVisible());
+            }
+
+            @Override
+            public void remove(Marker marker) {
+                marker.remove();
+            }
+        }, MarkerBatcher.choreographer(), RAINBOW_FRAME_BUDGET_MS);
+        mRainbowChanges = mRainbowBatcher.begin();
+
         // Add lots of markers to the map.
         addMarkersToMap();
 
@@ -254,6 +376,7 @@ public class MarkerDemoActivity extends SamplesBaseActivity implements
         mMap.setOnMarkerDragListener(this);
         mMap.setOnInfoWindowCloseListener(this);
         mMap.setOnInfoWindowLongClickListener(this);
+        mMap.setOnCameraIdleListener(this);
 
         // Override the default content description on the view, for accessibility mode.
         // Ideally this string would be localised.
@@ -333,22 +456,92 @@ public class MarkerDemoActivity extends SamplesBaseActivity implements
                 .title("Alice Springs"));
 
         // Creates a marker rainbow demonstrating how to create default marker icons of different
-        // hues (colors).
-        float rotation = binding.rotationSeekBar.getProgress();
-        boolean flat = binding.flat.isChecked();
-
-        int numMarkersInRainbow = 12;
-        for (int i = 0; i < numMarkersInRainbow; i++) {
-            Marker marker = mMap.addMarker(new MarkerOptions()
-                    .position(new LatLng(
-                            -30 + 10 * Math.sin(i * Math.PI / (numMarkersInRainbow - 1)),
-                            135 - 10 * Math.cos(i * Math.PI / (numMarkersInRainbow - 1))))
-                    .title("Marker " + i)
-                    .icon(BitmapDescriptorFactory.defaultMarker(i * 360 / numMarkersInRainbow))
-                    .flat(flat)
-                    .rotation(rotation));
-            mMarkerRainbow.add(marker);
+        // hues (colors). With 100,000 markers it also demonstrates virtualization: only the
+        // markers near the visible region are on the map, and they are reused as the camera moves.
+        mRainbowIcons = new BitmapDescriptor[RAINBOW_HUES];
+        for (int i = 0; i < RAINBOW_HUES; i++) {
+            mRainbowIcons[i] = BitmapDescriptorFactory.defaultMarker(i * 360 / RAINBOW_HUES);
+        }
+        int count = RAINBOW_ARCS * MARKERS_PER_ARC;
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            double radius = 10 - 8.0 * (i % RAINBOW_ARCS) / RAINBOW_ARCS;
+            double angle = rainbowStep(i) * Math.PI / (MARKERS_PER_ARC - 1);
+            latitudes[i] = -30 + radius * Math.sin(angle);
+            longitudes[i] = 135 - radius * Math.cos(angle);
+        }
+        mRainbowLatitudes = latitudes;
+        mRainbowLongitudes = longitudes;
+        mMarkerRainbow = new MarkerVirtualizer<>(latitudes, longitudes, count,
+                MAX_ATTACHED_RAINBOW_MARKERS, MAX_POOLED_RAINBOW_MARKERS,
+                new MarkerVirtualizer.Host<Integer>() {
+                    @Override
+                    public Integer add(int definition) {
+                        int key = mNextRainbowKey++;
+                        mRainbowDefinitions.put(key, definition);
+                        mRainbowChanges.add(key, rainbowOptions(definition));
+                        return key;
+                    }
+
+                    @Override
+                    public void rebind(Integer key, int definition) {
+                        mRainbowDefinitions.put(key, definition);
+                        mRainbowChanges.update(key, rainbowOptions(definition));
+                    }
+
+                    @Override
+                    public void hide(Integer key) {
+                        // Full options, in case the marker's add is still pending.
+                        int definition = mRainbowDefinitions.get(key);
+                        mRainbowChanges.update(key, rainbowOptions(definition).visible(false));
+                    }
+
+                    @Override
+                    public void remove(Integer key) {
+                        mRainbowDefinitions.delete(key);
+                        mRainbowChanges.remove(key);
+                    }
+                });
+    }
+
+    private MarkerOptions rainbowOptions(int definition) {
+        return new MarkerOptions()
+                .position(new LatLng(mRainbowLatitudes[definition],
+                        mRainbowLongitudes[definition]))
+                .title("Marker " + definition)
+                .icon(rainbowIcon(definition))
+                .flat(binding.flat.isChecked())
+                .rotation(binding.rotationSeekBar.getProgress());
+    }
+
+    private BitmapDescriptor rainbowIcon(int definition) {
+        int hue = rainbowStep(definition) * RAINBOW_HUES / MARKERS_PER_ARC;
+        return mRainbowIcons[hue];
+    }
+
+    /**
+     * Where a rainbow definition sits along its arc. Consecutive definitions go round the arcs in
+     * turn, and each arc is walked with a stride and starts a little further along than the one
+     * outside it, so the lowest-numbered definitions, which are the ones the virtualizer keeps
+     * when it is capped, are spread over every arc and hue.
+     */
+    private static int rainbowStep(int definition) {
+        int arc = definition % RAINBOW_ARCS;
+        int round = definition / RAINBOW_ARCS;
+        return (round * RAINBOW_STRIDE + arc * (MARKERS_PER_ARC / RAINBOW_ARCS)) % MARKERS_PER_ARC;
+    }
+
+    @Override
+    public void onCameraIdle() {
+        if (mMarkerRainbow == null) {
+            return;
         }
+        LatLngBounds bounds = mMap.getProjection().getVisibleRegion().latLngBounds;
+        mMarkerRainbow.onCameraIdle(bounds.southwest.latitude, bounds.southwest.longitude,
+                bounds.northeast.latitude, bounds.northeast.longitude);
+        mRainbowChanges.commit();
+        binding.virtualizationStats.setText(mMarkerRainbow.toString());
     }
 
     /**
@@ -379,6 +572,10 @@ public class MarkerDemoActivity extends SamplesBaseActivity implements
             return;
         }
         mMap.clear();
+        mAnimator.cancelAll();
+        // The map removed the rainbow markers itself; stop bringing them back on camera idle.
+        forgetRainbow();
+        mMarkerRainbow = null;
     }
 
     private void onResetMap() {
@@ -387,28 +584,47 @@ public class MarkerDemoActivity extends SamplesBaseActivity implements
         }
         // Clear the map because we don't want duplicates of the markers.
         mMap.clear();
+        mAnimator.cancelAll();
+        forgetRainbow();
+        mAdelaideHue = BitmapDescriptorFactory.HUE_RED;
         addMarkersToMap();
+        onCameraIdle();
+    }
+
+    /** Drops the rainbow's marker handles and pending changes, after {@code GoogleMap.clear()}. */
+    private void forgetRainbow() {
+        mRainbowBatcher.forget();
+        mRainbowDefinitions.clear();
+        if (mMarkerRainbow != null) {
+            mMarkerRainbow.forget();
+        }
     }
 
     private void onToggleFlat() {
-        if (!checkReady()) {
+        if (!checkReady() || mMarkerRainbow == null) {
             return;
         }
-        boolean flat = binding.flat.isChecked();
-        for (Marker marker : mMarkerRainbow) {
-            marker.setFlat(flat);
-        }
+        updateRainbow();
     }
 
     @Override
     public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
-        if (!checkReady()) {
+        if (!checkReady() || mMarkerRainbow == null) {
             return;
         }
-        float rotation = seekBar.getProgress();
-        for (Marker marker : mMarkerRainbow) {
-            marker.setRotation(rotation);
+        updateRainbow();
+    }
+
+    /**
+     * Restyles the shown rainbow markers from the flat box and rotation bar. Pooled markers pick
+     * the new settings up when they are reused, and updates that have not reached the map yet are
+     * replaced rather than queued behind each other.
+     */
+    private void updateRainbow() {
+        for (Integer key : mMarkerRainbow.getAttachedMarkers()) {
+            mRainbowChanges.update(key, rainbowOptions(mRainbowDefinitions.get(key)));
         }
+        mRainbowChanges.commit();
     }
 
     @Override
@@ -429,30 +645,14 @@ public class MarkerDemoActivity extends SamplesBaseActivity implements
     public boolean onMarkerClick(final Marker marker) {
         if (marker.equals(mPerth)) {
             // This causes the marker at Perth to bounce into position when it is clicked.
-            final Handler handler = new Handler();
-            final long start = SystemClock.uptimeMillis();
-            final long duration = 1500;
-
-            final Interpolator interpolator = new BounceInterpolator();
-
-            handler.post(new Runnable() {
-                @Override
-                public void run() {
-                    long elapsed = SystemClock.uptimeMillis() - start;
-                    float t = Math.max(
-                            1 - interpolator.getInterpolation((float) elapsed / duration), 0);
-                    marker.setAnchor(0.5f, 1.0f + 2 * t);
-
-                    if (t > 0.0) {
-                        // Post again 16ms later.
-                        handler.postDelayed(this, 16);
-                    }
-                }
-            });
+            mAnimator.animateAnchor(marker, 0.5f, 3.0f, 0.5f, 1.0f, 1500,
+                    new BounceInterpolator());
         } else if (marker.equals(mAdelaide)) {
-            // This causes the marker at Adelaide to change color and alpha.
-            marker.setIcon(BitmapDescriptorFactory.defaultMarker(mRandom.nextFloat() * 360));
-            marker.setAlpha(mRandom.nextFloat());
+            // This causes the marker at Adelaide to fade to another color and alpha.
+            float hue = mRandom.nextFloat() * 360;
+            mAnimator.animateHue(marker, mAdelaideHue, hue, 600, new DecelerateInterpolator());
+            mAnimator.animateAlpha(marker, marker.getAlpha(), mRandom.nextFloat(), 600,
+                    new DecelerateInterpolator());
         }
 
         // Markers have a z-index that is settable and gettable.
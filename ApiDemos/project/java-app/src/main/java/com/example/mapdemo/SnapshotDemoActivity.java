@@ -15,22 +15,47 @@
 
 package com.example.mapdemo;
 
+import com.example.mapdemo.snapshot.SnapshotExporter;
+import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.GoogleMap.OnMapLoadedCallback;
 import com.google.android.gms.maps.GoogleMap.SnapshotReadyCallback;
+import com.google.android.gms.maps.GoogleMapOptions;
+import com.google.android.gms.maps.MapView;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
+import com.google.android.gms.maps.model.CameraPosition;
+import com.google.android.gms.maps.model.LatLng;
 
 import android.graphics.Bitmap;
+import android.os.Build;
 import android.os.Bundle;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.widget.CheckBox;
+import android.widget.FrameLayout;
 import android.widget.ImageView;
+import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * This shows how to take a snapshot of the map.
+ * <p>
+ * The "Export snapshots" menu item also shows how to produce many snapshots in the background: a
+ * {@link SnapshotExporter} drives a second, offscreen lite mode map through a list of camera
+ * positions, and writes each snapshot to a WebP file on a pool of worker threads.
  */
 public class SnapshotDemoActivity extends SamplesBaseActivity implements OnMapReadyCallback {
 
@@ -41,6 +66,34 @@ public class SnapshotDemoActivity extends SamplesBaseActivity implements OnMapRe
 
     private com.example.common_ui.databinding.SnapshotDemoBinding binding;
 
+    private static final String TAG = SnapshotDemoActivity.class.getSimpleName();
+
+    /** The size of the exported snapshots, in pixels. */
+    private static final int EXPORT_WIDTH = 640;
+    private static final int EXPORT_HEIGHT = 480;
+
+    /** Lets four snapshots wait for their encoder; at four bytes a pixel, about 5 MB. */
+    private static final long EXPORT_PENDING_BYTES = 4L * EXPORT_WIDTH * EXPORT_HEIGHT * 4;
+
+    private static final CameraPosition[] EXPORT_CAMERAS = new CameraPosition[]{
+            CameraPosition.fromLatLngZoom(new LatLng(-33.87365, 151.20689), 12f), // Sydney
+            CameraPosition.fromLatLngZoom(new LatLng(35.67027, 139.76996), 12f), // Tokyo
+            CameraPosition.fromLatLngZoom(new LatLng(51.50021, -0.12673), 12f), // London
+            CameraPosition.fromLatLngZoom(new LatLng(40.75058, -73.99358), 12f), // New York
+            CameraPosition.fromLatLngZoom(new LatLng(-22.90187, -43.23244), 12f), // Rio de Janeiro
+            CameraPosition.fromLatLngZoom(new LatLng(-33.92046, 18.46694), 12f), // Cape Town
+            CameraPosition.fromLatLngZoom(new LatLng(48.85997, 2.34026), 12f), // Paris
+            CameraPosition.fromLatLngZoom(new LatLng(55.75045, 37.62114), 12f), // Moscow
+    };
+
+    private MapView mExportMapView;
+
+    private GoogleMap mExportMap;
+
+    private ExecutorService mEncoders;
+
+    private SnapshotExporter<CameraPosition, Bitmap> mExporter;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -57,6 +110,33 @@ public class SnapshotDemoActivity extends SamplesBaseActivity implements OnMapRe
         applyInsets(binding.mapContainer);
     }
 
+    @Override
+    protected void onDestroy() {
+        if (mExporter != null) {
+            // The snapshots still being encoded may finish, but must not report to this activity.
+            mExporter.setListener(null);
+            mExporter.cancel();
+            mEncoders.shutdown();
+            mExportMapView.onDestroy();
+        }
+        super.onDestroy();
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(com.example.common_ui.R.menu.snapshot_menu, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == com.example.common_ui.R.id.export_snapshots) {
+            exportSnapshots();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
     @Override
     public void onMapReady(GoogleMap map) {
         mMap = map;
@@ -92,4 +172,102 @@ public class SnapshotDemoActivity extends SamplesBaseActivity implements OnMapRe
     private void clearSnapshot() {
         binding.snapshotHolder.setImageDrawable(null);
     }
+
+    /**
+     * Creates the offscreen map and the exporter that drives it, then exports once the map is
+     * ready. The map is laid out at the export size, so it renders, but outside the window, so the
+     * user never sees it.
+     */
+    private void setUpExporter() {
+        mExportMapView = new MapView(this, new GoogleMapOptions().liteMode(true));
+        mExportMapView.onCreate(null);
+        addContentView(mExportMapView, new FrameLayout.LayoutParams(EXPORT_WIDTH, EXPORT_HEIGHT));
+        mExportMapView.setTranslationX(-2 * EXPORT_WIDTH);
+        mExportMapView.getMapAsync(map -> {
+            mExportMap = map;
+            exportSnapshots();
+        });
+
+        mEncoders = Executors.newFixedThreadPool(2);
+        mExporter = new SnapshotExporter<>(new SnapshotExporter.Host<CameraPosition, Bitmap>() {
+            @Override
+            public void moveTo(CameraPosition camera, Runnable onLoaded) {
+                mExportMap.setOnMapLoadedCallback(onLoaded::run);
+                mExportMap.moveCamera(CameraUpdateFactory.newCameraPosition(camera));
+            }
+
+            @Override
+            public void snapshot(SnapshotExporter.ImageCallback<Bitmap> callback) {
+                mExportMap.snapshot(callback::onImage);
+            }
+        }, new SnapshotExporter.Encoder<Bitmap>() {
+            @Override
+            public long sizeOf(Bitmap image) {
+                return image.getAllocationByteCount();
+            }
+
+            @Override
+            public void write(Bitmap image, File file) throws IOException {
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+                    if (!image.compress(webp(), 90, out)) {
+                        throw new IOException("Cannot encode " + file);
+                    }
+                }
+            }
+
+            @Override
+            public void release(Bitmap image) {
+                image.recycle();
+            }
+        }, mEncoders, ContextCompat.getMainExecutor(this), EXPORT_PENDING_BYTES);
+
+        mExporter.setListener(new SnapshotExporter.Listener() {
+            @Override
+            public void onExported(File file, IOException error) {
+                if (error != null) {
+                    Log.w(TAG, "Snapshot export failed: " + file, error);
+                }
+            }
+
+            @Override
+            public void onIdle() {
+                String report = getString(com.example.common_ui.R.string.snapshot_export_done,
+                        mExporter.getExported(), mExporter.getSnapshotsPerMinute(),
+                        mExporter.getPeakPendingBytes() / 1024);
+                Log.i(TAG, report);
+                Toast.makeText(SnapshotDemoActivity.this, report, Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    /**
+     * Exports a snapshot of every {@link #EXPORT_CAMERAS} position to the app's files. The
+     * offscreen map is only created the first time, since most visits never export.
+     */
+    private void exportSnapshots() {
+        if (mExportMapView == null) {
+            setUpExporter();
+            return;
+        }
+        if (mExportMap == null || mExporter.isBusy()) {
+            Toast.makeText(this, com.example.common_ui.R.string.snapshot_export_busy,
+                    Toast.LENGTH_SHORT).show();
+            return;
+        }
+        File directory = new File(getFilesDir(), "snapshots");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "Cannot create " + directory);
+            return;
+        }
+        for (int i = 0; i < EXPORT_CAMERAS.length; i++) {
+            mExporter.submit(EXPORT_CAMERAS[i], new File(directory, "snapshot_" + i + ".webp"));
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat webp() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY
+                : Bitmap.CompressFormat.WEBP;
+    }
 }
@@ -15,29 +15,31 @@
 
 package com.example.mapdemo;
 
+import com.example.mapdemo.tiles.PooledTileRenderer;
+import com.example.mapdemo.tiles.TileLabels;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
-import com.google.android.gms.maps.model.Tile;
 import com.google.android.gms.maps.model.TileOverlayOptions;
-import com.google.android.gms.maps.model.TileProvider;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.Bitmap.Config;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.os.Bundle;
+import android.util.Log;
 
 import androidx.appcompat.app.AppCompatActivity;
 
-import java.io.ByteArrayOutputStream;
-
 /**
  * This demonstrates tile overlay coordinates.
  */
 public class TileCoordinateDemoActivity extends SamplesBaseActivity implements OnMapReadyCallback {
 
+    private static final String TAG = TileCoordinateDemoActivity.class.getSimpleName();
+
+    private CoordTileProvider coordTileProvider;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -52,58 +54,81 @@ public class TileCoordinateDemoActivity extends SamplesBaseActivity implements O
 
     @Override
     public void onMapReady(GoogleMap map) {
-        TileProvider coordTileProvider = new CoordTileProvider(this.getApplicationContext());
+        coordTileProvider = new CoordTileProvider(this.getApplicationContext());
         map.addTileOverlay(new TileOverlayOptions().tileProvider(coordTileProvider));
     }
 
-    private static class CoordTileProvider implements TileProvider {
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (coordTileProvider != null) {
+            Log.d(TAG, "Tile rendering: " + coordTileProvider.getStats());
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        if (coordTileProvider != null) {
+            // The map's tile threads outlive this activity; free the bitmaps they rendered into.
+            coordTileProvider.release();
+        }
+        super.onDestroy();
+    }
+
+    /**
+     * Draws the tile coordinates and zoom level onto each tile. Rendering state is pooled per
+     * thread by {@link PooledTileRenderer}, and the labels are formatted into a reused char buffer
+     * by {@link TileLabels}, so tiles can be generated at full screen density without per-tile
+     * garbage.
+     */
+    private static class CoordTileProvider extends PooledTileRenderer<CoordTileProvider.DrawState> {
 
         private static final int TILE_SIZE_DP = 256;
 
-        private final float scaleFactor;
+        private final float density;
 
         public CoordTileProvider(Context context) {
-            /* Scale factor based on density, with a 0.6 multiplier to increase tile generation
-             * speed */
-            scaleFactor = context.getResources().getDisplayMetrics().density * 0.6f;
+            this(context.getResources().getDisplayMetrics().density);
         }
 
-        @Override
-        public Tile getTile(int x, int y, int zoom) {
-            Bitmap coordTile = createTile(x, y, zoom);
-            ByteArrayOutputStream stream = new ByteArrayOutputStream();
-            coordTile.compress(Bitmap.CompressFormat.PNG, 0, stream);
-            byte[] bitmapData = stream.toByteArray();
-            return new Tile((int) (TILE_SIZE_DP * scaleFactor),
-                    (int) (TILE_SIZE_DP * scaleFactor), bitmapData);
+        private CoordTileProvider(float density) {
+            super((int) (TILE_SIZE_DP * density), Bitmap.CompressFormat.PNG, 0);
+            this.density = density;
         }
 
-        private Bitmap createTile(int x, int y, int zoom) {
-            Bitmap tile =
-                Bitmap.createBitmap(
-                    (int) (TILE_SIZE_DP * scaleFactor),
-                    (int) (TILE_SIZE_DP * scaleFactor),
-                    Config.ARGB_8888);
-            Canvas canvas = new Canvas(tile);
+        @Override
+        protected DrawState createDrawState() {
+            return new DrawState(density);
+        }
 
+        @Override
+        protected void drawTile(Canvas canvas, DrawState state, int tileSizePx, int x, int y,
+                int zoom) {
             // Draw the tile borders.
-            Paint borderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-            borderPaint.setStyle(Paint.Style.STROKE);
-            canvas.drawRect(0, 0, TILE_SIZE_DP * scaleFactor,
-                    TILE_SIZE_DP * scaleFactor, borderPaint);
-
-            // Draw the tile position text.
-            String tileCoords = "(" + x + ", " + y + ")";
-            String zoomLevel = "zoom = " + zoom;
-            Paint mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-            mTextPaint.setTextAlign(Paint.Align.CENTER);
-            mTextPaint.setTextSize(18 * scaleFactor);
-            canvas.drawText(tileCoords, TILE_SIZE_DP * scaleFactor / 2,
-                    TILE_SIZE_DP * scaleFactor / 2, mTextPaint);
-            canvas.drawText(zoomLevel, TILE_SIZE_DP * scaleFactor / 2,
-                    TILE_SIZE_DP * scaleFactor * 2 / 3, mTextPaint);
-
-            return tile;
+            canvas.drawRect(0, 0, tileSizePx, tileSizePx, state.borderPaint);
+
+            // Draw the tile position text, e.g. "(3, 5)".
+            char[] text = state.text;
+            int length = TileLabels.coordinates(text, x, y);
+            canvas.drawText(text, 0, length, tileSizePx / 2f, tileSizePx / 2f, state.textPaint);
+
+            // Draw the zoom level, e.g. "zoom = 4".
+            length = TileLabels.zoom(text, zoom);
+            canvas.drawText(text, 0, length, tileSizePx / 2f, tileSizePx * 2f / 3f,
+                    state.textPaint);
+        }
+
+        /** Paints and text buffer owned by a single rendering thread. */
+        static final class DrawState {
+            final Paint borderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            final char[] text = new char[TileLabels.MAX_LENGTH];
+
+            DrawState(float density) {
+                borderPaint.setStyle(Paint.Style.STROKE);
+                textPaint.setTextAlign(Paint.Align.CENTER);
+                textPaint.setTextSize(18 * density);
+            }
         }
     }
 }
@@ -15,15 +15,25 @@
 
 package com.example.mapdemo;
 
+import com.example.mapdemo.tiles.CachingTileProvider;
+import com.example.mapdemo.tiles.DiskTileCache;
+import com.example.mapdemo.tiles.MemoryTileCache;
+import com.example.mapdemo.tiles.SharedUrlTileProvider;
+import com.example.mapdemo.tiles.TileFetcher;
+import com.example.mapdemo.tiles.TilePrefetcher;
 import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.GoogleMap.OnCameraIdleListener;
+import com.google.android.gms.maps.GoogleMap.OnCameraMoveListener;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
+import com.google.android.gms.maps.model.CameraPosition;
 import com.google.android.gms.maps.model.TileOverlay;
 import com.google.android.gms.maps.model.TileOverlayOptions;
 import com.google.android.gms.maps.model.TileProvider;
-import com.google.android.gms.maps.model.UrlTileProvider;
 
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
 import android.view.View;
 import android.widget.CheckBox;
 import android.widget.SeekBar;
@@ -31,6 +41,7 @@ import android.widget.SeekBar.OnSeekBarChangeListener;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Locale;
@@ -39,7 +50,10 @@ import java.util.Locale;
  * This demonstrates how to add a tile overlay to a map.
  */
 public class TileOverlayDemoActivity extends SamplesBaseActivity
-        implements OnSeekBarChangeListener, OnMapReadyCallback {
+        implements OnSeekBarChangeListener, OnMapReadyCallback, OnCameraMoveListener,
+        OnCameraIdleListener {
+
+    private static final String TAG = TileOverlayDemoActivity.class.getSimpleName();
 
     private static final int TRANSPARENCY_MAX = 100;
 
@@ -47,7 +61,21 @@ public class TileOverlayDemoActivity extends SamplesBaseActivity
     private static final String MOON_MAP_URL_FORMAT =
             "https://mw1.google.com/mw-planetary/lunar/lunarmaps_v1/clem_bw/%d/%d/%d.jpg";
 
+    /** Byte budgets for the in-memory and on-disk moon tile caches. */
+    private static final long MEMORY_CACHE_BYTES = 8 * 1024 * 1024;
+    private static final long DISK_CACHE_BYTES = 32 * 1024 * 1024;
+
+    /** Zoom levels served by the moon tile server. */
+    private static final int MOON_MIN_ZOOM = 0;
+    private static final int MOON_MAX_ZOOM = 9;
+
+    private static final int PREFETCH_THREADS = 2;
+
     private TileOverlay moonTiles;
+    private GoogleMap map;
+    private View mapView;
+    private CachingTileProvider cachingTileProvider;
+    private TilePrefetcher prefetcher;
     private com.example.common_ui.databinding.TileOverlayDemoBinding binding;
 
     @Override
@@ -63,15 +91,27 @@ public class TileOverlayDemoActivity extends SamplesBaseActivity
         SupportMapFragment mapFragment =
                 (SupportMapFragment) getSupportFragmentManager().findFragmentById(com.example.common_ui.R.id.map);
         mapFragment.getMapAsync(this);
+        mapView = mapFragment.getView();
 
         applyInsets(binding.mapContainer);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (prefetcher != null) {
+            prefetcher.shutdown();
+        }
+    }
+
     @Override
     public void onMapReady(GoogleMap map) {
+        this.map = map;
         map.setMapType(GoogleMap.MAP_TYPE_NONE);
 
-        TileProvider tileProvider = new UrlTileProvider(256, 256) {
+        // Downloads go through the process-wide TileFetcher, which merges duplicate requests
+        // from other overlays and maps and revalidates tiles with ETag/Last-Modified.
+        TileProvider urlTileProvider = new SharedUrlTileProvider(256, 256) {
             @Override
             public synchronized URL getTileUrl(int x, int y, int zoom) {
                 // The moon tile coordinate system is reversed.  This is not normal.
@@ -87,10 +127,38 @@ public class TileOverlayDemoActivity extends SamplesBaseActivity
             }
         };
 
-        moonTiles = map.addTileOverlay(new TileOverlayOptions().tileProvider(tileProvider));
+        // Serve tiles we have already downloaded from memory or disk instead of the network.
+        cachingTileProvider = new CachingTileProvider(urlTileProvider,
+                new MemoryTileCache(MEMORY_CACHE_BYTES),
+                new DiskTileCache(new File(getCacheDir(), "moon_tiles"), DISK_CACHE_BYTES));
+
+        // Load the tiles the camera is heading towards while it is still moving.
+        prefetcher = new TilePrefetcher(cachingTileProvider, PREFETCH_THREADS, MOON_MIN_ZOOM,
+                MOON_MAX_ZOOM);
+        map.setOnCameraMoveListener(this);
+        map.setOnCameraIdleListener(this);
+
+        moonTiles = map.addTileOverlay(new TileOverlayOptions().tileProvider(cachingTileProvider));
         binding.transparencySeekBar.setOnSeekBarChangeListener(this);
     }
 
+    @Override
+    public void onCameraMove() {
+        float density = getResources().getDisplayMetrics().density;
+        prefetcher.setViewportSize(mapView.getWidth() / density, mapView.getHeight() / density);
+        CameraPosition position = map.getCameraPosition();
+        prefetcher.onCameraMove(position.target.latitude, position.target.longitude,
+                position.zoom, SystemClock.uptimeMillis());
+    }
+
+    @Override
+    public void onCameraIdle() {
+        prefetcher.onCameraIdle();
+        Log.d(TAG, "Moon tiles: " + cachingTileProvider.getStats()
+                + " cancelledPrefetches=" + prefetcher.getCancelledCount()
+                + " fetcher: " + TileFetcher.getInstance().getStats());
+    }
+
     private void setFadeIn() {
         if (moonTiles == null) {
             return;
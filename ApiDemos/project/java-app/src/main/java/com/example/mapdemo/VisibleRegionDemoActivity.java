@@ -15,14 +15,13 @@
 package com.example.mapdemo;
 
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.SystemClock;
 import android.view.View;
 import android.view.animation.Interpolator;
 import android.view.animation.OvershootInterpolator;
 import android.widget.Toast;
 
 import com.example.common_ui.databinding.VisibleRegionDemoBinding;
+import com.example.mapdemo.anim.AnimationScheduler;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.SupportMapFragment;
@@ -51,7 +50,10 @@ public class VisibleRegionDemoActivity extends SamplesBaseActivity implements
 
     private VisibleRegionDemoBinding binding;
 
-    /** Keep track of current values for padding, so we can animate from them. */
+    /**
+     * The padding last applied to the map, so that an animation starts from wherever the one it
+     * replaces had got to.
+     */
     int currentLeft = 150;
 
     int currentTop = 0;
@@ -60,6 +62,9 @@ public class VisibleRegionDemoActivity extends SamplesBaseActivity implements
 
     int currentBottom = 0;
 
+    /** The running padding animation, replaced when the padding changes again. */
+    private AnimationScheduler.Animation paddingAnimation;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -92,6 +97,15 @@ public class VisibleRegionDemoActivity extends SamplesBaseActivity implements
         mMap.setOnCameraIdleListener(() -> binding.messageText.setText("CameraChangeListener: " + mMap.getCameraPosition()));
     }
 
+    @Override
+    protected void onDestroy() {
+        // The scheduler outlives the activity; stop it from padding a destroyed map.
+        if (paddingAnimation != null) {
+            AnimationScheduler.getInstance().remove(paddingAnimation);
+        }
+        super.onDestroy();
+    }
+
     /**
      * Checks if the map is ready (which depends on whether the Google Play services APK is
      * available. This should be called prior to calling any methods on GoogleMap.
@@ -147,8 +161,6 @@ public class VisibleRegionDemoActivity extends SamplesBaseActivity implements
     public void animatePadding(
         final int toLeft, final int toTop, final int toRight, final int toBottom) {
 
-        final Handler handler = new Handler();
-        final long start = SystemClock.uptimeMillis();
         final long duration = 1000;
 
         final Interpolator interpolator = new OvershootInterpolator();
@@ -158,15 +170,19 @@ public class VisibleRegionDemoActivity extends SamplesBaseActivity implements
         final int startRight = currentRight;
         final int startBottom = currentBottom;
 
-        currentLeft = toLeft;
-        currentTop = toTop;
-        currentRight = toRight;
-        currentBottom = toBottom;
+        final AnimationScheduler scheduler = AnimationScheduler.getInstance();
+        if (paddingAnimation != null) {
+            scheduler.remove(paddingAnimation);
+        }
+        paddingAnimation = new AnimationScheduler.Animation() {
+            private long startNanos;
 
-        handler.post(new Runnable() {
             @Override
-            public void run() {
-                long elapsed = SystemClock.uptimeMillis() - start;
+            public void onFrame(long frameTimeNanos, long deltaNanos) {
+                if (startNanos == 0) {
+                    startNanos = frameTimeNanos;
+                }
+                long elapsed = Math.min(duration, (frameTimeNanos - startNanos) / 1_000_000);
                 float t = interpolator.getInterpolation((float) elapsed / duration);
 
                 int left = (int) (startLeft + ((toLeft - startLeft) * t));
@@ -175,12 +191,16 @@ public class VisibleRegionDemoActivity extends SamplesBaseActivity implements
                 int bottom = (int) (startBottom + ((toBottom - startBottom) * t));
 
                 mMap.setPadding(left, top, right, bottom);
+                currentLeft = left;
+                currentTop = top;
+                currentRight = right;
+                currentBottom = bottom;
 
-                if (elapsed < duration) {
-                    // Post again 16ms later.
-                    handler.postDelayed(this, 16);
+                if (elapsed == duration) {
+                    scheduler.remove(this);
                 }
             }
-        });
+        };
+        scheduler.add(paddingAnimation);
     }
 }
@@ -0,0 +1,231 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.anim;
+
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs any number of animations from a single vsync callback.
+ * <p>
+ * Every running {@link Animation} is called once per display frame with the vsync time and the
+ * real time since the previous frame, so an animation that moves by its delta keeps its speed
+ * when frames are dropped. When a frame callback starts more than a frame interval after its
+ * vsync, the UI thread is behind: the scheduler skips that frame's work, and the next frame gets
+ * the whole delta. At most one frame in a row is skipped, so animations never stall.
+ * <p>
+ * The scheduler only holds a vsync callback while an animation is running. It keeps the frame
+ * intervals and the time spent in animations for the last {@link #STATS_WINDOW} frames, see
+ * {@link #getFrameIntervalPercentile} and {@link #getWorkPercentile}.
+ * <p>
+ * {@link #getInstance()} has no {@code Context} to read {@code Display.getRefreshRate()} from, so
+ * it assumes a 60 Hz display. On a faster display the scheduler only skips work once the UI
+ * thread is a whole 60 Hz frame behind, the first frame after going idle gets a 60 Hz delta, and
+ * {@link #getDroppedFrameCount} counts missed 60 Hz frames rather than missed vsyncs.
+ * <p>
+ * All methods must be called on the UI thread.
+ */
+public class AnimationScheduler {
+
+    /** Called on every frame while it is added to a scheduler. */
+    public interface Animation {
+        /**
+         * @param frameTimeNanos the vsync time of this frame, in {@link System#nanoTime} time
+         * @param deltaNanos     the time since the previous frame this animation saw; one frame
+         *                       interval on its first frame
+         */
+        void onFrame(long frameTimeNanos, long deltaNanos);
+    }
+
+    /** Delivers vsync callbacks; {@link Choreographer} outside of tests. */
+    interface Vsync {
+        void postFrameCallback(Choreographer.FrameCallback callback);
+    }
+
+    /** Frames kept for the percentiles. */
+    public static final int STATS_WINDOW = 512;
+
+    /** The frame interval of a 60 Hz display; see the class comment. */
+    private static final long DEFAULT_FRAME_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+
+    private static AnimationScheduler instance;
+
+    private final Vsync vsync;
+    private final LongSupplier clock;
+    private final long frameIntervalNanos;
+    private final Choreographer.FrameCallback frameCallback = this::doFrame;
+
+    private final List<Animation> animations = new ArrayList<>();
+    /** A copy of {@link #animations} to iterate over, rebuilt after changes. */
+    private Animation[] running = new Animation[0];
+    private boolean runningStale;
+
+    private boolean callbackPosted;
+    /** The vsync time of the last frame that ran animations, or 0 after going idle. */
+    private long lastFrameTimeNanos;
+    private boolean skippedLastFrame;
+
+    private final Window intervals = new Window();
+    private final Window work = new Window();
+    private long frames;
+    private long skippedFrames;
+    private long droppedFrames;
+
+    /** The scheduler on the main thread's {@link Choreographer}, shared by every animation. */
+    public static AnimationScheduler getInstance() {
+        if (instance == null) {
+            Choreographer choreographer = Choreographer.getInstance();
+            instance = new AnimationScheduler(choreographer::postFrameCallback, System::nanoTime,
+                    DEFAULT_FRAME_INTERVAL_NANOS);
+        }
+        return instance;
+    }
+
+    AnimationScheduler(Vsync vsync, LongSupplier clock, long frameIntervalNanos) {
+        this.vsync = vsync;
+        this.clock = clock;
+        this.frameIntervalNanos = frameIntervalNanos;
+    }
+
+    /** Starts calling an animation on every frame. Adding a running animation does nothing. */
+    public void add(Animation animation) {
+        if (animations.contains(animation)) {
+            return;
+        }
+        animations.add(animation);
+        runningStale = true;
+        if (!callbackPosted) {
+            callbackPosted = true;
+            vsync.postFrameCallback(frameCallback);
+        }
+    }
+
+    /** Stops calling an animation, from the next frame on. */
+    public void remove(Animation animation) {
+        if (animations.remove(animation)) {
+            runningStale = true;
+        }
+    }
+
+    public boolean isRunning(Animation animation) {
+        return animations.contains(animation);
+    }
+
+    private void doFrame(long frameTimeNanos) {
+        callbackPosted = false;
+        if (animations.isEmpty()) {
+            // Idle: the first frame after the next add gets a nominal delta.
+            lastFrameTimeNanos = 0;
+            return;
+        }
+        callbackPosted = true;
+        vsync.postFrameCallback(frameCallback);
+
+        long start = clock.getAsLong();
+        if (lastFrameTimeNanos != 0 && !skippedLastFrame
+                && start - frameTimeNanos > frameIntervalNanos) {
+            skippedLastFrame = true;
+            skippedFrames++;
+            return;
+        }
+        skippedLastFrame = false;
+
+        long delta = lastFrameTimeNanos == 0
+                ? frameIntervalNanos : frameTimeNanos - lastFrameTimeNanos;
+        if (lastFrameTimeNanos != 0) {
+            intervals.add(delta);
+            // Vsyncs that passed without a callback, rounded to the nearest frame.
+            droppedFrames += Math.max(0, (delta + frameIntervalNanos / 2) / frameIntervalNanos - 1);
+        }
+        lastFrameTimeNanos = frameTimeNanos;
+        frames++;
+
+        if (runningStale) {
+            running = animations.toArray(running.length == animations.size()
+                    ? running : new Animation[animations.size()]);
+            runningStale = false;
+        }
+        for (Animation animation : running) {
+            animation.onFrame(frameTimeNanos, delta);
+        }
+        work.add(clock.getAsLong() - start);
+    }
+
+    /**
+     * A percentile of the intervals between recent frames, for example 50, 90 or 99. Returns 0
+     * before the second frame.
+     */
+    public long getFrameIntervalPercentile(double percentile) {
+        return intervals.percentile(percentile);
+    }
+
+    /** A percentile of the time recent frames spent in animation callbacks. */
+    public long getWorkPercentile(double percentile) {
+        return work.percentile(percentile);
+    }
+
+    /** Frames that ran animations. */
+    public long getFrameCount() {
+        return frames;
+    }
+
+    /** Frames whose work was skipped because the UI thread was behind. */
+    public long getSkippedFrameCount() {
+        return skippedFrames;
+    }
+
+    /** Vsyncs that passed without a frame callback at all, while animations were running. */
+    public long getDroppedFrameCount() {
+        return droppedFrames;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("frames=%d skipped=%d dropped=%d interval p50=%.1fms p90=%.1fms"
+                        + " p99=%.1fms work p50=%.2fms p99=%.2fms",
+                frames, skippedFrames, droppedFrames,
+                getFrameIntervalPercentile(50) / 1e6, getFrameIntervalPercentile(90) / 1e6,
+                getFrameIntervalPercentile(99) / 1e6, getWorkPercentile(50) / 1e6,
+                getWorkPercentile(99) / 1e6);
+    }
+
+    /** The last {@link #STATS_WINDOW} samples in a ring. */
+    private static final class Window {
+        private final long[] samples = new long[STATS_WINDOW];
+        private int count;
+        private int next;
+
+        void add(long sample) {
+            samples[next] = sample;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        long percentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100 * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, rank))];
+        }
+    }
+}
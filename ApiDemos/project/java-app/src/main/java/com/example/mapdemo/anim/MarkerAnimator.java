@@ -0,0 +1,469 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.anim;
+
+import android.animation.TimeInterpolator;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Animates marker properties, for any number of markers, from a single
+ * {@link AnimationScheduler} callback.
+ * <p>
+ * A marker can run one animation per property at a time: position (a straight line or a path),
+ * alpha, rotation, icon hue and anchor. Starting an animation replaces the one running on the same
+ * property. Animations are kept in parallel arrays rather than as objects, so thousands of running
+ * animations cost no more than a few arrays and one frame callback. Positions follow great circles
+ * at a constant speed; rotations and hues take the short way around the circle.
+ * <p>
+ * Every frame computes all values first and then makes the {@link Host} calls, skipping values
+ * that did not change since the last write. Hues are written in whole degrees only, so a host can
+ * cache one icon per degree.
+ * <p>
+ * Call {@link #cancel} before removing a marker and {@link #cancelAll} after clearing the map; the
+ * host is never called for a marker again after that. All methods must be called on the UI thread.
+ *
+ * @param <M> the marker type, {@code Marker} in an activity
+ */
+public class MarkerAnimator<M> implements AnimationScheduler.Animation {
+
+    /** Writes animated values to markers. */
+    public interface Host<M> {
+        void setPosition(M marker, double latitude, double longitude);
+
+        void setAlpha(M marker, float alpha);
+
+        void setRotation(M marker, float rotation);
+
+        /** Called with whole degrees in [0, 360) only. */
+        void setHue(M marker, float hue);
+
+        void setAnchor(M marker, float u, float v);
+    }
+
+    private static final int POSITION = 0;
+    private static final int ALPHA = 1;
+    private static final int ROTATION = 2;
+    private static final int HUE = 3;
+    private static final int ANCHOR = 4;
+    private static final int PROPERTY_COUNT = 5;
+
+    /** A start time for animations that have not seen a frame yet. */
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private final AnimationScheduler scheduler;
+    private final Host<M> host;
+
+    /** The slots of each marker's animations, by property, or -1. */
+    private final Map<M, int[]> slotsByMarker = new HashMap<>();
+
+    // One slot per running animation, in parallel arrays. A null marker is a cancelled slot.
+    private Object[] markers = new Object[16];
+    private int[] properties = new int[16];
+    private long[] startNanos = new long[16];
+    private long[] durationNanos = new long[16];
+    private TimeInterpolator[] interpolators = new TimeInterpolator[16];
+    private double[] from = new double[32];
+    private double[] to = new double[32];
+    private GreatCirclePath[] paths = new GreatCirclePath[16];
+    /** The last values written, to skip writes that change nothing. */
+    private double[] written = new double[32];
+    /** The values computed by the current frame. */
+    private double[] values = new double[32];
+    private int count;
+    private int cancelled;
+    private boolean inFrame;
+
+    private long writes;
+    private long skippedWrites;
+
+    public MarkerAnimator(Host<M> host) {
+        this(AnimationScheduler.getInstance(), host);
+    }
+
+    MarkerAnimator(AnimationScheduler scheduler, Host<M> host) {
+        this.scheduler = scheduler;
+        this.host = host;
+    }
+
+    /** Moves a marker along the great circle between two positions. */
+    public void animatePosition(M marker, double fromLatitude, double fromLongitude,
+            double toLatitude, double toLongitude, long durationMillis,
+            TimeInterpolator interpolator) {
+        followPath(marker, new double[] {fromLatitude, toLatitude},
+                new double[] {fromLongitude, toLongitude}, 2, durationMillis, interpolator);
+    }
+
+    /**
+     * Moves a marker along a path of {@code count} points at a constant speed, following great
+     * circles between the points.
+     */
+    public void followPath(M marker, double[] latitudes, double[] longitudes, int count,
+            long durationMillis, TimeInterpolator interpolator) {
+        int slot = start(marker, POSITION, durationMillis, interpolator);
+        paths[slot] = new GreatCirclePath(latitudes, longitudes, count);
+    }
+
+    /** Fades a marker; values are clamped to [0, 1]. */
+    public void animateAlpha(M marker, float fromAlpha, float toAlpha, long durationMillis,
+            TimeInterpolator interpolator) {
+        int slot = start(marker, ALPHA, durationMillis, interpolator);
+        from[2 * slot] = fromAlpha;
+        to[2 * slot] = toAlpha;
+    }
+
+    public void animateRotation(M marker, float fromDegrees, float toDegrees,
+            long durationMillis, TimeInterpolator interpolator) {
+        int slot = start(marker, ROTATION, durationMillis, interpolator);
+        from[2 * slot] = fromDegrees;
+        to[2 * slot] = fromDegrees + shortestTurn(fromDegrees, toDegrees);
+    }
+
+    /** Changes the hue of a default marker icon, for {@code BitmapDescriptorFactory}. */
+    public void animateHue(M marker, float fromHue, float toHue, long durationMillis,
+            TimeInterpolator interpolator) {
+        int slot = start(marker, HUE, durationMillis, interpolator);
+        from[2 * slot] = fromHue;
+        to[2 * slot] = fromHue + shortestTurn(fromHue, toHue);
+    }
+
+    public void animateAnchor(M marker, float fromU, float fromV, float toU, float toV,
+            long durationMillis, TimeInterpolator interpolator) {
+        int slot = start(marker, ANCHOR, durationMillis, interpolator);
+        from[2 * slot] = fromU;
+        from[2 * slot + 1] = fromV;
+        to[2 * slot] = toU;
+        to[2 * slot + 1] = toV;
+    }
+
+    private int start(M marker, int property, long durationMillis,
+            TimeInterpolator interpolator) {
+        int[] slots = slotsByMarker.get(marker);
+        if (slots == null) {
+            slots = new int[PROPERTY_COUNT];
+            Arrays.fill(slots, -1);
+            slotsByMarker.put(marker, slots);
+        }
+        int slot = slots[property];
+        if (slot < 0) {
+            slot = count++;
+            ensureCapacity(count);
+            slots[property] = slot;
+            markers[slot] = marker;
+            properties[slot] = property;
+        }
+        startNanos[slot] = NOT_STARTED;
+        durationNanos[slot] = Math.max(1, TimeUnit.MILLISECONDS.toNanos(durationMillis));
+        interpolators[slot] = interpolator;
+        paths[slot] = null;
+        written[2 * slot] = Double.NaN;
+        written[2 * slot + 1] = Double.NaN;
+        scheduler.add(this);
+        return slot;
+    }
+
+    /** Stops every animation of a marker, leaving it where it is. */
+    public void cancel(M marker) {
+        int[] slots = slotsByMarker.remove(marker);
+        if (slots == null) {
+            return;
+        }
+        for (int slot : slots) {
+            if (slot >= 0) {
+                markers[slot] = null;
+                cancelled++;
+            }
+        }
+        if (!inFrame) {
+            compact();
+        }
+    }
+
+    /** Stops every animation, for example after {@code GoogleMap.clear()}. */
+    public void cancelAll() {
+        slotsByMarker.clear();
+        Arrays.fill(markers, 0, count, null);
+        cancelled = count;
+        if (!inFrame) {
+            compact();
+        }
+    }
+
+    @Override
+    public void onFrame(long frameTimeNanos, long deltaNanos) {
+        // Animations started by the host during this frame wait for the next one.
+        int frameCount = count;
+        inFrame = true;
+        try {
+            for (int slot = 0; slot < frameCount; slot++) {
+                if (markers[slot] != null) {
+                    compute(slot, frameTimeNanos);
+                }
+            }
+            for (int slot = 0; slot < frameCount; slot++) {
+                if (markers[slot] != null && startNanos[slot] != NOT_STARTED) {
+                    write(slot);
+                }
+            }
+        } finally {
+            inFrame = false;
+        }
+        for (int slot = 0; slot < frameCount; slot++) {
+            if (markers[slot] != null && startNanos[slot] != NOT_STARTED
+                    && frameTimeNanos - startNanos[slot] >= durationNanos[slot]) {
+                finish(slot);
+            }
+        }
+        compact();
+    }
+
+    private void compute(int slot, long frameTimeNanos) {
+        if (startNanos[slot] == NOT_STARTED) {
+            startNanos[slot] = frameTimeNanos;
+        }
+        float fraction = (float) Math.min(1.0,
+                (double) (frameTimeNanos - startNanos[slot]) / durationNanos[slot]);
+        TimeInterpolator interpolator = interpolators[slot];
+        double t = interpolator == null ? fraction : interpolator.getInterpolation(fraction);
+
+        int i = 2 * slot;
+        switch (properties[slot]) {
+            case POSITION:
+                paths[slot].pointAt(t, values, i);
+                break;
+            case ALPHA:
+                values[i] = Math.max(0, Math.min(1, lerp(from[i], to[i], t)));
+                break;
+            case ROTATION:
+                values[i] = lerp(from[i], to[i], t);
+                break;
+            case HUE:
+                double hue = Math.floor(lerp(from[i], to[i], t));
+                values[i] = hue - 360 * Math.floor(hue / 360);
+                break;
+            case ANCHOR:
+                values[i] = lerp(from[i], to[i], t);
+                values[i + 1] = lerp(from[i + 1], to[i + 1], t);
+                break;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void write(int slot) {
+        int i = 2 * slot;
+        int property = properties[slot];
+        boolean twoValues = property == POSITION || property == ANCHOR;
+        if (values[i] == written[i] && (!twoValues || values[i + 1] == written[i + 1])) {
+            skippedWrites++;
+            return;
+        }
+        written[i] = values[i];
+        written[i + 1] = values[i + 1];
+        writes++;
+        M marker = (M) markers[slot];
+        switch (property) {
+            case POSITION:
+                host.setPosition(marker, values[i], values[i + 1]);
+                break;
+            case ALPHA:
+                host.setAlpha(marker, (float) values[i]);
+                break;
+            case ROTATION:
+                host.setRotation(marker, (float) values[i]);
+                break;
+            case HUE:
+                host.setHue(marker, (float) values[i]);
+                break;
+            case ANCHOR:
+                host.setAnchor(marker, (float) values[i], (float) values[i + 1]);
+                break;
+        }
+    }
+
+    private void finish(int slot) {
+        Object marker = markers[slot];
+        int[] slots = slotsByMarker.get(marker);
+        slots[properties[slot]] = -1;
+        if (isIdle(slots)) {
+            slotsByMarker.remove(marker);
+        }
+        markers[slot] = null;
+        cancelled++;
+    }
+
+    /** Drops cancelled and finished slots, moving the last slots into the gaps. */
+    private void compact() {
+        if (cancelled > 0) {
+            for (int slot = count - 1; slot >= 0; slot--) {
+                if (markers[slot] == null) {
+                    move(count - 1, slot);
+                    count--;
+                }
+            }
+            cancelled = 0;
+        }
+        if (count == 0) {
+            scheduler.remove(this);
+        }
+    }
+
+    private void move(int fromSlot, int toSlot) {
+        if (fromSlot != toSlot) {
+            markers[toSlot] = markers[fromSlot];
+            properties[toSlot] = properties[fromSlot];
+            startNanos[toSlot] = startNanos[fromSlot];
+            durationNanos[toSlot] = durationNanos[fromSlot];
+            interpolators[toSlot] = interpolators[fromSlot];
+            paths[toSlot] = paths[fromSlot];
+            System.arraycopy(from, 2 * fromSlot, from, 2 * toSlot, 2);
+            System.arraycopy(to, 2 * fromSlot, to, 2 * toSlot, 2);
+            System.arraycopy(written, 2 * fromSlot, written, 2 * toSlot, 2);
+            slotsByMarker.get(markers[toSlot])[properties[toSlot]] = toSlot;
+        }
+        markers[fromSlot] = null;
+        interpolators[fromSlot] = null;
+        paths[fromSlot] = null;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= markers.length) {
+            return;
+        }
+        int size = markers.length * 2;
+        markers = Arrays.copyOf(markers, size);
+        properties = Arrays.copyOf(properties, size);
+        startNanos = Arrays.copyOf(startNanos, size);
+        durationNanos = Arrays.copyOf(durationNanos, size);
+        interpolators = Arrays.copyOf(interpolators, size);
+        paths = Arrays.copyOf(paths, size);
+        from = Arrays.copyOf(from, 2 * size);
+        to = Arrays.copyOf(to, 2 * size);
+        written = Arrays.copyOf(written, 2 * size);
+        values = Arrays.copyOf(values, 2 * size);
+    }
+
+    public boolean isAnimating(M marker) {
+        return slotsByMarker.containsKey(marker);
+    }
+
+    /** Running animations, over all markers and properties. */
+    public int getRunningCount() {
+        return count - cancelled;
+    }
+
+    /** Host calls made. */
+    public long getWriteCount() {
+        return writes;
+    }
+
+    /** Host calls skipped because the value had not changed. */
+    public long getSkippedWriteCount() {
+        return skippedWrites;
+    }
+
+    private static boolean isIdle(int[] slots) {
+        for (int slot : slots) {
+            if (slot >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static double lerp(double a, double b, double t) {
+        return a + (b - a) * t;
+    }
+
+    /** The signed turn in (-180, 180] from one angle to another, in degrees. */
+    private static double shortestTurn(double fromDegrees, double toDegrees) {
+        double turn = (toDegrees - fromDegrees) % 360;
+        if (turn > 180) {
+            turn -= 360;
+        } else if (turn <= -180) {
+            turn += 360;
+        }
+        return turn;
+    }
+
+    /** Points as unit vectors, with the arc length up to each point. */
+    static final class GreatCirclePath {
+        private final double[] xyz;
+        private final double[] arcs;
+
+        GreatCirclePath(double[] latitudes, double[] longitudes, int count) {
+            if (count < 1) {
+                throw new IllegalArgumentException("A path needs at least one point");
+            }
+            xyz = new double[3 * count];
+            arcs = new double[count];
+            for (int p = 0; p < count; p++) {
+                double lat = Math.toRadians(latitudes[p]);
+                double lng = Math.toRadians(longitudes[p]);
+                xyz[3 * p] = Math.cos(lat) * Math.cos(lng);
+                xyz[3 * p + 1] = Math.cos(lat) * Math.sin(lng);
+                xyz[3 * p + 2] = Math.sin(lat);
+                if (p > 0) {
+                    arcs[p] = arcs[p - 1] + angle(p - 1, p);
+                }
+            }
+        }
+
+        /** Writes the latitude and longitude at a fraction of the path length to {@code out}. */
+        void pointAt(double fraction, double[] out, int offset) {
+            int last = arcs.length - 1;
+            double target = Math.max(0, Math.min(1, fraction)) * arcs[last];
+            int p = Arrays.binarySearch(arcs, target);
+            if (p < 0) {
+                p = -p - 2;
+            }
+            p = Math.max(0, Math.min(p, last - 1));
+            double x;
+            double y;
+            double z;
+            if (last == 0) {
+                x = xyz[0];
+                y = xyz[1];
+                z = xyz[2];
+            } else {
+                double theta = arcs[p + 1] - arcs[p];
+                double f = theta == 0 ? 0 : (target - arcs[p]) / theta;
+                double a;
+                double b;
+                if (theta < 1e-9) {
+                    a = 1 - f;
+                    b = f;
+                } else {
+                    a = Math.sin((1 - f) * theta) / Math.sin(theta);
+                    b = Math.sin(f * theta) / Math.sin(theta);
+                }
+                int i = 3 * p;
+                x = a * xyz[i] + b * xyz[i + 3];
+                y = a * xyz[i + 1] + b * xyz[i + 4];
+                z = a * xyz[i + 2] + b * xyz[i + 5];
+            }
+            out[offset] = Math.toDegrees(Math.atan2(z, Math.sqrt(x * x + y * y)));
+            out[offset + 1] = Math.toDegrees(Math.atan2(y, x));
+        }
+
+        private double angle(int p, int q) {
+            double dot = xyz[3 * p] * xyz[3 * q] + xyz[3 * p + 1] * xyz[3 * q + 1]
+                    + xyz[3 * p + 2] * xyz[3 * q + 2];
+            return Math.acos(Math.max(-1, Math.min(1, dot)));
+        }
+    }
+}
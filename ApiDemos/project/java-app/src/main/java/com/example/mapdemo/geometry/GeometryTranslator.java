@@ -0,0 +1,165 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.geometry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Moves a polyline or a polygon with holes by a latitude and longitude distance, frame after
+ * frame, without allocating.
+ * <p>
+ * The original points are copied once into a primitive buffer, split into rings: a polyline is one
+ * ring, a polygon is its outline followed by its holes. {@link #translate} writes the original
+ * points plus a distance into a second buffer, so the shape never drifts however many frames it
+ * moves, and does nothing if the distance did not change. Shapes only become point objects at the
+ * boundary with the map, in {@link #copyRing}, which refills a list the caller keeps between
+ * frames.
+ * <p>
+ * Instances are not thread safe.
+ */
+public final class GeometryTranslator {
+
+    /** Creates the map's point type, for example {@code LatLng::new}. */
+    public interface PointFactory<P> {
+        P create(double latitude, double longitude);
+    }
+
+    /** Latitude and longitude pairs, for all rings one after another. */
+    private final double[] original;
+    private final double[] translated;
+    /** Index of the first point of each ring, followed by the total point count. */
+    private final int[] ringStarts;
+
+    private double latDistance;
+    private double lngDistance;
+
+    private GeometryTranslator(double[] original, int[] ringStarts) {
+        this.original = original;
+        this.translated = original.clone();
+        this.ringStarts = ringStarts;
+    }
+
+    /**
+     * Moves every point to its original position plus the distance. Returns false, without
+     * touching the buffer, if the distance is the same as last time.
+     */
+    public boolean translate(double latDistance, double lngDistance) {
+        if (latDistance == this.latDistance && lngDistance == this.lngDistance) {
+            return false;
+        }
+        this.latDistance = latDistance;
+        this.lngDistance = lngDistance;
+        double[] from = original;
+        double[] to = translated;
+        for (int i = 0; i < to.length; i += 2) {
+            to[i] = from[i] + latDistance;
+            to[i + 1] = from[i + 1] + lngDistance;
+        }
+        return true;
+    }
+
+    public int getRingCount() {
+        return ringStarts.length - 1;
+    }
+
+    public int getPointCount(int ring) {
+        return ringStarts[ring + 1] - ringStarts[ring];
+    }
+
+    /** The total number of points in all rings. */
+    public int getPointCount() {
+        return ringStarts[ringStarts.length - 1];
+    }
+
+    public double getLatitude(int ring, int point) {
+        return translated[2 * (ringStarts[ring] + point)];
+    }
+
+    public double getLongitude(int ring, int point) {
+        return translated[2 * (ringStarts[ring] + point) + 1];
+    }
+
+    /**
+     * Replaces the contents of {@code points} with the translated points of a ring and returns it.
+     * Keep the list between frames so only the point objects are new.
+     */
+    public <P> List<P> copyRing(int ring, List<P> points, PointFactory<P> factory) {
+        points.clear();
+        if (points instanceof ArrayList) {
+            ((ArrayList<P>) points).ensureCapacity(getPointCount(ring));
+        }
+        for (int i = 2 * ringStarts[ring], end = 2 * ringStarts[ring + 1]; i < end; i += 2) {
+            points.add(factory.create(translated[i], translated[i + 1]));
+        }
+        return points;
+    }
+
+    /**
+     * Replaces the contents of {@code rings} with the translated rings from {@code firstRing} on,
+     * for the holes of a polygon, reusing the inner lists already in it.
+     */
+    public <P> List<List<P>> copyRings(int firstRing, List<List<P>> rings,
+            PointFactory<P> factory) {
+        int count = getRingCount() - firstRing;
+        while (rings.size() > count) {
+            rings.remove(rings.size() - 1);
+        }
+        for (int r = 0; r < count; r++) {
+            if (r == rings.size()) {
+                rings.add(new ArrayList<>());
+            }
+            copyRing(firstRing + r, rings.get(r), factory);
+        }
+        return rings;
+    }
+
+    /** Collects the points of a geometry, ring by ring. */
+    public static final class Builder {
+        private double[] points = new double[64];
+        private int pointCount;
+        private int[] ringStarts = new int[4];
+        private int ringCount;
+
+        /** Starts a new ring; the points added next belong to it. */
+        public Builder beginRing() {
+            if (ringCount + 1 == ringStarts.length) {
+                ringStarts = Arrays.copyOf(ringStarts, ringStarts.length * 2);
+            }
+            ringStarts[ringCount++] = pointCount;
+            return this;
+        }
+
+        public Builder add(double latitude, double longitude) {
+            if (ringCount == 0) {
+                throw new IllegalStateException("beginRing() has not been called");
+            }
+            if (2 * pointCount + 2 > points.length) {
+                points = Arrays.copyOf(points, points.length * 2);
+            }
+            points[2 * pointCount] = latitude;
+            points[2 * pointCount + 1] = longitude;
+            pointCount++;
+            return this;
+        }
+
+        public GeometryTranslator build() {
+            int[] starts = Arrays.copyOf(ringStarts, ringCount + 1);
+            starts[ringCount] = pointCount;
+            return new GeometryTranslator(Arrays.copyOf(points, 2 * pointCount), starts);
+        }
+    }
+}
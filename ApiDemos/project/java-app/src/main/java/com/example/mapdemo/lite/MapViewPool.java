@@ -0,0 +1,154 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.lite;
+
+import android.os.Looper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A fixed set of map views, created ahead of time so that showing a map in a list row does not
+ * pay for creating one.
+ * <p>
+ * Creating and initialising a {@code MapView} is the most expensive part of binding a lite map
+ * row, and a {@code RecyclerView} does it for every row on screen when the list first appears.
+ * {@link #prewarm} instead creates the views one at a time while the UI thread is idle, each in its
+ * own idle pass, so the first frames are not held up. {@link #acquire} hands out a warm view if
+ * there is one, and only creates one on the spot if the pool has run dry. Views handed back with
+ * {@link #release} are kept for the next caller, up to the pool's size.
+ * <p>
+ * All methods must be called on the UI thread.
+ *
+ * @param <V> the pooled view type, a lite mode map in an activity
+ */
+public class MapViewPool<V> {
+
+    /** Creates and destroys the pooled views, on the UI thread. */
+    public interface Host<V> {
+        /** Creates a view and starts loading its map. */
+        V create();
+
+        /** Releases everything the view holds; it is never used again. */
+        void destroy(V view);
+    }
+
+    /** Runs a task once the UI thread has nothing else to do. */
+    public interface IdleScheduler {
+        void postIdle(Runnable task);
+    }
+
+    private final Host<V> host;
+    private final IdleScheduler scheduler;
+    private final int size;
+
+    private final ArrayDeque<V> idle = new ArrayDeque<>();
+    private final List<V> inUse = new ArrayList<>();
+    private boolean warming;
+    private boolean closed;
+
+    private int warmHits;
+    private int coldCreates;
+
+    /**
+     * @param size how many views to create ahead of time and keep; about the number of rows on
+     *             screen at once
+     */
+    public MapViewPool(Host<V> host, IdleScheduler scheduler, int size) {
+        this.host = host;
+        this.scheduler = scheduler;
+        this.size = size;
+    }
+
+    /** An {@link IdleScheduler} on the UI thread's message queue. */
+    public static IdleScheduler uiThreadIdle() {
+        return task -> Looper.myQueue().addIdleHandler(() -> {
+            task.run();
+            return false;
+        });
+    }
+
+    /** Creates views while the UI thread is idle until the pool holds {@code size} of them. */
+    public void prewarm() {
+        if (warming || closed) {
+            return;
+        }
+        warming = true;
+        scheduler.postIdle(this::warmOne);
+    }
+
+    private void warmOne() {
+        warming = false;
+        if (closed || idle.size() + inUse.size() >= size) {
+            return;
+        }
+        idle.push(host.create());
+        prewarm();
+    }
+
+    /** Returns a view for the caller to show, warm if possible. */
+    public V acquire() {
+        V view = idle.poll();
+        if (view != null) {
+            warmHits++;
+        } else {
+            coldCreates++;
+            view = host.create();
+        }
+        inUse.add(view);
+        return view;
+    }
+
+    /** Takes back a view from {@link #acquire}, keeping it if the pool is not full. */
+    public void release(V view) {
+        if (!inUse.remove(view)) {
+            return;
+        }
+        if (closed || idle.size() + inUse.size() >= size) {
+            host.destroy(view);
+        } else {
+            idle.push(view);
+        }
+    }
+
+    /** Destroys every view, including those still in use, and stops warming. */
+    public void close() {
+        closed = true;
+        for (V view : idle) {
+            host.destroy(view);
+        }
+        for (V view : inUse) {
+            host.destroy(view);
+        }
+        idle.clear();
+        inUse.clear();
+    }
+
+    /** The number of views waiting to be acquired. */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /** How many {@link #acquire} calls got a view that was already created. */
+    public int getWarmHits() {
+        return warmHits;
+    }
+
+    /** How many {@link #acquire} calls had to create a view on the spot. */
+    public int getColdCreates() {
+        return coldCreates;
+    }
+}
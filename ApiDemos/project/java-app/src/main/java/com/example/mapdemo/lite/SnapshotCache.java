@@ -0,0 +1,276 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.lite;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Map snapshots by key, kept in memory and on disk so that a list row only has to render its map
+ * once.
+ * <p>
+ * The memory tier is a least-recently-used cache bounded by the bytes the decoded images hold.
+ * Every snapshot is also encoded to a file in a directory, bounded by the total file size, so a
+ * snapshot evicted from memory, or taken in an earlier run, is read back from disk instead of
+ * being rendered again. Disk reads and writes happen on the {@code io} executor; results are
+ * delivered on the {@code ui} executor.
+ * <p>
+ * {@link #get}, {@link #getIfInMemory} and {@link #put} must be called on the UI thread.
+ *
+ * @param <B> the image type, {@code Bitmap} in an activity
+ */
+public class SnapshotCache<B> {
+
+    /**
+     * Measures, encodes and decodes images. {@code encode} and {@code decode} run on {@code io}.
+     */
+    public interface Codec<B> {
+        /** The memory the decoded image holds, in bytes. */
+        long sizeOf(B image);
+
+        void encode(B image, OutputStream out) throws IOException;
+
+        /** Returns the decoded image, or {@code null} if the data is not an image. */
+        B decode(InputStream in) throws IOException;
+    }
+
+    /** Receives a cached image, or {@code null} if there is none, on the UI thread. */
+    public interface Callback<B> {
+        void onResult(B image);
+    }
+
+    private static final String SUFFIX = ".snapshot";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Codec<B> codec;
+    private final long maxMemoryBytes;
+    private final File directory;
+    private final long maxDiskBytes;
+    private final Executor io;
+    private final Executor ui;
+
+    // UI thread only. Access-ordered so that iteration starts at the least recently used image.
+    private final LinkedHashMap<String, B> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryBytes;
+    private int memoryHits;
+    private int diskHits;
+    private int misses;
+
+    // io only. Access-ordered map of file name to file size.
+    private final LinkedHashMap<String, Long> diskIndex = new LinkedHashMap<>(64, 0.75f, true);
+    private long diskBytes;
+    private boolean diskInitialized;
+
+    /**
+     * @param io runs the disk work; must run one task at a time, in order, such as
+     *           {@code Executors.newSingleThreadExecutor()}, because the disk index is only
+     *           touched on it and is not synchronized
+     * @param ui delivers results to the UI thread
+     */
+    public SnapshotCache(Codec<B> codec, long maxMemoryBytes, File directory, long maxDiskBytes,
+            Executor io, Executor ui) {
+        if (maxMemoryBytes <= 0 || maxDiskBytes <= 0) {
+            throw new IllegalArgumentException("maxMemoryBytes and maxDiskBytes must be positive");
+        }
+        this.codec = codec;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.io = io;
+        this.ui = ui;
+    }
+
+    /** Returns the image if it is in memory, without touching the disk. */
+    public B getIfInMemory(String key) {
+        return memory.get(key);
+    }
+
+    /**
+     * Delivers the image for {@code key} to {@code callback}: at once if it is in memory,
+     * otherwise after reading it from disk, or {@code null} if it is in neither.
+     */
+    public void get(String key, Callback<B> callback) {
+        B image = memory.get(key);
+        if (image != null) {
+            memoryHits++;
+            callback.onResult(image);
+            return;
+        }
+        io.execute(() -> {
+            B read = readFromDisk(key);
+            ui.execute(() -> {
+                if (read != null) {
+                    diskHits++;
+                    putInMemory(key, read);
+                } else {
+                    misses++;
+                }
+                callback.onResult(read);
+            });
+        });
+    }
+
+    /** Stores a new image in memory, and on disk in the background. */
+    public void put(String key, B image) {
+        putInMemory(key, image);
+        io.execute(() -> writeToDisk(key, image));
+    }
+
+    /** The bytes held by the images in memory. */
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public int getMemoryHits() {
+        return memoryHits;
+    }
+
+    public int getDiskHits() {
+        return diskHits;
+    }
+
+    /** How many {@link #get} calls found nothing, so the caller had to render the map. */
+    public int getMisses() {
+        return misses;
+    }
+
+    private void putInMemory(String key, B image) {
+        long size = codec.sizeOf(image);
+        if (size > maxMemoryBytes) {
+            return;
+        }
+        B previous = memory.put(key, image);
+        if (previous != null) {
+            memoryBytes -= codec.sizeOf(previous);
+        }
+        memoryBytes += size;
+        Iterator<Map.Entry<String, B>> it = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+            memoryBytes -= codec.sizeOf(it.next().getValue());
+            it.remove();
+        }
+    }
+
+    private B readFromDisk(String key) {
+        ensureDiskInitialized();
+        String name = fileName(key);
+        // get, not containsKey: only a get moves the file to the back of the eviction order.
+        if (diskIndex.get(name) == null) {
+            return null;
+        }
+        File file = new File(directory, name);
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            B image = codec.decode(in);
+            if (image != null) {
+                file.setLastModified(System.currentTimeMillis());
+                return image;
+            }
+        } catch (IOException e) {
+            // A truncated or deleted file is treated as a miss.
+        }
+        removeFromDisk(name);
+        return null;
+    }
+
+    private void writeToDisk(String key, B image) {
+        ensureDiskInitialized();
+        String name = fileName(key);
+        File file = new File(directory, name);
+        File temp = new File(directory, name + TEMP_SUFFIX);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+            codec.encode(image, out);
+        } catch (IOException e) {
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return;
+        }
+        Long previous = diskIndex.put(name, file.length());
+        if (previous != null) {
+            diskBytes -= previous;
+        }
+        diskBytes += file.length();
+        trimDisk();
+    }
+
+    private void ensureDiskInitialized() {
+        if (diskInitialized) {
+            return;
+        }
+        diskInitialized = true;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(TEMP_SUFFIX)) {
+                file.delete();
+            } else if (name.endsWith(SUFFIX)) {
+                diskIndex.put(name, file.length());
+                diskBytes += file.length();
+            }
+        }
+        trimDisk();
+    }
+
+    private void trimDisk() {
+        Iterator<Map.Entry<String, Long>> it = diskIndex.entrySet().iterator();
+        while (diskBytes > maxDiskBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            new File(directory, eldest.getKey()).delete();
+            diskBytes -= eldest.getValue();
+            it.remove();
+        }
+    }
+
+    private void removeFromDisk(String name) {
+        Long size = diskIndex.remove(name);
+        if (size != null) {
+            diskBytes -= size;
+        }
+        new File(directory, name).delete();
+    }
+
+    /** Keys can be any string, so file names are their UTF-8 bytes in hex. */
+    private static String fileName(String key) {
+        StringBuilder name = new StringBuilder();
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            name.append(Character.forDigit((b >> 4) & 0xf, 16))
+                    .append(Character.forDigit(b & 0xf, 16));
+        }
+        return name.append(SUFFIX).toString();
+    }
+}
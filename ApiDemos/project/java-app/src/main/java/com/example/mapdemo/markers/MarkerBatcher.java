@@ -0,0 +1,355 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.markers;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Collects marker adds, updates and removes on any thread and applies them on the UI thread a
+ * frame at a time, so that loading thousands of markers never blocks a frame for long.
+ * <p>
+ * Build a {@link Transaction} anywhere, for example on a worker that parses a file, and
+ * {@link Transaction#commit} it. Operations are keyed by the caller's marker key, and the
+ * operations for a key that have not been applied yet are coalesced: a second update replaces
+ * the first, and an add followed by a remove never touches the map at all. An update only
+ * changes a marker that exists or has an add pending; for any other key it does nothing.
+ * Pending operations are applied in commit order from a frame callback until the frame budget
+ * is used up; the rest wait for the next frame. Every frame applies at least one operation, so a
+ * slow {@link Host} still makes progress.
+ * <p>
+ * {@link #getMarker}, {@link #forget} and {@link #release} must be called on the UI thread; the
+ * rest are thread safe.
+ *
+ * @param <K> the caller's marker key
+ * @param <O> the marker options type, {@code MarkerOptions} in an activity
+ * @param <M> the marker handle type, {@code Marker} in an activity
+ */
+public class MarkerBatcher<K, O, M> {
+
+    /** Makes the map calls for a {@link MarkerBatcher}, on the UI thread. */
+    public interface Host<O, M> {
+        M add(O options);
+
+        /** Applies new options to an existing marker. */
+        void update(M marker, O options);
+
+        void remove(M marker);
+    }
+
+    /** Runs a callback at the start of the next frame. Must be callable from any thread. */
+    public interface FrameScheduler {
+        void postFrame(Runnable frame);
+
+        /** Cancels a posted frame that has not run yet. Called on the UI thread. */
+        default void removeFrame(Runnable frame) {
+        }
+    }
+
+    /** Called on the UI thread when every committed operation has been applied. */
+    public interface OnDrainedListener {
+        void onDrained();
+    }
+
+    /** Marks a pending remove in {@link #pending}; anything else is a pending add or update. */
+    private static final Object REMOVE = new Object();
+
+    /** A pending update in {@link #pending}; bare options are a pending add. */
+    private static final class Update<O> {
+        final O options;
+
+        Update(O options) {
+            this.options = options;
+        }
+    }
+
+    private final Host<O, M> host;
+    private final FrameScheduler scheduler;
+    private final long frameBudgetNanos;
+    private final LongSupplier clock;
+    private final Runnable frame = this::runFrame;
+
+    private final Object lock = new Object();
+    // Guarded by lock.
+    private final LinkedHashMap<K, Object> pending = new LinkedHashMap<>();
+    private boolean frameScheduled;
+    private boolean released;
+    private long coalesced;
+
+    // UI thread only.
+    private final Map<K, M> markers = new HashMap<>();
+    private OnDrainedListener onDrainedListener;
+    private long applied;
+    private long frames;
+    private long maxFrameNanos;
+
+    /**
+     * @param frameBudgetMillis how long one frame may spend applying operations; a few
+     *                          milliseconds leaves the rest of a 16ms frame for drawing
+     */
+    public MarkerBatcher(Host<O, M> host, FrameScheduler scheduler, long frameBudgetMillis) {
+        this(host, scheduler, frameBudgetMillis, System::nanoTime);
+    }
+
+    MarkerBatcher(Host<O, M> host, FrameScheduler scheduler, long frameBudgetMillis,
+            LongSupplier clock) {
+        this.host = host;
+        this.scheduler = scheduler;
+        this.frameBudgetNanos = TimeUnit.MILLISECONDS.toNanos(frameBudgetMillis);
+        this.clock = clock;
+    }
+
+    /** A {@link FrameScheduler} on the main thread's {@link Choreographer}. */
+    public static FrameScheduler choreographer() {
+        return new ChoreographerScheduler();
+    }
+
+    private static final class ChoreographerScheduler implements FrameScheduler {
+        private final Handler mainHandler = new Handler(Looper.getMainLooper());
+        /** One callback per frame runnable, so that removeFrame can find what was posted. */
+        private final Map<Runnable, Choreographer.FrameCallback> callbacks =
+                new ConcurrentHashMap<>();
+
+        @Override
+        public void postFrame(Runnable frame) {
+            Choreographer.FrameCallback callback =
+                    callbacks.computeIfAbsent(frame, f -> frameTimeNanos -> f.run());
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                Choreographer.getInstance().postFrameCallback(callback);
+            } else {
+                // Choreographer is per thread, so hop to the main thread first.
+                mainHandler.post(() -> Choreographer.getInstance().postFrameCallback(callback));
+            }
+        }
+
+        @Override
+        public void removeFrame(Runnable frame) {
+            Choreographer.FrameCallback callback = callbacks.remove(frame);
+            if (callback != null) {
+                Choreographer.getInstance().removeFrameCallback(callback);
+            }
+        }
+    }
+
+    public Transaction begin() {
+        return new Transaction();
+    }
+
+    /** Operations applied together, in order, once committed. Not thread safe itself. */
+    public final class Transaction {
+        private final LinkedHashMap<K, Object> operations = new LinkedHashMap<>();
+
+        private Transaction() {
+        }
+
+        /** Adds a marker for the key, or updates the marker if the key already has one. */
+        public Transaction add(K key, O options) {
+            operations.put(key, options);
+            return this;
+        }
+
+        /**
+         * Updates the marker for the key. Does nothing if the key has no marker and no add
+         * pending when the update is applied, for example after {@link #forget}.
+         */
+        public Transaction update(K key, O options) {
+            operations.put(key, coalesce(operations.get(key), new Update<>(options)));
+            return this;
+        }
+
+        /** Removes the marker for the key, if there is or will be one. */
+        public Transaction remove(K key) {
+            operations.put(key, REMOVE);
+            return this;
+        }
+
+        /**
+         * Queues the operations for the UI thread, or drops them after {@link #release}. The
+         * transaction can be reused afterwards.
+         */
+        public void commit() {
+            if (operations.isEmpty()) {
+                return;
+            }
+            synchronized (lock) {
+                if (released) {
+                    operations.clear();
+                    return;
+                }
+                for (Map.Entry<K, Object> operation : operations.entrySet()) {
+                    K key = operation.getKey();
+                    Object previous = pending.get(key);
+                    pending.put(key, coalesce(previous, operation.getValue()));
+                    if (previous != null) {
+                        coalesced++;
+                    }
+                }
+                scheduleFrameLocked();
+            }
+            operations.clear();
+        }
+    }
+
+    /**
+     * Merges an operation into the one pending for the same key. An update keeps a pending add an
+     * add, with the new options, and is dropped after a pending remove.
+     */
+    private static Object coalesce(Object previous, Object next) {
+        if (!(next instanceof Update) || previous == null || previous instanceof Update) {
+            return next;
+        }
+        return previous == REMOVE ? REMOVE : ((Update<?>) next).options;
+    }
+
+    private void scheduleFrameLocked() {
+        if (!frameScheduled && !released && !pending.isEmpty()) {
+            frameScheduled = true;
+            scheduler.postFrame(frame);
+        }
+    }
+
+    private void runFrame() {
+        long start = clock.getAsLong();
+        synchronized (lock) {
+            frameScheduled = false;
+            if (released) {
+                // Posted before release() and not removable, for example still on its way to
+                // the main thread.
+                return;
+            }
+        }
+        while (true) {
+            K key;
+            Object operation;
+            synchronized (lock) {
+                Iterator<Map.Entry<K, Object>> iterator = pending.entrySet().iterator();
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                Map.Entry<K, Object> next = iterator.next();
+                key = next.getKey();
+                operation = next.getValue();
+                iterator.remove();
+            }
+            apply(key, operation);
+            if (clock.getAsLong() - start >= frameBudgetNanos) {
+                break;
+            }
+        }
+        frames++;
+        maxFrameNanos = Math.max(maxFrameNanos, clock.getAsLong() - start);
+        boolean drained;
+        synchronized (lock) {
+            scheduleFrameLocked();
+            drained = pending.isEmpty();
+        }
+        if (drained && onDrainedListener != null) {
+            onDrainedListener.onDrained();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void apply(K key, Object operation) {
+        M marker = markers.get(key);
+        if (operation == REMOVE) {
+            if (marker != null) {
+                markers.remove(key);
+                host.remove(marker);
+            }
+        } else if (operation instanceof Update) {
+            if (marker != null) {
+                host.update(marker, ((Update<O>) operation).options);
+            }
+        } else if (marker != null) {
+            host.update(marker, (O) operation);
+        } else {
+            markers.put(key, host.add((O) operation));
+        }
+        applied++;
+    }
+
+    /** The marker for a key, or null if its add has not been applied yet. */
+    public M getMarker(K key) {
+        return markers.get(key);
+    }
+
+    /** Drops pending operations and every marker handle, after {@code GoogleMap.clear()}. */
+    public void forget() {
+        synchronized (lock) {
+            pending.clear();
+        }
+        markers.clear();
+    }
+
+    /**
+     * Drops pending operations and every marker handle and cancels the frame callback, when the
+     * map goes away. Later commits are ignored.
+     */
+    public void release() {
+        synchronized (lock) {
+            released = true;
+            pending.clear();
+        }
+        scheduler.removeFrame(frame);
+        markers.clear();
+    }
+
+    public void setOnDrainedListener(OnDrainedListener listener) {
+        onDrainedListener = listener;
+    }
+
+    /** Markers on the map through this batcher. UI thread only. */
+    public int getMarkerCount() {
+        return markers.size();
+    }
+
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /** Operations that replaced a pending operation for the same key. */
+    public long getCoalescedCount() {
+        synchronized (lock) {
+            return coalesced;
+        }
+    }
+
+    /**
+     * Operations applied to the map, including removes and updates of keys that had no marker.
+     */
+    public long getAppliedCount() {
+        return applied;
+    }
+
+    public long getFrameCount() {
+        return frames;
+    }
+
+    /** The longest a frame spent applying operations. */
+    public long getMaxFrameNanos() {
+        return maxFrameNanos;
+    }
+}
@@ -0,0 +1,131 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.markers;
+
+import java.util.Arrays;
+
+/**
+ * An immutable grid index over marker positions. Markers are sorted by the cell of a
+ * 4096x4096 Web Mercator grid they fall in, row by row, so a box query binary searches each
+ * occupied row it covers and then scans the markers in that row.
+ */
+class MarkerIndex {
+
+    /** Receives the marker indices found by {@link #query}. */
+    interface Visitor {
+        void visit(int marker);
+    }
+
+    private static final int GRID_BITS = 12;
+    private static final int GRID_SIZE = 1 << GRID_BITS;
+
+    private final int size;
+    private final double[] x;
+    private final double[] y;
+    private final int[] markers;
+    private final int[] cells;
+
+    MarkerIndex(double[] latitudes, double[] longitudes, int count) {
+        size = count;
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            int cell = cellOf(worldX(longitudes[i]), worldY(latitudes[i]));
+            order[i] = ((long) cell << 32) | i;
+        }
+        Arrays.sort(order);
+        x = new double[count];
+        y = new double[count];
+        markers = new int[count];
+        cells = new int[count];
+        for (int p = 0; p < count; p++) {
+            int marker = (int) order[p];
+            x[p] = worldX(longitudes[marker]);
+            y[p] = worldY(latitudes[marker]);
+            markers[p] = marker;
+            cells[p] = (int) (order[p] >>> 32);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Visits every marker inside the box, given in world coordinates from 0 to 1. A box with
+     * {@code minX > maxX} wraps around the antimeridian.
+     */
+    void query(double minX, double minY, double maxX, double maxY, Visitor visitor) {
+        if (minX > maxX) {
+            query(minX, minY, 1, maxY, visitor);
+            query(0, minY, maxX, maxY, visitor);
+            return;
+        }
+        int minCx = clamp((int) (minX * GRID_SIZE));
+        int maxCx = clamp((int) (maxX * GRID_SIZE));
+        int maxCy = clamp((int) (maxY * GRID_SIZE));
+        for (int row = clamp((int) (minY * GRID_SIZE)); row <= maxCy; row++) {
+            int p = lowerBound((row << GRID_BITS) | minCx);
+            if (p == size) {
+                return;
+            }
+            int occupiedRow = cells[p] >>> GRID_BITS;
+            if (occupiedRow != row) {
+                // Jump straight to the next row that has markers.
+                row = occupiedRow - 1;
+                continue;
+            }
+            int last = (row << GRID_BITS) | maxCx;
+            for (; p < size && cells[p] <= last; p++) {
+                if (x[p] >= minX && x[p] <= maxX && y[p] >= minY && y[p] <= maxY) {
+                    visitor.visit(markers[p]);
+                }
+            }
+        }
+    }
+
+    private int lowerBound(int cell) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cells[mid] < cell) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int cellOf(double worldX, double worldY) {
+        return (clamp((int) (worldY * GRID_SIZE)) << GRID_BITS)
+                | clamp((int) (worldX * GRID_SIZE));
+    }
+
+    private static int clamp(int cell) {
+        return Math.max(0, Math.min(GRID_SIZE - 1, cell));
+    }
+
+    /** Web Mercator x of a longitude, from 0 at -180 to 1 at 180. */
+    static double worldX(double longitude) {
+        return (longitude + 180) / 360;
+    }
+
+    /** Web Mercator y of a latitude, from 0 at the top of the map to 1 at the bottom. */
+    static double worldY(double latitude) {
+        double sin = Math.sin(Math.toRadians(Math.max(-85.05113, Math.min(85.05113, latitude))));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+}
@@ -0,0 +1,296 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.markers;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps markers on the map only for the marker definitions near the visible region.
+ * <p>
+ * Definitions are just positions, numbered in the order they were given, and live in a
+ * {@link MarkerIndex}. On every camera idle the virtualizer finds the definitions inside the
+ * visible region padded by half a screen on each side, hides the markers whose definitions left
+ * it and shows markers for the ones that entered. Hidden markers are pooled and pointed at new
+ * definitions instead of being removed and added again, which is the expensive part of a marker's
+ * life. The {@link Host} does the actual map calls, so the same code works with {@code Marker} on
+ * a device and with plain objects in tests.
+ * <p>
+ * When more definitions are in range than {@code maxAttached}, the ones with the lowest numbers
+ * win, so give the most important definitions the lowest numbers.
+ * <p>
+ * All methods must be called from the same thread, normally the UI thread.
+ *
+ * @param <M> the marker handle type, {@code Marker} in an activity
+ */
+public class MarkerVirtualizer<M> {
+
+    /** Makes the map calls for a {@link MarkerVirtualizer}. */
+    public interface Host<M> {
+        /** Adds a visible marker for a definition to the map. */
+        M add(int definition);
+
+        /** Points a hidden, pooled marker at another definition and shows it again. */
+        void rebind(M marker, int definition);
+
+        /** Hides a marker whose definition left the padded viewport. */
+        void hide(M marker);
+
+        /** Removes a marker from the map for good. */
+        void remove(M marker);
+    }
+
+    /** Viewport padding on each side, as a fraction of the viewport size. */
+    private static final double PADDING = 0.5;
+
+    private final MarkerIndex index;
+    private final Host<M> host;
+    private final int maxAttached;
+    private final int maxPooled;
+
+    /** Attached definitions, sorted, with their markers at the same positions. */
+    private int[] attached = new int[0];
+    private Object[] attachedMarkers = new Object[0];
+    private int attachedCount;
+
+    private final ArrayDeque<M> pool = new ArrayDeque<>();
+
+    /** Scratch buffer for the definitions found by a query. */
+    private int[] found = new int[256];
+    private int foundCount;
+
+    private int lastAdded;
+    private int lastRebound;
+    private int lastHidden;
+    private int lastRemoved;
+    private boolean lastCapped;
+    private long totalAdded;
+
+    /**
+     * @param latitudes   definition latitudes; definition i is the i-th entry
+     * @param longitudes  definition longitudes
+     * @param maxAttached upper bound on the markers shown at once
+     * @param maxPooled   upper bound on the hidden markers kept for reuse
+     */
+    public MarkerVirtualizer(double[] latitudes, double[] longitudes, int count, int maxAttached,
+            int maxPooled, Host<M> host) {
+        this.index = new MarkerIndex(latitudes, longitudes, count);
+        this.maxAttached = maxAttached;
+        this.maxPooled = maxPooled;
+        this.host = host;
+    }
+
+    /**
+     * Brings the attached markers in line with a new visible region. Call this from
+     * {@code OnCameraIdleListener} with the bounds of {@code Projection.getVisibleRegion()}.
+     */
+    public void onCameraIdle(double south, double west, double north, double east) {
+        double left = MarkerIndex.worldX(west);
+        double right = MarkerIndex.worldX(east);
+        double width = right >= left ? right - left : right + 1 - left;
+        double top = MarkerIndex.worldY(north);
+        double bottom = MarkerIndex.worldY(south);
+        double padX = width * PADDING;
+        double padY = (bottom - top) * PADDING;
+
+        foundCount = 0;
+        MarkerIndex.Visitor collect = this::collect;
+        if (width + 2 * padX >= 1) {
+            index.query(0, top - padY, 1, bottom + padY, collect);
+        } else {
+            index.query(wrap(left - padX), top - padY, wrap(right + padX), bottom + padY, collect);
+        }
+        Arrays.sort(found, 0, foundCount);
+        lastCapped = foundCount > maxAttached;
+        apply(found, Math.min(foundCount, maxAttached));
+    }
+
+    private void collect(int definition) {
+        if (foundCount == found.length) {
+            found = Arrays.copyOf(found, foundCount * 2);
+        }
+        found[foundCount++] = definition;
+    }
+
+    /** Merges the sorted wanted definitions against the attached ones. */
+    @SuppressWarnings("unchecked")
+    private void apply(int[] wanted, int wantedCount) {
+        lastAdded = 0;
+        lastRebound = 0;
+        lastHidden = 0;
+        lastRemoved = 0;
+
+        // Hide the leavers first, so the newcomers can reuse their markers.
+        int w = 0;
+        for (int a = 0; a < attachedCount; a++) {
+            while (w < wantedCount && wanted[w] < attached[a]) {
+                w++;
+            }
+            if (w == wantedCount || wanted[w] != attached[a]) {
+                detach((M) attachedMarkers[a]);
+                attachedMarkers[a] = null;
+            }
+        }
+
+        int[] nextAttached = new int[wantedCount];
+        Object[] nextMarkers = new Object[wantedCount];
+        int a = 0;
+        for (w = 0; w < wantedCount; w++) {
+            int definition = wanted[w];
+            while (a < attachedCount && attached[a] < definition) {
+                a++;
+            }
+            nextAttached[w] = definition;
+            if (a < attachedCount && attached[a] == definition) {
+                nextMarkers[w] = attachedMarkers[a];
+            } else {
+                nextMarkers[w] = attach(definition);
+            }
+        }
+        attached = nextAttached;
+        attachedMarkers = nextMarkers;
+        attachedCount = wantedCount;
+    }
+
+    private M attach(int definition) {
+        M marker = pool.pollFirst();
+        if (marker != null) {
+            host.rebind(marker, definition);
+            lastRebound++;
+            return marker;
+        }
+        lastAdded++;
+        totalAdded++;
+        return host.add(definition);
+    }
+
+    private void detach(M marker) {
+        if (pool.size() < maxPooled) {
+            host.hide(marker);
+            pool.addFirst(marker);
+        } else {
+            host.remove(marker);
+            lastRemoved++;
+        }
+        lastHidden++;
+    }
+
+    /** Returns the marker showing a definition, or null if it is not attached. */
+    @SuppressWarnings("unchecked")
+    public M getMarker(int definition) {
+        int position = Arrays.binarySearch(attached, 0, attachedCount, definition);
+        return position >= 0 ? (M) attachedMarkers[position] : null;
+    }
+
+    /** The attached markers, for changing all of them at once. Valid until the next idle. */
+    public List<M> getAttachedMarkers() {
+        Object[] markers = attachedMarkers;
+        int count = attachedCount;
+        return new AbstractList<M>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public M get(int i) {
+                return (M) markers[i];
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    /** Removes every marker, attached or pooled, from the map. */
+    @SuppressWarnings("unchecked")
+    public void clear() {
+        for (int a = 0; a < attachedCount; a++) {
+            host.remove((M) attachedMarkers[a]);
+        }
+        for (M marker : pool) {
+            host.remove(marker);
+        }
+        forget();
+    }
+
+    /** Drops every marker without touching the map, after {@code GoogleMap.clear()}. */
+    public void forget() {
+        attached = new int[0];
+        attachedMarkers = new Object[0];
+        attachedCount = 0;
+        pool.clear();
+    }
+
+    public int getDefinitionCount() {
+        return index.size();
+    }
+
+    public int getAttachedCount() {
+        return attachedCount;
+    }
+
+    public int getPooledCount() {
+        return pool.size();
+    }
+
+    /** Markers alive on the map, shown or hidden. */
+    public int getHandleCount() {
+        return attachedCount + pool.size();
+    }
+
+    /** Markers added to the map by the last camera idle. */
+    public int getLastAdded() {
+        return lastAdded;
+    }
+
+    /** Pooled markers reused by the last camera idle. */
+    public int getLastRebound() {
+        return lastRebound;
+    }
+
+    /** Markers that left the viewport on the last camera idle, pooled or removed. */
+    public int getLastHidden() {
+        return lastHidden;
+    }
+
+    /** Markers removed from the map by the last camera idle because the pool was full. */
+    public int getLastRemoved() {
+        return lastRemoved;
+    }
+
+    /** Whether the last camera idle had more definitions in range than could be shown. */
+    public boolean wasLastCapped() {
+        return lastCapped;
+    }
+
+    public long getTotalAdded() {
+        return totalAdded;
+    }
+
+    @Override
+    public String toString() {
+        return "definitions=" + getDefinitionCount()
+                + " attached=" + attachedCount + (lastCapped ? " (capped)" : "")
+                + " pooled=" + pool.size()
+                + " lastPan: +" + lastAdded + " reused=" + lastRebound
+                + " -" + lastHidden + " removed=" + lastRemoved
+                + " totalAdded=" + totalAdded;
+    }
+
+    private static double wrap(double worldX) {
+        return worldX - Math.floor(worldX);
+    }
+}
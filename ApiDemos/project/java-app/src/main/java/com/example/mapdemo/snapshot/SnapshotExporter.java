@@ -0,0 +1,234 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Exports snapshots of a map at many camera positions to image files, without holding up the UI
+ * thread.
+ * <p>
+ * Jobs are queued with {@link #submit} and run in order. For each one the exporter moves the map
+ * to the job's camera, waits for the map to finish loading, and takes a snapshot; only one
+ * snapshot is ever being taken, since there is only one map. Encoding and writing the file happen
+ * on the {@code workers} executor, so the map moves on to the next camera straight away. Snapshots
+ * waiting to be encoded are bounded by their total size: once they reach the budget, the next
+ * snapshot is only taken after an encode has finished and released its image.
+ * <p>
+ * All methods must be called on the UI thread; results are delivered on the {@code ui} executor.
+ *
+ * @param <C> the camera type, {@code CameraPosition} in an activity
+ * @param <B> the image type, {@code Bitmap} in an activity
+ */
+public class SnapshotExporter<C, B> {
+
+    /** Drives the map, on the UI thread. */
+    public interface Host<C, B> {
+        /** Moves the map to {@code camera} and calls {@code onLoaded} once it has loaded. */
+        void moveTo(C camera, Runnable onLoaded);
+
+        /** Takes a snapshot of the map as it is now. */
+        void snapshot(ImageCallback<B> callback);
+    }
+
+    /** Receives a snapshot. */
+    public interface ImageCallback<B> {
+        void onImage(B image);
+    }
+
+    /** Measures, writes and frees images. {@code write} and {@code release} run on a worker. */
+    public interface Encoder<B> {
+        /** The memory the image holds, in bytes. */
+        long sizeOf(B image);
+
+        void write(B image, File file) throws IOException;
+
+        /** Frees the image once it has been written, or has failed to be. */
+        void release(B image);
+    }
+
+    /** Receives the outcome of each job, on the UI thread. */
+    public interface Listener {
+        /** The snapshot was written to {@code file}, or {@code error} says why not. */
+        void onExported(File file, IOException error);
+
+        /** Every queued job has finished. */
+        void onIdle();
+    }
+
+    private static final class Job<C> {
+        final C camera;
+        final File file;
+
+        Job(C camera, File file) {
+            this.camera = camera;
+            this.file = file;
+        }
+    }
+
+    private final Host<C, B> host;
+    private final Encoder<B> encoder;
+    private final Executor workers;
+    private final Executor ui;
+    private final long maxPendingBytes;
+    private final LongSupplier clock;
+
+    private final ArrayDeque<Job<C>> queue = new ArrayDeque<>();
+    private Listener listener;
+    private boolean capturing;
+    private int encoding;
+    private long pendingBytes;
+
+    private long peakPendingBytes;
+    private int exported;
+    private int failed;
+    private long startNanos;
+    private long lastNanos;
+
+    /**
+     * @param maxPendingBytes the image bytes that may wait for encoding at once; at least one
+     *                        snapshot is always allowed
+     */
+    public SnapshotExporter(Host<C, B> host, Encoder<B> encoder, Executor workers, Executor ui,
+            long maxPendingBytes) {
+        this(host, encoder, workers, ui, maxPendingBytes, System::nanoTime);
+    }
+
+    SnapshotExporter(Host<C, B> host, Encoder<B> encoder, Executor workers, Executor ui,
+            long maxPendingBytes, LongSupplier clock) {
+        this.host = host;
+        this.encoder = encoder;
+        this.workers = workers;
+        this.ui = ui;
+        this.maxPendingBytes = maxPendingBytes;
+        this.clock = clock;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Queues a snapshot of the map at {@code camera}, to be written to {@code file}. A job
+     * submitted while the exporter is idle starts a new batch, and resets the statistics.
+     */
+    public void submit(C camera, File file) {
+        if (!isBusy()) {
+            startNanos = clock.getAsLong();
+            lastNanos = startNanos;
+            exported = 0;
+            failed = 0;
+            peakPendingBytes = 0;
+        }
+        queue.add(new Job<>(camera, file));
+        captureNext();
+    }
+
+    /** Drops the jobs that have not started. Snapshots already taken are still written. */
+    public void cancel() {
+        queue.clear();
+    }
+
+    /** True while jobs are queued, a snapshot is being taken, or one is being written. */
+    public boolean isBusy() {
+        return !queue.isEmpty() || capturing || encoding > 0;
+    }
+
+    private void captureNext() {
+        if (capturing || queue.isEmpty()) {
+            return;
+        }
+        if (encoding > 0 && pendingBytes >= maxPendingBytes) {
+            // Wait for an encode to free its image.
+            return;
+        }
+        Job<C> job = queue.poll();
+        capturing = true;
+        host.moveTo(job.camera, () -> host.snapshot(image -> onCaptured(job, image)));
+    }
+
+    private void onCaptured(Job<C> job, B image) {
+        capturing = false;
+        if (image == null) {
+            finish(job, new IOException("No snapshot of " + job.camera));
+            return;
+        }
+        long size = encoder.sizeOf(image);
+        pendingBytes += size;
+        peakPendingBytes = Math.max(peakPendingBytes, pendingBytes);
+        encoding++;
+        workers.execute(() -> {
+            IOException error = null;
+            try {
+                encoder.write(image, job.file);
+            } catch (IOException e) {
+                error = e;
+            } finally {
+                encoder.release(image);
+            }
+            IOException result = error;
+            ui.execute(() -> {
+                encoding--;
+                pendingBytes -= size;
+                finish(job, result);
+            });
+        });
+        captureNext();
+    }
+
+    private void finish(Job<C> job, IOException error) {
+        if (error == null) {
+            exported++;
+        } else {
+            failed++;
+        }
+        lastNanos = clock.getAsLong();
+        if (listener != null) {
+            listener.onExported(job.file, error);
+        }
+        captureNext();
+        if (!isBusy() && listener != null) {
+            listener.onIdle();
+        }
+    }
+
+    /** The snapshots written in this batch. */
+    public int getExported() {
+        return exported;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    /** The most image bytes that were waiting for encoding at once. */
+    public long getPeakPendingBytes() {
+        return peakPendingBytes;
+    }
+
+    /** Snapshots written per minute in this batch, from its first job to its last finished one. */
+    public double getSnapshotsPerMinute() {
+        long elapsed = lastNanos - startNanos;
+        if (elapsed <= 0) {
+            return 0;
+        }
+        return exported * (double) TimeUnit.MINUTES.toNanos(1) / elapsed;
+    }
+}
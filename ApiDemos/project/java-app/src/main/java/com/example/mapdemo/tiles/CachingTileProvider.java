@@ -0,0 +1,244 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.tiles;
+
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link TileProvider} decorator that keeps recently served tiles in a byte-bounded memory
+ * cache and, optionally, in a size-bounded disk cache. Tiles are only requested from the wrapped
+ * provider when neither tier has them, so panning back over the same region or restarting the
+ * process does not download the same tiles again.
+ * <p>
+ * The map calls {@link #getTile} from several background threads at once, so both tiers are
+ * thread safe. {@code null} results from the wrapped provider mean "try again later" and are
+ * never cached. Concurrent misses on the same tile, including a {@link #prefetch} racing the map,
+ * share a single call to the wrapped provider.
+ */
+public class CachingTileProvider implements TileProvider {
+
+    private final TileProvider delegate;
+
+    private final MemoryTileCache memoryCache;
+
+    /** May be {@code null} if only the memory tier is used. */
+    private final DiskTileCache diskCache;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong diskNanos = new AtomicLong();
+    private final AtomicLong loadNanos = new AtomicLong();
+    private final AtomicLong prefetches = new AtomicLong();
+    private final AtomicLong prefetchHits = new AtomicLong();
+
+    /** Keys that were loaded by {@link #prefetch} and have not been requested by the map yet. */
+    private final Set<Long> unusedPrefetches = ConcurrentHashMap.newKeySet();
+
+    /** Loads from the wrapped provider that are running now, by key. */
+    private final ConcurrentHashMap<Long, CompletableFuture<Tile>> inFlight =
+            new ConcurrentHashMap<>();
+
+    public CachingTileProvider(TileProvider delegate, MemoryTileCache memoryCache,
+            DiskTileCache diskCache) {
+        this.delegate = delegate;
+        this.memoryCache = memoryCache;
+        this.diskCache = diskCache;
+    }
+
+    @Override
+    public Tile getTile(int x, int y, int zoom) {
+        long key = TileCoordinates.pack(x, y, zoom);
+        if (unusedPrefetches.remove(key)) {
+            prefetchHits.incrementAndGet();
+        }
+        Tile tile = memoryCache.get(key);
+        if (tile != null) {
+            memoryHits.incrementAndGet();
+            return tile;
+        }
+
+        if (diskCache != null) {
+            long start = System.nanoTime();
+            tile = diskCache.get(key);
+            if (tile != null) {
+                diskNanos.addAndGet(System.nanoTime() - start);
+                diskHits.incrementAndGet();
+                memoryCache.put(key, tile);
+                return tile;
+            }
+        }
+
+        long start = System.nanoTime();
+        tile = load(key, x, y, zoom, false);
+        loadNanos.addAndGet(System.nanoTime() - start);
+        misses.incrementAndGet();
+        // The map may have joined a prefetch that was still downloading.
+        if (unusedPrefetches.remove(key)) {
+            prefetchHits.incrementAndGet();
+        }
+        return tile;
+    }
+
+    /**
+     * Loads the tile into the cache ahead of the map asking for it. Does nothing if the tile is
+     * already cached or already being loaded. Prefetches are not counted as requests in
+     * {@link Stats#hitRatio()}, and only those that return a tile are counted at all.
+     *
+     * @return {@code true} if this call left the tile in the cache
+     */
+    public boolean prefetch(int x, int y, int zoom) {
+        long key = TileCoordinates.pack(x, y, zoom);
+        if (isCached(x, y, zoom) || inFlight.containsKey(key)) {
+            return false;
+        }
+        return load(key, x, y, zoom, true) != null;
+    }
+
+    /**
+     * Calls the wrapped provider and caches the result, unless another thread is already loading
+     * the same tile, in which case that thread's result is returned. For a prefetch, returns
+     * {@code null} if another thread was loading the tile.
+     */
+    private Tile load(long key, int x, int y, int zoom, boolean prefetch) {
+        CompletableFuture<Tile> mine = new CompletableFuture<>();
+        CompletableFuture<Tile> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return prefetch ? null : await(running);
+        }
+        try {
+            // The load that just finished may have removed itself after our cache lookup.
+            Tile tile = memoryCache.get(key);
+            if (tile == null) {
+                tile = delegate.getTile(x, y, zoom);
+                if (tile != null && tile != NO_TILE && tile.data != null) {
+                    memoryCache.put(key, tile);
+                    if (diskCache != null) {
+                        diskCache.put(key, tile);
+                    }
+                    if (prefetch) {
+                        prefetches.incrementAndGet();
+                        // Before completing, so that a map request waiting on us counts the hit.
+                        unusedPrefetches.add(key);
+                    }
+                }
+            }
+            mine.complete(tile);
+            return tile;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /** Waits for another thread's load. A failed load is {@code null}, "try again later". */
+    private static Tile await(CompletableFuture<Tile> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            return null;
+        }
+    }
+
+    /** Returns {@code true} if the tile can be served without calling the wrapped provider. */
+    public boolean isCached(int x, int y, int zoom) {
+        long key = TileCoordinates.pack(x, y, zoom);
+        return memoryCache.contains(key) || (diskCache != null && diskCache.contains(key));
+    }
+
+    /**
+     * Drops the memory tier. Call this alongside {@code TileOverlay.clearTileCache()} when the
+     * tile content has changed; the disk tier is kept unless {@code includeDisk} is set.
+     */
+    public void clear(boolean includeDisk) {
+        memoryCache.clear();
+        if (includeDisk && diskCache != null) {
+            diskCache.clear();
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(memoryHits.get(), diskHits.get(), misses.get(), diskNanos.get(),
+                loadNanos.get(), prefetches.get(), prefetchHits.get());
+    }
+
+    /** A snapshot of the cache counters. */
+    public static final class Stats {
+        public final long memoryHits;
+        public final long diskHits;
+        public final long misses;
+        /** Total time spent reading tiles that were found on disk. */
+        public final long diskNanos;
+        /** Total time spent in the wrapped provider. */
+        public final long loadNanos;
+        /** Tiles successfully loaded by {@link CachingTileProvider#prefetch}. */
+        public final long prefetches;
+        /** Prefetched tiles that the map went on to request. */
+        public final long prefetchHits;
+
+        Stats(long memoryHits, long diskHits, long misses, long diskNanos, long loadNanos,
+                long prefetches, long prefetchHits) {
+            this.memoryHits = memoryHits;
+            this.diskHits = diskHits;
+            this.misses = misses;
+            this.diskNanos = diskNanos;
+            this.loadNanos = loadNanos;
+            this.prefetches = prefetches;
+            this.prefetchHits = prefetchHits;
+        }
+
+        public long requests() {
+            return memoryHits + diskHits + misses;
+        }
+
+        /** Prefetched tiles that have not been requested by the map (yet). */
+        public long wastedPrefetches() {
+            return prefetches - prefetchHits;
+        }
+
+        /** Fraction of prefetched tiles that the map used, or 0 if nothing was prefetched. */
+        public double prefetchHitRate() {
+            return prefetches == 0 ? 0 : (double) prefetchHits / prefetches;
+        }
+
+        /** Fraction of requests served by either tier, or 0 if there were no requests. */
+        public double hitRatio() {
+            long requests = requests();
+            return requests == 0 ? 0 : (double) (memoryHits + diskHits) / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "requests=%d memoryHits=%d diskHits=%d misses=%d hitRatio=%.2f "
+                            + "avgDiskMs=%.2f avgLoadMs=%.2f prefetches=%d prefetchHitRate=%.2f "
+                            + "wastedPrefetches=%d",
+                    requests(), memoryHits, diskHits, misses, hitRatio(),
+                    diskHits == 0 ? 0 : diskNanos / 1e6 / diskHits,
+                    misses == 0 ? 0 : loadNanos / 1e6 / misses,
+                    prefetches, prefetchHitRate(), wastedPrefetches());
+        }
+    }
+}
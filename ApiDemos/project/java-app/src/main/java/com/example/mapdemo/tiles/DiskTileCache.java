@@ -0,0 +1,200 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.tiles;
+
+import com.google.android.gms.maps.model.Tile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A tile cache that stores one file per tile in a directory and evicts the least recently used
+ * files once their total size exceeds a byte budget. The cache survives process restarts: the
+ * index is rebuilt from the directory contents, ordered by last-modified time, on first use.
+ */
+public class DiskTileCache {
+
+    private static final String SUFFIX = ".tile";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File directory;
+
+    private final long maxBytes;
+
+    /** Access-ordered map of tile key to file size on disk. */
+    private final LinkedHashMap<Long, Long> index = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long sizeBytes;
+
+    private boolean initialized;
+
+    public DiskTileCache(File directory, long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /** Returns the cached tile, or {@code null} if it is not on disk or cannot be read. */
+    public synchronized Tile get(long key) {
+        ensureInitialized();
+        // get, not containsKey: only a get moves the tile to the back of the eviction order.
+        if (index.get(key) == null) {
+            return null;
+        }
+        File file = fileFor(key);
+        try (DataInputStream in =
+                     new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int width = in.readInt();
+            int height = in.readInt();
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            file.setLastModified(System.currentTimeMillis());
+            return new Tile(width, height, data);
+        } catch (IOException e) {
+            // A truncated or deleted file is treated as a miss.
+            removeLocked(key);
+            return null;
+        }
+    }
+
+    public synchronized boolean contains(long key) {
+        ensureInitialized();
+        return index.containsKey(key);
+    }
+
+    public synchronized void put(long key, Tile tile) {
+        ensureInitialized();
+        if (tile.data == null) {
+            return;
+        }
+        File file = fileFor(key);
+        File temp = new File(directory, file.getName() + TEMP_SUFFIX);
+        try (DataOutputStream out =
+                     new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(tile.width);
+            out.writeInt(tile.height);
+            out.writeInt(tile.data.length);
+            out.write(tile.data);
+        } catch (IOException e) {
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return;
+        }
+        Long previous = index.put(key, file.length());
+        if (previous != null) {
+            sizeBytes -= previous;
+        }
+        sizeBytes += file.length();
+        trimToSize();
+    }
+
+    public synchronized void clear() {
+        ensureInitialized();
+        for (Long key : index.keySet()) {
+            fileFor(key).delete();
+        }
+        index.clear();
+        sizeBytes = 0;
+    }
+
+    public synchronized long sizeBytes() {
+        ensureInitialized();
+        return sizeBytes;
+    }
+
+    private void ensureInitialized() {
+        if (initialized) {
+            return;
+        }
+        initialized = true;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(TEMP_SUFFIX)) {
+                file.delete();
+                continue;
+            }
+            long key = parseKey(name);
+            if (key < 0) {
+                continue;
+            }
+            index.put(key, file.length());
+            sizeBytes += file.length();
+        }
+        trimToSize();
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<Long, Long>> it = index.entrySet().iterator();
+        while (sizeBytes > maxBytes && it.hasNext()) {
+            Map.Entry<Long, Long> eldest = it.next();
+            fileFor(eldest.getKey()).delete();
+            sizeBytes -= eldest.getValue();
+            it.remove();
+        }
+    }
+
+    private void removeLocked(long key) {
+        Long size = index.remove(key);
+        if (size != null) {
+            sizeBytes -= size;
+        }
+        fileFor(key).delete();
+    }
+
+    private File fileFor(long key) {
+        return new File(directory, TileCoordinates.toFileName(key) + SUFFIX);
+    }
+
+    private static long parseKey(String name) {
+        if (!name.endsWith(SUFFIX)) {
+            return -1;
+        }
+        String[] parts = name.substring(0, name.length() - SUFFIX.length()).split("_");
+        if (parts.length != 3) {
+            return -1;
+        }
+        try {
+            return TileCoordinates.pack(
+                    Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), Integer.parseInt(parts[0]));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.tiles;
+
+import com.google.android.gms.maps.model.Tile;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An in-memory least-recently-used tile cache that is bounded by the total number of encoded
+ * image bytes it holds rather than by the number of entries.
+ */
+public class MemoryTileCache {
+
+    private final long maxBytes;
+
+    /** Access-ordered so that iteration starts at the least recently used tile. */
+    private final LinkedHashMap<Long, Tile> tiles = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long sizeBytes;
+
+    public MemoryTileCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized Tile get(long key) {
+        return tiles.get(key);
+    }
+
+    public synchronized boolean contains(long key) {
+        return tiles.containsKey(key);
+    }
+
+    /**
+     * Stores the tile, evicting least recently used tiles until the cache is back under its byte
+     * budget. Tiles that are larger than the whole budget are not cached.
+     */
+    public synchronized void put(long key, Tile tile) {
+        long size = sizeOf(tile);
+        if (size > maxBytes) {
+            return;
+        }
+        Tile previous = tiles.put(key, tile);
+        if (previous != null) {
+            sizeBytes -= sizeOf(previous);
+        }
+        sizeBytes += size;
+        trimToSize();
+    }
+
+    public synchronized void remove(long key) {
+        Tile previous = tiles.remove(key);
+        if (previous != null) {
+            sizeBytes -= sizeOf(previous);
+        }
+    }
+
+    public synchronized void clear() {
+        tiles.clear();
+        sizeBytes = 0;
+    }
+
+    public synchronized long sizeBytes() {
+        return sizeBytes;
+    }
+
+    public synchronized int size() {
+        return tiles.size();
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<Long, Tile>> it = tiles.entrySet().iterator();
+        while (sizeBytes > maxBytes && it.hasNext()) {
+            sizeBytes -= sizeOf(it.next().getValue());
+            it.remove();
+        }
+    }
+
+    private static long sizeOf(Tile tile) {
+        return tile.data == null ? 0 : tile.data.length;
+    }
+}
@@ -0,0 +1,216 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.tiles;
+
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base class for {@link TileProvider}s that draw their tiles procedurally.
+ * <p>
+ * The map requests tiles from several threads, so each thread gets its own bitmap, canvas,
+ * output buffer and subclass-defined drawing state (typically {@code Paint}s), which are reused
+ * for every tile that thread renders. The output buffer starts at the largest compressed size
+ * seen so far, so compressing a tile does not grow it. The only per-tile allocation is the
+ * exact-size {@code byte[]} handed to the map in the returned {@link Tile}.
+ * <p>
+ * The bitmaps belong to the map's tile threads, which outlive the overlay, so call
+ * {@link #release()} once the overlay is removed or its activity is destroyed.
+ *
+ * @param <S> per-thread drawing state created by {@link #createDrawState()}
+ */
+public abstract class PooledTileRenderer<S> implements TileProvider {
+
+    /** Initial guess for a compressed tile before any tile has been rendered. */
+    private static final int INITIAL_BUFFER_BYTES = 16 * 1024;
+
+    private final int tileSizePx;
+
+    private final Bitmap.CompressFormat format;
+
+    private final int quality;
+
+    private final ThreadLocal<RenderContext<S>> contexts = new ThreadLocal<>();
+
+    /** Every thread's context, so that {@link #release()} can reach them from any thread. */
+    private final Set<RenderContext<S>> allContexts = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean released;
+
+    /** Largest compressed tile so far; used to pre-size buffers of threads created later. */
+    private final AtomicLong largestTileBytes = new AtomicLong(INITIAL_BUFFER_BYTES);
+
+    private final AtomicLong tilesRendered = new AtomicLong();
+    private final AtomicLong renderNanos = new AtomicLong();
+    private final AtomicLong bytesAllocated = new AtomicLong();
+
+    protected PooledTileRenderer(int tileSizePx, Bitmap.CompressFormat format, int quality) {
+        this.tileSizePx = tileSizePx;
+        this.format = format;
+        this.quality = quality;
+    }
+
+    /** Creates the drawing state for a newly seen rendering thread. */
+    protected abstract S createDrawState();
+
+    /**
+     * Draws the tile onto {@code canvas}, which has already been cleared to transparent. Must not
+     * keep references to the canvas or state beyond the call.
+     */
+    protected abstract void drawTile(Canvas canvas, S state, int tileSizePx, int x, int y,
+            int zoom);
+
+    @Override
+    public Tile getTile(int x, int y, int zoom) {
+        if (released) {
+            return NO_TILE;
+        }
+        long start = System.nanoTime();
+        RenderContext<S> context = context();
+        // Only release() contends for the lock, so this costs next to nothing per tile.
+        synchronized (context) {
+            if (released) {
+                // Covers a context created while release() was running.
+                recycle(context);
+                return NO_TILE;
+            }
+            return render(context, x, y, zoom, start);
+        }
+    }
+
+    private Tile render(RenderContext<S> context, int x, int y, int zoom, long start) {
+        context.bitmap.eraseColor(Color.TRANSPARENT);
+        drawTile(context.canvas, context.state, tileSizePx, x, y, zoom);
+
+        context.stream.reset();
+        int capacityBefore = context.stream.capacity();
+        context.bitmap.compress(format, quality, context.stream);
+        int size = context.stream.size();
+        if (context.stream.capacity() != capacityBefore) {
+            bytesAllocated.addAndGet(context.stream.capacity());
+        }
+        largestTileBytes.accumulateAndGet(size, Math::max);
+
+        byte[] data = context.stream.toByteArray();
+        bytesAllocated.addAndGet(data.length);
+        tilesRendered.incrementAndGet();
+        renderNanos.addAndGet(System.nanoTime() - start);
+        return new Tile(tileSizePx, tileSizePx, data);
+    }
+
+    /**
+     * Recycles every thread's bitmap. Tiles requested afterwards are {@link #NO_TILE}. Safe to
+     * call from any thread, and more than once.
+     */
+    public void release() {
+        released = true;
+        for (RenderContext<S> context : allContexts) {
+            synchronized (context) {
+                recycle(context);
+            }
+        }
+        allContexts.clear();
+    }
+
+    private static void recycle(RenderContext<?> context) {
+        if (!context.released) {
+            context.released = true;
+            context.bitmap.recycle();
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(tilesRendered.get(), renderNanos.get(), bytesAllocated.get());
+    }
+
+    private RenderContext<S> context() {
+        RenderContext<S> context = contexts.get();
+        if (context == null) {
+            Bitmap bitmap = Bitmap.createBitmap(tileSizePx, tileSizePx, Bitmap.Config.ARGB_8888);
+            int bufferBytes = (int) largestTileBytes.get();
+            context = new RenderContext<>(bitmap, new Canvas(bitmap),
+                    new TileOutputStream(bufferBytes), createDrawState());
+            bytesAllocated.addAndGet((long) bitmap.getAllocationByteCount() + bufferBytes);
+            contexts.set(context);
+            allContexts.add(context);
+        }
+        return context;
+    }
+
+    private static final class RenderContext<S> {
+        final Bitmap bitmap;
+        final Canvas canvas;
+        final TileOutputStream stream;
+        final S state;
+        boolean released;
+
+        RenderContext(Bitmap bitmap, Canvas canvas, TileOutputStream stream, S state) {
+            this.bitmap = bitmap;
+            this.canvas = canvas;
+            this.stream = stream;
+            this.state = state;
+        }
+    }
+
+    /** A {@link ByteArrayOutputStream} that reports its capacity so growth can be counted. */
+    private static final class TileOutputStream extends ByteArrayOutputStream {
+        TileOutputStream(int size) {
+            super(size);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+
+    /** A snapshot of the rendering counters. */
+    public static final class Stats {
+        public final long tilesRendered;
+        public final long renderNanos;
+        /** Bytes allocated by the renderer, including per-thread setup and the tile payloads. */
+        public final long bytesAllocated;
+
+        Stats(long tilesRendered, long renderNanos, long bytesAllocated) {
+            this.tilesRendered = tilesRendered;
+            this.renderNanos = renderNanos;
+            this.bytesAllocated = bytesAllocated;
+        }
+
+        /** Tiles rendered per second of rendering time on a single thread. */
+        public double tilesPerSecond() {
+            return renderNanos == 0 ? 0 : tilesRendered * 1e9 / renderNanos;
+        }
+
+        public double bytesPerTile() {
+            return tilesRendered == 0 ? 0 : (double) bytesAllocated / tilesRendered;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "tiles=%d tilesPerSecond=%.1f bytesPerTile=%.0f",
+                    tilesRendered, tilesPerSecond(), bytesPerTile());
+        }
+    }
+}
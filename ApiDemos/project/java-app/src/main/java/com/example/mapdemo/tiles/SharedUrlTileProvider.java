@@ -0,0 +1,66 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.tiles;
+
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * A drop-in replacement for {@code UrlTileProvider} that downloads tiles through a shared
+ * {@link TileFetcher}, so that overlays on different maps that show the same tiles share
+ * connections and in-flight requests.
+ */
+public abstract class SharedUrlTileProvider implements TileProvider {
+
+    private final int width;
+
+    private final int height;
+
+    private final TileFetcher fetcher;
+
+    public SharedUrlTileProvider(int width, int height) {
+        this(width, height, TileFetcher.getInstance());
+    }
+
+    public SharedUrlTileProvider(int width, int height, TileFetcher fetcher) {
+        this.width = width;
+        this.height = height;
+        this.fetcher = fetcher;
+    }
+
+    /**
+     * Returns the URL of the tile image, or {@code null} if there is no tile at these
+     * coordinates.
+     */
+    public abstract URL getTileUrl(int x, int y, int zoom);
+
+    @Override
+    public Tile getTile(int x, int y, int zoom) {
+        URL url = getTileUrl(x, y, zoom);
+        if (url == null) {
+            return NO_TILE;
+        }
+        try {
+            byte[] data = fetcher.fetch(url);
+            return data == null ? NO_TILE : new Tile(width, height, data);
+        } catch (IOException e) {
+            // Returning null tells the map to try again later.
+            return null;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.tiles;
+
+/**
+ * Packs a (x, y, zoom) tile coordinate into a single {@code long} so that it can be used as a
+ * cache key without allocating a key object per lookup.
+ */
+public final class TileCoordinates {
+
+    /** Number of bits reserved for each of x and y. Enough for any zoom level up to 29. */
+    private static final int AXIS_BITS = 29;
+
+    private static final long AXIS_MASK = (1L << AXIS_BITS) - 1;
+
+    private TileCoordinates() {
+    }
+
+    /** Returns the packed key for the given tile. */
+    public static long pack(int x, int y, int zoom) {
+        return ((long) zoom << (2 * AXIS_BITS)) | ((x & AXIS_MASK) << AXIS_BITS) | (y & AXIS_MASK);
+    }
+
+    public static int x(long key) {
+        return (int) ((key >>> AXIS_BITS) & AXIS_MASK);
+    }
+
+    public static int y(long key) {
+        return (int) (key & AXIS_MASK);
+    }
+
+    public static int zoom(long key) {
+        return (int) (key >>> (2 * AXIS_BITS));
+    }
+
+    /** Returns a file-system friendly name for the tile, e.g. {@code "12_3071_1360"}. */
+    public static String toFileName(long key) {
+        return zoom(key) + "_" + x(key) + "_" + y(key);
+    }
+}
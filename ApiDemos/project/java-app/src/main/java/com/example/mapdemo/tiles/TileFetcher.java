@@ -0,0 +1,291 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.tiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Downloads tile images on behalf of any number of tile overlays and maps.
+ * <ul>
+ * <li>Concurrent requests for the same URL are coalesced: only the first caller goes to the
+ * network and the others wait for its result.</li>
+ * <li>The number of concurrent requests per host is capped, and response bodies are always read
+ * to the end so that {@link HttpURLConnection} can return the connection to its keep-alive pool
+ * and reuse it for the next tile from the same host.</li>
+ * <li>Responses that carry an {@code ETag} or {@code Last-Modified} header are remembered (up to
+ * a byte budget) and revalidated with a conditional request; a {@code 304 Not Modified} reuses
+ * the remembered body.</li>
+ * </ul>
+ * Use {@link #getInstance()} so that every overlay in the process shares the same instance.
+ */
+public class TileFetcher {
+
+    private static final int DEFAULT_MAX_REQUESTS_PER_HOST = 4;
+
+    private static final long DEFAULT_VALIDATOR_CACHE_BYTES = 4 * 1024 * 1024;
+
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+
+    private static final int READ_TIMEOUT_MS = 10_000;
+
+    private static TileFetcher instance;
+
+    private final int maxRequestsPerHost;
+
+    private final long validatorCacheBytes;
+
+    private final Map<String, CompletableFuture<Response>> inFlight = new ConcurrentHashMap<>();
+
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    /** Access-ordered cache of revalidatable responses, keyed by URL. */
+    private final LinkedHashMap<String, Response> validated = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long validatedBytes;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+
+    /** Returns the process-wide fetcher. */
+    public static synchronized TileFetcher getInstance() {
+        if (instance == null) {
+            instance = new TileFetcher(DEFAULT_MAX_REQUESTS_PER_HOST,
+                    DEFAULT_VALIDATOR_CACHE_BYTES);
+        }
+        return instance;
+    }
+
+    public TileFetcher(int maxRequestsPerHost, long validatorCacheBytes) {
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        this.validatorCacheBytes = validatorCacheBytes;
+    }
+
+    /**
+     * Returns the body of the resource at {@code url}, or {@code null} if the server answered
+     * with a client error such as 404, or with {@code 304 Not Modified} for a body that is not
+     * remembered.
+     *
+     * @throws IOException if the request failed and may be retried
+     */
+    public byte[] fetch(URL url) throws IOException {
+        String key = url.toString();
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        CompletableFuture<Response> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return await(existing).body;
+        }
+
+        try {
+            Response response = load(url, key);
+            future.complete(response);
+            return response.body;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(requests.get(), coalesced.get(), notModified.get());
+    }
+
+    private Response load(URL url, String key) throws IOException {
+        Semaphore permits = hostPermits.computeIfAbsent(url.getHost(),
+                host -> new Semaphore(maxRequestsPerHost, true));
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a connection", e);
+        }
+        try {
+            return request(url, key, false);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Response request(URL url, String key, boolean bypassCaches) throws IOException {
+        Response cached = null;
+        if (!bypassCaches) {
+            synchronized (validated) {
+                cached = validated.get(key);
+            }
+        }
+
+        requests.incrementAndGet();
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        if (bypassCaches) {
+            connection.setUseCaches(false);
+            connection.setRequestProperty("Cache-Control", "no-cache");
+        }
+        if (cached != null) {
+            if (cached.etag != null) {
+                connection.setRequestProperty("If-None-Match", cached.etag);
+            }
+            if (cached.lastModified != 0) {
+                connection.setIfModifiedSince(cached.lastModified);
+            }
+        }
+
+        int status = connection.getResponseCode();
+        if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            notModified.incrementAndGet();
+            if (cached != null) {
+                drain(connection.getInputStream());
+                return cached;
+            }
+            // There is no remembered body to reuse, for example because an intermediate cache
+            // revalidated on our behalf. Ask once more past any caches; if the answer is still
+            // 304 there is nothing to show, so treat it as a miss.
+            if (!bypassCaches) {
+                return request(url, key, true);
+            }
+            return new Response(null, null, 0);
+        }
+        if (status >= 400 && status < 500) {
+            InputStream error = connection.getErrorStream();
+            if (error != null) {
+                drain(error);
+            }
+            return new Response(null, null, 0);
+        }
+
+        byte[] body;
+        try (InputStream in = connection.getInputStream()) {
+            body = readFully(in);
+        }
+        Response response = new Response(body, connection.getHeaderField("ETag"),
+                connection.getLastModified());
+        if (response.etag != null || response.lastModified != 0) {
+            remember(key, response);
+        } else if (cached != null) {
+            forget(key);
+        }
+        return response;
+    }
+
+    private void remember(String key, Response response) {
+        synchronized (validated) {
+            Response previous = validated.put(key, response);
+            if (previous != null) {
+                validatedBytes -= previous.body.length;
+            }
+            validatedBytes += response.body.length;
+            Iterator<Response> it = validated.values().iterator();
+            while (validatedBytes > validatorCacheBytes && it.hasNext()) {
+                validatedBytes -= it.next().body.length;
+                it.remove();
+            }
+        }
+    }
+
+    private void forget(String key) {
+        synchronized (validated) {
+            Response previous = validated.remove(key);
+            if (previous != null) {
+                validatedBytes -= previous.body.length;
+            }
+        }
+    }
+
+    private static Response await(CompletableFuture<Response> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a coalesced request", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /** Reads and closes the stream so that the connection can be reused. */
+    private static void drain(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            byte[] buffer = new byte[1024];
+            while (stream.read(buffer) != -1) {
+                // Discard.
+            }
+        }
+    }
+
+    private static final class Response {
+        /** {@code null} for client errors. */
+        final byte[] body;
+        final String etag;
+        final long lastModified;
+
+        Response(byte[] body, String etag, long lastModified) {
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /** A snapshot of the fetcher counters. */
+    public static final class Stats {
+        /** Requests that went to the network. */
+        public final long requests;
+        /** Calls that were served by waiting on an identical in-flight request. */
+        public final long coalesced;
+        /** Requests answered with {@code 304 Not Modified}. */
+        public final long notModified;
+
+        Stats(long requests, long coalesced, long notModified) {
+            this.requests = requests;
+            this.coalesced = coalesced;
+            this.notModified = notModified;
+        }
+
+        @Override
+        public String toString() {
+            return "requests=" + requests + " coalesced=" + coalesced
+                    + " notModified=" + notModified;
+        }
+    }
+}
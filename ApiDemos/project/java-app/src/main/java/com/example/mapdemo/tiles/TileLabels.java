@@ -0,0 +1,61 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.tiles;
+
+/**
+ * Formats tile labels into a caller-owned char buffer, so that drawing them allocates nothing.
+ * Each method returns the label's length.
+ */
+public final class TileLabels {
+
+    /** The longest label, {@code "(x, y)"} with two ten-digit coordinates. */
+    public static final int MAX_LENGTH = 24;
+
+    private static final char[] ZOOM_PREFIX = "zoom = ".toCharArray();
+
+    private TileLabels() {
+    }
+
+    /** Writes {@code "(x, y)"}, e.g. {@code "(3, 5)"}. */
+    public static int coordinates(char[] out, int x, int y) {
+        int length = 0;
+        out[length++] = '(';
+        length = appendInt(out, length, x);
+        out[length++] = ',';
+        out[length++] = ' ';
+        length = appendInt(out, length, y);
+        out[length++] = ')';
+        return length;
+    }
+
+    /** Writes {@code "zoom = z"}, e.g. {@code "zoom = 4"}. */
+    public static int zoom(char[] out, int zoom) {
+        System.arraycopy(ZOOM_PREFIX, 0, out, 0, ZOOM_PREFIX.length);
+        return appendInt(out, ZOOM_PREFIX.length, zoom);
+    }
+
+    /** Writes the decimal digits of a non-negative int into {@code out} at {@code offset}. */
+    static int appendInt(char[] out, int offset, int value) {
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + digits;
+    }
+}
@@ -0,0 +1,279 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.tiles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Predicts where the camera is heading from its recent movement and loads the tiles of the
+ * predicted viewport into a {@link CachingTileProvider} before the map asks for them.
+ * <p>
+ * Feed it from {@code OnCameraMoveListener} and {@code OnCameraIdleListener}. Every camera move
+ * updates a smoothed pan and zoom velocity, extrapolates the viewport {@link #LOOKAHEAD_MS} into
+ * the future and schedules the tiles that are in the predicted viewport but not in the current
+ * one on a small thread pool. Queued fetches that are no longer in the predicted set are
+ * cancelled, as are all queued fetches once the camera is idle. Bearing and tilt are ignored.
+ * <p>
+ * All methods must be called from the same thread, normally the UI thread.
+ */
+public class TilePrefetcher {
+
+    /** How far ahead the viewport is extrapolated. */
+    static final long LOOKAHEAD_MS = 400;
+
+    /** Size of a tile on screen, in dp. */
+    private static final double TILE_SIZE_DP = 256;
+
+    /** Upper bound on the tiles scheduled by one camera move, nearest first. */
+    private static final int MAX_TILES_PER_MOVE = 32;
+
+    /** Weight of the newest sample in the exponentially smoothed velocity. */
+    private static final double SMOOTHING = 0.5;
+
+    private final CachingTileProvider cache;
+
+    private final ExecutorService executor;
+
+    private final int minZoom;
+
+    private final int maxZoom;
+
+    private double viewportWidthDp;
+
+    private double viewportHeightDp;
+
+    /** Scheduled fetches by packed tile key. */
+    private final Map<Long, Future<?>> pending = new HashMap<>();
+
+    private boolean hasSample;
+    private long lastTimeMillis;
+    private double lastX;
+    private double lastY;
+    private double lastZoom;
+
+    /** Velocity in normalized world units (0..1 across the whole world) per millisecond. */
+    private double velocityX;
+    private double velocityY;
+    /** Zoom levels per millisecond. */
+    private double velocityZoom;
+
+    private long scheduled;
+    private long cancelled;
+
+    /**
+     * @param threads maximum number of concurrent fetches
+     * @param minZoom lowest zoom level the tile source serves
+     * @param maxZoom highest zoom level the tile source serves
+     */
+    public TilePrefetcher(CachingTileProvider cache, int threads, int minZoom, int maxZoom) {
+        this.cache = cache;
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 5, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>());
+        pool.allowCoreThreadTimeOut(true);
+        executor = pool;
+    }
+
+    /** Sets the size of the map view. Prefetching is disabled until this has been called. */
+    public void setViewportSize(double widthDp, double heightDp) {
+        viewportWidthDp = widthDp;
+        viewportHeightDp = heightDp;
+    }
+
+    /** Call from {@code onCameraMove} with the current camera target and zoom. */
+    public void onCameraMove(double latitude, double longitude, float zoom, long timeMillis) {
+        double x = worldX(longitude);
+        double y = worldY(latitude);
+        if (hasSample && timeMillis > lastTimeMillis) {
+            long dt = timeMillis - lastTimeMillis;
+            double dx = x - lastX;
+            // Take the short way around the antimeridian.
+            if (dx > 0.5) {
+                dx -= 1;
+            } else if (dx < -0.5) {
+                dx += 1;
+            }
+            velocityX = smooth(velocityX, dx / dt);
+            velocityY = smooth(velocityY, (y - lastY) / dt);
+            velocityZoom = smooth(velocityZoom, (zoom - lastZoom) / dt);
+        }
+        hasSample = true;
+        lastTimeMillis = timeMillis;
+        lastX = x;
+        lastY = y;
+        lastZoom = zoom;
+
+        if (viewportWidthDp > 0 && viewportHeightDp > 0) {
+            schedule(predictTiles());
+        }
+    }
+
+    /** Call from {@code onCameraIdle}. Cancels all queued fetches and resets the velocity. */
+    public void onCameraIdle() {
+        for (Future<?> future : pending.values()) {
+            if (future.cancel(false)) {
+                cancelled++;
+            }
+        }
+        pending.clear();
+        hasSample = false;
+        velocityX = 0;
+        velocityY = 0;
+        velocityZoom = 0;
+    }
+
+    /** Stops the worker threads. The prefetcher must not be used afterwards. */
+    public void shutdown() {
+        onCameraIdle();
+        executor.shutdownNow();
+    }
+
+    /** Number of tile fetches handed to the thread pool. */
+    public long getScheduledCount() {
+        return scheduled;
+    }
+
+    /** Number of queued fetches that were dropped because their prediction went stale. */
+    public long getCancelledCount() {
+        return cancelled;
+    }
+
+    /**
+     * Returns the keys of the tiles in the predicted viewport that are not in the current one,
+     * ordered by distance from the predicted center.
+     */
+    List<Long> predictTiles() {
+        double predictedX = lastX + velocityX * LOOKAHEAD_MS;
+        double predictedY = clamp(lastY + velocityY * LOOKAHEAD_MS, 0, 1);
+        double predictedZoom = clamp(lastZoom + velocityZoom * LOOKAHEAD_MS, minZoom, maxZoom);
+
+        int currentTileZoom = tileZoom(lastZoom);
+        int predictedTileZoom = tileZoom(predictedZoom);
+
+        Set<Long> current = new HashSet<>();
+        addViewportTiles(lastX, lastY, lastZoom, currentTileZoom, current);
+
+        List<Long> predicted = new ArrayList<>();
+        Set<Long> predictedSet = new HashSet<>();
+        addViewportTiles(predictedX, predictedY, predictedZoom, predictedTileZoom, predictedSet);
+        for (Long key : predictedSet) {
+            if (!current.contains(key)) {
+                predicted.add(key);
+            }
+        }
+
+        double scale = 1 << predictedTileZoom;
+        double centerX = predictedX * scale;
+        double centerY = predictedY * scale;
+        Collections.sort(predicted, (a, b) -> Double.compare(
+                distanceSquared(a, centerX, centerY), distanceSquared(b, centerX, centerY)));
+        if (predicted.size() > MAX_TILES_PER_MOVE) {
+            return predicted.subList(0, MAX_TILES_PER_MOVE);
+        }
+        return predicted;
+    }
+
+    private void schedule(List<Long> keys) {
+        Set<Long> wanted = new HashSet<>(keys);
+        Iterator<Map.Entry<Long, Future<?>>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Future<?>> entry = it.next();
+            Future<?> future = entry.getValue();
+            if (future.isDone()) {
+                it.remove();
+            } else if (!wanted.contains(entry.getKey())) {
+                // Stale prediction: drop it if it has not started yet.
+                if (future.cancel(false)) {
+                    cancelled++;
+                }
+                it.remove();
+            }
+        }
+
+        for (Long key : keys) {
+            if (pending.containsKey(key)) {
+                continue;
+            }
+            int x = TileCoordinates.x(key);
+            int y = TileCoordinates.y(key);
+            int zoom = TileCoordinates.zoom(key);
+            if (cache.isCached(x, y, zoom)) {
+                continue;
+            }
+            pending.put(key, executor.submit(() -> cache.prefetch(x, y, zoom)));
+            scheduled++;
+        }
+    }
+
+    private void addViewportTiles(double centerX, double centerY, double zoom, int tileZoom,
+            Set<Long> out) {
+        double worldSizeDp = TILE_SIZE_DP * Math.pow(2, zoom);
+        double halfWidth = viewportWidthDp / 2 / worldSizeDp;
+        double halfHeight = viewportHeightDp / 2 / worldSizeDp;
+        int tiles = 1 << tileZoom;
+        int minX = (int) Math.floor((centerX - halfWidth) * tiles);
+        int maxX = (int) Math.floor((centerX + halfWidth) * tiles);
+        int minY = Math.max(0, (int) Math.floor((centerY - halfHeight) * tiles));
+        int maxY = Math.min(tiles - 1, (int) Math.floor((centerY + halfHeight) * tiles));
+        for (int x = minX; x <= maxX; x++) {
+            int wrappedX = Math.floorMod(x, tiles);
+            for (int y = minY; y <= maxY; y++) {
+                out.add(TileCoordinates.pack(wrappedX, y, tileZoom));
+            }
+        }
+    }
+
+    private int tileZoom(double zoom) {
+        return (int) clamp(Math.round(zoom), minZoom, maxZoom);
+    }
+
+    private static double distanceSquared(long key, double centerX, double centerY) {
+        double dx = TileCoordinates.x(key) + 0.5 - centerX;
+        double dy = TileCoordinates.y(key) + 0.5 - centerY;
+        return dx * dx + dy * dy;
+    }
+
+    private static double smooth(double previous, double sample) {
+        return previous + SMOOTHING * (sample - previous);
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /** Web Mercator x in the range [0, 1). */
+    static double worldX(double longitude) {
+        return (longitude + 180) / 360;
+    }
+
+    /** Web Mercator y in the range [0, 1], 0 being the north edge. */
+    static double worldY(double latitude) {
+        double sin = Math.sin(Math.toRadians(clamp(latitude, -85.05112878, 85.05112878)));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+}
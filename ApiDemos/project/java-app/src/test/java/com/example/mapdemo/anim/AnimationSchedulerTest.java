@@ -0,0 +1,159 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.anim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.view.Choreographer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drives an {@link AnimationScheduler} with a fake 60Hz vsync and clock, including a UI thread
+ * that falls behind.
+ */
+public class AnimationSchedulerTest {
+
+    private static final long FRAME = 16_000_000;
+
+    private long now;
+    private Choreographer.FrameCallback posted;
+    private AnimationScheduler scheduler;
+
+    /** Records the deltas it is called with. */
+    private static class Recorder implements AnimationScheduler.Animation {
+        final List<Long> deltas = new ArrayList<>();
+
+        @Override
+        public void onFrame(long frameTimeNanos, long deltaNanos) {
+            deltas.add(deltaNanos);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        scheduler = new AnimationScheduler(callback -> {
+            assertNull("only one vsync callback at a time", posted);
+            posted = callback;
+        }, () -> now, FRAME);
+    }
+
+    /** Delivers the vsync at a frame time, with the callback starting {@code lateNanos} later. */
+    private void vsync(long frameTimeNanos, long lateNanos) {
+        now = frameTimeNanos + lateNanos;
+        Choreographer.FrameCallback callback = posted;
+        posted = null;
+        callback.doFrame(frameTimeNanos);
+    }
+
+    @Test
+    public void animationsGetTheRealDeltaBetweenFrames() {
+        Recorder recorder = new Recorder();
+        scheduler.add(recorder);
+
+        vsync(FRAME, 0);
+        vsync(2 * FRAME, 0);
+        // Two vsyncs passed without a callback.
+        vsync(5 * FRAME, 0);
+
+        assertEquals(List.of(FRAME, FRAME, 3 * FRAME), recorder.deltas);
+        assertEquals(2, scheduler.getDroppedFrameCount());
+    }
+
+    @Test
+    public void manyAnimationsShareOneCallback() {
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        scheduler.add(first);
+        scheduler.add(second);
+        scheduler.add(first);
+
+        vsync(FRAME, 0);
+
+        assertEquals(1, first.deltas.size());
+        assertEquals(1, second.deltas.size());
+    }
+
+    @Test
+    public void lateFramesAreSkippedButNeverTwiceInARow() {
+        Recorder recorder = new Recorder();
+        scheduler.add(recorder);
+        vsync(FRAME, 0);
+
+        vsync(2 * FRAME, 2 * FRAME);
+        vsync(3 * FRAME, 2 * FRAME);
+
+        assertEquals(List.of(FRAME, 2 * FRAME), recorder.deltas);
+        assertEquals(1, scheduler.getSkippedFrameCount());
+    }
+
+    @Test
+    public void idleSchedulerReleasesVsyncAndRestartsWithANominalDelta() {
+        Recorder recorder = new Recorder();
+        scheduler.add(recorder);
+        vsync(FRAME, 0);
+        scheduler.remove(recorder);
+        vsync(2 * FRAME, 0);
+        assertNull(posted);
+        assertFalse(scheduler.isRunning(recorder));
+
+        scheduler.add(recorder);
+        vsync(100 * FRAME, 0);
+
+        assertEquals(List.of(FRAME, FRAME), recorder.deltas);
+        assertTrue(scheduler.isRunning(recorder));
+    }
+
+    @Test
+    public void animationsCanRemoveThemselves() {
+        AnimationScheduler.Animation once = new AnimationScheduler.Animation() {
+            @Override
+            public void onFrame(long frameTimeNanos, long deltaNanos) {
+                scheduler.remove(this);
+            }
+        };
+        Recorder recorder = new Recorder();
+        scheduler.add(once);
+        scheduler.add(recorder);
+
+        vsync(FRAME, 0);
+        vsync(2 * FRAME, 0);
+
+        assertFalse(scheduler.isRunning(once));
+        assertEquals(2, recorder.deltas.size());
+    }
+
+    @Test
+    public void percentilesCoverRecentFrames() {
+        scheduler.add((frameTimeNanos, deltaNanos) -> now += 1_000_000);
+        long frameTime = 0;
+        for (int i = 0; i < 100; i++) {
+            // Every tenth interval is doubled by a dropped frame.
+            frameTime += i % 10 == 9 ? 2 * FRAME : FRAME;
+            vsync(frameTime, 0);
+        }
+
+        assertEquals(FRAME, scheduler.getFrameIntervalPercentile(50));
+        assertEquals(2 * FRAME, scheduler.getFrameIntervalPercentile(99));
+        assertEquals(1_000_000, scheduler.getWorkPercentile(90));
+    }
+}
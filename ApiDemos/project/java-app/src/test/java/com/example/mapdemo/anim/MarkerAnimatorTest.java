@@ -0,0 +1,233 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.anim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import android.view.Choreographer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a {@link MarkerAnimator} frame by frame on a fake vsync and checks the values its host
+ * receives. The benchmark only runs with {@code -Pbenchmarks}.
+ */
+public class MarkerAnimatorTest {
+
+    private static final long FRAME_MS = 16;
+
+    /** Stands in for {@code Marker}. */
+    private static class FakeMarker {
+        double latitude;
+        double longitude;
+        float alpha = 1;
+        float rotation;
+        float hue = -1;
+        float anchorV;
+        int writes;
+    }
+
+    private final MarkerAnimator.Host<FakeMarker> host = new MarkerAnimator.Host<FakeMarker>() {
+        @Override
+        public void setPosition(FakeMarker marker, double latitude, double longitude) {
+            marker.latitude = latitude;
+            marker.longitude = longitude;
+            marker.writes++;
+        }
+
+        @Override
+        public void setAlpha(FakeMarker marker, float alpha) {
+            marker.alpha = alpha;
+            marker.writes++;
+        }
+
+        @Override
+        public void setRotation(FakeMarker marker, float rotation) {
+            marker.rotation = rotation;
+            marker.writes++;
+        }
+
+        @Override
+        public void setHue(FakeMarker marker, float hue) {
+            assertEquals(Math.floor(hue), hue, 0);
+            marker.hue = hue;
+            marker.writes++;
+        }
+
+        @Override
+        public void setAnchor(FakeMarker marker, float u, float v) {
+            marker.anchorV = v;
+            marker.writes++;
+        }
+    };
+
+    private final List<Choreographer.FrameCallback> vsyncCallbacks = new ArrayList<>();
+    private long frameTime;
+    private AnimationScheduler scheduler;
+    private MarkerAnimator<FakeMarker> animator;
+
+    @Before
+    public void setUp() {
+        scheduler = new AnimationScheduler(vsyncCallbacks::add, () -> frameTime,
+                FRAME_MS * 1_000_000);
+        animator = new MarkerAnimator<>(scheduler, host);
+    }
+
+    private void frames(int count) {
+        for (int i = 0; i < count && !vsyncCallbacks.isEmpty(); i++) {
+            frameTime += FRAME_MS * 1_000_000;
+            Choreographer.FrameCallback callback = vsyncCallbacks.remove(0);
+            callback.doFrame(frameTime);
+        }
+    }
+
+    @Test
+    public void animationsEndOnTheirTargetValues() {
+        FakeMarker marker = new FakeMarker();
+        animator.animateAlpha(marker, 1, 0, 160, null);
+        animator.animateAnchor(marker, 0.5f, 3, 0.5f, 1, 160, input -> input * input);
+
+        frames(1);
+        assertEquals(1, marker.alpha, 0);
+        frames(5);
+        assertEquals(0.5, marker.alpha, 1e-6);
+        frames(20);
+
+        assertEquals(0, marker.alpha, 0);
+        assertEquals(1, marker.anchorV, 0);
+        assertFalse(animator.isAnimating(marker));
+        assertEquals(0, animator.getRunningCount());
+        assertTrue("the scheduler is released", vsyncCallbacks.isEmpty());
+    }
+
+    @Test
+    public void rotationAndHueTakeTheShortWayAround() {
+        FakeMarker marker = new FakeMarker();
+        animator.animateRotation(marker, 350, 10, 160, null);
+        animator.animateHue(marker, 340, 20, 160, null);
+
+        frames(6);
+        assertEquals(360, marker.rotation, 1e-3);
+        assertEquals(0, marker.hue, 0);
+        frames(20);
+
+        assertEquals(370, marker.rotation, 1e-3);
+        assertEquals(20, marker.hue, 0);
+    }
+
+    @Test
+    public void positionsFollowTheGreatCircle() {
+        FakeMarker marker = new FakeMarker();
+        // Halfway from 0,0 to 0,90 is 0,45; halfway from there to the pole is 45,90.
+        animator.followPath(marker, new double[] {0, 0, 90}, new double[] {0, 90, 90}, 3, 320,
+                null);
+
+        frames(6);
+        assertEquals(0, marker.latitude, 1e-9);
+        assertEquals(45, marker.longitude, 1e-9);
+        frames(10);
+        assertEquals(45, marker.latitude, 1e-9);
+        assertEquals(90, marker.longitude, 1e-9);
+        frames(10);
+        assertEquals(90, marker.latitude, 1e-9);
+    }
+
+    @Test
+    public void aNewAnimationReplacesTheOneOnTheSameProperty() {
+        FakeMarker marker = new FakeMarker();
+        animator.animateAlpha(marker, 1, 0, 1000, null);
+        frames(3);
+        animator.animateAlpha(marker, 0.2f, 0.8f, 160, null);
+
+        frames(20);
+
+        assertEquals(0.8, marker.alpha, 1e-6);
+        assertEquals(0, animator.getRunningCount());
+    }
+
+    @Test
+    public void cancelledMarkersAreNeverWrittenAgain() {
+        FakeMarker kept = new FakeMarker();
+        FakeMarker removed = new FakeMarker();
+        animator.animateAlpha(kept, 1, 0, 160, null);
+        animator.animateAlpha(removed, 1, 0, 160, null);
+        animator.animateRotation(removed, 0, 90, 160, null);
+        frames(2);
+        int writes = removed.writes;
+
+        animator.cancel(removed);
+        frames(20);
+
+        assertEquals(writes, removed.writes);
+        assertEquals(0, kept.alpha, 0);
+    }
+
+    @Test
+    public void unchangedValuesAreNotWritten() {
+        FakeMarker marker = new FakeMarker();
+        // 45 degrees over 100 frames: most frames round down to the same whole degree.
+        animator.animateHue(marker, 0, 45, 100 * FRAME_MS, null);
+
+        frames(200);
+
+        assertEquals(46, marker.writes);
+        assertTrue(animator.getSkippedWriteCount() > 50);
+    }
+
+    @Test
+    public void manyMarkersShareOneFrameCallback() {
+        animateMarkers(200);
+    }
+
+    @Test
+    public void benchmarkThousandsOfMarkers() {
+        assumeTrue(Boolean.getBoolean("benchmarks"));
+        long start = System.nanoTime();
+        animateMarkers(5000);
+        double perFrameMs = (System.nanoTime() - start) / 1e6 / scheduler.getFrameCount();
+        System.out.println(String.format(
+                "5000 markers, 10000 animations: %.3fms per frame, %d writes, %d skipped",
+                perFrameMs, animator.getWriteCount(), animator.getSkippedWriteCount()));
+    }
+
+    /** Animates the anchor and alpha of {@code count} markers to the end. */
+    private void animateMarkers(int count) {
+        List<FakeMarker> markers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            FakeMarker marker = new FakeMarker();
+            markers.add(marker);
+            animator.animateAnchor(marker, 0.5f, 3, 0.5f, 1, 1500, null);
+            animator.animateAlpha(marker, 0, 1, 500 + i % 1000, null);
+            assertTrue(vsyncCallbacks.size() <= 1);
+        }
+        assertEquals(count * 2, animator.getRunningCount());
+
+        frames(200);
+
+        for (FakeMarker marker : markers) {
+            assertEquals(1, marker.anchorV, 0);
+            assertEquals(1, marker.alpha, 0);
+        }
+        assertEquals(0, animator.getRunningCount());
+        assertTrue(vsyncCallbacks.isEmpty());
+    }
+}
@@ -0,0 +1,223 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.geometry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks {@link GeometryTranslator} against moving {@code LatLng} lists, and compares the time and
+ * the memory allocated per frame for a 10,000 point polyline and a polygon with holes. The
+ * comparison only runs with {@code -Pbenchmarks}.
+ */
+public class GeometryTranslatorTest {
+
+    private static GeometryTranslator square(double size) {
+        return new GeometryTranslator.Builder()
+                .beginRing()
+                .add(0, 0).add(0, size).add(size, size).add(size, 0)
+                .build();
+    }
+
+    @Test
+    public void translatesFromTheOriginalPoints() {
+        GeometryTranslator translator = square(1);
+
+        assertTrue(translator.translate(0.5, 0));
+        assertTrue(translator.translate(1, -2));
+
+        assertEquals(1, translator.getLatitude(0, 0), 0);
+        assertEquals(-2, translator.getLongitude(0, 0), 0);
+        assertEquals(2, translator.getLatitude(0, 2), 0);
+        assertEquals(-1, translator.getLongitude(0, 2), 0);
+    }
+
+    @Test
+    public void anUnchangedDistanceIsANoOp() {
+        GeometryTranslator translator = square(1);
+
+        assertFalse(translator.translate(0, 0));
+        assertTrue(translator.translate(1, 1));
+        assertFalse(translator.translate(1, 1));
+    }
+
+    @Test
+    public void copyRingReusesTheList() {
+        GeometryTranslator translator = square(1);
+        List<LatLng> points = new ArrayList<>();
+        points.add(new LatLng(9, 9));
+
+        translator.translate(10, 20);
+        List<LatLng> copied = translator.copyRing(0, points, LatLng::new);
+
+        assertSame(points, copied);
+        assertEquals(4, points.size());
+        assertEquals(11, points.get(2).latitude, 0);
+        assertEquals(21, points.get(2).longitude, 0);
+    }
+
+    @Test
+    public void holesFollowTheOutline() {
+        GeometryTranslator polygon = new GeometryTranslator.Builder()
+                .beginRing().add(0, 0).add(0, 10).add(10, 10).add(10, 0)
+                .beginRing().add(1, 1).add(1, 2).add(2, 2)
+                .beginRing().add(5, 5).add(5, 6).add(6, 6).add(6, 5).add(5, 5)
+                .build();
+        List<List<LatLng>> holes = new ArrayList<>();
+        holes.add(new ArrayList<>());
+        List<LatLng> firstHole = holes.get(0);
+
+        polygon.translate(1, 0);
+        polygon.copyRings(1, holes, LatLng::new);
+
+        assertEquals(3, polygon.getRingCount());
+        assertEquals(12, polygon.getPointCount());
+        assertEquals(2, holes.size());
+        assertSame(firstHole, holes.get(0));
+        assertEquals(3, holes.get(0).size());
+        assertEquals(5, holes.get(1).size());
+        assertEquals(6, holes.get(1).get(0).latitude, 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void pointsNeedARing() {
+        new GeometryTranslator.Builder().add(0, 0);
+    }
+
+    @Test
+    public void benchmarkLargePolylineAndPolygon() {
+        assumeTrue(Boolean.getBoolean("benchmarks"));
+        int points = 10_000;
+        List<LatLng> line = new ArrayList<>();
+        for (int i = 0; i < points; i++) {
+            line.add(new LatLng(Math.sin(i * 0.01), i * 0.001));
+        }
+        GeometryTranslator lineTranslator = translatorFor(List.of(line));
+
+        // A polygon with the same number of points: an outline and 99 holes.
+        List<List<LatLng>> polygon = new ArrayList<>();
+        for (int r = 0; r < 100; r++) {
+            List<LatLng> ring = new ArrayList<>();
+            for (int i = 0; i < points / 100; i++) {
+                double angle = 2 * Math.PI * i / (points / 100);
+                double radius = r == 0 ? 50 : 0.1;
+                ring.add(new LatLng(radius * Math.sin(angle) + r % 10 * 5,
+                        radius * Math.cos(angle) + r / 10 * 5));
+            }
+            polygon.add(ring);
+        }
+        GeometryTranslator polygonTranslator = translatorFor(polygon);
+
+        int frames = 600;
+        List<LatLng> movedLine = new ArrayList<>();
+        List<LatLng> movedOutline = new ArrayList<>();
+        List<List<LatLng>> movedHoles = new ArrayList<>();
+        Sink sink = new Sink();
+        // Warm up every path before measuring.
+        for (int round = 0; round < 2; round++) {
+            boolean report = round == 1;
+            measure(report, "polyline, new lists", frames, frame ->
+                    sink.take(movePointsInList(line, frame * 1e-4, 0)));
+            measure(report, "polyline, translator", frames, frame -> {
+                lineTranslator.translate(frame * 1e-4, 0);
+                sink.take(lineTranslator.copyRing(0, movedLine, LatLng::new));
+            });
+            measure(report, "polyline, translate only", frames, frame -> {
+                lineTranslator.translate(frame * 1e-4, 0);
+                sink.take(lineTranslator.getLatitude(0, points - 1));
+            });
+            measure(report, "polygon, new lists", frames, frame -> {
+                sink.take(movePointsInList(polygon.get(0), frame * 1e-4, 0));
+                List<List<LatLng>> holes = new ArrayList<>();
+                for (List<LatLng> hole : polygon.subList(1, polygon.size())) {
+                    holes.add(movePointsInList(hole, frame * 1e-4, 0));
+                }
+                sink.take(holes);
+            });
+            measure(report, "polygon, translator", frames, frame -> {
+                polygonTranslator.translate(frame * 1e-4, 0);
+                sink.take(polygonTranslator.copyRing(0, movedOutline, LatLng::new));
+                sink.take(polygonTranslator.copyRings(1, movedHoles, LatLng::new));
+            });
+        }
+        assertEquals(points, movedLine.size());
+        assertEquals(99, movedHoles.size());
+    }
+
+    private interface Frame {
+        void run(int frame);
+    }
+
+    /** Keeps results reachable so the JIT cannot drop the work. */
+    private static class Sink {
+        long hash;
+
+        void take(Object value) {
+            hash += System.identityHashCode(value);
+        }
+
+        void take(double value) {
+            hash += Double.doubleToLongBits(value);
+        }
+    }
+
+    private static void measure(boolean report, String name, int frames, Frame frame) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 1; i <= frames; i++) {
+            frame.run(i);
+        }
+        long nanos = System.nanoTime() - start;
+        long bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+        if (report) {
+            System.out.println(String.format("%-25s %.3fms and %,d bytes per frame",
+                    name, nanos / 1e6 / frames, bytes / frames));
+        }
+    }
+
+    private static GeometryTranslator translatorFor(List<List<LatLng>> rings) {
+        GeometryTranslator.Builder builder = new GeometryTranslator.Builder();
+        for (List<LatLng> ring : rings) {
+            builder.beginRing();
+            for (LatLng point : ring) {
+                builder.add(point.latitude, point.longitude);
+            }
+        }
+        return builder.build();
+    }
+
+    /** What {@code MoveDirection.movePointsInList} does on every frame. */
+    private static List<LatLng> movePointsInList(List<LatLng> points, double lat, double lng) {
+        List<LatLng> moved = new ArrayList<>(points.size());
+        for (LatLng point : points) {
+            moved.add(new LatLng(point.latitude + lat, point.longitude + lng));
+        }
+        return moved;
+    }
+}
@@ -0,0 +1,136 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.lite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Runs {@link MapViewPool} idle passes by hand, with numbered views standing in for maps.
+ */
+public class MapViewPoolTest {
+
+    private final ArrayDeque<Runnable> idlePasses = new ArrayDeque<>();
+    private final Set<Integer> destroyed = new HashSet<>();
+    private int created;
+
+    private final MapViewPool.Host<Integer> host = new MapViewPool.Host<Integer>() {
+        @Override
+        public Integer create() {
+            return created++;
+        }
+
+        @Override
+        public void destroy(Integer view) {
+            destroyed.add(view);
+        }
+    };
+
+    private MapViewPool<Integer> pool;
+
+    @Before
+    public void setUp() {
+        pool = new MapViewPool<>(host, idlePasses::add, 3);
+    }
+
+    private void runIdlePasses() {
+        while (!idlePasses.isEmpty()) {
+            idlePasses.poll().run();
+        }
+    }
+
+    @Test
+    public void prewarmCreatesOneViewPerIdlePass() {
+        pool.prewarm();
+        assertEquals(0, created);
+
+        idlePasses.poll().run();
+        assertEquals(1, created);
+        assertEquals(1, idlePasses.size());
+
+        runIdlePasses();
+        assertEquals(3, created);
+        assertEquals(3, pool.getIdleCount());
+    }
+
+    @Test
+    public void acquireUsesWarmViewsFirst() {
+        pool.prewarm();
+        runIdlePasses();
+
+        for (int i = 0; i < 4; i++) {
+            pool.acquire();
+        }
+
+        assertEquals(3, pool.getWarmHits());
+        assertEquals(1, pool.getColdCreates());
+    }
+
+    @Test
+    public void releasedViewsAreReused() {
+        Integer view = pool.acquire();
+        pool.release(view);
+
+        assertSame(view, pool.acquire());
+        assertEquals(1, created);
+    }
+
+    @Test
+    public void releaseBeyondTheSizeDestroysTheView() {
+        Integer[] views = new Integer[4];
+        for (int i = 0; i < views.length; i++) {
+            views[i] = pool.acquire();
+        }
+
+        pool.release(views[0]);
+        pool.release(views[1]);
+
+        assertTrue(destroyed.contains(views[0]));
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void prewarmCountsViewsInUse() {
+        pool.acquire();
+        pool.acquire();
+
+        pool.prewarm();
+        runIdlePasses();
+
+        assertEquals(3, created);
+    }
+
+    @Test
+    public void closeDestroysEveryViewAndStopsWarming() {
+        pool.prewarm();
+        idlePasses.poll().run();
+        Integer inUse = pool.acquire();
+        pool.prewarm();
+
+        pool.close();
+        runIdlePasses();
+
+        assertEquals(1, created);
+        assertTrue(destroyed.contains(inUse));
+    }
+}
@@ -0,0 +1,184 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.lite;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+
+/**
+ * Runs {@link SnapshotCache} with byte arrays for images and the disk work queued by hand.
+ */
+public class SnapshotCacheTest {
+
+    private static final SnapshotCache.Codec<byte[]> CODEC = new SnapshotCache.Codec<byte[]>() {
+        @Override
+        public long sizeOf(byte[] image) {
+            return image.length;
+        }
+
+        @Override
+        public void encode(byte[] image, OutputStream out) throws IOException {
+            out.write(image);
+        }
+
+        @Override
+        public byte[] decode(InputStream in) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[256];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.size() == 0 ? null : bytes.toByteArray();
+        }
+    };
+
+    private final ArrayDeque<Runnable> ioTasks = new ArrayDeque<>();
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshots").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private SnapshotCache<byte[]> cache(long maxMemoryBytes, long maxDiskBytes) {
+        return new SnapshotCache<>(CODEC, maxMemoryBytes, directory, maxDiskBytes, ioTasks::add,
+                Runnable::run);
+    }
+
+    private void runIo() {
+        while (!ioTasks.isEmpty()) {
+            ioTasks.poll().run();
+        }
+    }
+
+    private byte[] get(SnapshotCache<byte[]> cache, String key) {
+        byte[][] result = new byte[1][];
+        cache.get(key, image -> result[0] = image);
+        runIo();
+        return result[0];
+    }
+
+    @Test
+    public void memoryHitsAreDeliveredAtOnce() {
+        SnapshotCache<byte[]> cache = cache(100, 1_000);
+        byte[] image = new byte[10];
+        cache.put("Oslo", image);
+
+        byte[][] result = new byte[1][];
+        cache.get("Oslo", got -> result[0] = got);
+
+        assertSame(image, result[0]);
+        assertEquals(1, cache.getMemoryHits());
+    }
+
+    @Test
+    public void memoryIsBoundedByBytes() {
+        SnapshotCache<byte[]> cache = cache(25, 1_000);
+        cache.put("a", new byte[10]);
+        cache.put("b", new byte[10]);
+        cache.getIfInMemory("a");
+        cache.put("c", new byte[10]);
+
+        assertEquals(20, cache.getMemoryBytes());
+        assertNull(cache.getIfInMemory("b"));
+    }
+
+    @Test
+    public void evictedImagesAreReadBackFromDisk() {
+        SnapshotCache<byte[]> cache = cache(15, 1_000);
+        byte[] first = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        cache.put("Sao Paolo", first);
+        cache.put("Tokyo", new byte[10]);
+        runIo();
+        assertNull(cache.getIfInMemory("Sao Paolo"));
+
+        assertArrayEquals(first, get(cache, "Sao Paolo"));
+        assertEquals(1, cache.getDiskHits());
+        // The image read from disk is back in memory.
+        assertArrayEquals(first, cache.getIfInMemory("Sao Paolo"));
+    }
+
+    @Test
+    public void snapshotsSurviveARestart() {
+        cache(100, 1_000).put("Bern", new byte[] {42});
+        runIo();
+
+        assertArrayEquals(new byte[] {42}, get(cache(100, 1_000), "Bern"));
+    }
+
+    @Test
+    public void diskIsBoundedByBytes() {
+        SnapshotCache<byte[]> cache = cache(100, 25);
+        cache.put("a", new byte[10]);
+        cache.put("b", new byte[10]);
+        cache.put("c", new byte[10]);
+        runIo();
+
+        SnapshotCache<byte[]> restarted = cache(100, 25);
+        assertNull(get(restarted, "a"));
+        assertEquals(10, get(restarted, "c").length);
+    }
+
+    @Test
+    public void diskHitsAreKeptLongest() {
+        // Nothing fits in memory, so every get reads the disk.
+        SnapshotCache<byte[]> cache = cache(5, 25);
+        cache.put("a", new byte[10]);
+        cache.put("b", new byte[10]);
+        runIo();
+        assertEquals(10, get(cache, "a").length);
+
+        cache.put("c", new byte[10]);
+        runIo();
+
+        SnapshotCache<byte[]> restarted = cache(100, 25);
+        assertNull(get(restarted, "b"));
+        assertEquals(10, get(restarted, "a").length);
+    }
+
+    @Test
+    public void unknownKeysAreMisses() {
+        SnapshotCache<byte[]> cache = cache(100, 1_000);
+
+        assertNull(get(cache, "Atlantis"));
+        assertEquals(1, cache.getMisses());
+    }
+}
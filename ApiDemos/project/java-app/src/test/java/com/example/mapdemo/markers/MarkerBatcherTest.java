@@ -0,0 +1,297 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.markers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link MarkerBatcher} frames by hand against a fake clock, where every map call takes a
+ * millisecond, and checks the frame budget and the coalescing of operations. The benchmark
+ * only runs with {@code -Pbenchmarks}.
+ */
+public class MarkerBatcherTest {
+
+    private static final long CALL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /** Markers are their current options, a string. */
+    private static class FakeMarker {
+        String options;
+        boolean removed;
+    }
+
+    private long now;
+    private final ArrayDeque<Runnable> frames = new ArrayDeque<>();
+    private final List<String> calls = new ArrayList<>();
+    private final MarkerBatcher.Host<String, FakeMarker> host =
+            new MarkerBatcher.Host<String, FakeMarker>() {
+                @Override
+                public FakeMarker add(String options) {
+                    now += CALL_NANOS;
+                    calls.add("add " + options);
+                    FakeMarker marker = new FakeMarker();
+                    marker.options = options;
+                    return marker;
+                }
+
+                @Override
+                public void update(FakeMarker marker, String options) {
+                    now += CALL_NANOS;
+                    calls.add("update " + options);
+                    marker.options = options;
+                }
+
+                @Override
+                public void remove(FakeMarker marker) {
+                    now += CALL_NANOS;
+                    calls.add("remove " + marker.options);
+                    marker.removed = true;
+                }
+            };
+
+    private MarkerBatcher<Integer, String, FakeMarker> batcher;
+
+    @Before
+    public void setUp() {
+        batcher = new MarkerBatcher<>(host, frames::add, 4, () -> now);
+    }
+
+    @Test
+    public void eachFrameStaysWithinTheBudget() {
+        MarkerBatcher<Integer, String, FakeMarker>.Transaction transaction = batcher.begin();
+        for (int i = 0; i < 10; i++) {
+            transaction.add(i, "m" + i);
+        }
+        transaction.commit();
+
+        // Only one frame is ever scheduled at a time.
+        assertEquals(1, frames.size());
+        frames.poll().run();
+        assertEquals(4, calls.size());
+        assertEquals(6, batcher.getPendingCount());
+        frames.poll().run();
+        frames.poll().run();
+
+        assertTrue(frames.isEmpty());
+        assertEquals(10, batcher.getMarkerCount());
+        assertEquals(3, batcher.getFrameCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(4), batcher.getMaxFrameNanos());
+    }
+
+    @Test
+    public void pendingUpdatesAreCoalesced() {
+        batcher.begin().add(1, "first").commit();
+        batcher.begin().update(1, "second").commit();
+        batcher.begin().update(1, "third").commit();
+
+        runAllFrames();
+
+        assertEquals(List.of("add third"), calls);
+        assertEquals(2, batcher.getCoalescedCount());
+        assertEquals("third", batcher.getMarker(1).options);
+    }
+
+    @Test
+    public void addThenRemoveNeverTouchesTheMap() {
+        batcher.begin().add(1, "short lived").add(2, "kept").commit();
+        batcher.begin().remove(1).commit();
+
+        runAllFrames();
+
+        assertEquals(List.of("add kept"), calls);
+        assertNull(batcher.getMarker(1));
+    }
+
+    @Test
+    public void appliedMarkersAreUpdatedAndRemoved() {
+        batcher.begin().add(1, "a").commit();
+        runAllFrames();
+        FakeMarker marker = batcher.getMarker(1);
+
+        batcher.begin().update(1, "b").commit();
+        runAllFrames();
+        batcher.begin().remove(1).commit();
+        runAllFrames();
+
+        assertEquals(List.of("add a", "update b", "remove b"), calls);
+        assertTrue(marker.removed);
+        assertEquals(0, batcher.getMarkerCount());
+    }
+
+    @Test
+    public void updatesOfUnknownKeysDoNothing() {
+        batcher.begin().add(1, "a").commit();
+        runAllFrames();
+        batcher.forget();
+
+        batcher.begin().update(1, "b").update(2, "c").commit();
+        runAllFrames();
+
+        assertEquals(List.of("add a"), calls);
+        assertEquals(0, batcher.getMarkerCount());
+    }
+
+    @Test
+    public void releaseCancelsTheFrameAndIgnoresLaterCommits() {
+        batcher = new MarkerBatcher<>(host, new MarkerBatcher.FrameScheduler() {
+            @Override
+            public void postFrame(Runnable frame) {
+                frames.add(frame);
+            }
+
+            @Override
+            public void removeFrame(Runnable frame) {
+                frames.remove(frame);
+            }
+        }, 4, () -> now);
+        batcher.begin().add(1, "a").commit();
+
+        batcher.release();
+        batcher.begin().add(2, "b").commit();
+
+        assertTrue(frames.isEmpty());
+        assertEquals(0, batcher.getPendingCount());
+        assertTrue(calls.isEmpty());
+    }
+
+    @Test
+    public void frameAlreadyPostedBeforeReleaseDoesNothing() {
+        batcher.begin().add(1, "a").commit();
+
+        batcher.release();
+        runAllFrames();
+
+        assertTrue(calls.isEmpty());
+        assertEquals(0, batcher.getFrameCount());
+    }
+
+    @Test
+    public void updateAfterAPendingRemoveStaysARemove() {
+        batcher.begin().add(1, "a").commit();
+        runAllFrames();
+
+        batcher.begin().remove(1).commit();
+        batcher.begin().update(1, "b").commit();
+        runAllFrames();
+
+        assertEquals(List.of("add a", "remove a"), calls);
+        assertNull(batcher.getMarker(1));
+    }
+
+    @Test
+    public void drainedListenerFiresOnceEverythingIsApplied() {
+        int[] drained = new int[1];
+        batcher.setOnDrainedListener(() -> drained[0]++);
+        MarkerBatcher<Integer, String, FakeMarker>.Transaction transaction = batcher.begin();
+        for (int i = 0; i < 6; i++) {
+            transaction.add(i, "m" + i);
+        }
+        transaction.commit();
+
+        frames.poll().run();
+        assertEquals(0, drained[0]);
+        frames.poll().run();
+        assertEquals(1, drained[0]);
+    }
+
+    @Test
+    public void commitsFromWorkerThreadsAreAllApplied() throws InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int base = t * 1000;
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    batcher.begin().add(base + i, "m").commit();
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        runAllFrames();
+
+        assertEquals(4000, batcher.getMarkerCount());
+    }
+
+    @Test
+    public void benchmarkLoading20kMarkers() {
+        assumeTrue(Boolean.getBoolean("benchmarks"));
+        // A host that spins for 50us per call, about what addMarker costs on a mid-range phone.
+        MarkerBatcher.Host<Integer, Integer> slowHost = new MarkerBatcher.Host<Integer, Integer>() {
+            @Override
+            public Integer add(Integer options) {
+                spin(50_000);
+                return options;
+            }
+
+            @Override
+            public void update(Integer marker, Integer options) {
+                spin(50_000);
+            }
+
+            @Override
+            public void remove(Integer marker) {
+                spin(50_000);
+            }
+        };
+        ArrayDeque<Runnable> realFrames = new ArrayDeque<>();
+        MarkerBatcher<Integer, Integer, Integer> slowBatcher =
+                new MarkerBatcher<>(slowHost, realFrames::add, 8);
+        MarkerBatcher<Integer, Integer, Integer>.Transaction transaction = slowBatcher.begin();
+        for (int i = 0; i < 20_000; i++) {
+            transaction.add(i, i);
+        }
+        transaction.commit();
+
+        long start = System.nanoTime();
+        while (!realFrames.isEmpty()) {
+            realFrames.poll().run();
+        }
+        long totalNanos = System.nanoTime() - start;
+
+        assertEquals(20_000, slowBatcher.getMarkerCount());
+        System.out.println(String.format(
+                "20000 markers: %d frames, longest %.2fms against an 8ms budget,"
+                        + " %.0fms in total, which a plain loop would spend in one frame",
+                slowBatcher.getFrameCount(), slowBatcher.getMaxFrameNanos() / 1e6,
+                totalNanos / 1e6));
+    }
+
+    private void runAllFrames() {
+        while (!frames.isEmpty()) {
+            frames.poll().run();
+        }
+    }
+
+    private static void spin(long nanos) {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.markers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Pans a camera over marker definitions and checks which markers the virtualizer keeps on the
+ * map, how it reuses them, and how long a camera idle takes with 100,000 definitions. The
+ * benchmark only runs with {@code -Pbenchmarks}.
+ */
+public class MarkerVirtualizerTest {
+
+    /** Stands in for {@code Marker}. */
+    private static class FakeMarker {
+        int definition;
+        boolean visible = true;
+        boolean removed;
+    }
+
+    private static class FakeHost implements MarkerVirtualizer.Host<FakeMarker> {
+        int live;
+
+        @Override
+        public FakeMarker add(int definition) {
+            FakeMarker marker = new FakeMarker();
+            marker.definition = definition;
+            live++;
+            return marker;
+        }
+
+        @Override
+        public void rebind(FakeMarker marker, int definition) {
+            assertFalse(marker.visible);
+            marker.definition = definition;
+            marker.visible = true;
+        }
+
+        @Override
+        public void hide(FakeMarker marker) {
+            marker.visible = false;
+        }
+
+        @Override
+        public void remove(FakeMarker marker) {
+            assertFalse(marker.removed);
+            marker.removed = true;
+            live--;
+        }
+    }
+
+    /** One marker per whole degree from 0 to 9, along the equator. */
+    private static MarkerVirtualizer<FakeMarker> equatorLine(FakeHost host, int maxAttached,
+            int maxPooled) {
+        double[] latitudes = new double[10];
+        double[] longitudes = new double[10];
+        for (int i = 0; i < 10; i++) {
+            longitudes[i] = i;
+        }
+        return new MarkerVirtualizer<>(latitudes, longitudes, 10, maxAttached, maxPooled, host);
+    }
+
+    @Test
+    public void onlyMarkersNearTheViewportAreAttached() {
+        FakeHost host = new FakeHost();
+        MarkerVirtualizer<FakeMarker> virtualizer = equatorLine(host, 100, 100);
+
+        // 1.5 degrees wide, padded by 0.75 on each side: longitudes 0.5 to 3.5.
+        virtualizer.onCameraIdle(-1, 1.25, 1, 2.75);
+
+        assertEquals(3, virtualizer.getAttachedCount());
+        assertEquals(3, virtualizer.getLastAdded());
+        assertNull(virtualizer.getMarker(0));
+        assertNotNull(virtualizer.getMarker(3));
+        assertNull(virtualizer.getMarker(4));
+        assertEquals(3, virtualizer.getMarker(3).definition);
+    }
+
+    @Test
+    public void panningReusesHiddenMarkers() {
+        FakeHost host = new FakeHost();
+        MarkerVirtualizer<FakeMarker> virtualizer = equatorLine(host, 100, 100);
+        virtualizer.onCameraIdle(-1, 1.25, 1, 2.75);
+
+        // Longitudes 5.5 to 8.5 now; all three markers move over.
+        virtualizer.onCameraIdle(-1, 6.25, 1, 7.75);
+
+        assertEquals(3, virtualizer.getAttachedCount());
+        assertEquals(0, virtualizer.getLastAdded());
+        assertEquals(3, virtualizer.getLastRebound());
+        assertEquals(3, virtualizer.getLastHidden());
+        assertEquals(3, host.live);
+        assertEquals(8, virtualizer.getMarker(8).definition);
+    }
+
+    @Test
+    public void aFullPoolRemovesMarkers() {
+        FakeHost host = new FakeHost();
+        MarkerVirtualizer<FakeMarker> virtualizer = equatorLine(host, 100, 2);
+        virtualizer.onCameraIdle(-1, 1.25, 1, 2.75);
+
+        // Zoomed in on longitude 9, far from the first three markers.
+        virtualizer.onCameraIdle(-0.1, 8.9, 0.1, 9.1);
+
+        assertEquals(1, virtualizer.getAttachedCount());
+        assertEquals(1, virtualizer.getPooledCount());
+        assertEquals(1, virtualizer.getLastRemoved());
+        assertEquals(2, host.live);
+        assertEquals(host.live, virtualizer.getHandleCount());
+    }
+
+    @Test
+    public void lowestDefinitionsWinWhenCapped() {
+        FakeHost host = new FakeHost();
+        MarkerVirtualizer<FakeMarker> virtualizer = equatorLine(host, 3, 10);
+
+        virtualizer.onCameraIdle(-5, -5, 5, 15);
+
+        assertTrue(virtualizer.wasLastCapped());
+        assertEquals(3, virtualizer.getAttachedCount());
+        assertNotNull(virtualizer.getMarker(0));
+        assertNotNull(virtualizer.getMarker(2));
+        assertNull(virtualizer.getMarker(3));
+    }
+
+    @Test
+    public void viewportsAcrossTheAntimeridianWrap() {
+        FakeHost host = new FakeHost();
+        double[] latitudes = {0, 0, 0};
+        double[] longitudes = {179.5, -179.5, 0};
+        MarkerVirtualizer<FakeMarker> virtualizer =
+                new MarkerVirtualizer<>(latitudes, longitudes, 3, 100, 100, host);
+
+        virtualizer.onCameraIdle(-1, 179, 1, -179);
+
+        assertEquals(2, virtualizer.getAttachedCount());
+        assertNull(virtualizer.getMarker(2));
+    }
+
+    @Test
+    public void clearRemovesEveryHandle() {
+        FakeHost host = new FakeHost();
+        MarkerVirtualizer<FakeMarker> virtualizer = equatorLine(host, 100, 100);
+        virtualizer.onCameraIdle(-1, 1.25, 1, 2.75);
+        virtualizer.onCameraIdle(-1, 6.25, 1, 7.75);
+
+        virtualizer.clear();
+
+        assertEquals(0, host.live);
+        assertEquals(0, virtualizer.getHandleCount());
+    }
+
+    @Test
+    public void benchmarkPanningOver100kDefinitions() {
+        assumeTrue(Boolean.getBoolean("benchmarks"));
+        // The MarkerDemoActivity rainbow: 100 nested arcs of 1,000 markers.
+        int count = 100_000;
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            double radius = 10 - 8.0 * (i / 1000) / 100;
+            double angle = (i % 1000) * Math.PI / 999;
+            latitudes[i] = -30 + radius * Math.sin(angle);
+            longitudes[i] = 135 - radius * Math.cos(angle);
+        }
+        FakeHost host = new FakeHost();
+        MarkerVirtualizer<FakeMarker> virtualizer =
+                new MarkerVirtualizer<>(latitudes, longitudes, count, 300, 150, host);
+
+        // Pan a 1.5 by 3 degree viewport, about zoom 8 on a phone, around the arcs.
+        Random random = new Random(6);
+        int pans = 500;
+        long added = 0;
+        long hidden = 0;
+        long worstNanos = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < pans; i++) {
+            double angle = Math.PI * i / pans;
+            double lat = -30 + 6 * Math.sin(angle) + random.nextGaussian() * 0.2;
+            double lng = 135 - 6 * Math.cos(angle) + random.nextGaussian() * 0.2;
+            long panStart = System.nanoTime();
+            virtualizer.onCameraIdle(lat - 0.75, lng - 1.5, lat + 0.75, lng + 1.5);
+            worstNanos = Math.max(worstNanos, System.nanoTime() - panStart);
+            added += virtualizer.getLastAdded();
+            hidden += virtualizer.getLastHidden();
+            assertTrue(virtualizer.getHandleCount() <= 450);
+        }
+        double averageMs = (System.nanoTime() - start) / 1e6 / pans;
+
+        System.out.println(String.format(
+                "%d definitions, %d pans: %.3fms per idle (worst %.3fms), %d handles,"
+                        + " %.1f hidden and %.2f added per pan, %d added in total",
+                count, pans, averageMs, worstNanos / 1e6, virtualizer.getHandleCount(),
+                (double) hidden / pans, (double) added / pans, virtualizer.getTotalAdded()));
+    }
+}
@@ -0,0 +1,191 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link SnapshotExporter} against a fake map whose loads, and a fake worker pool whose
+ * encodes, complete by hand. Cameras are strings and each snapshot is the camera it shows.
+ */
+public class SnapshotExporterTest {
+
+    private static final long IMAGE_BYTES = 100;
+
+    private long now;
+    private final ArrayDeque<Runnable> mapLoads = new ArrayDeque<>();
+    private final ArrayDeque<Runnable> encodes = new ArrayDeque<>();
+    private final List<String> moves = new ArrayList<>();
+    private final List<String> written = new ArrayList<>();
+    private final List<String> released = new ArrayList<>();
+    private final List<String> exported = new ArrayList<>();
+    private int idleCalls;
+    private String camera;
+
+    private final SnapshotExporter.Host<String, String> host =
+            new SnapshotExporter.Host<String, String>() {
+                @Override
+                public void moveTo(String camera, Runnable onLoaded) {
+                    moves.add(camera);
+                    SnapshotExporterTest.this.camera = camera;
+                    mapLoads.add(onLoaded);
+                }
+
+                @Override
+                public void snapshot(SnapshotExporter.ImageCallback<String> callback) {
+                    callback.onImage(camera);
+                }
+            };
+
+    private final SnapshotExporter.Encoder<String> encoder =
+            new SnapshotExporter.Encoder<String>() {
+                @Override
+                public long sizeOf(String image) {
+                    return IMAGE_BYTES;
+                }
+
+                @Override
+                public void write(String image, File file) throws IOException {
+                    if (image.equals("broken")) {
+                        throw new IOException("disk full");
+                    }
+                    written.add(image + " -> " + file.getName());
+                }
+
+                @Override
+                public void release(String image) {
+                    released.add(image);
+                }
+            };
+
+    private SnapshotExporter<String, String> exporter;
+
+    @Before
+    public void setUp() {
+        exporter = new SnapshotExporter<>(host, encoder, encodes::add, Runnable::run,
+                2 * IMAGE_BYTES, () -> now);
+        exporter.setListener(new SnapshotExporter.Listener() {
+            @Override
+            public void onExported(File file, IOException error) {
+                exported.add(error == null ? file.getName() : "failed " + file.getName());
+            }
+
+            @Override
+            public void onIdle() {
+                idleCalls++;
+            }
+        });
+    }
+
+    private void submit(String... cameras) {
+        for (String camera : cameras) {
+            exporter.submit(camera, new File(camera + ".png"));
+        }
+    }
+
+    @Test
+    public void eachSnapshotWaitsForTheMapToLoad() {
+        submit("Oslo", "Rome");
+
+        assertEquals(Arrays.asList("Oslo"), moves);
+        mapLoads.poll().run();
+        // The map moves on while the first snapshot is encoded.
+        assertEquals(Arrays.asList("Oslo", "Rome"), moves);
+        assertEquals(1, encodes.size());
+    }
+
+    @Test
+    public void pendingImagesAreBoundedByTheBudget() {
+        submit("a", "b", "c", "d");
+
+        mapLoads.poll().run();
+        mapLoads.poll().run();
+        // Two images wait for encoding, which fills the budget.
+        assertTrue(mapLoads.isEmpty());
+        assertEquals(2 * IMAGE_BYTES, exporter.getPeakPendingBytes());
+
+        encodes.poll().run();
+        assertEquals(Arrays.asList("a", "b", "c"), moves);
+        assertEquals(Arrays.asList("a"), released);
+    }
+
+    @Test
+    public void everyJobIsWrittenInOrder() {
+        submit("a", "b", "c");
+        while (!mapLoads.isEmpty() || !encodes.isEmpty()) {
+            Runnable next = !mapLoads.isEmpty() ? mapLoads.poll() : encodes.poll();
+            next.run();
+        }
+
+        assertEquals(Arrays.asList("a -> a.png", "b -> b.png", "c -> c.png"), written);
+        assertEquals(Arrays.asList("a.png", "b.png", "c.png"), exported);
+        assertEquals(Arrays.asList("a", "b", "c"), released);
+        assertEquals(1, idleCalls);
+        assertFalse(exporter.isBusy());
+    }
+
+    @Test
+    public void failedWritesAreReportedAndReleased() {
+        submit("broken");
+        mapLoads.poll().run();
+        encodes.poll().run();
+
+        assertEquals(Arrays.asList("failed broken.png"), exported);
+        assertEquals(Arrays.asList("broken"), released);
+        assertEquals(1, exporter.getFailed());
+    }
+
+    @Test
+    public void throughputIsMeasuredPerBatch() {
+        submit("a", "b");
+        for (int i = 0; i < 2; i++) {
+            now += TimeUnit.SECONDS.toNanos(1);
+            mapLoads.poll().run();
+            encodes.poll().run();
+        }
+
+        assertEquals(2, exporter.getExported());
+        assertEquals(60.0, exporter.getSnapshotsPerMinute(), 1e-9);
+
+        // A new batch starts from scratch.
+        submit("c");
+        assertEquals(0, exporter.getExported());
+    }
+
+    @Test
+    public void cancelDropsJobsThatHaveNotStarted() {
+        submit("a", "b", "c");
+        exporter.cancel();
+        mapLoads.poll().run();
+        encodes.poll().run();
+
+        assertEquals(Arrays.asList("a"), moves);
+        assertEquals(Arrays.asList("a.png"), exported);
+        assertEquals(1, idleCalls);
+    }
+}
@@ -0,0 +1,250 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.tiles;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exercises {@link CachingTileProvider} against a local stub tile server that adds a fixed
+ * latency to every response, and prints the resulting hit ratios and latencies.
+ */
+public class CachingTileProviderTest {
+
+    private static final int SERVER_LATENCY_MS = 20;
+    private static final int GRID = 8;
+    private static final int ZOOM = 5;
+
+    private HttpServer server;
+    private final AtomicInteger serverRequests = new AtomicInteger();
+    private File cacheDir;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            serverRequests.incrementAndGet();
+            try {
+                Thread.sleep(SERVER_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = exchange.getRequestURI().getPath().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        cacheDir = Files.createTempDirectory("tiles").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        cacheDir.delete();
+    }
+
+    @Test
+    public void secondPassIsServedFromMemory() {
+        CachingTileProvider provider = newProvider(1024 * 1024);
+
+        long coldNanos = panOverGrid(provider);
+        long warmNanos = panOverGrid(provider);
+
+        CachingTileProvider.Stats stats = provider.getStats();
+        System.out.printf("memory: cold=%.1fms warm=%.1fms %s%n",
+                coldNanos / 1e6, warmNanos / 1e6, stats);
+        assertEquals(GRID * GRID, serverRequests.get());
+        assertEquals(GRID * GRID, stats.memoryHits);
+        assertEquals(0.5, stats.hitRatio(), 1e-9);
+        assertTrue(warmNanos < coldNanos);
+    }
+
+    @Test
+    public void diskTierSurvivesRestart() {
+        panOverGrid(newProvider(1024 * 1024));
+
+        // A new provider over the same directory simulates a process restart.
+        CachingTileProvider restarted = newProvider(1024 * 1024);
+        long nanos = panOverGrid(restarted);
+
+        CachingTileProvider.Stats stats = restarted.getStats();
+        System.out.printf("disk: pass=%.1fms %s%n", nanos / 1e6, stats);
+        assertEquals(GRID * GRID, serverRequests.get());
+        assertEquals(GRID * GRID, stats.diskHits);
+        assertEquals(1.0, stats.hitRatio(), 1e-9);
+    }
+
+    @Test
+    public void memoryTierIsBoundedByBytes() {
+        MemoryTileCache cache = new MemoryTileCache(10);
+        cache.put(TileCoordinates.pack(0, 0, 1), new Tile(1, 1, new byte[4]));
+        cache.put(TileCoordinates.pack(1, 0, 1), new Tile(1, 1, new byte[4]));
+        // Touch the first tile so that the second one is the eldest.
+        cache.get(TileCoordinates.pack(0, 0, 1));
+        cache.put(TileCoordinates.pack(0, 1, 1), new Tile(1, 1, new byte[4]));
+
+        assertEquals(8, cache.sizeBytes());
+        assertNull(cache.get(TileCoordinates.pack(1, 0, 1)));
+    }
+
+    @Test
+    public void diskTierEvictsLeastRecentlyUsed() {
+        // Each file is a 12 byte header plus 40 bytes of data, so two tiles fit and three do not.
+        DiskTileCache cache = new DiskTileCache(cacheDir, 120);
+        byte[] data = new byte[40];
+        cache.put(TileCoordinates.pack(0, 0, 2), new Tile(256, 256, data));
+        cache.put(TileCoordinates.pack(1, 0, 2), new Tile(256, 256, data));
+        // Reading the oldest tile makes the second one the least recently used.
+        assertEquals(256, cache.get(TileCoordinates.pack(0, 0, 2)).width);
+        cache.put(TileCoordinates.pack(2, 0, 2), new Tile(256, 256, data));
+
+        assertTrue(cache.sizeBytes() <= 120);
+        assertNull(cache.get(TileCoordinates.pack(1, 0, 2)));
+        assertArrayEquals(data, cache.get(TileCoordinates.pack(0, 0, 2)).data);
+        Tile tile = cache.get(TileCoordinates.pack(2, 0, 2));
+        assertEquals(256, tile.width);
+        assertArrayEquals(data, tile.data);
+    }
+
+    @Test
+    public void prefetchAndMapRequestShareOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        byte[] data = new byte[16];
+        CachingTileProvider provider = new CachingTileProvider((x, y, zoom) -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new Tile(256, 256, data);
+        }, new MemoryTileCache(1024 * 1024), null);
+
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> prefetch = threads.submit(() -> provider.prefetch(1, 2, ZOOM));
+            loading.await();
+            Future<Tile> request = threads.submit(() -> provider.getTile(1, 2, ZOOM));
+            // Give the map's request time to find the prefetch in flight.
+            Thread.sleep(50);
+            finish.countDown();
+
+            assertTrue(prefetch.get());
+            assertArrayEquals(data, request.get().data);
+        } finally {
+            threads.shutdown();
+        }
+        CachingTileProvider.Stats stats = provider.getStats();
+        assertEquals(1, loads.get());
+        assertEquals(1, stats.prefetches);
+        assertEquals(1, stats.prefetchHits);
+    }
+
+    @Test
+    public void failedPrefetchesAreNotCounted() {
+        CachingTileProvider provider = new CachingTileProvider((x, y, zoom) -> null,
+                new MemoryTileCache(1024 * 1024), null);
+
+        assertFalse(provider.prefetch(1, 2, ZOOM));
+        assertEquals(0, provider.getStats().prefetches);
+        assertEquals(0, provider.getStats().wastedPrefetches());
+    }
+
+    @Test
+    public void packedCoordinatesRoundTrip() {
+        long key = TileCoordinates.pack(123456, 654321, 21);
+        assertEquals(123456, TileCoordinates.x(key));
+        assertEquals(654321, TileCoordinates.y(key));
+        assertEquals(21, TileCoordinates.zoom(key));
+    }
+
+    private CachingTileProvider newProvider(long memoryBytes) {
+        return new CachingTileProvider(new HttpTileProvider(), new MemoryTileCache(memoryBytes),
+                new DiskTileCache(cacheDir, 1024 * 1024));
+    }
+
+    private long panOverGrid(TileProvider provider) {
+        long start = System.nanoTime();
+        for (int x = 0; x < GRID; x++) {
+            for (int y = 0; y < GRID; y++) {
+                Tile tile = provider.getTile(x, y, ZOOM);
+                assertArrayEquals(("/" + ZOOM + "/" + x + "/" + y).getBytes(StandardCharsets.UTF_8),
+                        tile.data);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /** Fetches tiles from the stub server, like {@code UrlTileProvider} does on a device. */
+    private class HttpTileProvider implements TileProvider {
+        @Override
+        public Tile getTile(int x, int y, int zoom) {
+            try {
+                URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort()
+                        + "/" + zoom + "/" + x + "/" + y);
+                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+                try (InputStream in = connection.getInputStream()) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[4096];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                    }
+                    return new Tile(256, 256, out.toByteArray());
+                }
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+}
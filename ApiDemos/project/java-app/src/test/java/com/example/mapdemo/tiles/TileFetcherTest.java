@@ -0,0 +1,187 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.tiles;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares request counts and tail latency of {@link TileFetcher} with one-request-per-call
+ * fetching when many overlays ask for the same tiles at once, using a local stub tile server.
+ */
+public class TileFetcherTest {
+
+    private static final int SERVER_LATENCY_MS = 30;
+    private static final int OVERLAYS = 8;
+    private static final int TILES = 16;
+    private static final String ETAG = "\"v1\"";
+
+    private HttpServer server;
+    private final AtomicInteger serverRequests = new AtomicInteger();
+    private final AtomicInteger conditionalRequests = new AtomicInteger();
+    private ExecutorService mapThreads;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(OVERLAYS * 2));
+        server.createContext("/", exchange -> {
+            serverRequests.incrementAndGet();
+            String path = exchange.getRequestURI().getPath();
+            if (path.startsWith("/missing")) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            if (path.startsWith("/unchanged")) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                conditionalRequests.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            try {
+                Thread.sleep(SERVER_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = path.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("ETag", ETAG);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        mapThreads = Executors.newFixedThreadPool(OVERLAYS * 4);
+    }
+
+    @After
+    public void tearDown() {
+        mapThreads.shutdownNow();
+        server.stop(0);
+    }
+
+    @Test
+    public void concurrentDuplicateRequestsAreCoalesced() throws Exception {
+        long[] uncoalesced = burst(url -> new TileFetcher(Integer.MAX_VALUE, 1).fetch(url));
+        int uncoalescedRequests = serverRequests.getAndSet(0);
+
+        TileFetcher fetcher = new TileFetcher(4, 1024 * 1024);
+        long[] coalesced = burst(fetcher::fetch);
+        int coalescedRequests = serverRequests.get();
+
+        System.out.printf("uncoalesced: requests=%d p50=%.1fms p99=%.1fms%n",
+                uncoalescedRequests, percentile(uncoalesced, 50), percentile(uncoalesced, 99));
+        System.out.printf("coalesced:   requests=%d p50=%.1fms p99=%.1fms %s%n",
+                coalescedRequests, percentile(coalesced, 50), percentile(coalesced, 99),
+                fetcher.getStats());
+        assertEquals(OVERLAYS * TILES, uncoalescedRequests);
+        assertTrue(coalescedRequests < uncoalescedRequests);
+        assertEquals(OVERLAYS * TILES, coalescedRequests + fetcher.getStats().coalesced);
+    }
+
+    @Test
+    public void etagIsRevalidated() throws IOException {
+        TileFetcher fetcher = new TileFetcher(4, 1024 * 1024);
+        URL url = url("/3/1/2");
+
+        byte[] first = fetcher.fetch(url);
+        byte[] second = fetcher.fetch(url);
+
+        assertArrayEquals(first, second);
+        assertEquals(1, conditionalRequests.get());
+        assertEquals(1, fetcher.getStats().notModified);
+    }
+
+    @Test
+    public void notModifiedWithoutRememberedBodyIsAMiss() throws IOException {
+        TileFetcher fetcher = new TileFetcher(4, 1024 * 1024);
+
+        assertNull(fetcher.fetch(url("/unchanged")));
+        assertEquals(2, serverRequests.get());
+    }
+
+    @Test
+    public void clientErrorReturnsNull() throws IOException {
+        assertNull(new TileFetcher(4, 1024).fetch(url("/missing")));
+    }
+
+    /**
+     * Every overlay requests every tile at the same time. Returns the per-call latencies in
+     * nanoseconds.
+     */
+    private long[] burst(Fetch fetch) throws Exception {
+        List<Callable<Long>> calls = new ArrayList<>();
+        for (int overlay = 0; overlay < OVERLAYS; overlay++) {
+            for (int tile = 0; tile < TILES; tile++) {
+                URL url = url("/5/" + tile + "/0");
+                calls.add(() -> {
+                    long start = System.nanoTime();
+                    byte[] body = fetch.fetch(url);
+                    assertArrayEquals(url.getPath().getBytes(StandardCharsets.UTF_8), body);
+                    return System.nanoTime() - start;
+                });
+            }
+        }
+        List<Future<Long>> results = mapThreads.invokeAll(calls);
+        long[] latencies = new long[results.size()];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = results.get(i).get();
+        }
+        return latencies;
+    }
+
+    private URL url(String path) throws IOException {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
+    private static double percentile(long[] nanos, int percentile) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        int index = Math.min(sorted.length - 1, sorted.length * percentile / 100);
+        return sorted[index] / 1e6;
+    }
+
+    private interface Fetch {
+        byte[] fetch(URL url) throws IOException;
+    }
+}
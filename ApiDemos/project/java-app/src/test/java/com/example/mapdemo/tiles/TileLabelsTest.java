@@ -0,0 +1,69 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.tiles;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks the labels {@link TileLabels} writes, and the arithmetic of
+ * {@link PooledTileRenderer.Stats}, neither of which needs a bitmap.
+ */
+public class TileLabelsTest {
+
+    private final char[] out = new char[TileLabels.MAX_LENGTH];
+
+    private String coordinates(int x, int y) {
+        return new String(out, 0, TileLabels.coordinates(out, x, y));
+    }
+
+    @Test
+    public void coordinatesAreParenthesized() {
+        assertEquals("(3, 5)", coordinates(3, 5));
+        assertEquals("(0, 0)", coordinates(0, 0));
+        assertEquals("(10, 1023)", coordinates(10, 1023));
+    }
+
+    @Test
+    public void theLongestLabelFitsTheBuffer() {
+        assertEquals("(2147483647, 2147483647)", coordinates(Integer.MAX_VALUE, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void zoomOverwritesTheBuffer() {
+        coordinates(123, 456);
+
+        assertEquals("zoom = 4", new String(out, 0, TileLabels.zoom(out, 4)));
+        assertEquals("zoom = 21", new String(out, 0, TileLabels.zoom(out, 21)));
+    }
+
+    @Test
+    public void statsAverageOverTiles() {
+        PooledTileRenderer.Stats stats = new PooledTileRenderer.Stats(50, 500_000_000L, 100_000);
+
+        assertEquals(100.0, stats.tilesPerSecond(), 1e-9);
+        assertEquals(2_000.0, stats.bytesPerTile(), 1e-9);
+        assertEquals("tiles=50 tilesPerSecond=100.0 bytesPerTile=2000", stats.toString());
+    }
+
+    @Test
+    public void statsBeforeTheFirstTileAreZero() {
+        PooledTileRenderer.Stats stats = new PooledTileRenderer.Stats(0, 0, 0);
+
+        assertEquals(0.0, stats.tilesPerSecond(), 0);
+        assertEquals(0.0, stats.bytesPerTile(), 0);
+    }
+}
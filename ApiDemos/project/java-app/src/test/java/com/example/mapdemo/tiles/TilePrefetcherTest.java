@@ -0,0 +1,100 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.mapdemo.tiles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.android.gms.maps.model.Tile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Simulates a steady eastward pan and checks that the prefetcher loads the tiles the map asks for
+ * next, and reports how many of its fetches were used.
+ */
+public class TilePrefetcherTest {
+
+    private static final int ZOOM = 6;
+
+    private CachingTileProvider cache;
+    private TilePrefetcher prefetcher;
+
+    @Before
+    public void setUp() {
+        cache = new CachingTileProvider((x, y, zoom) -> new Tile(256, 256, new byte[16]),
+                new MemoryTileCache(1024 * 1024), null);
+        prefetcher = new TilePrefetcher(cache, 2, 0, 20);
+        prefetcher.setViewportSize(512, 512);
+    }
+
+    @After
+    public void tearDown() {
+        prefetcher.shutdown();
+    }
+
+    @Test
+    public void stationaryCameraPrefetchesNothing() {
+        prefetcher.onCameraMove(0, 0, ZOOM, 0);
+        prefetcher.onCameraMove(0, 0, ZOOM, 16);
+
+        assertTrue(prefetcher.predictTiles().isEmpty());
+        assertEquals(0, prefetcher.getScheduledCount());
+    }
+
+    @Test
+    public void eastwardPanPrefetchesTilesToTheEast() throws InterruptedException {
+        // Half a tile per 16 ms frame.
+        double degreesPerFrame = 360.0 / (1 << ZOOM) / 2;
+        for (int frame = 0; frame < 4; frame++) {
+            prefetcher.onCameraMove(0, frame * degreesPerFrame, ZOOM, frame * 16L);
+        }
+
+        List<Long> predicted = prefetcher.predictTiles();
+        assertFalse(predicted.isEmpty());
+        int currentCenterX = (int) (TilePrefetcher.worldX(3 * degreesPerFrame) * (1 << ZOOM));
+        for (long key : predicted) {
+            assertEquals(ZOOM, TileCoordinates.zoom(key));
+            assertTrue(TileCoordinates.x(key) > currentCenterX);
+        }
+
+        // Let the workers finish, then let the map request the first predicted tile.
+        Thread.sleep(200);
+        long first = predicted.get(0);
+        cache.getTile(TileCoordinates.x(first), TileCoordinates.y(first), ZOOM);
+
+        CachingTileProvider.Stats stats = cache.getStats();
+        System.out.println(stats + " cancelled=" + prefetcher.getCancelledCount());
+        assertTrue(stats.prefetches > 0);
+        assertEquals(1, stats.prefetchHits);
+        assertEquals(stats.prefetches - 1, stats.wastedPrefetches());
+        assertEquals(1, stats.memoryHits);
+    }
+
+    @Test
+    public void idleResetsVelocity() {
+        prefetcher.onCameraMove(0, 0, ZOOM, 0);
+        prefetcher.onCameraMove(0, 10, ZOOM, 16);
+        prefetcher.onCameraIdle();
+        prefetcher.onCameraMove(0, 10, ZOOM, 1000);
+
+        assertTrue(prefetcher.predictTiles().isEmpty());
+    }
+}
@@ -18,6 +18,7 @@ package com.example.mapdemo;
 
 import android.os.Bundle;
 import androidx.appcompat.app.AppCompatActivity;
+import com.example.mapdemo.markers.MarkerBatcher;
 import com.google.android.libraries.maps.CameraUpdateFactory;
 import com.google.android.libraries.maps.GoogleMap;
 import com.google.android.libraries.maps.OnMapReadyCallback;
@@ -26,14 +27,23 @@ import com.google.android.libraries.maps.model.BitmapDescriptorFactory;
 import com.google.android.libraries.maps.model.LatLng;
 import com.google.android.libraries.maps.model.Marker;
 import com.google.android.libraries.maps.model.MarkerOptions;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /** This shows how to set collision behavior for the marker. */
 public class MarkerCollisionDemoActivity extends AppCompatActivity implements OnMapReadyCallback {
 
     private static final LatLng SYDNEY = new LatLng(-33.87365, 151.20689);
 
+    /** How long each frame may spend adding markers. */
+    private static final long MARKER_FRAME_BUDGET_MS = 4;
+
     private GoogleMap map = null;
 
+    private final ExecutorService background = Executors.newSingleThreadExecutor();
+
+    private MarkerBatcher<Integer, MarkerOptions, Marker> markers;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -44,19 +54,51 @@ public class MarkerCollisionDemoActivity extends AppCompatActivity implements On
         mapFragment.getMapAsync(this);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        background.shutdownNow();
+        if (markers != null) {
+            // Stops a frame callback or a commit still on its way from adding to the dead map.
+            markers.release();
+        }
+    }
+
     @Override
     public void onMapReady(GoogleMap map) {
         this.map = map;
-        addMarkersToMap();
+        markers = new MarkerBatcher<>(new MarkerBatcher.Host<MarkerOptions, Marker>() {
+            @Override
+            public Marker add(MarkerOptions options) {
+                return map.addMarker(options);
+            }
+
+            @Override
+            public void update(Marker marker, MarkerOptions options) {
+                marker.setPosition(options.getPosition());
+                marker.setZIndex(options.getZIndex());
+                marker.setTitle(options.getTitle());
+                marker.setIcon(options.getIcon());
+            }
+
+            @Override
+            public void remove(Marker marker) {
+                marker.remove();
+            }
+        }, MarkerBatcher.choreographer(), MARKER_FRAME_BUDGET_MS);
+        // Build the markers off the UI thread; the batcher adds them a few per frame.
+        background.execute(this::addMarkersToMap);
         map.moveCamera(CameraUpdateFactory.newLatLngZoom(SYDNEY, 3));
     }
 
     private void addMarkersToMap() {
-        MarkerOptions defaultMarkerOptions = new MarkerOptions();
+        MarkerBatcher<Integer, MarkerOptions, Marker>.Transaction transaction = markers.begin();
 
         // Add 100 markers to the map.
         for (int i = 0; i < 10; i++) {
             for (int j = 0; j < 10; j++) {
+                // Each pending add keeps its own options.
+                MarkerOptions defaultMarkerOptions = new MarkerOptions();
                 defaultMarkerOptions
                     .position(new LatLng(SYDNEY.latitude + i, SYDNEY.longitude - j))
                     .zIndex(i * 10 + j)
@@ -77,8 +119,9 @@ public class MarkerCollisionDemoActivity extends AppCompatActivity implements On
                         BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_BLUE));
                     defaultMarkerOptions.collisionBehavior(Marker.CollisionBehavior.REQUIRED);
                 }
-                map.addMarker(defaultMarkerOptions);
+                transaction.add(i * 10 + j, defaultMarkerOptions);
             }
         }
+        transaction.commit();
     }
 }
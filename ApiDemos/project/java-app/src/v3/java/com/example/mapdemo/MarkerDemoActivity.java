@@ -15,6 +15,8 @@
 
 package com.example.mapdemo;
 
+import com.example.mapdemo.anim.MarkerAnimator;
+import com.example.mapdemo.markers.MarkerBatcher;
 import com.google.android.libraries.maps.CameraUpdateFactory;
 import com.google.android.libraries.maps.GoogleMap;
 import com.google.android.libraries.maps.GoogleMap.InfoWindowAdapter;
@@ -36,8 +38,6 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.SystemClock;
 import androidx.annotation.ColorInt;
 import androidx.annotation.DrawableRes;
 import androidx.core.content.res.ResourcesCompat;
@@ -47,7 +47,7 @@ import android.text.SpannableString;
 import android.text.style.ForegroundColorSpan;
 import android.view.View;
 import android.view.animation.BounceInterpolator;
-import android.view.animation.Interpolator;
+import android.view.animation.DecelerateInterpolator;
 import android.widget.CheckBox;
 import android.widget.ImageView;
 import android.widget.RadioGroup;
@@ -57,8 +57,6 @@ import android.widget.SeekBar.OnSeekBarChangeListener;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
 
 /**
@@ -196,7 +194,18 @@ public class MarkerDemoActivity extends AppCompatActivity implements
      */
     private Marker mLastSelectedMarker;
 
-    private final List<Marker> mMarkerRainbow = new ArrayList<Marker>();
+    private static final int NUM_MARKERS_IN_RAINBOW = 12;
+
+    /** How long each frame may spend on rainbow marker changes. */
+    private static final long RAINBOW_FRAME_BUDGET_MS = 4;
+
+    /**
+     * Applies rainbow marker changes a few per frame. Dragging the rotation bar updates every
+     * rainbow marker many times a second; updates that are still pending are merged.
+     */
+    private MarkerBatcher<Integer, MarkerOptions, Marker> mMarkerRainbow;
+
+    private final MarkerOptions[] mRainbowOptions = new MarkerOptions[NUM_MARKERS_IN_RAINBOW];
 
     private TextView mTopText;
 
@@ -208,6 +217,15 @@ public class MarkerDemoActivity extends AppCompatActivity implements
 
     private final Random mRandom = new Random();
 
+    /** Runs the Perth bounce and the Adelaide fade, and any other marker animation. */
+    private MarkerAnimator<Marker> mAnimator;
+
+    /** Default marker icons by whole degree of hue, created as animations need them. */
+    private final BitmapDescriptor[] mHueIcons = new BitmapDescriptor[360];
+
+    /** The hue last applied to the Adelaide marker, where its next hue animation starts. */
+    private float mAdelaideHue = BitmapDescriptorFactory.HUE_RED;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -237,6 +255,19 @@ public class MarkerDemoActivity extends AppCompatActivity implements
         new OnMapAndViewReadyListener(mapFragment, this);
     }
 
+    @Override
+    protected void onDestroy() {
+        // The animation scheduler and the frame callbacks outlive the activity; stop them from
+        // touching the destroyed map.
+        if (mAnimator != null) {
+            mAnimator.cancelAll();
+        }
+        if (mMarkerRainbow != null) {
+            mMarkerRainbow.release();
+        }
+        super.onDestroy();
+    }
+
     @Override
     public void onMapReady(GoogleMap map) {
         mMap = map;
@@ -244,6 +275,58 @@ public class MarkerDemoActivity extends AppCompatActivity implements
         // Hide the zoom controls as the button panel will cover it.
         mMap.getUiSettings().setZoomControlsEnabled(false);
 
+        mAnimator = new MarkerAnimator<>(new MarkerAnimator.Host<Marker>() {
+            @Override
+            public void setPosition(Marker marker, double latitude, double longitude) {
+                marker.setPosition(new LatLng(latitude, longitude));
+            }
+
+            @Override
+            public void setAlpha(Marker marker, float alpha) {
+                marker.setAlpha(alpha);
+            }
+
+            @Override
+            public void setRotation(Marker marker, float rotation) {
+                marker.setRotation(rotation);
+            }
+
+            @Override
+            public void setHue(Marker marker, float hue) {
+                int degree = (int) hue;
+                if (mHueIcons[degree] == null) {
+                    mHueIcons[degree] = BitmapDescriptorFactory.defaultMarker(degree);
+                }
+                marker.setIcon(mHueIcons[degree]);
+                if (marker.equals(mAdelaide)) {
+                    mAdelaideHue = hue;
+                }
+            }
+
+            @Override
+            public void setAnchor(Marker marker, float u, float v) {
+                marker.setAnchor(u, v);
+            }
+        });
+
+        mMarkerRainbow = new MarkerBatcher<>(new MarkerBatcher.Host<MarkerOptions, Marker>() {
+            @Override
+            public Marker add(MarkerOptions options) {
+                return mMap.addMarker(options);
+            }
+
+            @Override
+            public void update(Marker marker, MarkerOptions options) {
+                marker.setFlat(options.isFlat());
+                marker.setRotation(options.getRotation());
+            }
+
+            @Override
+            public void remove(Marker marker) {
+                marker.remove();
+            }
+        }, MarkerBatcher.choreographer(), RAINBOW_FRAME_BUDGET_MS);
+
         // Add lots of markers to the map.
         addMarkersToMap();
 
@@ -340,18 +423,19 @@ public class MarkerDemoActivity extends AppCompatActivity implements
         float rotation = mRotationBar.getProgress();
         boolean flat = mFlatBox.isChecked();
 
-        int numMarkersInRainbow = 12;
-        for (int i = 0; i < numMarkersInRainbow; i++) {
-            Marker marker = mMap.addMarker(new MarkerOptions()
+        MarkerBatcher<Integer, MarkerOptions, Marker>.Transaction rainbow = mMarkerRainbow.begin();
+        for (int i = 0; i < NUM_MARKERS_IN_RAINBOW; i++) {
+            mRainbowOptions[i] = new MarkerOptions()
                     .position(new LatLng(
-                            -30 + 10 * Math.sin(i * Math.PI / (numMarkersInRainbow - 1)),
-                            135 - 10 * Math.cos(i * Math.PI / (numMarkersInRainbow - 1))))
+                            -30 + 10 * Math.sin(i * Math.PI / (NUM_MARKERS_IN_RAINBOW - 1)),
+                            135 - 10 * Math.cos(i * Math.PI / (NUM_MARKERS_IN_RAINBOW - 1))))
                     .title("Marker " + i)
-                    .icon(BitmapDescriptorFactory.defaultMarker(i * 360 / numMarkersInRainbow))
+                    .icon(BitmapDescriptorFactory.defaultMarker(i * 360 / NUM_MARKERS_IN_RAINBOW))
                     .flat(flat)
-                    .rotation(rotation));
-            mMarkerRainbow.add(marker);
+                    .rotation(rotation);
+            rainbow.add(i, mRainbowOptions[i]);
         }
+        rainbow.commit();
     }
 
     /**
@@ -383,6 +467,8 @@ public class MarkerDemoActivity extends AppCompatActivity implements
             return;
         }
         mMap.clear();
+        mMarkerRainbow.forget();
+        mAnimator.cancelAll();
     }
 
     /** Called when the Reset button is clicked. */
@@ -392,6 +478,9 @@ public class MarkerDemoActivity extends AppCompatActivity implements
         }
         // Clear the map because we don't want duplicates of the markers.
         mMap.clear();
+        mMarkerRainbow.forget();
+        mAnimator.cancelAll();
+        mAdelaideHue = BitmapDescriptorFactory.HUE_RED;
         addMarkersToMap();
     }
 
@@ -400,10 +489,7 @@ public class MarkerDemoActivity extends AppCompatActivity implements
         if (!checkReady()) {
             return;
         }
-        boolean flat = mFlatBox.isChecked();
-        for (Marker marker : mMarkerRainbow) {
-            marker.setFlat(flat);
-        }
+        updateRainbow(mFlatBox.isChecked(), mRotationBar.getProgress());
     }
 
     @Override
@@ -411,10 +497,20 @@ public class MarkerDemoActivity extends AppCompatActivity implements
         if (!checkReady()) {
             return;
         }
-        float rotation = seekBar.getProgress();
-        for (Marker marker : mMarkerRainbow) {
-            marker.setRotation(rotation);
+        updateRainbow(mFlatBox.isChecked(), seekBar.getProgress());
+    }
+
+    private void updateRainbow(boolean flat, float rotation) {
+        MarkerBatcher<Integer, MarkerOptions, Marker>.Transaction rainbow = mMarkerRainbow.begin();
+        for (int i = 0; i < NUM_MARKERS_IN_RAINBOW; i++) {
+            rainbow.update(i, new MarkerOptions()
+                    .position(mRainbowOptions[i].getPosition())
+                    .title(mRainbowOptions[i].getTitle())
+                    .icon(mRainbowOptions[i].getIcon())
+                    .flat(flat)
+                    .rotation(rotation));
         }
+        rainbow.commit();
     }
 
     @Override
@@ -435,30 +531,14 @@ public class MarkerDemoActivity extends AppCompatActivity implements
     public boolean onMarkerClick(final Marker marker) {
         if (marker.equals(mPerth)) {
             // This causes the marker at Perth to bounce into position when it is clicked.
-            final Handler handler = new Handler();
-            final long start = SystemClock.uptimeMillis();
-            final long duration = 1500;
-
-            final Interpolator interpolator = new BounceInterpolator();
-
-            handler.post(new Runnable() {
-                @Override
-                public void run() {
-                    long elapsed = SystemClock.uptimeMillis() - start;
-                    float t = Math.max(
-                            1 - interpolator.getInterpolation((float) elapsed / duration), 0);
-                    marker.setAnchor(0.5f, 1.0f + 2 * t);
-
-                    if (t > 0.0) {
-                        // Post again 16ms later.
-                        handler.postDelayed(this, 16);
-                    }
-                }
-            });
+            mAnimator.animateAnchor(marker, 0.5f, 3.0f, 0.5f, 1.0f, 1500,
+                    new BounceInterpolator());
         } else if (marker.equals(mAdelaide)) {
-            // This causes the marker at Adelaide to change color and alpha.
-            marker.setIcon(BitmapDescriptorFactory.defaultMarker(mRandom.nextFloat() * 360));
-            marker.setAlpha(mRandom.nextFloat());
+            // This causes the marker at Adelaide to fade to another color and alpha.
+            float hue = mRandom.nextFloat() * 360;
+            mAnimator.animateHue(marker, mAdelaideHue, hue, 600, new DecelerateInterpolator());
+            mAnimator.animateAlpha(marker, marker.getAlpha(), mRandom.nextFloat(), 600,
+                    new DecelerateInterpolator());
         }
 
         // Markers have a z-index that is settable and gettable.
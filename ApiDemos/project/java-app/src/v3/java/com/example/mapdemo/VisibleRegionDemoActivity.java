@@ -14,6 +14,7 @@
 
 package com.example.mapdemo;
 
+import com.example.mapdemo.anim.AnimationScheduler;
 import com.google.android.libraries.maps.CameraUpdateFactory;
 import com.google.android.libraries.maps.GoogleMap;
 import com.google.android.libraries.maps.GoogleMap.OnCameraIdleListener;
@@ -23,8 +24,6 @@ import com.google.android.libraries.maps.model.LatLngBounds;
 import com.google.android.libraries.maps.model.MarkerOptions;
 
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.SystemClock;
 import androidx.appcompat.app.AppCompatActivity;
 import android.view.View;
 import android.view.animation.Interpolator;
@@ -53,7 +52,10 @@ public class VisibleRegionDemoActivity extends AppCompatActivity implements
 
     private TextView mMessageView;
 
-    /** Keep track of current values for padding, so we can animate from them. */
+    /**
+     * The padding last applied to the map, so that an animation starts from wherever the one it
+     * replaces had got to.
+     */
     int currentLeft = 150;
 
     int currentTop = 0;
@@ -62,6 +64,9 @@ public class VisibleRegionDemoActivity extends AppCompatActivity implements
 
     int currentBottom = 0;
 
+    /** The running padding animation, replaced when the padding changes again. */
+    private AnimationScheduler.Animation paddingAnimation;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -91,6 +96,15 @@ public class VisibleRegionDemoActivity extends AppCompatActivity implements
         });
     }
 
+    @Override
+    protected void onDestroy() {
+        // The scheduler outlives the activity; stop it from padding a destroyed map.
+        if (paddingAnimation != null) {
+            AnimationScheduler.getInstance().remove(paddingAnimation);
+        }
+        super.onDestroy();
+    }
+
     /**
      * Checks if the map is ready (which depends on whether the Google Play services APK is
      * available. This should be called prior to calling any methods on GoogleMap.
@@ -146,8 +160,6 @@ public class VisibleRegionDemoActivity extends AppCompatActivity implements
     public void animatePadding(
             final int toLeft, final int toTop, final int toRight, final int toBottom) {
 
-        final Handler handler = new Handler();
-        final long start = SystemClock.uptimeMillis();
         final long duration = 1000;
 
         final Interpolator interpolator = new OvershootInterpolator();
@@ -157,15 +169,19 @@ public class VisibleRegionDemoActivity extends AppCompatActivity implements
         final int startRight = currentRight;
         final int startBottom = currentBottom;
 
-        currentLeft = toLeft;
-        currentTop = toTop;
-        currentRight = toRight;
-        currentBottom = toBottom;
+        final AnimationScheduler scheduler = AnimationScheduler.getInstance();
+        if (paddingAnimation != null) {
+            scheduler.remove(paddingAnimation);
+        }
+        paddingAnimation = new AnimationScheduler.Animation() {
+            private long startNanos;
 
-        handler.post(new Runnable() {
             @Override
-            public void run() {
-                long elapsed = SystemClock.uptimeMillis() - start;
+            public void onFrame(long frameTimeNanos, long deltaNanos) {
+                if (startNanos == 0) {
+                    startNanos = frameTimeNanos;
+                }
+                long elapsed = Math.min(duration, (frameTimeNanos - startNanos) / 1_000_000);
                 float t = interpolator.getInterpolation((float) elapsed / duration);
 
                 int left = (int) (startLeft + ((toLeft - startLeft) * t));
@@ -174,12 +190,16 @@ public class VisibleRegionDemoActivity extends AppCompatActivity implements
                 int bottom = (int) (startBottom + ((toBottom - startBottom) * t));
 
                 mMap.setPadding(left, top, right, bottom);
+                currentLeft = left;
+                currentTop = top;
+                currentRight = right;
+                currentBottom = bottom;
 
-                if (elapsed < duration) {
-                    // Post again 16ms later.
-                    handler.postDelayed(this, 16);
+                if (elapsed == duration) {
+                    scheduler.remove(this);
                 }
             }
-        });
+        };
+        scheduler.add(paddingAnimation);
     }
 }
@@ -16,59 +16,75 @@
 
 package com.example.mapdemo.anim;
 
-import android.os.Handler;
-import android.os.Looper;
+import java.util.concurrent.TimeUnit;
 
-/** Simple manager for UI-thread animation. All methods must be invoked on the UI thread only. */
+/**
+ * Simple manager for UI-thread animation at a fixed frame rate. All methods must be invoked on the
+ * UI thread only.
+ *
+ * <p>Frames come from the shared {@link AnimationScheduler}, so they are aligned to vsync. When
+ * the frame rate is lower than the display's, vsyncs are skipped until a frame is due; when frames
+ * are dropped, the next callback is told how many frames it stands for.
+ */
 public class AnimationManager {
     private static final double INITIAL_FRAME_RATE_FPS = 60.0;
 
-    private final Handler animationHandler;
-    private final Runnable animationRunnable;
+    /** Upper bound on the frames one callback catches up on, after a long stall. */
+    private static final int MAX_CATCH_UP_FRAMES = 10;
+
+    /** Called with the number of frames due, usually 1, more after dropped frames. */
+    public interface FrameCallback {
+        void onAnimationFrame(int frames);
+    }
+
+    private final AnimationScheduler scheduler;
+    private final AnimationScheduler.Animation animation;
 
     private double frameRateFps;
-    private boolean running;
+    private long dueNanos;
 
     public AnimationManager(final Runnable frameRunnable) {
+        this(frames -> frameRunnable.run());
+    }
+
+    public AnimationManager(final FrameCallback frameCallback) {
+        this(AnimationScheduler.getInstance(), frameCallback);
+    }
+
+    AnimationManager(AnimationScheduler scheduler, final FrameCallback frameCallback) {
+        this.scheduler = scheduler;
         frameRateFps = INITIAL_FRAME_RATE_FPS;
-        running = false;
-        animationHandler = new Handler(Looper.getMainLooper());
 
-        animationRunnable =
-            () -> {
-                if (!running) {
+        animation =
+            (frameTimeNanos, deltaNanos) -> {
+                if (frameRateFps <= 0.0) {
                     return;
                 }
-                frameRunnable.run();
-                requestAnimationFrame();
+                long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / frameRateFps);
+                dueNanos += deltaNanos;
+                // Half a vsync of slack, so 60fps on a 60Hz display never waits a whole vsync
+                // because of jitter. The time is paid back by the next frames.
+                long slackNanos = Math.min(deltaNanos, intervalNanos) / 2;
+                int frames = (int) ((dueNanos + slackNanos) / intervalNanos);
+                if (frames == 0) {
+                    return;
+                }
+                dueNanos -= frames * intervalNanos;
+                frameCallback.onAnimationFrame(Math.min(frames, MAX_CATCH_UP_FRAMES));
             };
     }
 
-    private void requestAnimationFrame() {
-        if (frameRateFps <= 0.0) {
-            return;
-        }
-
-        long delayMs = (long) Math.floor(1000.0 / frameRateFps);
-        animationHandler.postDelayed(animationRunnable, delayMs);
-    }
-
     public void startAnimation() {
-        if (running) {
+        if (scheduler.isRunning(animation)) {
             return;
         }
 
-        requestAnimationFrame();
-        running = true;
+        dueNanos = 0;
+        scheduler.add(animation);
     }
 
     public void stopAnimation() {
-        if (!running) {
-            return;
-        }
-
-        animationHandler.removeCallbacks(animationRunnable);
-        running = false;
+        scheduler.remove(animation);
     }
 
     public void setFrameRateFps(double frameRateFps) {
@@ -78,4 +94,4 @@ public class AnimationManager {
     public double getFrameRateFps() {
         return frameRateFps;
     }
-}
\ No newline at end of file
+}
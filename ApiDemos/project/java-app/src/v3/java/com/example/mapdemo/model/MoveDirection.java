@@ -16,12 +16,17 @@
 
 package com.example.mapdemo.model;
 
+import com.example.mapdemo.geometry.GeometryTranslator;
 import com.google.android.libraries.maps.model.LatLng;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Helper to translate all given LatLngs by the same amount in one of the predefined directions.
+ *
+ * <p>{@link #movePointsInList} allocates a new list of new points on every call. Animations should
+ * build a {@link GeometryTranslator} once with {@link #newTranslator} and translate that instead.
  */
 public enum MoveDirection {
     UP(1, 0),
@@ -61,6 +66,28 @@ public enum MoveDirection {
         return newPoints;
     }
 
+    /** A translator for the points of a polyline, as ring 0. */
+    public static GeometryTranslator newTranslator(List<LatLng> points) {
+        return newTranslator(points, Collections.<List<LatLng>>emptyList());
+    }
+
+    /** A translator for a polygon: the outline is ring 0 and the holes follow. */
+    public static GeometryTranslator newTranslator(List<LatLng> outline, List<List<LatLng>> holes) {
+        GeometryTranslator.Builder builder = new GeometryTranslator.Builder();
+        addRing(builder, outline);
+        for (List<LatLng> hole : holes) {
+            addRing(builder, hole);
+        }
+        return builder.build();
+    }
+
+    private static void addRing(GeometryTranslator.Builder builder, List<LatLng> points) {
+        builder.beginRing();
+        for (LatLng point : points) {
+            builder.add(point.latitude, point.longitude);
+        }
+    }
+
     public static List<List<LatLng>> movePointsInNestedList(
         List<List<LatLng>> oldPointLists, double latMoveDistance, double lngMoveDistance) {
         List<List<LatLng>> newPointLists = new ArrayList<>(oldPointLists.size());
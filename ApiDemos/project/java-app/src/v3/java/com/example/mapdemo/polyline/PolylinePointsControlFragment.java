@@ -27,8 +27,10 @@ import android.widget.EditText;
 import android.widget.TextView;
 import com.example.mapdemo.R;
 import com.example.mapdemo.anim.AnimationManager;
+import com.example.mapdemo.geometry.GeometryTranslator;
 import com.example.mapdemo.model.MoveDirection;
 import com.google.android.libraries.maps.model.LatLng;
+import java.util.ArrayList;
 import java.util.List;
 
 /** Fragment with "points" UI controls for Polylines, to be used in ViewPager. */
@@ -36,25 +38,29 @@ public class PolylinePointsControlFragment extends PolylineControlFragment imple
 
     private MoveDirection moveDirection;
     private double stepSizeDeg;
-    private List<LatLng> originalPoints;
+    private GeometryTranslator originalPoints;
+    /** Reused for every frame; the polyline copies the points it is given. */
+    private final List<LatLng> movedPoints = new ArrayList<>();
     private double latDistance = 0;
     private double lngDistance = 0;
 
     private final AnimationManager animationManager =
         new AnimationManager(
-            new Runnable() {
+            new AnimationManager.FrameCallback() {
                 @Override
-                public void run() {
+                public void onAnimationFrame(int frames) {
                     if ((polyline == null) || (moveDirection == null)) {
                         return;
                     }
                     // When the polyline moves offscreen, its coordinates will be clamped and caused the
                     // shape to change. Using the original points for computing new points to make sure
                     // the shape can be retained after the polyline moves offscreen.
-                    latDistance += moveDirection.getLatDistance(stepSizeDeg);
-                    lngDistance += moveDirection.getLngDistance(stepSizeDeg);
-                    polyline.setPoints(
-                        MoveDirection.movePointsInList(originalPoints, latDistance, lngDistance));
+                    // Move a step for every frame due, so dropped frames don't slow the polyline.
+                    latDistance += moveDirection.getLatDistance(stepSizeDeg * frames);
+                    lngDistance += moveDirection.getLngDistance(stepSizeDeg * frames);
+                    if (originalPoints.translate(latDistance, lngDistance)) {
+                        polyline.setPoints(originalPoints.copyRing(0, movedPoints, LatLng::new));
+                    }
                 }
             });
 
@@ -164,6 +170,6 @@ public class PolylinePointsControlFragment extends PolylineControlFragment imple
     public void refresh() {
         latDistance = 0;
         lngDistance = 0;
-        originalPoints = polyline.getPoints();
+        originalPoints = MoveDirection.newTranslator(polyline.getPoints());
     }
 }
@@ -88,6 +88,13 @@ android {
         }
     }
 
+    testOptions {
+        unitTests.all {
+            // Benchmarks in the unit tests are skipped unless the build is run with -Pbenchmarks.
+            it.systemProperty("benchmarks", project.hasProperty("benchmarks"))
+        }
+    }
+
     lint {
         sarifOutput = layout.buildDirectory.file("reports/lint-results-debug.sarif").get().asFile
     }
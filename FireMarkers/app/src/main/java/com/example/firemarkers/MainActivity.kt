@@ -36,10 +36,14 @@ import androidx.compose.runtime.Composable
 import androidx.compose.runtime.LaunchedEffect
 import androidx.compose.runtime.collectAsState
 import androidx.compose.runtime.getValue
+import androidx.compose.runtime.key
 import androidx.compose.runtime.remember
+import androidx.compose.runtime.withFrameMillis
 import androidx.compose.ui.Modifier
+import androidx.compose.ui.platform.LocalView
 import androidx.compose.ui.unit.sp
 import androidx.hilt.navigation.compose.hiltViewModel
+import com.example.firemarkers.model.MarkerData
 import com.example.firemarkers.ui.theme.FireMarkersTheme
 import com.example.firemarkers.viewmodel.MarkersViewModel
 import com.google.android.gms.maps.model.BitmapDescriptorFactory
@@ -97,6 +101,19 @@ fun MapScreen(modifier: Modifier = Modifier) {
         }
     }
 
+    // Markers are recomputed at most once per frame of the display the map is on.
+    val view = LocalView.current
+    LaunchedEffect(view) {
+        view.display?.let { viewModel.setDisplayRefreshRate(it.refreshRate) }
+    }
+
+    // The animation is computed locally from the server clock, once per display frame.
+    LaunchedEffect(animationRunning) {
+        while (animationRunning) {
+            withFrameMillis { viewModel.onFrame() }
+        }
+    }
+
     Scaffold(
         snackbarHost = { SnackbarHost(hostState = snackbarHostState) },
         topBar = {
@@ -149,14 +166,28 @@ fun MapScreen(modifier: Modifier = Modifier) {
             cameraPositionState = cameraPositionState
         ) {
             markers.forEach { markerData ->
-                Marker(
-                    state = remember(markerData.id) {
-                        MarkerState(position = LatLng(markerData.latitude, markerData.longitude))
-                    },
-                    title = markerData.label,
-                    icon = BitmapDescriptorFactory.defaultMarker(markerData.color)
-                )
+                key(markerData.id) {
+                    AnimatedMarker(markerData)
+                }
             }
         }
     }
 }
+
+/**
+ * One marker of the animation. The ViewModel keeps the same [MarkerData] for markers that did not
+ * visibly move, so Compose skips this function for them.
+ */
+@Composable
+private fun AnimatedMarker(markerData: MarkerData) {
+    val position = LatLng(markerData.latitude, markerData.longitude)
+    val markerState = remember { MarkerState(position = position) }
+    // Keep the marker's state, but move it to the animated position.
+    markerState.position = position
+    val icon = remember(markerData.color) { BitmapDescriptorFactory.defaultMarker(markerData.color) }
+    Marker(
+        state = markerState,
+        title = markerData.label,
+        icon = icon
+    )
+}
@@ -0,0 +1,208 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.example.firemarkers.data
+
+import android.content.Context
+import com.example.firemarkers.model.MarkerData
+import dagger.hilt.android.qualifiers.ApplicationContext
+import java.io.BufferedOutputStream
+import java.io.ByteArrayInputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+import java.util.concurrent.FutureTask
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * The last known markers, kept on disk so the map can show them as soon as the app starts, before
+ * Firebase has connected.
+ *
+ * The file is an append-only log: every change is one record at the end of the file, a marker put
+ * under its key or a key removed. Loading replays the log into an index by key. When the log holds
+ * more than twice as many records as there are markers, it is rewritten with one record per
+ * marker. A record cut short by a crash is dropped when the log is loaded; everything before it is
+ * kept.
+ *
+ * All file access happens on [executor], in the order the calls were made, so callers on the main
+ * thread never wait for the disk except in [load].
+ */
+@Singleton
+class MarkerCache internal constructor(
+    private val file: File,
+    private val executor: Executor
+) {
+    @Inject
+    constructor(@ApplicationContext context: Context) :
+        this(File(context.filesDir, FILE_NAME), Executors.newSingleThreadExecutor())
+
+    // Only used on the executor.
+    private val index = LinkedHashMap<String, MarkerData>()
+    private var recordCount = 0
+    private var output: DataOutputStream? = null
+
+    /**
+     * Reads the cached markers, sorted the way Firebase orders their keys. Blocks until the file
+     * has been read, so call it off the main thread.
+     */
+    fun load(): List<Pair<String, MarkerData>> {
+        val task = FutureTask {
+            readLog()
+            index.entries.map { it.key to it.value }.sortedWith(compareBy(FIREBASE_KEY_ORDER) { it.first })
+        }
+        executor.execute(task)
+        return task.get()
+    }
+
+    /** Records [marker] under [key]. */
+    fun put(key: String, marker: MarkerData) = append {
+        index[key] = marker
+        it.writeByte(PUT.toInt())
+        it.writeUTF(key)
+        writeMarker(it, marker)
+    }
+
+    /** Records that [key] was removed. */
+    fun remove(key: String) = append {
+        index.remove(key)
+        it.writeByte(REMOVE.toInt())
+        it.writeUTF(key)
+    }
+
+    private fun append(write: (DataOutputStream) -> Unit) {
+        executor.execute {
+            try {
+                val out = output ?: openForAppend()
+                write(out)
+                out.flush()
+                recordCount++
+                if (recordCount > 2 * index.size + MIN_COMPACTION_RECORDS) {
+                    compact()
+                }
+            } catch (e: IOException) {
+                // The cache only saves a round trip on the next start; never fail a sync for it.
+                closeOutput()
+            }
+        }
+    }
+
+    private fun readLog() {
+        index.clear()
+        recordCount = 0
+        if (!file.exists()) return
+        closeOutput()
+        val bytes = try {
+            file.readBytes()
+        } catch (e: IOException) {
+            return
+        }
+        val input = DataInputStream(ByteArrayInputStream(bytes))
+        var validLength = 0
+        try {
+            while (input.available() > 0) {
+                val op = input.readByte()
+                val key = input.readUTF()
+                when (op) {
+                    PUT -> index[key] = readMarker(input)
+                    REMOVE -> index.remove(key)
+                    else -> break
+                }
+                recordCount++
+                validLength = bytes.size - input.available()
+            }
+        } catch (e: IOException) {
+            // A record cut short by a crash: keep what was read before it.
+        }
+        if (validLength < bytes.size) {
+            // Drop the broken tail, or the next records would be appended after it.
+            RandomAccessFile(file, "rw").use { it.setLength(validLength.toLong()) }
+        }
+    }
+
+    private fun compact() {
+        closeOutput()
+        val temp = File(file.path + ".tmp")
+        DataOutputStream(BufferedOutputStream(FileOutputStream(temp))).use { out ->
+            for ((key, marker) in index) {
+                out.writeByte(PUT.toInt())
+                out.writeUTF(key)
+                writeMarker(out, marker)
+            }
+        }
+        if (!temp.renameTo(file)) {
+            throw IOException("Cannot replace $file")
+        }
+        recordCount = index.size
+    }
+
+    private fun openForAppend(): DataOutputStream {
+        return DataOutputStream(BufferedOutputStream(FileOutputStream(file, true))).also { output = it }
+    }
+
+    private fun closeOutput() {
+        try {
+            output?.close()
+        } catch (e: IOException) {
+            // Nothing left to save.
+        }
+        output = null
+    }
+
+    private fun writeMarker(out: DataOutputStream, marker: MarkerData) {
+        out.writeUTF(marker.id)
+        out.writeDouble(marker.latitude)
+        out.writeDouble(marker.longitude)
+        out.writeUTF(marker.label)
+        out.writeUTF(marker.style)
+        out.writeFloat(marker.color)
+    }
+
+    private fun readMarker(input: DataInputStream): MarkerData {
+        return MarkerData(
+            id = input.readUTF(),
+            latitude = input.readDouble(),
+            longitude = input.readDouble(),
+            label = input.readUTF(),
+            style = input.readUTF(),
+            color = input.readFloat()
+        )
+    }
+
+    companion object {
+        private const val FILE_NAME = "markers.log"
+        private const val PUT: Byte = 1
+        private const val REMOVE: Byte = 2
+        private const val MIN_COMPACTION_RECORDS = 64
+
+        /**
+         * The order Firebase gives children by default: keys that are 32-bit integers first, by
+         * value, then every other key as a string.
+         */
+        internal val FIREBASE_KEY_ORDER = Comparator<String> { a, b ->
+            val x = a.toIntOrNull()
+            val y = b.toIntOrNull()
+            when {
+                x != null && y != null -> x.compareTo(y)
+                x != null -> -1
+                y != null -> 1
+                else -> a.compareTo(b)
+            }
+        }
+    }
+}
@@ -0,0 +1,250 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.example.firemarkers.data
+
+import com.example.firemarkers.model.MarkerData
+import com.google.firebase.database.ChildEventListener
+import com.google.firebase.database.DataSnapshot
+import com.google.firebase.database.DatabaseError
+import com.google.firebase.database.DatabaseReference
+import com.google.firebase.database.ValueEventListener
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+
+/**
+ * Keeps a local copy of the markers under [markersRef], updated one child at a time.
+ *
+ * A `ValueEventListener` deserializes every marker again whenever any of them changes. This class
+ * listens for child events instead, so a changed marker only deserializes that marker, and keeps
+ * the markers in an id-indexed list in database order.
+ *
+ * Every list [markers] emits reuses the [MarkerData] instances of the markers that did not change,
+ * so consumers can find what changed by identity and skip the rest. The list itself is published
+ * from a task posted to the main thread, after Firebase has delivered the events it raised
+ * together: the hundreds of `onChildAdded` calls of the first load, or of a batched write, produce
+ * a single emission.
+ *
+ * With a [cache], the markers also work offline-first: [start] shows the markers cached by the
+ * last run as soon as they are read from disk, without waiting for Firebase, and every change
+ * Firebase delivers is written back to the cache. Each time the database connects, the first value
+ * event for [markersRef] holds the server's markers, and cached markers the server no longer has
+ * are dropped. The cache is the only local copy: Firebase's own disk persistence is off, so no
+ * event can come from stale data on disk.
+ *
+ * Call [start] to begin listening and [stop] when done.
+ *
+ * @param markersRef The `/markers` node.
+ * @param connectedRef The `.info/connected` node, which is true while the database is connected.
+ * @param scope The scope to publish [markers] in, usually the ViewModel's.
+ * @param cache Where the last known markers are kept between runs, if anywhere.
+ * @param ioDispatcher Reads the [cache].
+ * @param onError Called when the listener is cancelled, for example by the database rules.
+ */
+class MarkerSync(
+    private val markersRef: DatabaseReference,
+    private val connectedRef: DatabaseReference,
+    private val scope: CoroutineScope,
+    private val cache: MarkerCache? = null,
+    private val ioDispatcher: CoroutineDispatcher = Dispatchers.IO,
+    private val onError: (DatabaseError) -> Unit
+) {
+    private val keys = ArrayList<String>()
+    private val values = ArrayList<MarkerData>()
+    private val indexByKey = HashMap<String, Int>()
+
+    private val _markers = MutableStateFlow<List<MarkerData>>(emptyList())
+
+    /** The markers in database order. */
+    val markers: StateFlow<List<MarkerData>> = _markers.asStateFlow()
+
+    private var publishPending = false
+
+    /** Set once Firebase has delivered anything; the cache is not restored after that. */
+    private var serverSeen = false
+
+    private var connected = false
+
+    private val listener = object : ChildEventListener {
+        override fun onChildAdded(snapshot: DataSnapshot, previousChildName: String?) {
+            val key = snapshot.key ?: return
+            val marker = snapshot.getValue(MarkerData::class.java) ?: return
+            serverSeen = true
+            insert(key, marker, previousChildName)
+            cache?.put(key, marker)
+            schedulePublish()
+        }
+
+        override fun onChildChanged(snapshot: DataSnapshot, previousChildName: String?) {
+            val key = snapshot.key ?: return
+            val index = indexByKey[key] ?: return onChildAdded(snapshot, previousChildName)
+            val marker = snapshot.getValue(MarkerData::class.java) ?: return
+            values[index] = marker
+            cache?.put(key, marker)
+            schedulePublish()
+        }
+
+        override fun onChildRemoved(snapshot: DataSnapshot) {
+            val key = snapshot.key ?: return
+            removeKey(key)
+        }
+
+        override fun onChildMoved(snapshot: DataSnapshot, previousChildName: String?) {
+            val key = snapshot.key ?: return
+            val index = indexByKey.remove(key) ?: return
+            keys.removeAt(index)
+            val marker = values.removeAt(index)
+            reindexFrom(index)
+            insert(key, marker, previousChildName)
+            schedulePublish()
+        }
+
+        override fun onCancelled(error: DatabaseError) {
+            onError(error)
+        }
+    }
+
+    /**
+     * Fires once per connection, after the child events for the server's markers: Firebase raises
+     * value events after the child events for the same data. Only the keys are read, not the
+     * markers.
+     */
+    private val reconcileListener = object : ValueEventListener {
+        override fun onDataChange(snapshot: DataSnapshot) {
+            serverSeen = true
+            for (key in keys.toList()) {
+                if (!snapshot.hasChild(key)) {
+                    removeKey(key)
+                }
+            }
+        }
+
+        override fun onCancelled(error: DatabaseError) {
+            onError(error)
+        }
+    }
+
+    /** Reconciles with the server's markers each time the database connects. */
+    private val connectedListener = object : ValueEventListener {
+        override fun onDataChange(snapshot: DataSnapshot) {
+            val nowConnected = snapshot.getValue(Boolean::class.java) == true
+            if (nowConnected && !connected) {
+                markersRef.addListenerForSingleValueEvent(reconcileListener)
+            }
+            connected = nowConnected
+        }
+
+        override fun onCancelled(error: DatabaseError) {
+            onError(error)
+        }
+    }
+
+    /**
+     * Starts listening, and restores the cached markers unless Firebase delivers first. Firebase
+     * first calls `onChildAdded` for every existing marker.
+     */
+    fun start() {
+        markersRef.addChildEventListener(listener)
+        connectedRef.addValueEventListener(connectedListener)
+        val cache = cache ?: return
+        scope.launch(Dispatchers.Main) {
+            val cached = withContext(ioDispatcher) { cache.load() }
+            if (!serverSeen) {
+                restore(cached)
+            }
+        }
+    }
+
+    /** Stops listening. [markers] keeps its last value. */
+    fun stop() {
+        markersRef.removeEventListener(listener)
+        markersRef.removeEventListener(reconcileListener)
+        connectedRef.removeEventListener(connectedListener)
+    }
+
+    /**
+     * Writes [markers] in place of all the current markers in one atomic multi-path update. Each
+     * marker is stored under its [MarkerData.id]; known markers that are not in [markers] are
+     * deleted in the same update.
+     */
+    fun replaceAll(markers: List<MarkerData>) {
+        val update = HashMap<String, Any?>(keys.size + markers.size)
+        for (key in keys) {
+            update[key] = null
+        }
+        for (marker in markers) {
+            update[marker.id] = marker
+        }
+        markersRef.updateChildren(update)
+    }
+
+    private fun restore(cached: List<Pair<String, MarkerData>>) {
+        if (cached.isEmpty()) return
+        for ((key, marker) in cached) {
+            indexByKey[key] = keys.size
+            keys.add(key)
+            values.add(marker)
+        }
+        schedulePublish()
+    }
+
+    private fun removeKey(key: String) {
+        val index = indexByKey.remove(key) ?: return
+        keys.removeAt(index)
+        values.removeAt(index)
+        reindexFrom(index)
+        cache?.remove(key)
+        schedulePublish()
+    }
+
+    private fun insert(key: String, marker: MarkerData, previousChildName: String?) {
+        val existing = indexByKey[key]
+        if (existing != null) {
+            values[existing] = marker
+            return
+        }
+        val index = if (previousChildName == null) {
+            0
+        } else {
+            // An unknown previous child has not arrived yet; append until it does.
+            val previousIndex = indexByKey[previousChildName] ?: (keys.size - 1)
+            previousIndex + 1
+        }
+        keys.add(index, key)
+        values.add(index, marker)
+        reindexFrom(index)
+    }
+
+    /** Child events almost always append, so this usually updates a single entry. */
+    private fun reindexFrom(index: Int) {
+        for (i in index until keys.size) {
+            indexByKey[keys[i]] = i
+        }
+    }
+
+    private fun schedulePublish() {
+        if (publishPending) return
+        publishPending = true
+        // Not the ViewModel's Main.immediate: the publish has to wait for the remaining events.
+        scope.launch(Dispatchers.Main) {
+            publishPending = false
+            _markers.value = ArrayList(values)
+        }
+    }
+}
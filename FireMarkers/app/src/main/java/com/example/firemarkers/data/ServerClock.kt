@@ -0,0 +1,61 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.example.firemarkers.data
+
+import com.google.firebase.database.DataSnapshot
+import com.google.firebase.database.DatabaseError
+import com.google.firebase.database.ValueEventListener
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * The Firebase server's clock, as seen from this device.
+ *
+ * Firebase publishes the difference between the device clock and its own at
+ * `.info/serverTimeOffset`. Adding that offset to the device clock gives a time that all connected
+ * devices agree on to within a few tens of milliseconds. That is what lets every device compute the
+ * animation locally from a start time the controller writes only once.
+ *
+ * @param deviceClock The device's wall clock in milliseconds; replaced in tests.
+ */
+@Singleton
+class ServerClock internal constructor(
+    firebaseConnection: FirebaseConnection,
+    private val deviceClock: () -> Long
+) {
+    @Inject
+    constructor(firebaseConnection: FirebaseConnection) :
+        this(firebaseConnection, System::currentTimeMillis)
+
+    @Volatile
+    private var offsetMillis = 0L
+
+    init {
+        firebaseConnection.database.getReference(".info/serverTimeOffset")
+            .addValueEventListener(object : ValueEventListener {
+                override fun onDataChange(snapshot: DataSnapshot) {
+                    offsetMillis = snapshot.getValue(Double::class.java)?.toLong() ?: 0L
+                }
+
+                override fun onCancelled(error: DatabaseError) {
+                    // Keep the last known offset; the device clock alone is close enough.
+                }
+            })
+    }
+
+    /**
+     * The current server time in milliseconds since the epoch.
+     */
+    fun now(): Long = deviceClock() + offsetMillis
+}
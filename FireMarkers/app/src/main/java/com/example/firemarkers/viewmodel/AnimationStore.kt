@@ -0,0 +1,79 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.example.firemarkers.viewmodel
+
+import android.util.Log
+import com.google.firebase.database.DataSnapshot
+import com.google.firebase.database.DatabaseError
+import com.google.firebase.database.DatabaseReference
+import com.google.firebase.database.MutableData
+import com.google.firebase.database.Transaction
+
+/**
+ * Atomic read-modify-write access to the shared [MarkersViewModel.AnimationState].
+ *
+ * Every write to the `/animation` node goes through [update], so a write can depend on what is
+ * stored at the moment it lands, not on what this device last saw. That is what makes the
+ * controller lease and its fencing token work (see [ControllerLease]).
+ */
+internal interface AnimationStore {
+
+    /**
+     * Replaces the stored state with `transform(current)`, or leaves it alone if [transform]
+     * returns null. [transform] may run several times and must not have side effects.
+     *
+     * @param onComplete Called with whether the update was committed and the state stored after
+     *                   it.
+     */
+    fun update(
+        transform: (MarkersViewModel.AnimationState) -> MarkersViewModel.AnimationState?,
+        onComplete: (committed: Boolean, state: MarkersViewModel.AnimationState) -> Unit
+    )
+}
+
+/**
+ * An [AnimationStore] on a Firebase transaction. Firebase runs the transform against its cached
+ * value first and again against the server's value whenever they differ, so only one of several
+ * devices racing for the lease commits.
+ */
+internal class FirebaseAnimationStore(private val animationRef: DatabaseReference) : AnimationStore {
+
+    override fun update(
+        transform: (MarkersViewModel.AnimationState) -> MarkersViewModel.AnimationState?,
+        onComplete: (committed: Boolean, state: MarkersViewModel.AnimationState) -> Unit
+    ) {
+        animationRef.runTransaction(object : Transaction.Handler {
+            override fun doTransaction(currentData: MutableData): Transaction.Result {
+                val current = currentData.getValue(MarkersViewModel.AnimationState::class.java)
+                    ?: MarkersViewModel.AnimationState()
+                val next = transform(current) ?: return Transaction.abort()
+                currentData.value = next.toMap()
+                return Transaction.success(currentData)
+            }
+
+            override fun onComplete(error: DatabaseError?, committed: Boolean, currentData: DataSnapshot?) {
+                if (error != null) {
+                    Log.w(TAG, "Animation transaction failed: ${error.message}")
+                }
+                val state = currentData?.getValue(MarkersViewModel.AnimationState::class.java)
+                    ?: MarkersViewModel.AnimationState()
+                onComplete(committed && error == null, state)
+            }
+        })
+    }
+
+    private companion object {
+        const val TAG = "AnimationStore"
+    }
+}
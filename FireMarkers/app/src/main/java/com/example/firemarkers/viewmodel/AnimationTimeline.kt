@@ -0,0 +1,64 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.example.firemarkers.viewmodel
+
+/**
+ * Computes where a server-clock animation is at a given server time.
+ *
+ * The animation bounces forever: it goes from 0.0 to 1.0 in [MarkersViewModel.AnimationState.duration]
+ * milliseconds, holds for [MarkersViewModel.AnimationState.pause] milliseconds, comes back the same
+ * way and holds again. A running state records where the animation was (`fraction` and
+ * `direction`) at `startTime`. Every device can therefore compute the same position from the
+ * server clock alone, and the controller only writes when the animation starts or stops.
+ */
+internal object AnimationTimeline {
+
+    /**
+     * A point on the timeline.
+     *
+     * @property fraction The progress from the start shape (0.0) to the end shape (1.0).
+     * @property direction The direction of the next movement, 1.0 or -1.0.
+     */
+    data class Position(val fraction: Double, val direction: Double)
+
+    /**
+     * The position of [state] at [serverTimeMillis]. A paused state, or one without a start time,
+     * stays where it is.
+     */
+    fun positionAt(state: MarkersViewModel.AnimationState, serverTimeMillis: Long): Position {
+        if (!state.running || state.startTime <= 0L || state.duration <= 0L) {
+            return Position(state.fraction, state.direction)
+        }
+        val leg = state.duration.toDouble()
+        val hold = state.pause.coerceAtLeast(0L).toDouble()
+        val cycle = 2 * (leg + hold)
+
+        // The cycle runs: up, hold at 1.0, down, hold at 0.0.
+        val startPhase = if (state.direction > 0) {
+            state.fraction * leg
+        } else {
+            leg + hold + (1 - state.fraction) * leg
+        }
+        // A start time stamped slightly ahead of this device's view of the server clock is "now".
+        val elapsed = (serverTimeMillis - state.startTime).coerceAtLeast(0L)
+        val phase = (startPhase + elapsed) % cycle
+
+        return when {
+            phase < leg -> Position(phase / leg, 1.0)
+            phase < leg + hold -> Position(1.0, -1.0)
+            phase < 2 * leg + hold -> Position(1 - (phase - leg - hold) / leg, -1.0)
+            else -> Position(0.0, 1.0)
+        }
+    }
+}
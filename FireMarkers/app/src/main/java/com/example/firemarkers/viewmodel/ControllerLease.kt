@@ -0,0 +1,208 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.example.firemarkers.viewmodel
+
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.isActive
+import kotlinx.coroutines.launch
+
+/**
+ * Elects the controller of the shared animation, one device at a time.
+ *
+ * The controller holds a lease stored with the animation state: its `controllerId`, a
+ * `fencingToken` and the server time at which the lease expires, `leaseExpiresAt`.
+ *
+ * - **Election:** [acquire] is a transaction. It succeeds when nobody holds the lease, the lease
+ *   has expired, or `force` is set (the user tapped "take control"). Every change of holder
+ *   increments the fencing token, so when several devices race, exactly one commits.
+ * - **Heartbeat:** the device that acquired the lease renews it every [heartbeatMillis], well
+ *   within [leaseMillis].
+ * - **Fencing:** [write] only commits while the stored `controllerId` and `fencingToken` are still
+ *   this device's. A controller that lost the lease, for example because another device forced a
+ *   takeover while it was offline, has its writes rejected instead of fighting the new controller.
+ * - **Failover:** every other device watches the lease through [onStateChanged]. When the
+ *   controller stops renewing it (it crashed, lost its connection or was closed), the first device
+ *   to notice the expiry takes over, within [leaseMillis] plus [FAILOVER_GRACE_MILLIS] of the last
+ *   heartbeat.
+ *
+ * All methods must be called on the main thread.
+ *
+ * @param store Where the animation state and its lease are stored.
+ * @param clientId This device's ID, written as the `controllerId`.
+ * @param clock The server time in milliseconds; see [com.example.firemarkers.data.ServerClock].
+ * @param scope Runs the heartbeat and the failover timer.
+ */
+internal class ControllerLease(
+    private val store: AnimationStore,
+    private val clientId: String,
+    private val clock: () -> Long,
+    private val scope: CoroutineScope,
+    private val leaseMillis: Long = LEASE_MILLIS,
+    private val heartbeatMillis: Long = HEARTBEAT_MILLIS
+) {
+    private var token = NO_TOKEN
+    private var heartbeatJob: Job? = null
+    private var failoverJob: Job? = null
+
+    /** True while this device is the controller, as far as it knows. */
+    val isHeld: Boolean
+        get() = token != NO_TOKEN
+
+    /** Called when a write is rejected because another device holds the lease. */
+    var onLost: () -> Unit = {}
+
+    /**
+     * Makes this device the controller, applying [update] to the state in the same transaction.
+     *
+     * @param force Takes the lease even from a live controller.
+     * @param onResult Called with whether this device now holds the lease.
+     */
+    fun acquire(
+        force: Boolean,
+        update: (MarkersViewModel.AnimationState) -> MarkersViewModel.AnimationState = { it },
+        onResult: (Boolean) -> Unit = {}
+    ) {
+        store.update(
+            transform = { current ->
+                val now = clock()
+                val holder = current.controllerId
+                val free = holder.isEmpty() || holder == clientId ||
+                    current.leaseExpiresAt in 1..now
+                if (!force && !free) {
+                    null
+                } else {
+                    update(current).copy(
+                        controllerId = clientId,
+                        fencingToken = if (holder == clientId) {
+                            current.fencingToken
+                        } else {
+                            current.fencingToken + 1
+                        },
+                        leaseExpiresAt = now + leaseMillis,
+                        timestamp = now
+                    )
+                }
+            },
+            onComplete = { committed, state ->
+                if (committed) {
+                    hold(state.fencingToken)
+                    startHeartbeat()
+                }
+                onResult(committed)
+            }
+        )
+    }
+
+    /**
+     * Applies [update] to the state if this device still holds the lease, and renews the lease.
+     *
+     * @param onResult Called with whether the write was committed.
+     */
+    fun write(
+        update: (MarkersViewModel.AnimationState) -> MarkersViewModel.AnimationState,
+        onResult: (Boolean) -> Unit = {}
+    ) {
+        val fence = token
+        if (fence == NO_TOKEN) {
+            onResult(false)
+            return
+        }
+        store.update(
+            transform = { current ->
+                if (current.controllerId != clientId || current.fencingToken != fence) {
+                    null
+                } else {
+                    val now = clock()
+                    update(current).copy(
+                        controllerId = clientId,
+                        fencingToken = fence,
+                        leaseExpiresAt = now + leaseMillis,
+                        timestamp = now
+                    )
+                }
+            },
+            onComplete = { committed, state ->
+                if (!committed && (state.controllerId != clientId || state.fencingToken != fence)) {
+                    lose()
+                }
+                onResult(committed)
+            }
+        )
+    }
+
+    /**
+     * Tells the lease what the stored state is now. Call this for every state Firebase delivers.
+     */
+    fun onStateChanged(state: MarkersViewModel.AnimationState) {
+        failoverJob?.cancel()
+        failoverJob = null
+        if (state.controllerId == clientId) {
+            hold(state.fencingToken)
+            return
+        }
+        if (isHeld) {
+            lose()
+        }
+        // A state without a lease predates leases; only an explicit takeover replaces it.
+        if (state.controllerId.isEmpty() || state.leaseExpiresAt <= 0L) {
+            return
+        }
+        failoverJob = scope.launch {
+            delay((state.leaseExpiresAt - clock()).coerceAtLeast(0L) + FAILOVER_GRACE_MILLIS)
+            acquire(force = false)
+        }
+    }
+
+    /** Stops the heartbeat and the failover timer, without giving the lease up. */
+    fun close() {
+        heartbeatJob?.cancel()
+        failoverJob?.cancel()
+    }
+
+    private fun hold(fencingToken: Long) {
+        token = fencingToken
+    }
+
+    private fun lose() {
+        token = NO_TOKEN
+        heartbeatJob?.cancel()
+        heartbeatJob = null
+        onLost()
+    }
+
+    private fun startHeartbeat() {
+        if (heartbeatJob?.isActive == true) return
+        heartbeatJob = scope.launch {
+            while (isActive && isHeld) {
+                delay(heartbeatMillis)
+                write({ it })
+            }
+        }
+    }
+
+    companion object {
+        /** How long a lease lasts without a heartbeat. */
+        const val LEASE_MILLIS = 6_000L
+
+        /** How often the controller renews its lease: three chances before it expires. */
+        const val HEARTBEAT_MILLIS = 2_000L
+
+        /** Leaves room for clock skew between devices before taking over an expired lease. */
+        const val FAILOVER_GRACE_MILLIS = 250L
+
+        private const val NO_TOKEN = -1L
+    }
+}
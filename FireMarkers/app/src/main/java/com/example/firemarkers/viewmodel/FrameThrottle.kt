@@ -0,0 +1,38 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.example.firemarkers.viewmodel
+
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.conflate
+import kotlinx.coroutines.flow.transform
+
+/** One frame of a 60 Hz display, assumed until the display's refresh rate is known. */
+internal const val FRAME_MILLIS = 16L
+
+/** One frame of a display refreshing [refreshRate] times a second, or [FRAME_MILLIS] if unknown. */
+internal fun frameMillis(refreshRate: Float): Long =
+    if (refreshRate > 0f) (1000f / refreshRate).toLong().coerceAtLeast(1L) else FRAME_MILLIS
+
+/**
+ * Emits the first value at once, then at most one value every [periodMillis]: the latest one,
+ * dropping those that arrived in between. The last value is always emitted. Nothing runs while the
+ * upstream is quiet. The period is read again after every emission, so it can follow the display.
+ */
+internal fun <T> Flow<T>.throttleLatest(periodMillis: () -> Long): Flow<T> =
+    // conflate() keeps only the latest value while the delay holds the collector back.
+    conflate().transform { value ->
+        emit(value)
+        delay(periodMillis())
+    }
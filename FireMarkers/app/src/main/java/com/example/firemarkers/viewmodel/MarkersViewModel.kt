@@ -17,16 +17,19 @@ import android.util.Log
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
 import com.example.firemarkers.data.FirebaseConnection
+import com.example.firemarkers.data.MarkerCache
+import com.example.firemarkers.data.MarkerSync
+import com.example.firemarkers.data.ServerClock
 import com.example.firemarkers.data.ShapeData
 import com.example.firemarkers.data.ShapePoint
 import com.example.firemarkers.model.MarkerData
 import com.google.android.gms.maps.model.LatLng
 import com.google.firebase.database.DataSnapshot
 import com.google.firebase.database.DatabaseError
-import com.google.firebase.database.ServerValue
 import com.google.firebase.database.ValueEventListener
-import com.google.maps.android.ktx.utils.withSphericalLinearInterpolation
 import dagger.hilt.android.lifecycle.HiltViewModel
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.Job
 import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.MutableStateFlow
@@ -35,6 +38,8 @@ import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.MutableSharedFlow
 import kotlinx.coroutines.flow.asSharedFlow
 import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.conflate
+import kotlinx.coroutines.flow.flowOn
 import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.flow.stateIn
 import kotlinx.coroutines.isActive
@@ -66,10 +71,9 @@ import kotlin.time.Duration.Companion.milliseconds
  *
  * A key concept is the **controller/agent** model. At any given time, only one device acts as the
  * "controller." This device is responsible for:
- * 1.  Running the animation loop (`startAnimationDriver`).
- * 2.  Calculating the animation's progress (`fraction`).
- * 3.  Writing the updated animation state to the `/animation` node in Firebase.
- * 4.  Seeding the initial marker data or clearing all markers.
+ * 1.  Starting and pausing the animation.
+ * 2.  Writing the animation state to the `/animation` node in Firebase.
+ * 3.  Seeding the initial marker data or clearing all markers.
  *
  * All other connected devices act as "agents." They passively listen for changes to the `/animation`
  * node and update their UI accordingly. A device can become the controller by calling `takeControl()`.
@@ -77,49 +81,130 @@ import kotlin.time.Duration.Companion.milliseconds
  * The shared state, including whether the animation is running, its progress, and the current
  * controller's ID, is stored in the `AnimationState` data class and persisted in Firebase.
  *
+ * The controller holds a [ControllerLease]: every write to `/animation` is a transaction that only
+ * commits while this device's lease and fencing token are still the stored ones, the controller
+ * renews the lease with a heartbeat, and if it stops (a crash, a lost connection) another device
+ * takes over once the lease expires. Two devices can therefore never drive the animation at once.
+ *
+ * ### Animation modes
+ *
+ * In the default [MODE_SERVER_CLOCK] mode the controller only writes the animation when it starts
+ * or pauses: the server time it started at and where it was then. Its lease heartbeat is the only
+ * other write. Every device, the controller included, computes the current `fraction` locally
+ * with [AnimationTimeline] from the [ServerClock], once per display frame (see [onFrame]).
+ * Database traffic no longer depends on the frame rate, and network latency only shifts when a
+ * start or pause is seen, not how smooth the animation looks.
+ *
+ * In the [MODE_TICKS] mode the controller runs an animation loop (`startAnimationDriver`) that
+ * writes the whole state to Firebase every [ANIMATION_DELAY], and agents render each write.
+ *
  * ### State Management and Data Flow
  *
  * This ViewModel uses `StateFlow` to expose data to the Compose UI in a reactive way.
- * - **`_markers`**: A private `MutableStateFlow` holding the raw list of `MarkerData` fetched
- *   from the `/markers` node in Firebase.
- * - **`_animationStateDB`**: A private `MutableStateFlow` that mirrors the state of the `/animation`
- *   node in Firebase.
+ * - **`markerSync`**: A [MarkerSync] that mirrors the `/markers` node in Firebase from child
+ *   events, so a changed marker only costs that marker, and whose lists keep the `MarkerData` of
+ *   every unchanged marker. It starts from the markers in the [MarkerCache], so the map is not
+ *   empty while Firebase connects.
+ * - **`_animationStateDB`**: A private `MutableStateFlow` that mirrors the state of the
+ *   `/animation` node in Firebase.
  * - **`markers`**: A public `StateFlow` that is the main output for the UI. It's created by using
- *   the `combine` operator on `_markers` and `_animationStateDB`. For each emission, it calculates
- *   the new interpolated geographic coordinates and colors for every marker based on the current
- *   animation `fraction`, ensuring a smooth visual transition.
+ *   the `combine` operator on `markerSync.markers`, `_animationStateDB` and the display frames.
+ *   For each emission, it calculates the new interpolated geographic coordinates and colors for
+ *   every marker based on the current animation `fraction`, ensuring a smooth visual transition.
+ *   The great-circle parameters of every shape point are precomputed once by
+ *   [ShapeInterpolator], and [InterpolatedMarkers] only replaces the markers that visibly moved,
+ *   so the UI, which keys each marker by its ID, only recomposes those. Inputs are throttled to
+ *   one per display frame before anything is computed, and the interpolation runs on
+ *   `Dispatchers.Default`, not on the main thread.
  * - **`isController`**, **`animationRunning`**, **`hasMarkers`**: These are simple `StateFlow`s
  *   derived from the primary state flows to control UI elements like buttons and icons.
  *
  * @param firebaseConnection The Hilt-injected provider for the Firebase Realtime Database instance.
+ * @param serverClock The Firebase server clock, which the server-clock animation mode runs on.
+ * @param animationStore Where every write to the `/animation` node goes, as a transaction.
+ * @param markerCache The markers of the last run, shown before Firebase delivers any.
+ * @param renderDispatcher Computes [markers].
  */
 @HiltViewModel
-class MarkersViewModel @Inject constructor(
-    private val firebaseConnection: FirebaseConnection
+class MarkersViewModel internal constructor(
+    private val firebaseConnection: FirebaseConnection,
+    private val serverClock: ServerClock,
+    animationStore: AnimationStore,
+    markerCache: MarkerCache? = null,
+    renderDispatcher: CoroutineDispatcher = Dispatchers.Default
 ) : ViewModel() {
 
+    @Inject
+    constructor(
+        firebaseConnection: FirebaseConnection,
+        serverClock: ServerClock,
+        markerCache: MarkerCache
+    ) : this(
+        firebaseConnection,
+        serverClock,
+        FirebaseAnimationStore(firebaseConnection.database.getReference("animation")),
+        markerCache
+    )
+
     internal val viewModelId = UUID.randomUUID().toString().substring(0, 4)
-    private val _markers = MutableStateFlow<List<MarkerData>>(emptyList())
+
+    /** Elects this device as the controller, and fences its writes once it no longer is. */
+    private val lease = ControllerLease(animationStore, viewModelId, serverClock::now, viewModelScope)
+    private val markerSync = MarkerSync(
+        firebaseConnection.database.getReference("markers"),
+        firebaseConnection.database.getReference(".info/connected"),
+        viewModelScope,
+        markerCache
+    ) { error -> handleDatabaseError(error, "markers") }
     private val _animationStateDB = MutableStateFlow(AnimationState())
     private var animationJob: Job? = null
 
+    /**
+     * The mode this device writes when it seeds, clears or takes control; agents follow whatever
+     * mode the controller wrote.
+     */
+    internal var animationMode = MODE_SERVER_CLOCK
+
+    /** Counts display frames while a server-clock animation runs, to recompute [markers]. */
+    private val _frames = MutableStateFlow(0L)
+
+    /** One display frame, set by [setDisplayRefreshRate]; read on [renderDispatcher]. */
+    @Volatile
+    private var frameMillis = FRAME_MILLIS
+
+    /**
+     * This ViewModel's output buffers over the shared [Shape.interpolator] tables. Only used by
+     * the [markers] pipeline, one frame at a time.
+     */
+    private val interpolatedMarkers = InterpolatedMarkers(Shape.interpolator)
+
     private val _errorEvents = MutableSharedFlow<String>()
     val errorEvents = _errorEvents.asSharedFlow()
 
     val markers: StateFlow<List<MarkerData>> = combine(
-        _markers,
-        _animationStateDB
-    ) { markers, animState ->
-        if (markers.isEmpty()) {
-            markers
-        } else {
-            updateMarkers(markers, animState.fraction)
+        markerSync.markers,
+        _animationStateDB,
+        _frames
+    ) { markers, animState, _ ->
+        RenderInput(markers, animState)
+    }
+        // However fast Firebase delivers, compute at most one list per frame, from the latest input.
+        .throttleLatest { frameMillis }
+        .map { (markers, animState) ->
+            if (markers.isEmpty()) {
+                markers
+            } else {
+                updateMarkers(markers, currentPosition(animState).fraction)
+            }
         }
-    }.stateIn(
-        scope = viewModelScope,
-        started = SharingStarted.WhileSubscribed(5000),
-        initialValue = emptyList()
-    )
+        .flowOn(renderDispatcher)
+        // Only the newest list is worth handing to the main thread.
+        .conflate()
+        .stateIn(
+            scope = viewModelScope,
+            started = SharingStarted.WhileSubscribed(5000),
+            initialValue = emptyList()
+        )
 
     val animationRunning: StateFlow<Boolean> = _animationStateDB.map { it.running }.stateIn(
         scope = viewModelScope,
@@ -127,7 +212,7 @@ class MarkersViewModel @Inject constructor(
         initialValue = false
     )
 
-    val hasMarkers: StateFlow<Boolean> = _markers.map { it.isNotEmpty() }.stateIn(
+    val hasMarkers: StateFlow<Boolean> = markerSync.markers.map { it.isNotEmpty() }.stateIn(
         scope = viewModelScope,
         started = SharingStarted.WhileSubscribed(5000),
         initialValue = false
@@ -141,34 +226,27 @@ class MarkersViewModel @Inject constructor(
 
     init {
         Log.d(TAG, "[$viewModelId] ViewModel initialized.")
-        listenForMarkerUpdates()
+        lease.onLost = {
+            Log.w(TAG, "[$viewModelId] Lost control to another device.")
+            animationJob?.cancel()
+            animationJob = null
+        }
+        markerSync.start()
         listenForAnimationState()
     }
 
-    private fun listenForMarkerUpdates() {
-        firebaseConnection.database.getReference("markers")
-            .addValueEventListener(object : ValueEventListener {
-                override fun onDataChange(snapshot: DataSnapshot) {
-                    val markerList = snapshot.children.mapNotNull { it.getValue(MarkerData::class.java) }
-                    _markers.value = markerList
-                }
-
-                override fun onCancelled(error: DatabaseError) {
-                    handleDatabaseError(error, "markers")
-                }
-            })
-    }
-
     private fun listenForAnimationState() {
         firebaseConnection.database.getReference("animation")
             .addValueEventListener(object : ValueEventListener {
                 override fun onDataChange(snapshot: DataSnapshot) {
                     val animState = snapshot.getValue(AnimationState::class.java) ?: AnimationState()
                     _animationStateDB.value = animState
+                    lease.onStateChanged(animState)
                     Log.d(TAG, "[$viewModelId] DB anim state received: $animState")
 
-
-                    val shouldDrive = animState.controllerId == viewModelId && animState.running
+                    // Server-clock animations need no driver: every device computes them.
+                    val shouldDrive = animState.controllerId == viewModelId && animState.running &&
+                        animState.mode == MODE_TICKS
                     val isDriving = animationJob?.isActive == true
 
                     Log.d(TAG, "[$viewModelId] Evaluating driver state: shouldDrive=$shouldDrive, isDriving=$isDriving")
@@ -189,6 +267,11 @@ class MarkersViewModel @Inject constructor(
             })
     }
 
+    override fun onCleared() {
+        markerSync.stop()
+        lease.close()
+    }
+
     private fun handleDatabaseError(error: DatabaseError, context: String) {
         val msg = if (error.code == DatabaseError.PERMISSION_DENIED) {
             "Permission Denied ($context): Check your Firebase Database Rules."
@@ -201,13 +284,58 @@ class MarkersViewModel @Inject constructor(
         }
     }
 
+    /**
+     * Throttles [markers] to one list per frame of a display refreshing [refreshRate] times a
+     * second, from `Display.getRefreshRate()`. Until it is called a 60 Hz display is assumed.
+     */
+    fun setDisplayRefreshRate(refreshRate: Float) {
+        frameMillis = frameMillis(refreshRate)
+    }
+
+    /**
+     * Recomputes [markers] for the current server time. Call this once per display frame while
+     * [animationRunning] is true, for example from `withFrameMillis`. It does nothing unless the
+     * animation runs in [MODE_SERVER_CLOCK] mode.
+     */
+    fun onFrame() {
+        val animState = _animationStateDB.value
+        if (animState.running && animState.mode == MODE_SERVER_CLOCK) {
+            _frames.value++
+        }
+    }
+
+    /**
+     * Where the animation is now: computed from the server clock in [MODE_SERVER_CLOCK] mode, or
+     * the last written state in [MODE_TICKS] mode.
+     */
+    private fun currentPosition(animState: AnimationState): AnimationTimeline.Position {
+        return if (animState.mode == MODE_SERVER_CLOCK) {
+            AnimationTimeline.positionAt(animState, serverClock.now())
+        } else {
+            AnimationTimeline.Position(animState.fraction, animState.direction)
+        }
+    }
+
+    /**
+     * Returns [animState] paused where it is now, so every device stops on the same frame.
+     */
+    private fun paused(animState: AnimationState): AnimationState {
+        val position = currentPosition(animState)
+        return animState.copy(
+            running = false,
+            fraction = position.fraction,
+            direction = position.direction
+        )
+    }
+
     /**
      * Toggles the animation state (running/paused) in Firebase.
      *
      * This action is only permitted if the current ViewModel instance is the designated controller.
      * If a non-controller attempts to toggle the animation, the action is ignored.
      * The updated animation state is written to the `/animation` node in Firebase, which
-     * then propagates to all connected clients.
+     * then propagates to all connected clients. In [MODE_SERVER_CLOCK] mode, starting stamps the
+     * server time as the new start time and pausing records the current position.
      */
     fun toggleAnimation() {
         if (_animationStateDB.value.controllerId != viewModelId) {
@@ -215,11 +343,16 @@ class MarkersViewModel @Inject constructor(
             return
         }
 
-        val animRef = firebaseConnection.database.getReference("animation")
-        val currentState = _animationStateDB.value
-        val newState = currentState.copy(running = !currentState.running)
-        Log.d(TAG, "[$viewModelId] toggleAnimation: Writing new state to DB: $newState")
-        animRef.setValue(newState.toMap())
+        Log.d(TAG, "[$viewModelId] toggleAnimation: Writing new state to DB.")
+        lease.write({ currentState ->
+            if (currentState.running) {
+                paused(currentState)
+            } else {
+                currentState.copy(running = true, startTime = serverClock.now())
+            }
+        }) { committed ->
+            if (!committed) Log.w(TAG, "[$viewModelId] toggleAnimation rejected: not the controller.")
+        }
     }
 
     /**
@@ -227,18 +360,12 @@ class MarkersViewModel @Inject constructor(
      *
      * This updates the `controllerId` in the `/animation` node in Firebase to this ViewModel's
      * unique ID. When successful, this instance will become responsible for driving the animation.
-     * The animation is automatically paused when control is taken.
+     * The animation is automatically paused when control is taken. Taking control is explicit, so
+     * it takes the lease even from a live controller, whose later writes are then rejected.
      */
     fun takeControl() {
         Log.d(TAG, "[$viewModelId] takeControl: Attempting to become controller.")
-        val animRef = firebaseConnection.database.getReference("animation")
-        val currentState = _animationStateDB.value
-        val newState = currentState.copy(
-            controllerId = viewModelId,
-            running = false
-        )
-        Log.d(TAG, "[$viewModelId] takeControl: Writing new state to DB: $newState")
-        animRef.setValue(newState.toMap())
+        lease.acquire(force = true, update = { paused(it).copy(mode = animationMode) })
     }
 
     private fun startAnimationDriver() {
@@ -248,8 +375,6 @@ class MarkersViewModel @Inject constructor(
             Log.d(TAG, "[$viewModelId] Animation driver started with initial state: $loopState")
 
             while (isActive) {
-                val animRef = firebaseConnection.database.getReference("animation")
-
                 var nextFraction = loopState.fraction + loopState.direction * ANIMATION_STEP_SIZE
                 var nextDirection = loopState.direction
 
@@ -263,7 +388,9 @@ class MarkersViewModel @Inject constructor(
                     direction = nextDirection
                 )
                 Log.d(TAG, "[$viewModelId] Driver loop tick: Writing new state to DB: $loopState")
-                animRef.setValue(loopState.toMap())
+                val tick = loopState
+                // A stale controller's tick is rejected, and lease.onLost stops this loop.
+                lease.write({ it.copy(fraction = tick.fraction, direction = tick.direction) })
 
                 if (nextFraction >= 1.0 || nextFraction <= 0.0) {
                     delay(PAUSE_DURATION)
@@ -274,20 +401,17 @@ class MarkersViewModel @Inject constructor(
         }
     }
 
+    /** What one frame of [markers] is computed from. */
+    private data class RenderInput(val markers: List<MarkerData>, val animState: AnimationState)
+
+    /**
+     * Moves [markers] to [fraction]. Markers that did not visibly change keep their previous
+     * [MarkerData], and when none changed the previous list is returned, so [markers] does not
+     * emit again.
+     */
     private fun updateMarkers(markers: List<MarkerData>, fraction: Double): List<MarkerData> {
-        val newLocations = Shape.locationPairs.map { (startPoint, endPoint) ->
-            startPoint.withSphericalLinearInterpolation(endPoint, fraction)
-        }
-        val colors = Shape.colorPairs.map { (a, b) -> a + (b - a) * fraction }
-
-        return markers.mapIndexed { index, marker ->
-            marker.copy(
-                latitude = newLocations[index].latitude,
-                longitude = newLocations[index].longitude,
-                label = if (fraction > 0.5) Shape.Tree.label else Shape.JackOLantern.label,
-                color = colors[index].toFloat()
-            )
-        }
+        val label = if (fraction > 0.5) Shape.Tree.label else Shape.JackOLantern.label
+        return interpolatedMarkers.update(markers, fraction, label)
     }
 
     /**
@@ -307,9 +431,18 @@ class MarkersViewModel @Inject constructor(
             return
         }
         Log.d(TAG, "[$viewModelId] Seeding database as controller.")
-        val animState = AnimationState(controllerId = viewModelId)
-        firebaseConnection.database.getReference("animation").setValue(animState.toMap())
+        lease.acquire(force = false, update = { AnimationState(mode = animationMode) }) { acquired ->
+            if (acquired) {
+                writeSeedMarkers()
+            } else {
+                Log.w(TAG, "[$viewModelId] Another device took control before seeding.")
+            }
+        }
+    }
+
+    private fun writeSeedMarkers() {
         viewModelScope.launch {
+            // Push keys sort in the order they are generated, which keeps the shape's order.
             val databaseReference = firebaseConnection.database.getReference("markers")
             val markersToSeed = Shape.JackOLantern.shapeData.map { shapePoint ->
                 val markerId = databaseReference.push().key ?: ""
@@ -322,7 +455,7 @@ class MarkersViewModel @Inject constructor(
                     color = shapePoint.color
                 )
             }
-            databaseReference.setValue(markersToSeed)
+            markerSync.replaceAll(markersToSeed)
         }
     }
 
@@ -339,8 +472,13 @@ class MarkersViewModel @Inject constructor(
             return
         }
         Log.d(TAG, "[$viewModelId] Clearing markers as controller.")
-        firebaseConnection.database.getReference("animation").setValue(AnimationState(controllerId = viewModelId))
-        firebaseConnection.database.getReference("markers").removeValue()
+        lease.acquire(force = false, update = { AnimationState(mode = animationMode) }) { acquired ->
+            if (acquired) {
+                firebaseConnection.database.getReference("markers").removeValue()
+            } else {
+                Log.w(TAG, "[$viewModelId] Another device took control before clearing.")
+            }
+        }
     }
 
     /**
@@ -356,19 +494,35 @@ class MarkersViewModel @Inject constructor(
      * @property fraction The current progress of the animation, from 0.0 (start shape) to 1.0 (end shape).
      * @property direction The current direction of the animation (-1.0 or 1.0).
      * @property controllerId The unique ID of the ViewModel instance currently driving the animation.
-     * @property timestamp The server-side timestamp of the last state update.
+     * @property timestamp The server time of the last state update.
+     * @property mode How the animation advances, [MODE_SERVER_CLOCK] or [MODE_TICKS].
+     * @property startTime In [MODE_SERVER_CLOCK] mode, the server time at which a running animation
+     *                     was at `fraction`, moving in `direction`.
+     * @property duration In [MODE_SERVER_CLOCK] mode, the milliseconds from one shape to the other.
+     * @property pause In [MODE_SERVER_CLOCK] mode, the milliseconds to hold each shape.
+     * @property fencingToken Incremented whenever the controller changes; writes carrying an older
+     *                        token are rejected.
+     * @property leaseExpiresAt The server time at which the controller's lease expires, or 0 for
+     *                          a state written before leases existed.
      */
     internal data class AnimationState(
         val running: Boolean = false,
         val fraction: Double = 0.0,
         val direction: Double = 1.0,
         val controllerId: String = "",
-        val timestamp: Long = 0
+        val timestamp: Long = 0,
+        val mode: String = MODE_SERVER_CLOCK,
+        val startTime: Long = 0,
+        val duration: Long = TRANSITION_DURATION.inWholeMilliseconds,
+        val pause: Long = PAUSE_DURATION.inWholeMilliseconds,
+        val fencingToken: Long = 0,
+        val leaseExpiresAt: Long = 0
     ) {
         /**
          * Converts this object to a Map for writing to Firebase.
-         * This is necessary to include the `ServerValue.TIMESTAMP`, which allows Firebase
-         * to write a consistent, server-side timestamp for when the update occurred.
+         * Every time in it comes from the [ServerClock]: transactions cannot rely on
+         * `ServerValue.TIMESTAMP`, because the lease checks compare times while the transaction
+         * runs.
          */
         fun toMap(): Map<String, Any> {
             return mapOf(
@@ -376,7 +530,13 @@ class MarkersViewModel @Inject constructor(
                 "fraction" to fraction,
                 "direction" to direction,
                 "controllerId" to controllerId,
-                "timestamp" to ServerValue.TIMESTAMP
+                "timestamp" to timestamp,
+                "mode" to mode,
+                "startTime" to startTime,
+                "duration" to duration,
+                "pause" to pause,
+                "fencingToken" to fencingToken,
+                "leaseExpiresAt" to leaseExpiresAt
             )
         }
     }
@@ -391,8 +551,10 @@ class MarkersViewModel @Inject constructor(
         data object JackOLantern : Shape(ShapeData.jackOLanternShape, "Pumpkin")
 
         companion object {
-            val locationPairs by lazy { JackOLantern.locations.zip(Tree.locations) }
-            val colorPairs by lazy { JackOLantern.colors.zip(Tree.colors) }
+            /** The great-circle tables from the pumpkin to the tree, computed once. */
+            val interpolator by lazy {
+                ShapeInterpolator(JackOLantern.locations, Tree.locations, JackOLantern.colors, Tree.colors)
+            }
         }
     }
 
@@ -402,6 +564,15 @@ class MarkersViewModel @Inject constructor(
         private val ANIMATION_DELAY = 100.milliseconds
         private val PAUSE_DURATION = 1000.milliseconds
         private const val ANIMATION_STEP_SIZE = 0.05
+
+        /** The time one shape takes to turn into the other, as in [MODE_TICKS] mode. */
+        private val TRANSITION_DURATION = ANIMATION_DELAY * (1 / ANIMATION_STEP_SIZE)
+
+        /** Every device computes the animation from a start time on the server clock. */
+        internal const val MODE_SERVER_CLOCK = "serverClock"
+
+        /** The controller writes the animation state to Firebase on every tick. */
+        internal const val MODE_TICKS = "ticks"
     }
 }
 
@@ -0,0 +1,221 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.example.firemarkers.viewmodel
+
+import com.example.firemarkers.model.MarkerData
+import com.google.android.gms.maps.model.LatLng
+import kotlin.math.abs
+import kotlin.math.atan2
+import kotlin.math.cos
+import kotlin.math.sin
+import kotlin.math.sqrt
+
+/**
+ * Interpolates every point of one shape towards the matching point of another along great
+ * circles, like `withSphericalLinearInterpolation`, and blends their colors.
+ *
+ * Everything that does not depend on the fraction (the unit vectors of both ends, the angle
+ * between them) is computed once, here, into primitive arrays. [evaluate] then only needs two
+ * sines and two arc tangents per point, and writes into arrays the caller owns, so an animation
+ * frame allocates nothing. The tables never change after construction, so one instance can be
+ * shared by every ViewModel.
+ */
+internal class ShapeInterpolator(
+    from: List<LatLng>,
+    to: List<LatLng>,
+    fromColors: List<Float>,
+    toColors: List<Float>
+) {
+    /** The number of points in the shorter shape. */
+    val size = minOf(from.size, to.size, fromColors.size, toColors.size)
+
+    private val fromX = DoubleArray(size)
+    private val fromY = DoubleArray(size)
+    private val fromZ = DoubleArray(size)
+    private val toX = DoubleArray(size)
+    private val toY = DoubleArray(size)
+    private val toZ = DoubleArray(size)
+
+    /** The angle between both ends, or 0 where they are too close for a stable slerp. */
+    private val angle = DoubleArray(size)
+    private val inverseSinAngle = DoubleArray(size)
+
+    // Points with no angle fall back to a linear interpolation of the degrees, as SphericalUtil does.
+    private val fromLatitude = DoubleArray(size)
+    private val fromLongitude = DoubleArray(size)
+    private val deltaLatitude = DoubleArray(size)
+    private val deltaLongitude = DoubleArray(size)
+
+    private val fromColor = FloatArray(size)
+    private val deltaColor = FloatArray(size)
+
+    init {
+        for (i in 0 until size) {
+            val a = from[i]
+            val b = to[i]
+            val fromLat = Math.toRadians(a.latitude)
+            val fromLng = Math.toRadians(a.longitude)
+            val toLat = Math.toRadians(b.latitude)
+            val toLng = Math.toRadians(b.longitude)
+            fromX[i] = cos(fromLat) * cos(fromLng)
+            fromY[i] = cos(fromLat) * sin(fromLng)
+            fromZ[i] = sin(fromLat)
+            toX[i] = cos(toLat) * cos(toLng)
+            toY[i] = cos(toLat) * sin(toLng)
+            toZ[i] = sin(toLat)
+
+            // The haversine form of the angle, which stays accurate for nearby points.
+            val sinHalfLat = sin((fromLat - toLat) / 2)
+            val sinHalfLng = sin((fromLng - toLng) / 2)
+            val h = sinHalfLat * sinHalfLat + cos(fromLat) * cos(toLat) * sinHalfLng * sinHalfLng
+            val pointAngle = 2 * Math.asin(sqrt(h))
+            val sinAngle = sin(pointAngle)
+            if (sinAngle >= MIN_SIN_ANGLE) {
+                angle[i] = pointAngle
+                inverseSinAngle[i] = 1 / sinAngle
+            }
+
+            fromLatitude[i] = a.latitude
+            fromLongitude[i] = a.longitude
+            deltaLatitude[i] = b.latitude - a.latitude
+            deltaLongitude[i] = b.longitude - a.longitude
+
+            fromColor[i] = fromColors[i]
+            deltaColor[i] = toColors[i] - fromColors[i]
+        }
+    }
+
+    /**
+     * Writes the position and color of every point at [fraction] into the given arrays, each of
+     * which must hold at least [size] values.
+     */
+    fun evaluate(
+        fraction: Double,
+        latitudes: DoubleArray,
+        longitudes: DoubleArray,
+        colors: FloatArray
+    ) {
+        for (i in 0 until size) {
+            val pointAngle = angle[i]
+            if (pointAngle == 0.0) {
+                latitudes[i] = fromLatitude[i] + fraction * deltaLatitude[i]
+                longitudes[i] = fromLongitude[i] + fraction * deltaLongitude[i]
+            } else {
+                val a = sin((1 - fraction) * pointAngle) * inverseSinAngle[i]
+                val b = sin(fraction * pointAngle) * inverseSinAngle[i]
+                val x = a * fromX[i] + b * toX[i]
+                val y = a * fromY[i] + b * toY[i]
+                val z = a * fromZ[i] + b * toZ[i]
+                latitudes[i] = Math.toDegrees(atan2(z, sqrt(x * x + y * y)))
+                longitudes[i] = Math.toDegrees(atan2(y, x))
+            }
+            colors[i] = (fromColor[i] + deltaColor[i] * fraction).toFloat()
+        }
+    }
+
+    private companion object {
+        const val MIN_SIN_ANGLE = 1e-6
+    }
+}
+
+/**
+ * Renders markers with a [ShapeInterpolator], and keeps the [MarkerData] of every marker that has
+ * not visibly moved since the last frame.
+ *
+ * A marker counts as changed when its data is a new instance, its position moved by more than
+ * [positionThreshold] degrees, its hue by more than [colorThreshold], or its label changed.
+ * [update] returns the previous list itself when no marker changed, so a `StateFlow` does not emit
+ * it again, and otherwise a new list that shares every unchanged [MarkerData] instance, so Compose
+ * can skip those markers.
+ *
+ * This class is not thread-safe; [MarkersViewModel] only calls it from the throttled `map` of its
+ * markers pipeline, on its render dispatcher, one frame at a time.
+ */
+internal class InterpolatedMarkers(
+    private val interpolator: ShapeInterpolator,
+    private val positionThreshold: Double = POSITION_THRESHOLD,
+    private val colorThreshold: Float = COLOR_THRESHOLD
+) {
+    private val latitudes = DoubleArray(interpolator.size)
+    private val longitudes = DoubleArray(interpolator.size)
+    private val colors = FloatArray(interpolator.size)
+
+    private var source: List<MarkerData>? = null
+    private var rendered: List<MarkerData> = emptyList()
+
+    /** The number of markers that changed in the last [update]. */
+    var changedCount = 0
+        private set
+
+    /**
+     * Returns [markers] moved to [fraction] and labelled [label].
+     */
+    fun update(markers: List<MarkerData>, fraction: Double, label: String): List<MarkerData> {
+        interpolator.evaluate(fraction, latitudes, longitudes, colors)
+
+        // A marker whose data is the same instance as last time only moves with the animation;
+        // one with new data from Firebase is rendered in full.
+        val previousSource = source
+        val previous = rendered
+        source = markers
+        var next: ArrayList<MarkerData>? = if (markers.size != previous.size) ArrayList(markers.size) else null
+        var count = 0
+        for (index in markers.indices) {
+            val marker = markers[index]
+            val known = previousSource != null && index < previousSource.size &&
+                index < previous.size && previousSource[index] === marker
+            val updated = if (known) {
+                moved(previous[index], index, label, force = false)
+            } else {
+                moved(marker, index, label, force = true)
+            }
+            if (updated !== previous.getOrNull(index)) {
+                if (next == null) next = ArrayList(previous)
+                count++
+            }
+            if (next != null) {
+                if (index < next.size) next[index] = updated else next.add(updated)
+            }
+        }
+        changedCount = count
+        if (next != null) {
+            rendered = next
+        }
+        return rendered
+    }
+
+    private fun moved(marker: MarkerData, index: Int, label: String, force: Boolean): MarkerData {
+        if (index >= interpolator.size) return marker
+        val latitude = latitudes[index]
+        val longitude = longitudes[index]
+        val color = colors[index]
+        if (!force &&
+            abs(marker.latitude - latitude) <= positionThreshold &&
+            abs(marker.longitude - longitude) <= positionThreshold &&
+            abs(marker.color - color) <= colorThreshold &&
+            marker.label == label
+        ) {
+            return marker
+        }
+        return marker.copy(latitude = latitude, longitude = longitude, label = label, color = color)
+    }
+
+    companion object {
+        /** About 10 cm, well below what a marker can show at any zoom level. */
+        const val POSITION_THRESHOLD = 1e-6
+
+        /** Half a degree of hue, which `defaultMarker` cannot tell apart. */
+        const val COLOR_THRESHOLD = 0.5f
+    }
+}
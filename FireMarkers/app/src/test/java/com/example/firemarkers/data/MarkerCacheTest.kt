@@ -0,0 +1,86 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.example.firemarkers.data
+
+import com.example.firemarkers.model.MarkerData
+import com.google.common.truth.Truth.assertThat
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.io.RandomAccessFile
+import java.util.concurrent.Executor
+
+class MarkerCacheTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    /** Runs the file access on the calling thread, so each call has finished when it returns. */
+    private val directExecutor = Executor { it.run() }
+
+    private fun cache(file: File = File(folder.root, "markers.log")) = MarkerCache(file, directExecutor)
+
+    @Test
+    fun `markers survive a restart`() {
+        val file = File(folder.root, "markers.log")
+        val a = MarkerData(id = "a", latitude = 1.0, longitude = 2.0, label = "A", style = "rose", color = 30f)
+        cache(file).apply {
+            put("a", a)
+            put("b", MarkerData(id = "b"))
+            put("c", MarkerData(id = "c"))
+            remove("b")
+        }
+
+        assertThat(cache(file).load()).containsExactly("a" to a, "c" to MarkerData(id = "c")).inOrder()
+    }
+
+    @Test
+    fun `a record cut short keeps the records before it`() {
+        val file = File(folder.root, "markers.log")
+        cache(file).apply {
+            put("a", MarkerData(id = "a"))
+            put("b", MarkerData(id = "b"))
+        }
+        RandomAccessFile(file, "rw").use { it.setLength(it.length() - 3) }
+
+        val restarted = cache(file)
+        assertThat(restarted.load().map { it.first }).containsExactly("a")
+        restarted.put("c", MarkerData(id = "c"))
+        assertThat(cache(file).load().map { it.first }).containsExactly("a", "c").inOrder()
+    }
+
+    @Test
+    fun `the log is compacted`() {
+        val one = File(folder.root, "one.log")
+        cache(one).put("a", MarkerData(id = "a"))
+        val file = File(folder.root, "markers.log")
+        val cache = cache(file)
+
+        repeat(1_000) { cache.put("a", MarkerData(id = "a")) }
+
+        assertThat(file.length()).isAtMost(one.length() * 70)
+        assertThat(cache(file).load()).containsExactly("a" to MarkerData(id = "a"))
+    }
+
+    @Test
+    fun `markers load in the order Firebase gives their keys`() {
+        val cache = cache()
+        for (key in listOf("b", "10", "a", "2", "-1")) {
+            cache.put(key, MarkerData(id = key))
+        }
+
+        assertThat(cache.load().map { it.first }).containsExactly("-1", "2", "10", "a", "b").inOrder()
+    }
+}
@@ -0,0 +1,302 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.example.firemarkers.data
+
+import app.cash.turbine.test
+import com.example.firemarkers.model.MarkerData
+import com.google.common.truth.Truth.assertThat
+import com.google.firebase.database.ChildEventListener
+import com.google.firebase.database.DataSnapshot
+import com.google.firebase.database.DatabaseReference
+import com.google.firebase.database.ValueEventListener
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.test.StandardTestDispatcher
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.resetMain
+import kotlinx.coroutines.test.runCurrent
+import kotlinx.coroutines.test.runTest
+import kotlinx.coroutines.test.setMain
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.mockito.kotlin.any
+import org.mockito.kotlin.argumentCaptor
+import org.mockito.kotlin.eq
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.times
+import org.mockito.kotlin.verify
+import org.mockito.kotlin.whenever
+import java.io.File
+import java.util.concurrent.Executor
+
+@ExperimentalCoroutinesApi
+class MarkerSyncTest {
+
+    private val testDispatcher = StandardTestDispatcher()
+    private val mockMarkersRef: DatabaseReference = mock()
+    private val mockConnectedRef: DatabaseReference = mock()
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    @Before
+    fun setUp() {
+        Dispatchers.setMain(testDispatcher)
+        whenever(mockMarkersRef.addChildEventListener(any())).thenReturn(mock())
+    }
+
+    @After
+    fun tearDown() {
+        Dispatchers.resetMain()
+    }
+
+    private fun TestScope.startSync(cache: MarkerCache? = null): Pair<MarkerSync, ChildEventListener> {
+        val sync = MarkerSync(mockMarkersRef, mockConnectedRef, this, cache, testDispatcher) { }
+        sync.start()
+        val listenerCaptor = argumentCaptor<ChildEventListener>()
+        verify(mockMarkersRef).addChildEventListener(listenerCaptor.capture())
+        return sync to listenerCaptor.firstValue
+    }
+
+    /** Tells the sync whether the database is connected, through `.info/connected`. */
+    private fun setConnected(connected: Boolean) {
+        val captor = argumentCaptor<ValueEventListener>()
+        verify(mockConnectedRef).addValueEventListener(captor.capture())
+        val snapshot = mock<DataSnapshot>()
+        whenever(snapshot.getValue(eq(Boolean::class.java))).thenReturn(connected)
+        captor.firstValue.onDataChange(snapshot)
+    }
+
+    private fun reconcileListener(): ValueEventListener {
+        val captor = argumentCaptor<ValueEventListener>()
+        verify(mockMarkersRef).addListenerForSingleValueEvent(captor.capture())
+        return captor.firstValue
+    }
+
+    private fun cache(file: File = File(folder.root, "markers.log")) = MarkerCache(file, Executor { it.run() })
+
+    @Test
+    fun `the first load is published once`() = runTest {
+        val (sync, listener) = startSync()
+
+        sync.markers.test {
+            assertThat(awaitItem()).isEmpty()
+            var previous: String? = null
+            for (i in 0 until 100) {
+                listener.onChildAdded(snapshot(MarkerData(id = "m$i")), previous)
+                previous = "m$i"
+            }
+            assertThat(awaitItem().map { it.id }).isEqualTo(List(100) { "m$it" })
+            expectNoEvents()
+        }
+    }
+
+    @Test
+    fun `a changed marker replaces only that marker`() = runTest {
+        val (sync, listener) = startSync()
+        listener.onChildAdded(snapshot(MarkerData(id = "a")), null)
+        listener.onChildAdded(snapshot(MarkerData(id = "b")), "a")
+        listener.onChildAdded(snapshot(MarkerData(id = "c")), "b")
+        testDispatcher.scheduler.advanceUntilIdle()
+        val before = sync.markers.value
+
+        listener.onChildChanged(snapshot(MarkerData(id = "b", latitude = 1.0)), "a")
+        testDispatcher.scheduler.advanceUntilIdle()
+        val after = sync.markers.value
+
+        assertThat(after[1].latitude).isEqualTo(1.0)
+        assertThat(after[0]).isSameInstanceAs(before[0])
+        assertThat(after[2]).isSameInstanceAs(before[2])
+    }
+
+    @Test
+    fun `markers keep the database order`() = runTest {
+        val (sync, listener) = startSync()
+        listener.onChildAdded(snapshot(MarkerData(id = "a")), null)
+        listener.onChildAdded(snapshot(MarkerData(id = "c")), "a")
+        listener.onChildAdded(snapshot(MarkerData(id = "b")), "a")
+        listener.onChildRemoved(snapshot(MarkerData(id = "a")))
+        listener.onChildMoved(snapshot(MarkerData(id = "b")), "c")
+        testDispatcher.scheduler.advanceUntilIdle()
+
+        assertThat(sync.markers.value.map { it.id }).containsExactly("c", "b").inOrder()
+    }
+
+    @Test
+    fun `replaceAll deletes the known markers in the same update`() = runTest {
+        val (sync, listener) = startSync()
+        listener.onChildAdded(snapshot(MarkerData(id = "old")), null)
+
+        sync.replaceAll(listOf(MarkerData(id = "new")))
+
+        val updateCaptor = argumentCaptor<Map<String, Any?>>()
+        verify(mockMarkersRef).updateChildren(updateCaptor.capture())
+        assertThat(updateCaptor.firstValue).containsExactly("old", null, "new", MarkerData(id = "new"))
+    }
+
+    @Test
+    fun `cached markers are shown before Firebase delivers`() = runTest {
+        val cache = cache()
+        cache.put("a", MarkerData(id = "a"))
+        cache.put("b", MarkerData(id = "b"))
+        val (sync, _) = startSync(cache)
+
+        testDispatcher.scheduler.advanceUntilIdle()
+
+        assertThat(sync.markers.value.map { it.id }).containsExactly("a", "b").inOrder()
+    }
+
+    @Test
+    fun `markers the server no longer has are dropped from the cache`() = runTest {
+        val cache = cache()
+        cache.put("a", MarkerData(id = "a"))
+        cache.put("gone", MarkerData(id = "gone"))
+        val (sync, listener) = startSync(cache)
+        testDispatcher.scheduler.advanceUntilIdle()
+
+        setConnected(true)
+        listener.onChildAdded(snapshot(MarkerData(id = "a", latitude = 1.0)), null)
+        reconcileListener().onDataChange(parentSnapshot("a"))
+        testDispatcher.scheduler.advanceUntilIdle()
+
+        assertThat(sync.markers.value).containsExactly(MarkerData(id = "a", latitude = 1.0))
+        assertThat(cache.load()).containsExactly("a" to MarkerData(id = "a", latitude = 1.0))
+    }
+
+    @Test
+    fun `the cache is not restored over markers from Firebase`() = runTest {
+        val cache = cache()
+        cache.put("stale", MarkerData(id = "stale"))
+        val (sync, listener) = startSync(cache)
+
+        listener.onChildAdded(snapshot(MarkerData(id = "fresh")), null)
+        testDispatcher.scheduler.advanceUntilIdle()
+
+        assertThat(sync.markers.value.map { it.id }).containsExactly("fresh")
+    }
+
+    @Test
+    fun `the server's markers are only read for reconciling once connected`() = runTest {
+        startSync(cache())
+        verify(mockMarkersRef, never()).addListenerForSingleValueEvent(any())
+
+        setConnected(true)
+        verify(mockMarkersRef).addListenerForSingleValueEvent(any())
+
+        // Reconnecting reconciles again, with whatever changed while offline.
+        setConnected(false)
+        setConnected(true)
+        verify(mockMarkersRef, times(2)).addListenerForSingleValueEvent(any())
+    }
+
+    @Test
+    fun `simulation - time to first marker on a cold start`() = runTest {
+        val markers = List(MARKER_COUNT) { MarkerData(id = "$it", latitude = it.toDouble(), label = "Marker $it") }
+        val file = File(folder.root, "markers.log")
+        cache(file).apply { markers.forEach { put(it.id, it) } }
+
+        // From the network only: the first marker arrives with the first child event, after a
+        // simulated latency in virtual time.
+        val (networkSync, networkListener) = startSync()
+        launch {
+            delay(NETWORK_LATENCY_MILLIS)
+            var previous: String? = null
+            for (marker in markers) {
+                networkListener.onChildAdded(snapshot(marker), previous)
+                previous = marker.id
+            }
+        }
+        val networkStart = testScheduler.currentTime
+        while (networkSync.markers.value.isEmpty()) {
+            advanceTimeBy(1)
+            runCurrent()
+        }
+        val networkMillis = testScheduler.currentTime - networkStart
+
+        // From the cache: the first marker arrives once the log has been read from disk, in real
+        // time. The two are different clocks, so they are reported side by side, not compared.
+        val cacheStart = System.nanoTime()
+        val cacheSync = MarkerSync(mock(), mock(), this, cache(file), testDispatcher) { }
+        cacheSync.start()
+        runCurrent()
+        val cacheMillis = (System.nanoTime() - cacheStart) / 1e6
+        println(
+            ("Time to first marker, $MARKER_COUNT markers: %.1fms reading the cache, " +
+                "${networkMillis}ms from a network with ${NETWORK_LATENCY_MILLIS}ms latency").format(cacheMillis)
+        )
+
+        assertThat(cacheSync.markers.value).isEqualTo(markers)
+        assertThat(networkSync.markers.value).isEqualTo(markers)
+    }
+
+    @Test
+    fun `simulation - bytes sent to reseed the markers`() = runTest {
+        val (sync, listener) = startSync()
+        var previous: String? = null
+        for (i in 0 until MARKER_COUNT) {
+            listener.onChildAdded(snapshot(MarkerData(id = "old$i")), previous)
+            previous = "old$i"
+        }
+        val seed = List(MARKER_COUNT) { MarkerData(id = "new$it", latitude = it.toDouble(), label = "Marker $it") }
+
+        sync.replaceAll(seed)
+
+        val updateCaptor = argumentCaptor<Map<String, Any?>>()
+        verify(mockMarkersRef).updateChildren(updateCaptor.capture())
+        val sentBytes = jsonLength(updateCaptor.firstValue)
+        // What a plain setValue of the same markers would send, without deleting the old ones.
+        val markerBytes = jsonLength(seed.associateBy { it.id })
+        println("Reseeding $MARKER_COUNT over $MARKER_COUNT markers: $sentBytes bytes, $markerBytes of them markers")
+
+        assertThat(updateCaptor.firstValue).hasSize(2 * MARKER_COUNT)
+        // Deleting the old markers in the same update costs a fraction of writing the new ones.
+        assertThat(sentBytes - markerBytes).isLessThan(markerBytes / 5)
+    }
+
+    private companion object {
+        const val MARKER_COUNT = 1_000
+        const val NETWORK_LATENCY_MILLIS = 300L
+    }
+}
+
+/** The length of [update] as the JSON Firebase sends for it, near enough. */
+private fun jsonLength(update: Map<String, Any?>): Int = update.entries.sumOf { (key, marker) ->
+    val value = if (marker is MarkerData) {
+        """{"id":"${marker.id}","latitude":${marker.latitude},"longitude":${marker.longitude},""" +
+            """"label":"${marker.label}","style":"${marker.style}","color":${marker.color}}"""
+    } else {
+        "null"
+    }
+    "\"$key\":$value,".length
+}
+
+private fun parentSnapshot(vararg keys: String): DataSnapshot {
+    val mockSnapshot = mock<DataSnapshot>()
+    whenever(mockSnapshot.hasChild(any())).thenAnswer { it.getArgument<String>(0) in keys }
+    return mockSnapshot
+}
+
+private fun snapshot(marker: MarkerData): DataSnapshot {
+    val mockSnapshot = mock<DataSnapshot>()
+    whenever(mockSnapshot.key).thenReturn(marker.id)
+    whenever(mockSnapshot.getValue(eq(MarkerData::class.java))).thenReturn(marker)
+    return mockSnapshot
+}
@@ -0,0 +1,63 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.example.firemarkers.viewmodel
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+
+class AnimationTimelineTest {
+
+    private val start = 1_700_000_000_000L
+    private val running = MarkersViewModel.AnimationState(
+        running = true,
+        startTime = start,
+        duration = 2000,
+        pause = 1000
+    )
+
+    private fun fractionAt(state: MarkersViewModel.AnimationState, elapsed: Long) =
+        AnimationTimeline.positionAt(state, start + elapsed).fraction
+
+    @Test
+    fun `follows the cycle up, hold, down, hold`() {
+        assertThat(fractionAt(running, 1000)).isWithin(1e-9).of(0.5)
+        assertThat(fractionAt(running, 2500)).isWithin(1e-9).of(1.0)
+        assertThat(fractionAt(running, 4000)).isWithin(1e-9).of(0.5)
+        assertThat(fractionAt(running, 5500)).isWithin(1e-9).of(0.0)
+        assertThat(fractionAt(running, 6500)).isWithin(1e-9).of(0.25)
+        assertThat(AnimationTimeline.positionAt(running, start + 4000).direction).isEqualTo(-1.0)
+    }
+
+    @Test
+    fun `resumes from the stored position and direction`() {
+        val resumed = running.copy(fraction = 0.7, direction = -1.0)
+
+        assertThat(fractionAt(resumed, 0)).isWithin(1e-9).of(0.7)
+        assertThat(fractionAt(resumed, 400)).isWithin(1e-9).of(0.5)
+    }
+
+    @Test
+    fun `paused and unstarted states stay where they are`() {
+        val paused = running.copy(running = false, fraction = 0.3)
+        val unstarted = running.copy(startTime = 0, fraction = 0.3)
+
+        assertThat(fractionAt(paused, 1000)).isEqualTo(0.3)
+        assertThat(fractionAt(unstarted, 1000)).isEqualTo(0.3)
+    }
+
+    @Test
+    fun `a start time ahead of the local clock counts as now`() {
+        assertThat(fractionAt(running, -50)).isEqualTo(0.0)
+    }
+}
@@ -0,0 +1,186 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.example.firemarkers.viewmodel
+
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.isActive
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.runCurrent
+import kotlinx.coroutines.test.runTest
+import org.junit.Test
+
+/**
+ * Runs several devices against one [FakeAnimationStore] in virtual time.
+ */
+@ExperimentalCoroutinesApi
+class ControllerLeaseTest {
+
+    private class Client(val id: String, val lease: ControllerLease, val job: Job) {
+        var driverWrites = 0
+        var rejectedWrites = 0
+    }
+
+    private fun TestScope.now() = START_TIME + testScheduler.currentTime
+
+    private fun TestScope.client(store: FakeAnimationStore, id: String, drive: Boolean = true): Client {
+        val job = Job(backgroundScope.coroutineContext[Job])
+        val scope = CoroutineScope(backgroundScope.coroutineContext + job)
+        val lease = ControllerLease(store, id, { now() }, scope)
+        val client = Client(id, lease, job)
+        store.connect(id) { lease.onStateChanged(it) }
+        if (drive) {
+            // The ticks-mode driver: a write every 100ms while this device believes it controls.
+            scope.launch {
+                while (isActive) {
+                    delay(TICK_MILLIS)
+                    if (lease.isHeld) {
+                        lease.write({ it.copy(fraction = it.fraction + 0.01) }) { committed ->
+                            if (committed) client.driverWrites++ else client.rejectedWrites++
+                        }
+                    }
+                }
+            }
+        }
+        return client
+    }
+
+    private fun TestScope.crash(store: FakeAnimationStore, client: Client) {
+        store.disconnect(client.id)
+        client.job.cancel()
+    }
+
+    @Test
+    fun `only one of several racing devices acquires the lease`() = runTest {
+        val store = FakeAnimationStore(backgroundScope, LATENCY_MILLIS) { now() }
+        val clients = List(5) { client(store, "c$it", drive = false) }
+        val results = mutableListOf<Boolean>()
+
+        clients.forEach { it.lease.acquire(force = false) { acquired -> results += acquired } }
+        advanceTimeBy(1_000)
+
+        assertThat(results.count { it }).isEqualTo(1)
+        assertThat(clients.count { it.lease.isHeld }).isEqualTo(1)
+        assertThat(store.state.fencingToken).isEqualTo(1)
+    }
+
+    @Test
+    fun `a forced takeover fences the old controller out`() = runTest {
+        val store = FakeAnimationStore()
+        var lost = false
+        val old = ControllerLease(store, "old", { now() }, backgroundScope).apply { onLost = { lost = true } }
+        val new = ControllerLease(store, "new", { now() }, backgroundScope)
+        old.acquire(force = false)
+        // "new" cannot take a live lease without forcing it.
+        new.acquire(force = false)
+        assertThat(store.state.controllerId).isEqualTo("old")
+
+        new.acquire(force = true)
+        var committed = true
+        old.write({ it.copy(running = true) }) { committed = it }
+
+        assertThat(committed).isFalse()
+        assertThat(lost).isTrue()
+        assertThat(old.isHeld).isFalse()
+        assertThat(store.state.controllerId).isEqualTo("new")
+        assertThat(store.state.fencingToken).isEqualTo(2)
+        assertThat(store.state.running).isFalse()
+    }
+
+    @Test
+    fun `a legacy state without a lease is not taken over automatically`() = runTest {
+        val store = FakeAnimationStore()
+        store.state = MarkersViewModel.AnimationState(controllerId = "legacy")
+        val lease = ControllerLease(store, "agent", { now() }, backgroundScope)
+
+        lease.onStateChanged(store.state)
+        advanceTimeBy(60_000)
+
+        assertThat(store.state.controllerId).isEqualTo("legacy")
+    }
+
+    @Test
+    fun `simulation - failover latency after a controller crash`() = runTest {
+        val store = FakeAnimationStore(backgroundScope, LATENCY_MILLIS) { now() }
+        val clients = List(5) { client(store, "c$it") }
+        clients[0].lease.acquire(force = false)
+        advanceTimeBy(10_000)
+        runCurrent()
+        assertThat(store.state.controllerId).isEqualTo("c0")
+
+        val crashTime = now()
+        crash(store, clients[0])
+        advanceTimeBy(ControllerLease.LEASE_MILLIS * 3)
+
+        val takeover = store.commits.first { it.time > crashTime && it.state.controllerId != "c0" }
+        val failoverMillis = takeover.time - crashTime
+        val holders = clients.drop(1).filter { it.lease.isHeld }
+        println("Failover after a crash: ${failoverMillis}ms to ${takeover.state.controllerId}")
+
+        assertThat(holders).hasSize(1)
+        assertThat(failoverMillis).isAtMost(
+            ControllerLease.LEASE_MILLIS + ControllerLease.FAILOVER_GRACE_MILLIS + 4 * LATENCY_MILLIS
+        )
+        // After the failover, exactly one device drives the animation.
+        val writersAfter = store.commits
+            .filter { it.time > takeover.time }
+            .map { it.state.controllerId }
+            .toSet()
+        assertThat(writersAfter).containsExactly(takeover.state.controllerId)
+    }
+
+    @Test
+    fun `simulation - duplicate writes while a stale controller does not see the takeover`() = runTest {
+        val store = FakeAnimationStore(backgroundScope, LATENCY_MILLIS) { now() }
+        val old = client(store, "old")
+        val new = client(store, "new")
+        old.lease.acquire(force = false)
+        advanceTimeBy(5_000)
+
+        // "old" stops hearing from the database, then "new" takes control.
+        store.disconnect("old")
+        val takeoverTime = now()
+        new.lease.acquire(force = true)
+        val window = 2_000L
+        advanceTimeBy(window)
+
+        val windowCommits = store.commits.filter { it.time > takeoverTime }
+        val staleCommits = windowCommits.count { it.state.controllerId == "old" }
+        val duplicateRate = staleCommits.toDouble() / windowCommits.size
+        // Without fencing, "old" would have kept writing on every tick of the window.
+        val unfencedWrites = window / TICK_MILLIS
+        val unfencedRate = unfencedWrites.toDouble() / (unfencedWrites + windowCommits.size)
+        println(
+            "Stale controller: ${old.rejectedWrites} writes rejected, duplicate write rate " +
+                "%.2f (unfenced: %.2f)".format(duplicateRate, unfencedRate)
+        )
+
+        assertThat(staleCommits).isEqualTo(0)
+        assertThat(old.lease.isHeld).isFalse()
+        // Only the ticks already in flight when the rejection arrives are rejected.
+        assertThat(old.rejectedWrites).isIn(1..(2 * LATENCY_MILLIS / TICK_MILLIS + 1).toInt())
+        assertThat(new.driverWrites).isGreaterThan(0)
+    }
+
+    private companion object {
+        const val START_TIME = 1_700_000_000_000L
+        const val LATENCY_MILLIS = 50L
+        const val TICK_MILLIS = 100L
+    }
+}
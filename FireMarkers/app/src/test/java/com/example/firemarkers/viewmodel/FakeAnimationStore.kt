@@ -0,0 +1,86 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.example.firemarkers.viewmodel
+
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+
+/**
+ * A local stand-in for the `/animation` node. Each update is applied atomically, as the Firebase
+ * server applies a transaction. With a [scope] and a [latencyMillis], an update reaches the
+ * "server" after [latencyMillis], and observers hear about the new state [latencyMillis] later.
+ */
+internal class FakeAnimationStore(
+    private val scope: CoroutineScope? = null,
+    private val latencyMillis: Long = 0,
+    private val clock: () -> Long = { 0L }
+) : AnimationStore {
+
+    /** A committed state and the time it was committed at. */
+    data class Commit(val time: Long, val state: MarkersViewModel.AnimationState)
+
+    var state = MarkersViewModel.AnimationState()
+    val commits = mutableListOf<Commit>()
+    var rejectedCount = 0
+        private set
+
+    private val observers = LinkedHashMap<String, (MarkersViewModel.AnimationState) -> Unit>()
+
+    /** Delivers every committed state to [observer] until [disconnect] is called with [id]. */
+    fun connect(id: String, observer: (MarkersViewModel.AnimationState) -> Unit) {
+        observers[id] = observer
+    }
+
+    fun disconnect(id: String) {
+        observers.remove(id)
+    }
+
+    override fun update(
+        transform: (MarkersViewModel.AnimationState) -> MarkersViewModel.AnimationState?,
+        onComplete: (committed: Boolean, state: MarkersViewModel.AnimationState) -> Unit
+    ) {
+        later { apply(transform, onComplete) }
+    }
+
+    private fun apply(
+        transform: (MarkersViewModel.AnimationState) -> MarkersViewModel.AnimationState?,
+        onComplete: (committed: Boolean, state: MarkersViewModel.AnimationState) -> Unit
+    ) {
+        val next = transform(state)
+        if (next == null) {
+            rejectedCount++
+            val current = state
+            later { onComplete(false, current) }
+            return
+        }
+        state = next
+        commits += Commit(clock(), next)
+        later { onComplete(true, next) }
+        for (observer in observers.values.toList()) {
+            later { observer(next) }
+        }
+    }
+
+    private fun later(block: () -> Unit) {
+        if (scope == null || latencyMillis == 0L) {
+            block()
+        } else {
+            scope.launch {
+                delay(latencyMillis)
+                block()
+            }
+        }
+    }
+}
@@ -15,7 +15,11 @@ package com.example.firemarkers.viewmodel
 
 import com.example.firemarkers.CustomTestRunner
 import com.example.firemarkers.data.FirebaseConnection
+import com.example.firemarkers.data.ServerClock
+import com.example.firemarkers.data.ShapeData
+import com.example.firemarkers.model.MarkerData
 import com.google.common.truth.Truth.assertThat
+import com.google.firebase.database.ChildEventListener
 import com.google.firebase.database.DataSnapshot
 import com.google.firebase.database.DatabaseError
 import com.google.firebase.database.DatabaseReference
@@ -30,6 +34,7 @@ import kotlinx.coroutines.test.resetMain
 import kotlinx.coroutines.test.runTest
 import kotlinx.coroutines.test.setMain
 import org.junit.After
+import org.junit.Assume.assumeTrue
 import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
@@ -41,6 +46,7 @@ import org.mockito.kotlin.never
 import org.mockito.kotlin.verify
 import org.mockito.kotlin.whenever
 import org.robolectric.annotation.Config
+import java.lang.management.ManagementFactory
 import app.cash.turbine.test
 
 @RunWith(CustomTestRunner::class)
@@ -55,6 +61,10 @@ class MarkersViewModelTest {
     private val mockFirebaseDatabase: FirebaseDatabase = mock()
     private val mockMarkersRef: DatabaseReference = mock()
     private val mockAnimationRef: DatabaseReference = mock()
+    private val mockServerTimeOffsetRef: DatabaseReference = mock()
+    private val mockConnectedRef: DatabaseReference = mock()
+    private var serverTime = 1_700_000_000_000L
+    private val animationStore = FakeAnimationStore()
 
     @Before
     fun setUp() {
@@ -62,10 +72,26 @@ class MarkersViewModelTest {
         whenever(mockFirebaseConnection.database).thenReturn(mockFirebaseDatabase)
         whenever(mockFirebaseDatabase.getReference("markers")).thenReturn(mockMarkersRef)
         whenever(mockFirebaseDatabase.getReference("animation")).thenReturn(mockAnimationRef)
-        whenever(mockMarkersRef.addValueEventListener(any())).thenReturn(mock())
+        whenever(mockMarkersRef.addChildEventListener(any())).thenReturn(mock())
         whenever(mockAnimationRef.addValueEventListener(any())).thenReturn(mock())
+        whenever(mockFirebaseDatabase.getReference(".info/serverTimeOffset"))
+            .thenReturn(mockServerTimeOffsetRef)
+        whenever(mockServerTimeOffsetRef.addValueEventListener(any())).thenReturn(mock())
+        whenever(mockFirebaseDatabase.getReference(".info/connected")).thenReturn(mockConnectedRef)
+        whenever(mockConnectedRef.addValueEventListener(any())).thenReturn(mock())
 
-        viewModel = MarkersViewModel(mockFirebaseConnection)
+        viewModel = MarkersViewModel(
+            mockFirebaseConnection,
+            ServerClock(mockFirebaseConnection) { serverTime },
+            animationStore,
+            renderDispatcher = testDispatcher
+        )
+    }
+
+    /** Stores [state] and delivers it to the ViewModel's `/animation` listener. */
+    private fun publish(listener: ValueEventListener, state: MarkersViewModel.AnimationState) {
+        animationStore.state = state
+        listener.onDataChange(mockAnimationStateSnapshot(state))
     }
 
     @After
@@ -121,19 +147,34 @@ class MarkersViewModelTest {
         viewModel.toggleAnimation()
         testDispatcher.scheduler.advanceUntilIdle()
 
-        verify(mockAnimationRef, never()).setValue(any())
+        assertThat(animationStore.commits).isEmpty()
     }
 
     @Test
     fun `takeControl updates controllerId in Firebase`() = runTest {
+        // The lease heartbeat never ends, so only run what is due now.
         viewModel.takeControl()
-        testDispatcher.scheduler.advanceUntilIdle()
+        testDispatcher.scheduler.runCurrent()
+
+        val state = animationStore.commits.single().state
+        assertThat(state.controllerId).isEqualTo(viewModel.viewModelId)
+        assertThat(state.running).isEqualTo(false)
+        assertThat(state.fencingToken).isEqualTo(1)
+        assertThat(state.leaseExpiresAt).isEqualTo(serverTime + ControllerLease.LEASE_MILLIS)
+    }
+
+    @Test
+    fun `a controller that lost the lease cannot toggle the animation`() = runTest {
+        val listenerCaptor = argumentCaptor<ValueEventListener>()
+        verify(mockAnimationRef).addValueEventListener(listenerCaptor.capture())
+        publish(listenerCaptor.firstValue, MarkersViewModel.AnimationState(controllerId = viewModel.viewModelId))
+        // Another device takes over; this one has not heard about it yet.
+        animationStore.state = animationStore.state.copy(controllerId = "other", fencingToken = 1)
 
-        val stateMapCaptor = argumentCaptor<Map<String, Any>>()
-        verify(mockAnimationRef).setValue(stateMapCaptor.capture())
+        viewModel.toggleAnimation()
 
-        assertThat(stateMapCaptor.firstValue["controllerId"]).isEqualTo(viewModel.viewModelId)
-        assertThat(stateMapCaptor.firstValue["running"]).isEqualTo(false)
+        assertThat(animationStore.commits).isEmpty()
+        assertThat(animationStore.rejectedCount).isEqualTo(1)
     }
 
     @Test
@@ -159,6 +200,149 @@ class MarkersViewModelTest {
         assertThat(errorMessage).isEqualTo("Database error (animation): Test Error")
         job.cancel()
     }
+
+    @Test
+    fun `seedDatabase writes every marker in one multi-path update`() = runTest {
+        var nextKey = 0
+        whenever(mockMarkersRef.push()).thenAnswer {
+            mock<DatabaseReference>().also { whenever(it.key).thenReturn("key${nextKey++}") }
+        }
+
+        viewModel.seedDatabase()
+        testDispatcher.scheduler.runCurrent()
+
+        val updateCaptor = argumentCaptor<Map<String, Any?>>()
+        verify(mockMarkersRef).updateChildren(updateCaptor.capture())
+        verify(mockMarkersRef, never()).setValue(any())
+        assertThat(updateCaptor.firstValue).hasSize(ShapeData.jackOLanternShape.size)
+        assertThat((updateCaptor.firstValue["key0"] as MarkerData).id).isEqualTo("key0")
+    }
+
+    @Test
+    fun `server clock animation writes only when it starts and pauses`() = runTest {
+        val listenerCaptor = argumentCaptor<ValueEventListener>()
+        verify(mockAnimationRef).addValueEventListener(listenerCaptor.capture())
+        publish(listenerCaptor.firstValue, MarkersViewModel.AnimationState(controllerId = viewModel.viewModelId))
+        val startTime = serverTime
+
+        viewModel.toggleAnimation()
+        // Firebase echoes the write back.
+        publish(listenerCaptor.firstValue, animationStore.state)
+        // 9.6 seconds of frames at 60 fps.
+        repeat(600) {
+            serverTime += 16
+            viewModel.onFrame()
+        }
+        testDispatcher.scheduler.advanceUntilIdle()
+        assertThat(animationStore.commits).hasSize(1)
+
+        viewModel.toggleAnimation()
+
+        val (started, paused) = animationStore.commits.map { it.state }
+        assertThat(started.running).isTrue()
+        assertThat(started.startTime).isEqualTo(startTime)
+        // 9.6s into a 6s cycle is 0.6s into the way back: 2s down after 2s up and a 1s pause.
+        assertThat(paused.running).isFalse()
+        assertThat(paused.fraction).isWithin(1e-9).of(0.7)
+        assertThat(paused.direction).isEqualTo(-1.0)
+    }
+
+    @Test
+    fun `agents compute markers from the server clock`() = runTest {
+        val markersCaptor = argumentCaptor<ChildEventListener>()
+        verify(mockMarkersRef).addChildEventListener(markersCaptor.capture())
+        val animationCaptor = argumentCaptor<ValueEventListener>()
+        verify(mockAnimationRef).addValueEventListener(animationCaptor.capture())
+
+        viewModel.markers.test {
+            assertThat(awaitItem()).isEmpty()
+
+            markersCaptor.firstValue.onChildAdded(mockMarkerSnapshot(MarkerData(id = "a")), null)
+            animationCaptor.firstValue.onDataChange(
+                mockAnimationStateSnapshot(
+                    MarkersViewModel.AnimationState(
+                        controllerId = "some-other-id",
+                        running = true,
+                        startTime = serverTime
+                    )
+                )
+            )
+            serverTime += 500
+            viewModel.onFrame()
+            testDispatcher.scheduler.advanceUntilIdle()
+            assertThat(expectMostRecentItem().single().label).isEqualTo("Pumpkin")
+
+            // Past the halfway point the markers show the other shape, without any new write.
+            serverTime += 1000
+            viewModel.onFrame()
+            testDispatcher.scheduler.advanceUntilIdle()
+            assertThat(expectMostRecentItem().single().label).isEqualTo("Tree")
+
+            cancelAndIgnoreRemainingEvents()
+        }
+    }
+
+    /** Only runs with `-Pbenchmarks`. */
+    @Test
+    fun `benchmark - markers are emitted at most once per frame`() = runTest {
+        assumeTrue(java.lang.Boolean.getBoolean("benchmarks"))
+        val markersCaptor = argumentCaptor<ChildEventListener>()
+        verify(mockMarkersRef).addChildEventListener(markersCaptor.capture())
+        val animationCaptor = argumentCaptor<ValueEventListener>()
+        verify(mockAnimationRef).addValueEventListener(animationCaptor.capture())
+        var previous: String? = null
+        for (i in ShapeData.jackOLanternShape.indices) {
+            markersCaptor.firstValue.onChildAdded(mockMarkerSnapshot(MarkerData(id = "m$i")), previous)
+            previous = "m$i"
+        }
+        // A tick every millisecond for a second, far faster than any display. The snapshots are
+        // built up front so that only the pipeline's allocations are measured.
+        val ticks = List(TICKS) { i ->
+            mockAnimationStateSnapshot(
+                MarkersViewModel.AnimationState(
+                    controllerId = "some-other-id",
+                    running = true,
+                    fraction = (i + 1).toDouble() / TICKS,
+                    mode = MarkersViewModel.MODE_TICKS
+                )
+            )
+        }
+        var emissions = 0
+        backgroundScope.launch { viewModel.markers.collect { emissions++ } }
+        testDispatcher.scheduler.advanceUntilIdle()
+        emissions = 0
+
+        val threads = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+        val allocatedBefore = threads.getThreadAllocatedBytes(Thread.currentThread().id)
+        val start = testDispatcher.scheduler.currentTime
+        for (tick in ticks) {
+            animationCaptor.firstValue.onDataChange(tick)
+            testDispatcher.scheduler.advanceTimeBy(1)
+            testDispatcher.scheduler.runCurrent()
+        }
+        testDispatcher.scheduler.advanceUntilIdle()
+        val elapsedMillis = testDispatcher.scheduler.currentTime - start
+        val allocated = threads.getThreadAllocatedBytes(Thread.currentThread().id) - allocatedBefore
+
+        val perSecond = emissions * 1000.0 / elapsedMillis
+        println(
+            "Markers: $TICKS inputs in ${elapsedMillis}ms, $emissions emissions (%.0f/s), %d bytes allocated per emission"
+                .format(perSecond, allocated / emissions)
+        )
+        assertThat(emissions).isAtMost((elapsedMillis / FRAME_MILLIS + 1).toInt())
+        assertThat(viewModel.markers.value.first().label).isEqualTo("Tree")
+    }
+
+    private companion object {
+        const val TICKS = 1_000
+    }
+}
+
+private fun mockMarkerSnapshot(marker: MarkerData): DataSnapshot {
+    val mockSnapshot = mock<DataSnapshot>()
+    whenever(mockSnapshot.key).thenReturn(marker.id)
+    whenever(mockSnapshot.getValue(eq(MarkerData::class.java))).thenReturn(marker)
+    return mockSnapshot
 }
 
 private fun mockAnimationStateSnapshot(state: MarkersViewModel.AnimationState): DataSnapshot {
@@ -0,0 +1,185 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.example.firemarkers.viewmodel
+
+import com.example.firemarkers.data.ShapeData
+import com.example.firemarkers.model.MarkerData
+import com.google.android.gms.maps.model.LatLng
+import com.google.common.truth.Truth.assertThat
+import com.google.maps.android.ktx.utils.withSphericalLinearInterpolation
+import org.junit.Assume.assumeTrue
+import org.junit.Test
+import java.lang.management.ManagementFactory
+
+class ShapeInterpolatorTest {
+
+    private val from = listOf(LatLng(40.0, -105.0), LatLng(0.0, 0.0), LatLng(10.0, 10.0), LatLng(-33.9, 151.2))
+    private val to = listOf(LatLng(40.01, -105.02), LatLng(0.0, 90.0), LatLng(10.0, 10.0), LatLng(51.5, -0.1))
+    private val interpolator = ShapeInterpolator(from, to, listOf(0f, 10f, 20f, 30f), listOf(100f, 10f, 22f, 0f))
+
+    @Test
+    fun `matches withSphericalLinearInterpolation`() {
+        val latitudes = DoubleArray(interpolator.size)
+        val longitudes = DoubleArray(interpolator.size)
+        val colors = FloatArray(interpolator.size)
+
+        for (fraction in listOf(0.0, 0.1, 0.5, 0.77, 1.0)) {
+            interpolator.evaluate(fraction, latitudes, longitudes, colors)
+            for (i in from.indices) {
+                val expected = from[i].withSphericalLinearInterpolation(to[i], fraction)
+                assertThat(latitudes[i]).isWithin(1e-9).of(expected.latitude)
+                assertThat(longitudes[i]).isWithin(1e-9).of(expected.longitude)
+            }
+        }
+        assertThat(colors[0]).isEqualTo(100f)
+        assertThat(colors[3]).isEqualTo(0f)
+    }
+
+    @Test
+    fun `only markers that visibly moved are replaced`() {
+        val markers = from.indices.map { MarkerData(id = "$it") }
+        val renderer = InterpolatedMarkers(interpolator)
+
+        val first = renderer.update(markers, 0.0, "Pumpkin")
+        assertThat(renderer.changedCount).isEqualTo(4)
+
+        // Too small a step for anything to show.
+        assertThat(renderer.update(markers, 1e-9, "Pumpkin")).isSameInstanceAs(first)
+        assertThat(renderer.changedCount).isEqualTo(0)
+
+        val second = renderer.update(markers, 0.1, "Pumpkin")
+        assertThat(renderer.changedCount).isEqualTo(3)
+        // The third point starts and ends in the same place, with a color change under the threshold.
+        assertThat(second[2]).isSameInstanceAs(first[2])
+        assertThat(second[1]).isNotSameInstanceAs(first[1])
+
+        // A new list from Firebase only renders the markers whose data changed.
+        val edited = markers.toMutableList().apply { this[2] = MarkerData(id = "2", style = "new") }
+        val third = renderer.update(edited, 0.1, "Pumpkin")
+        assertThat(renderer.changedCount).isEqualTo(1)
+        assertThat(third[2].style).isEqualTo("new")
+        assertThat(third[0]).isSameInstanceAs(second[0])
+    }
+
+    @Test
+    fun `a new label replaces every marker`() {
+        val markers = from.indices.map { MarkerData(id = "$it") }
+        val renderer = InterpolatedMarkers(interpolator)
+        renderer.update(markers, 0.5, "Pumpkin")
+
+        val updated = renderer.update(markers, 0.5, "Tree")
+
+        assertThat(renderer.changedCount).isEqualTo(4)
+        assertThat(updated.map { it.label }.distinct()).containsExactly("Tree")
+    }
+
+    @Test
+    fun `evaluate allocates nothing per frame`() {
+        val points = 1_000
+        val tables = ShapeInterpolator(
+            scaledShape(ShapeData.jackOLanternShape.map { LatLng(it.latOffset, it.lonOffset) }, points),
+            scaledShape(ShapeData.christmasTreeShape.map { LatLng(it.latOffset, it.lonOffset) }, points),
+            List(points) { 0f },
+            List(points) { 100f }
+        )
+        val latitudes = DoubleArray(points)
+        val longitudes = DoubleArray(points)
+        val colors = FloatArray(points)
+        val threads = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+        val threadId = Thread.currentThread().id
+        val frames = 120
+        // Run once first so that nothing one-off is counted.
+        tables.evaluate(0.5, latitudes, longitudes, colors)
+
+        val bytesBefore = threads.getThreadAllocatedBytes(threadId)
+        for (i in 1..frames) {
+            tables.evaluate(i.toDouble() / frames, latitudes, longitudes, colors)
+        }
+        val bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore
+
+        // Per frame, so the few bytes the measurement itself may allocate round away.
+        assertThat(bytes / frames).isEqualTo(0L)
+    }
+
+    /** Only runs with `-Pbenchmarks`. */
+    @Test
+    fun `benchmark 10k point shapes`() {
+        assumeTrue(java.lang.Boolean.getBoolean("benchmarks"))
+        val points = 10_000
+        val start = scaledShape(ShapeData.jackOLanternShape.map { LatLng(it.latOffset, it.lonOffset) }, points)
+        val end = scaledShape(ShapeData.christmasTreeShape.map { LatLng(it.latOffset, it.lonOffset) }, points)
+        val startColors = List(points) { ShapeData.jackOLanternShape[it % ShapeData.jackOLanternShape.size].color }
+        val endColors = List(points) { ShapeData.christmasTreeShape[it % ShapeData.christmasTreeShape.size].color }
+        val markers = List(points) { MarkerData(id = "$it") }
+
+        val tables = ShapeInterpolator(start, end, startColors, endColors)
+        val latitudes = DoubleArray(points)
+        val longitudes = DoubleArray(points)
+        val colors = FloatArray(points)
+        val renderer = InterpolatedMarkers(tables)
+        val pairs = start.zip(end)
+        val colorPairs = startColors.zip(endColors)
+
+        // A 2 second transition at 60 fps.
+        val frames = 120
+        var sink = 0.0
+        // Warm up every path before measuring.
+        for (round in 0..1) {
+            val report = round == 1
+            measure(report, "per-frame slerp and copies", frames) { fraction ->
+                val locations = pairs.map { (a, b) -> a.withSphericalLinearInterpolation(b, fraction) }
+                val blended = colorPairs.map { (a, b) -> a + (b - a) * fraction }
+                val updated = markers.mapIndexed { index, marker ->
+                    marker.copy(
+                        latitude = locations[index].latitude,
+                        longitude = locations[index].longitude,
+                        color = blended[index].toFloat()
+                    )
+                }
+                sink += updated.last().latitude
+            }
+            measure(report, "precomputed tables only", frames) { fraction ->
+                tables.evaluate(fraction, latitudes, longitudes, colors)
+                sink += latitudes[points - 1]
+            }
+            measure(report, "tables and change filter", frames) { fraction ->
+                sink += renderer.update(markers, fraction, "Pumpkin").last().latitude
+            }
+        }
+        assertThat(sink).isNotNaN()
+        println("Markers changed in the last frame: ${renderer.changedCount} of $points")
+    }
+
+    /** Repeats [shape] in a grid until it has [points] points. */
+    private fun scaledShape(shape: List<LatLng>, points: Int): List<LatLng> = List(points) {
+        val copy = it / shape.size
+        val point = shape[it % shape.size]
+        LatLng(40.0 + point.latitude + copy / 10 * 0.05, -105.0 + point.longitude + copy % 10 * 0.05)
+    }
+
+    private fun measure(report: Boolean, name: String, frames: Int, frame: (Double) -> Unit) {
+        val threads = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+        val threadId = Thread.currentThread().id
+        val bytesBefore = threads.getThreadAllocatedBytes(threadId)
+        val start = System.nanoTime()
+        for (i in 1..frames) {
+            frame(i.toDouble() / frames)
+        }
+        val nanos = System.nanoTime() - start
+        val bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore
+        if (report) {
+            println(String.format("%-28s %.3fms and %,d bytes per frame", name, nanos / 1e6 / frames, bytes / frames))
+        }
+    }
+}
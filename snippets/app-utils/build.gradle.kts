@@ -45,6 +45,15 @@ android {
             )
         }
     }
+    testOptions {
+        unitTests.all {
+            // Benchmarks in the unit tests are skipped unless the build is run with -Pbenchmarks.
+            it.systemProperty("benchmarks", project.hasProperty("benchmarks"))
+            project.findProperty("geojson.benchmark.mb")?.let { mb ->
+                it.systemProperty("geojson.benchmark.mb", mb)
+            }
+        }
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_21
         targetCompatibility = JavaVersion.VERSION_21
@@ -75,6 +84,8 @@ dependencies {
     implementation(libs.appcompat)
     implementation(libs.material)
     testImplementation(libs.junit)
+    // The Android org.json classes are stubs in local unit tests.
+    testImplementation(libs.json)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
     // [END_EXCLUDE]
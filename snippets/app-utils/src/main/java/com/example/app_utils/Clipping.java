@@ -0,0 +1,219 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+import java.util.Arrays;
+
+/**
+ * Geometry helpers over flat {@code x, y, x, y, ...} coordinate arrays, used by
+ * {@link GeoJsonTileIndex}. The clipping and distance functions run per tile and do not allocate.
+ */
+final class Clipping {
+
+    private Clipping() {
+    }
+
+    /**
+     * Clips the segment (x0, y0)-(x1, y1) to the rectangle using Liang-Barsky and writes the
+     * visible part to {@code out} as x0, y0, x1, y1. Returns {@code false} if nothing is visible.
+     */
+    static boolean clipSegment(double x0, double y0, double x1, double y1, double minX,
+            double minY, double maxX, double maxY, double[] out) {
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        // out[0] and out[1] hold the entry and exit parameters until the end.
+        out[0] = 0;
+        out[1] = 1;
+        if (!clipEdge(-dx, x0 - minX, out) || !clipEdge(dx, maxX - x0, out)
+                || !clipEdge(-dy, y0 - minY, out) || !clipEdge(dy, maxY - y0, out)) {
+            return false;
+        }
+        double t0 = out[0];
+        double t1 = out[1];
+        out[0] = t0 == 0 ? x0 : x0 + t0 * dx;
+        out[1] = t0 == 0 ? y0 : y0 + t0 * dy;
+        out[2] = t1 == 1 ? x1 : x0 + t1 * dx;
+        out[3] = t1 == 1 ? y1 : y0 + t1 * dy;
+        return true;
+    }
+
+    private static boolean clipEdge(double p, double q, double[] t) {
+        if (p == 0) {
+            return q >= 0;
+        }
+        double r = q / p;
+        if (p < 0) {
+            if (r > t[1]) {
+                return false;
+            }
+            t[0] = Math.max(t[0], r);
+        } else {
+            if (r < t[0]) {
+                return false;
+            }
+            t[1] = Math.min(t[1], r);
+        }
+        return true;
+    }
+
+    /**
+     * The output and working arrays of {@link #clipRing}, reused across calls and grown on
+     * demand.
+     */
+    static final class RingBuffer {
+        /** The clipped ring after {@link #clipRing} returns. */
+        double[] out;
+        private double[] temp;
+
+        RingBuffer(int points) {
+            out = new double[points * 2];
+            temp = new double[points * 2];
+        }
+    }
+
+    /**
+     * Clips the ring of points {@code start} until {@code end} in {@code coords} to the rectangle
+     * using Sutherland-Hodgman. The result is written to {@code buffer.out}. Returns the number
+     * of points in the clipped ring.
+     */
+    static int clipRing(double[] coords, int start, int end, double minX, double minY,
+            double maxX, double maxY, RingBuffer buffer) {
+        int count = end - start;
+        double[] src = grow(buffer.out, count * 2);
+        double[] dst = buffer.temp;
+        System.arraycopy(coords, start * 2, src, 0, count * 2);
+        // Clip against each edge in turn: 0 = left, 1 = right, 2 = top, 3 = bottom.
+        for (int edge = 0; edge < 4 && count > 0; edge++) {
+            // Each point can add a crossing as well as itself, so a ring that zig-zags across
+            // the edge can nearly double.
+            dst = grow(dst, count * 4);
+            double bound = edge == 0 ? minX : edge == 1 ? maxX : edge == 2 ? minY : maxY;
+            int axis = edge < 2 ? 0 : 1;
+            boolean keepGreater = edge == 0 || edge == 2;
+            int outCount = 0;
+            double prevX = src[(count - 1) * 2];
+            double prevY = src[(count - 1) * 2 + 1];
+            boolean prevInside = inside(axis == 0 ? prevX : prevY, bound, keepGreater);
+            for (int i = 0; i < count; i++) {
+                double x = src[i * 2];
+                double y = src[i * 2 + 1];
+                boolean isInside = inside(axis == 0 ? x : y, bound, keepGreater);
+                if (isInside != prevInside) {
+                    double t = axis == 0 ? (bound - prevX) / (x - prevX)
+                            : (bound - prevY) / (y - prevY);
+                    dst[outCount * 2] = axis == 0 ? bound : prevX + t * (x - prevX);
+                    dst[outCount * 2 + 1] = axis == 0 ? prevY + t * (y - prevY) : bound;
+                    outCount++;
+                }
+                if (isInside) {
+                    dst[outCount * 2] = x;
+                    dst[outCount * 2 + 1] = y;
+                    outCount++;
+                }
+                prevX = x;
+                prevY = y;
+                prevInside = isInside;
+            }
+            double[] swap = src;
+            src = dst;
+            dst = swap;
+            count = outCount;
+        }
+        buffer.out = src;
+        buffer.temp = dst;
+        return count;
+    }
+
+    /** Returns {@code array}, or a larger, empty one if it is shorter than {@code size}. */
+    static double[] grow(double[] array, int size) {
+        return array.length >= size ? array : new double[Math.max(size, array.length * 2)];
+    }
+
+    private static boolean inside(double value, double bound, boolean keepGreater) {
+        return keepGreater ? value >= bound : value <= bound;
+    }
+
+    /** Even-odd point in ring test. */
+    static boolean ringContains(double[] coords, int start, int end, double px, double py) {
+        boolean inside = false;
+        for (int i = start, j = end - 1; i < end; j = i++) {
+            double xi = coords[i * 2];
+            double yi = coords[i * 2 + 1];
+            double xj = coords[j * 2];
+            double yj = coords[j * 2 + 1];
+            if ((yi > py) != (yj > py) && px < (xj - xi) * (py - yi) / (yj - yi) + xi) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /** Squared distance from (px, py) to the segment (x0, y0)-(x1, y1). */
+    static double segmentDistanceSq(double px, double py, double x0, double y0, double x1,
+            double y1) {
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq == 0 ? 0 : ((px - x0) * dx + (py - y0) * dy) / lengthSq;
+        t = Math.max(0, Math.min(1, t));
+        double ex = x0 + t * dx - px;
+        double ey = y0 + t * dy - py;
+        return ex * ex + ey * ey;
+    }
+
+    /**
+     * Marks in {@code keep} (indexed from {@code start}) the points of the polyline {@code start}
+     * until {@code end} that Douglas-Peucker retains for the given squared tolerance. Uses an
+     * explicit stack so long lines cannot overflow the thread stack.
+     */
+    static void douglasPeucker(double[] coords, int start, int end, double toleranceSq,
+            boolean[] keep) {
+        int last = end - start - 1;
+        keep[0] = true;
+        keep[last] = true;
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = last;
+        while (top > 0) {
+            int b = stack[--top];
+            int a = stack[--top];
+            double maxDistance = 0;
+            int index = -1;
+            double ax = coords[(start + a) * 2];
+            double ay = coords[(start + a) * 2 + 1];
+            double bx = coords[(start + b) * 2];
+            double by = coords[(start + b) * 2 + 1];
+            for (int i = a + 1; i < b; i++) {
+                double d = segmentDistanceSq(coords[(start + i) * 2], coords[(start + i) * 2 + 1],
+                        ax, ay, bx, by);
+                if (d > maxDistance) {
+                    maxDistance = d;
+                    index = i;
+                }
+            }
+            if (index >= 0 && maxDistance > toleranceSq) {
+                keep[index] = true;
+                if (top + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = a;
+                stack[top++] = index;
+                stack[top++] = index;
+                stack[top++] = b;
+            }
+        }
+    }
+}
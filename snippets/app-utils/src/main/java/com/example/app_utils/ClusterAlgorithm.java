@@ -0,0 +1,128 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Groups the items of a {@link ClusterPointIndex} into clusters for one zoom level. Implementations
+ * must be safe to call from several worker threads at once, and should call
+ * {@link Cancellation#check} often enough that a superseded zoom stops within a few milliseconds.
+ */
+interface ClusterAlgorithm {
+
+    /** Clusters every item in the index at the given zoom. */
+    Clusters cluster(ClusterPointIndex index, int zoom, Cancellation cancellation);
+
+    /** Lets the {@link ClusterEngine} stop a computation whose result nobody wants any more. */
+    interface Cancellation {
+        boolean isCancelled();
+
+        default void check() {
+            if (isCancelled()) {
+                throw new CancellationException();
+            }
+        }
+    }
+
+    /**
+     * The clusters for one zoom, sorted by id. A cluster's id is the lowest item index it holds,
+     * so the same cluster keeps its id across recomputations and a cluster of one item has that
+     * item's index as its id.
+     */
+    final class Clusters {
+        final int zoom;
+        final int size;
+        final int[] ids;
+        final double[] x;
+        final double[] y;
+        final int[] counts;
+
+        private Clusters(int zoom, int size, int[] ids, double[] x, double[] y, int[] counts) {
+            this.zoom = zoom;
+            this.size = size;
+            this.ids = ids;
+            this.x = x;
+            this.y = y;
+            this.counts = counts;
+        }
+
+        /** Keeps only the clusters whose center is inside the box, in world coordinates. */
+        Clusters within(double minX, double minY, double maxX, double maxY) {
+            Builder builder = new Builder(zoom, 64);
+            for (int i = 0; i < size; i++) {
+                if (x[i] >= minX && x[i] <= maxX && y[i] >= minY && y[i] <= maxY) {
+                    builder.add(ids[i], x[i], y[i], counts[i]);
+                }
+            }
+            return builder.build();
+        }
+
+        /** Collects clusters in any order; {@link #build} sorts them by id. */
+        static final class Builder {
+            private final int zoom;
+            private int size;
+            private int[] ids;
+            private double[] x;
+            private double[] y;
+            private int[] counts;
+
+            Builder(int zoom, int expectedSize) {
+                this.zoom = zoom;
+                int capacity = Math.max(16, expectedSize);
+                ids = new int[capacity];
+                x = new double[capacity];
+                y = new double[capacity];
+                counts = new int[capacity];
+            }
+
+            void add(int id, double clusterX, double clusterY, int count) {
+                if (size == ids.length) {
+                    int capacity = size * 2;
+                    ids = Arrays.copyOf(ids, capacity);
+                    x = Arrays.copyOf(x, capacity);
+                    y = Arrays.copyOf(y, capacity);
+                    counts = Arrays.copyOf(counts, capacity);
+                }
+                ids[size] = id;
+                x[size] = clusterX;
+                y[size] = clusterY;
+                counts[size] = count;
+                size++;
+            }
+
+            Clusters build() {
+                long[] order = new long[size];
+                for (int i = 0; i < size; i++) {
+                    order[i] = ((long) ids[i] << 32) | i;
+                }
+                Arrays.sort(order);
+                int[] sortedIds = new int[size];
+                double[] sortedX = new double[size];
+                double[] sortedY = new double[size];
+                int[] sortedCounts = new int[size];
+                for (int i = 0; i < size; i++) {
+                    int from = (int) order[i];
+                    sortedIds[i] = ids[from];
+                    sortedX[i] = x[from];
+                    sortedY[i] = y[from];
+                    sortedCounts[i] = counts[from];
+                }
+                return new Clusters(zoom, size, sortedIds, sortedX, sortedY, sortedCounts);
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Runs a {@link ClusterAlgorithm} on worker threads and hands the UI thread only what changed.
+ *
+ * <p>The items live in a {@link ClusterPointIndex} that is built once, on a worker, and shared by
+ * every zoom. Each camera change starts a new computation and cancels the one before it, so a
+ * fling through several zoom levels only clusters the last one. The whole index is clustered
+ * once per zoom and kept, so panning at the same zoom only clips it again. The result is clipped
+ * to the padded viewport and compared with what the listener was last given, so the listener adds,
+ * removes and updates markers for the clusters that differ instead of clearing the map.
+ */
+class ClusterEngine {
+
+    /** Receives diffs on the callback executor, in the order they were computed. */
+    interface Listener {
+        void onClustersChanged(Diff diff);
+    }
+
+    /** A cluster as the listener sees it. Ids are stable, see {@link ClusterAlgorithm.Clusters}. */
+    static final class Cluster {
+        final int id;
+        final double latitude;
+        final double longitude;
+        final int count;
+
+        Cluster(int id, double latitude, double longitude, int count) {
+            this.id = id;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.count = count;
+        }
+    }
+
+    /** What to change on the map to go from the previous diff's clusters to this one's. */
+    static final class Diff {
+        final int zoom;
+        final List<Cluster> added;
+        final List<Cluster> removed;
+        /** Clusters with the id of a previous one and a new count or position. */
+        final List<Cluster> changed;
+
+        Diff(int zoom, List<Cluster> added, List<Cluster> removed, List<Cluster> changed) {
+            this.zoom = zoom;
+            this.added = Collections.unmodifiableList(added);
+            this.removed = Collections.unmodifiableList(removed);
+            this.changed = Collections.unmodifiableList(changed);
+        }
+
+        boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+        }
+    }
+
+    private final ClusterAlgorithm algorithm;
+    private final ExecutorService workers;
+    private final Executor callbackExecutor;
+    private final Listener listener;
+
+    // Written under the lock, read without it by running computations.
+    private volatile long generation;
+    // Guarded by this.
+    private long itemsVersion;
+    private Future<?> pending;
+    private Future<?> building;
+    private ClusterPointIndex index;
+    private int zoom = -1;
+    private double minX;
+    private double minY;
+    private double maxX;
+    private double maxY;
+    private ClusterAlgorithm.Clusters published;
+    /** Every cluster of {@link #clusteredIndex} at {@link #clusteredZoom}, before clipping. */
+    private ClusterAlgorithm.Clusters clustered;
+    private ClusterPointIndex clusteredIndex;
+    private int clusteredZoom = -1;
+
+    /**
+     * @param workers          runs the index builds and clustering, e.g. a small fixed pool
+     * @param callbackExecutor runs the listener, e.g. the main thread executor
+     */
+    ClusterEngine(ClusterAlgorithm algorithm, ExecutorService workers, Executor callbackExecutor,
+            Listener listener) {
+        this.algorithm = algorithm;
+        this.workers = workers;
+        this.callbackExecutor = callbackExecutor;
+        this.listener = listener;
+    }
+
+    /** Replaces the items. The index is built on a worker and the current viewport reclustered. */
+    void setItems(double[] latitudes, double[] longitudes, int count) {
+        rebuild(() -> ClusterPointIndex.fromLatLngs(latitudes, longitudes, count));
+    }
+
+    /** Replaces the items with a columnar store; cluster ids are the store's item indices. */
+    void setItems(ColumnarClusterItems items) {
+        rebuild(items::buildIndex);
+    }
+
+    private void rebuild(Supplier<ClusterPointIndex> builder) {
+        long expected;
+        synchronized (this) {
+            expected = ++itemsVersion;
+            if (building != null) {
+                building.cancel(false);
+            }
+            building = workers.submit(() -> {
+                ClusterPointIndex built = builder.get();
+                synchronized (this) {
+                    if (itemsVersion != expected) {
+                        return;
+                    }
+                    building = null;
+                    index = built;
+                    generation++;
+                    cancelPending();
+                    schedule();
+                }
+            });
+        }
+    }
+
+    /**
+     * Reclusters for a new camera position. Call this from the map's camera idle listener.
+     * Longitudes may wrap the antimeridian, with {@code west > east}.
+     */
+    synchronized void setViewport(int zoom, double south, double west, double north, double east) {
+        this.zoom = zoom;
+        double left = GeoJsonTileIndex.worldX(west);
+        double right = GeoJsonTileIndex.worldX(east);
+        if (right < left) {
+            // Crossing the antimeridian; cluster the whole width rather than two boxes.
+            left = 0;
+            right = 1;
+        }
+        // Half a screen of padding, so small pans reuse the markers already there.
+        double padX = (right - left) / 2;
+        double top = GeoJsonTileIndex.worldY(north);
+        double bottom = GeoJsonTileIndex.worldY(south);
+        double padY = (bottom - top) / 2;
+        minX = left - padX;
+        maxX = right + padX;
+        minY = top - padY;
+        maxY = bottom + padY;
+        generation++;
+        cancelPending();
+        schedule();
+    }
+
+    /** Stops scheduling work. Does not shut down the executors, which the caller owns. */
+    synchronized void cancel() {
+        generation++;
+        itemsVersion++;
+        cancelPending();
+        if (building != null) {
+            building.cancel(false);
+            building = null;
+        }
+    }
+
+    // Must hold the lock.
+    private void schedule() {
+        if (index == null || zoom < 0) {
+            return;
+        }
+        long expected = generation;
+        ClusterPointIndex snapshotIndex = index;
+        int snapshotZoom = zoom;
+        double boxMinX = minX;
+        double boxMinY = minY;
+        double boxMaxX = maxX;
+        double boxMaxY = maxY;
+        ClusterAlgorithm.Clusters cached =
+            clusteredIndex == index && clusteredZoom == zoom ? clustered : null;
+        pending = workers.submit(() -> {
+            ClusterAlgorithm.Clusters all = cached;
+            if (all == null) {
+                try {
+                    all = algorithm.cluster(snapshotIndex, snapshotZoom,
+                        () -> isSuperseded(expected));
+                } catch (CancellationException e) {
+                    return;
+                }
+            }
+            ClusterAlgorithm.Clusters visible = all.within(boxMinX, boxMinY, boxMaxX, boxMaxY);
+            synchronized (this) {
+                if (all != cached && snapshotIndex == index) {
+                    // Finished, so valid for this zoom even if the viewport has moved on.
+                    clustered = all;
+                    clusteredIndex = snapshotIndex;
+                    clusteredZoom = snapshotZoom;
+                }
+                if (generation != expected) {
+                    return;
+                }
+                Diff diff = diff(published, visible);
+                published = visible;
+                // Posted under the lock so diffs reach the listener in the order they chain.
+                if (!diff.isEmpty()) {
+                    callbackExecutor.execute(() -> listener.onClustersChanged(diff));
+                }
+            }
+        });
+    }
+
+    private boolean isSuperseded(long expected) {
+        return generation != expected;
+    }
+
+    private void cancelPending() {
+        if (pending != null) {
+            // Not interrupting: a running computation sees the new generation and stops itself.
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    /** Merges two id-sorted cluster lists. */
+    static Diff diff(ClusterAlgorithm.Clusters before, ClusterAlgorithm.Clusters after) {
+        List<Cluster> added = new ArrayList<>();
+        List<Cluster> removed = new ArrayList<>();
+        List<Cluster> changed = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        int beforeSize = before == null ? 0 : before.size;
+        while (i < beforeSize || j < after.size) {
+            if (j == after.size || (i < beforeSize && before.ids[i] < after.ids[j])) {
+                removed.add(toCluster(before, i++));
+            } else if (i == beforeSize || after.ids[j] < before.ids[i]) {
+                added.add(toCluster(after, j++));
+            } else {
+                if (before.counts[i] != after.counts[j] || before.x[i] != after.x[j]
+                        || before.y[i] != after.y[j]) {
+                    changed.add(toCluster(after, j));
+                }
+                i++;
+                j++;
+            }
+        }
+        return new Diff(after.zoom, added, removed, changed);
+    }
+
+    private static Cluster toCluster(ClusterAlgorithm.Clusters clusters, int i) {
+        double longitude = clusters.x[i] * 360 - 180;
+        double latitude =
+            Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * clusters.y[i]))));
+        return new Cluster(clusters.ids[i], latitude, longitude, clusters.counts[i]);
+    }
+}
@@ -0,0 +1,165 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+import java.util.Arrays;
+
+/**
+ * An immutable spatial index over item positions for the {@link ClusterAlgorithm}s. Items are
+ * sorted by the 32768x32768 world grid cell they fall in, row by row, so a box query binary
+ * searches each row it covers. The index is built once per data set and shared by every zoom.
+ */
+final class ClusterPointIndex {
+
+    /** Receives the sorted positions of items found by {@link #query}. */
+    interface Visitor {
+        void visit(int position);
+    }
+
+    private static final int GRID_BITS = 15;
+    private static final int GRID_SIZE = 1 << GRID_BITS;
+
+    private final int size;
+    private final double[] x;
+    private final double[] y;
+    private final int[] items;
+    private final int[] cells;
+
+    /** Where the constructor reads item positions from, so callers need no temporary arrays. */
+    private interface Positions {
+        double worldX(int item);
+
+        double worldY(int item);
+    }
+
+    private ClusterPointIndex(Positions positions, int count) {
+        size = count;
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            // The cell in the high bits sorts by row, then column; the item is the tie break.
+            order[i] = ((long) cellOf(positions.worldX(i), positions.worldY(i)) << 32) | i;
+        }
+        Arrays.sort(order);
+        x = new double[count];
+        y = new double[count];
+        items = new int[count];
+        cells = new int[count];
+        for (int p = 0; p < count; p++) {
+            int item = (int) order[p];
+            x[p] = positions.worldX(item);
+            y[p] = positions.worldY(item);
+            items[p] = item;
+            cells[p] = (int) (order[p] >>> 32);
+        }
+    }
+
+    /** Indexes items given by latitude and longitude. Item i is the i-th entry of the arrays. */
+    static ClusterPointIndex fromLatLngs(double[] latitudes, double[] longitudes, int count) {
+        return new ClusterPointIndex(new Positions() {
+            @Override
+            public double worldX(int item) {
+                return GeoJsonTileIndex.worldX(longitudes[item]);
+            }
+
+            @Override
+            public double worldY(int item) {
+                return GeoJsonTileIndex.worldY(latitudes[item]);
+            }
+        }, count);
+    }
+
+    /** Indexes items given in units of 1e-7 degrees, as {@link ColumnarClusterItems} keeps them. */
+    static ClusterPointIndex fromE7(int[] latitudesE7, int[] longitudesE7, int count) {
+        return new ClusterPointIndex(new Positions() {
+            @Override
+            public double worldX(int item) {
+                return GeoJsonTileIndex.worldX(longitudesE7[item] / 1e7);
+            }
+
+            @Override
+            public double worldY(int item) {
+                return GeoJsonTileIndex.worldY(latitudesE7[item] / 1e7);
+            }
+        }, count);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** World x of the item at a sorted position. */
+    double x(int position) {
+        return x[position];
+    }
+
+    double y(int position) {
+        return y[position];
+    }
+
+    /** The caller's index of the item at a sorted position. */
+    int item(int position) {
+        return items[position];
+    }
+
+    /** Visits every item inside the box, in sorted order. Does not wrap around the world. */
+    void query(double minX, double minY, double maxX, double maxY, Visitor visitor) {
+        int minCx = clamp((int) (minX * GRID_SIZE));
+        int maxCx = clamp((int) (maxX * GRID_SIZE));
+        int minCy = clamp((int) (minY * GRID_SIZE));
+        int maxCy = clamp((int) (maxY * GRID_SIZE));
+        for (int row = minCy; row <= maxCy; row++) {
+            int first = (row << GRID_BITS) | minCx;
+            int last = (row << GRID_BITS) | maxCx;
+            // Skip straight to the next occupied row when this one is empty.
+            int p = lowerBound(first);
+            if (p == size) {
+                return;
+            }
+            if (cells[p] >>> GRID_BITS != row) {
+                row = (cells[p] >>> GRID_BITS) - 1;
+                continue;
+            }
+            for (; p < size && cells[p] <= last; p++) {
+                double px = x[p];
+                double py = y[p];
+                if (px >= minX && px <= maxX && py >= minY && py <= maxY) {
+                    visitor.visit(p);
+                }
+            }
+        }
+    }
+
+    private int lowerBound(int cell) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cells[mid] < cell) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int cellOf(double worldX, double worldY) {
+        return (clamp((int) (worldY * GRID_SIZE)) << GRID_BITS) | clamp((int) (worldX * GRID_SIZE));
+    }
+
+    private static int clamp(int cell) {
+        return Math.max(0, Math.min(GRID_SIZE - 1, cell));
+    }
+}
@@ -15,15 +15,28 @@
 package com.example.app_utils;
 
 import android.content.Context;
+import android.widget.Toast;
 
 import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
 
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
 import com.google.maps.android.clustering.ClusterItem;
 import com.google.maps.android.clustering.ClusterManager;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+
 class Clustering {
 
     private GoogleMap map;
@@ -125,4 +138,105 @@ class Clustering {
         clusterManager.addItem(infoWindowItem);
         // [END maps_android_utils_clustering_info_window]
     }
+
+    // [START maps_android_utils_clustering_background]
+    private ExecutorService clusterWorkers;
+    private ClusterEngine clusterEngine;
+    // Markers on the map, by cluster id.
+    private final Map<Integer, Marker> clusterMarkers = new HashMap<>();
+
+    private void setUpBackgroundClusterer(List<MyItem> items) {
+        // Cluster off the main thread; GridClusterAlgorithm is the cheaper alternative.
+        clusterWorkers = Executors.newFixedThreadPool(2);
+        clusterEngine = new ClusterEngine(new DistanceClusterAlgorithm(100), clusterWorkers,
+            ContextCompat.getMainExecutor(context),
+            diff -> applyClusterDiff(diff, id -> items.get(id).getTitle()));
+
+        double[] latitudes = new double[items.size()];
+        double[] longitudes = new double[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            LatLng position = items.get(i).getPosition();
+            latitudes[i] = position.latitude;
+            longitudes[i] = position.longitude;
+        }
+        clusterEngine.setItems(latitudes, longitudes, items.size());
+
+        map.setOnCameraIdleListener(() -> {
+            LatLngBounds bounds = map.getProjection().getVisibleRegion().latLngBounds;
+            clusterEngine.setViewport((int) map.getCameraPosition().zoom,
+                bounds.southwest.latitude, bounds.southwest.longitude,
+                bounds.northeast.latitude, bounds.northeast.longitude);
+        });
+    }
+
+    private void applyClusterDiff(ClusterEngine.Diff diff, IntFunction<String> itemTitles) {
+        // Only the clusters that changed since the last update reach the main thread.
+        for (ClusterEngine.Cluster cluster : diff.removed) {
+            Marker marker = clusterMarkers.remove(cluster.id);
+            if (marker != null) {
+                marker.remove();
+            }
+        }
+        for (ClusterEngine.Cluster cluster : diff.changed) {
+            Marker marker = clusterMarkers.get(cluster.id);
+            if (marker != null) {
+                marker.setPosition(new LatLng(cluster.latitude, cluster.longitude));
+                marker.setTitle(clusterTitle(cluster, itemTitles));
+            }
+        }
+        for (ClusterEngine.Cluster cluster : diff.added) {
+            Marker marker = map.addMarker(new MarkerOptions()
+                .position(new LatLng(cluster.latitude, cluster.longitude))
+                .title(clusterTitle(cluster, itemTitles)));
+            clusterMarkers.put(cluster.id, marker);
+        }
+    }
+
+    private static String clusterTitle(ClusterEngine.Cluster cluster,
+            IntFunction<String> itemTitles) {
+        // A cluster of one has the index of its item as its id.
+        return cluster.count == 1 ? itemTitles.apply(cluster.id) : cluster.count + " items";
+    }
+
+    private void tearDownBackgroundClusterer() {
+        clusterEngine.cancel();
+        clusterWorkers.shutdown();
+    }
+    // [END maps_android_utils_clustering_background]
+
+    // [START maps_android_utils_clustering_columnar]
+    private ColumnarClusterItems columnarItems;
+
+    private void setUpColumnarClusterer() {
+        // A million items as a few primitive arrays rather than millions of small objects.
+        ColumnarClusterItems.Builder builder = new ColumnarClusterItems.Builder();
+        Random random = new Random();
+        for (int i = 0; i < 1_000_000; i++) {
+            builder.add(51.5 + random.nextGaussian() * 0.1, -0.12 + random.nextGaussian() * 0.2,
+                "Title " + i, "Snippet " + i);
+        }
+        columnarItems = builder.build();
+
+        clusterWorkers = Executors.newFixedThreadPool(2);
+        clusterEngine = new ClusterEngine(new DistanceClusterAlgorithm(100), clusterWorkers,
+            ContextCompat.getMainExecutor(context),
+            // Titles are decoded only for the single items that get a marker.
+            diff -> applyClusterDiff(diff, columnarItems::getTitle));
+        clusterEngine.setItems(columnarItems);
+
+        map.setOnCameraIdleListener(() -> {
+            LatLngBounds bounds = map.getProjection().getVisibleRegion().latLngBounds;
+            clusterEngine.setViewport((int) map.getCameraPosition().zoom,
+                bounds.southwest.latitude, bounds.southwest.longitude,
+                bounds.northeast.latitude, bounds.northeast.longitude);
+        });
+    }
+
+    private void onColumnarItemClick(int index) {
+        // Code that wants a ClusterItem gets a view onto the columns.
+        ClusterItem item = columnarItems.item(index);
+        Toast.makeText(context, item.getTitle() + ": " + item.getSnippet(),
+            Toast.LENGTH_SHORT).show();
+    }
+    // [END maps_android_utils_clustering_columnar]
 }
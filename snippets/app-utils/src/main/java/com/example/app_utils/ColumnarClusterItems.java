@@ -0,0 +1,220 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.maps.android.clustering.ClusterItem;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Cluster items stored as columns of primitives instead of one object per item.
+ *
+ * <p>A {@code MyItem} with its {@code LatLng} and two strings is five objects, around 150 bytes
+ * of heap. Here positions are two {@code int}s in units of 1e-7 degrees, about 1cm, and titles and
+ * snippets are UTF-8 bytes in one shared array each, decoded only when {@link #getTitle} or
+ * {@link #getSnippet} asks for them. That is roughly 8 bytes plus the text per item, and a
+ * handful of objects for the whole set, so the garbage collector has almost nothing to trace.
+ *
+ * <p>{@link #item} makes a {@link ClusterItem} view for the code that needs one, such as a marker
+ * renderer or a click listener; views are cheap and equal when they point at the same index.
+ * {@link #buildIndex} feeds the positions to a {@link ClusterEngine} without any views at all.
+ */
+final class ColumnarClusterItems {
+
+    private static final double SCALE = 1e7;
+
+    private final int size;
+    private final int[] latitudes;
+    private final int[] longitudes;
+    private final StringColumn titles;
+    private final StringColumn snippets;
+
+    private ColumnarClusterItems(Builder builder) {
+        size = builder.size;
+        latitudes = Arrays.copyOf(builder.latitudes, size);
+        longitudes = Arrays.copyOf(builder.longitudes, size);
+        titles = builder.titles.build();
+        snippets = builder.snippets.build();
+    }
+
+    int size() {
+        return size;
+    }
+
+    double getLatitude(int index) {
+        return latitudes[index] / SCALE;
+    }
+
+    double getLongitude(int index) {
+        return longitudes[index] / SCALE;
+    }
+
+    @Nullable
+    String getTitle(int index) {
+        return titles.get(index);
+    }
+
+    @Nullable
+    String getSnippet(int index) {
+        return snippets.get(index);
+    }
+
+    /** A {@link ClusterItem} backed by this store. Creates a small object on every call. */
+    Item item(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Item " + index + " of " + size);
+        }
+        return new Item(index);
+    }
+
+    /** Indexes the positions for clustering, straight from the columns. */
+    ClusterPointIndex buildIndex() {
+        return ClusterPointIndex.fromE7(latitudes, longitudes, size);
+    }
+
+    /** A view of one item. Only {@link #getPosition} allocates, and only a {@code LatLng}. */
+    final class Item implements ClusterItem {
+        private final int index;
+
+        private Item(int index) {
+            this.index = index;
+        }
+
+        int getIndex() {
+            return index;
+        }
+
+        @Override
+        public LatLng getPosition() {
+            return new LatLng(getLatitude(index), getLongitude(index));
+        }
+
+        @Nullable
+        @Override
+        public String getTitle() {
+            return ColumnarClusterItems.this.getTitle(index);
+        }
+
+        @Nullable
+        @Override
+        public String getSnippet() {
+            return ColumnarClusterItems.this.getSnippet(index);
+        }
+
+        @Nullable
+        @Override
+        public Float getZIndex() {
+            return 0f;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Item)) {
+                return false;
+            }
+            Item other = (Item) o;
+            return index == other.index && store() == other.store();
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
+
+        private ColumnarClusterItems store() {
+            return ColumnarClusterItems.this;
+        }
+    }
+
+    /** Collects items in order; item i of the store is the i-th {@link #add}. */
+    static final class Builder {
+        private int size;
+        private int[] latitudes = new int[64];
+        private int[] longitudes = new int[64];
+        private final StringColumn.Builder titles = new StringColumn.Builder();
+        private final StringColumn.Builder snippets = new StringColumn.Builder();
+
+        Builder add(double latitude, double longitude, @Nullable String title,
+                @Nullable String snippet) {
+            if (size == latitudes.length) {
+                latitudes = Arrays.copyOf(latitudes, size * 2);
+                longitudes = Arrays.copyOf(longitudes, size * 2);
+            }
+            latitudes[size] = (int) Math.round(latitude * SCALE);
+            longitudes[size] = (int) Math.round(longitude * SCALE);
+            titles.add(title);
+            snippets.add(snippet);
+            size++;
+            return this;
+        }
+
+        ColumnarClusterItems build() {
+            return new ColumnarClusterItems(this);
+        }
+    }
+
+    /** Strings as UTF-8 in one array, with an offset per string; a negative end marks null. */
+    private static final class StringColumn {
+        private final byte[] bytes;
+        private final int[] ends;
+
+        private StringColumn(byte[] bytes, int[] ends) {
+            this.bytes = bytes;
+            this.ends = ends;
+        }
+
+        @Nullable
+        String get(int index) {
+            int end = ends[index];
+            if (end < 0) {
+                return null;
+            }
+            int start = index == 0 ? 0 : Math.abs(ends[index - 1]) - 1;
+            return new String(bytes, start, end - 1 - start, StandardCharsets.UTF_8);
+        }
+
+        static final class Builder {
+            private byte[] bytes = new byte[1024];
+            private int length;
+            private int[] ends = new int[64];
+            private int count;
+
+            void add(@Nullable String value) {
+                if (count == ends.length) {
+                    ends = Arrays.copyOf(ends, count * 2);
+                }
+                if (value != null) {
+                    byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                    if (length + encoded.length > bytes.length) {
+                        bytes = Arrays.copyOf(bytes,
+                            Math.max(bytes.length * 2, length + encoded.length));
+                    }
+                    System.arraycopy(encoded, 0, bytes, length, encoded.length);
+                    length += encoded.length;
+                }
+                // Ends are stored plus one so that zero, an empty first string, keeps a sign.
+                ends[count++] = value == null ? -(length + 1) : length + 1;
+            }
+
+            StringColumn build() {
+                return new StringColumn(Arrays.copyOf(bytes, length), Arrays.copyOf(ends, count));
+            }
+        }
+    }
+}
@@ -0,0 +1,421 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A heatmap that sums its points into a pyramid of density grids when it is built, one level per
+ * zoom up to {@link #getMaxLevel()}, each level made from the one below it by adding up 2x2
+ * cells. A tile reads the cells of its own level and blurs and colors those, so its cost depends
+ * on the tile size rather than on how many points are in view. Past the last level, tiles bin
+ * the points of the last-level tile they fall in, which at that zoom are few.
+ *
+ * <p>Grids are only stored for tiles that hold points. Each level's maximum cell is used as the
+ * intensity that maps to the last gradient color, like {@code HeatmapTileProvider} does per zoom.
+ * Everything up to the pixels is plain Java; only the {@link TileEncoder} touches Android graphics.
+ */
+class DensityPyramidTileProvider implements TileProvider {
+
+    static final int TILE_SIZE_PX = 512;
+    /** Cells per tile side at every level; a cell is 8 pixels. */
+    static final int CELLS = 64;
+    static final int CELL_PX = TILE_SIZE_PX / CELLS;
+
+    private static final int COLOR_MAP_SIZE = 1000;
+
+    private final int maxLevel;
+    private final int padCells;
+    private final double[] kernel;
+    private final int[] colorMap;
+
+    /** levels[z] maps a tile key to its CELLS x CELLS densities, row by row. */
+    private final Map<Long, float[]>[] levels;
+    private final double[] levelMax;
+    /** The points of each tile at maxLevel, as world x, world y, weight triples. */
+    private final Map<Long, double[]> pointsByTile = new HashMap<>();
+    private final double maxWeight;
+    private final TileEncoder encoder;
+
+    private final ThreadLocal<Renderer> renderers = ThreadLocal.withInitial(Renderer::new);
+
+    private DensityPyramidTileProvider(Builder builder) {
+        maxLevel = builder.maxLevel;
+        encoder = builder.encoder != null ? builder.encoder : new PngTileEncoder();
+        padCells = (int) Math.ceil((double) builder.radiusPx / CELL_PX);
+        kernel = HeatmapColors.generateKernel(padCells,
+            builder.radiusPx / 3.0 / CELL_PX);
+        colorMap = HeatmapColors.generateColorMap(builder.colors,
+            builder.startPoints, COLOR_MAP_SIZE);
+
+        @SuppressWarnings("unchecked")
+        Map<Long, float[]>[] grids = new Map[maxLevel + 1];
+        levels = grids;
+        levelMax = new double[maxLevel + 1];
+        double heaviest = 0;
+
+        // Bin the points into the last level and group them by tile for deeper zooms.
+        Map<Long, float[]> finest = new HashMap<>();
+        Map<Long, int[]> counts = new HashMap<>();
+        int size = 1 << maxLevel;
+        for (int i = 0; i < builder.count; i++) {
+            double x = builder.points[i * 3];
+            double y = builder.points[i * 3 + 1];
+            double weight = builder.points[i * 3 + 2];
+            heaviest = Math.max(heaviest, weight);
+            int tx = Math.min(size - 1, (int) (x * size));
+            int ty = Math.min(size - 1, (int) (y * size));
+            long key = tileKey(tx, ty, maxLevel);
+            float[] cells = finest.get(key);
+            if (cells == null) {
+                cells = new float[CELLS * CELLS];
+                finest.put(key, cells);
+            }
+            int cx = Math.min(CELLS - 1, (int) ((x * size - tx) * CELLS));
+            int cy = Math.min(CELLS - 1, (int) ((y * size - ty) * CELLS));
+            cells[cy * CELLS + cx] += weight;
+            int[] count = counts.get(key);
+            if (count == null) {
+                counts.put(key, new int[] {1});
+            } else {
+                count[0]++;
+            }
+        }
+        maxWeight = heaviest;
+        groupPoints(builder, counts);
+        levels[maxLevel] = finest;
+
+        // Each coarser level adds up 2x2 cells of the level below.
+        for (int level = maxLevel - 1; level >= 0; level--) {
+            Map<Long, float[]> parents = new HashMap<>();
+            for (Map.Entry<Long, float[]> entry : levels[level + 1].entrySet()) {
+                long key = entry.getKey();
+                int tx = keyX(key);
+                int ty = keyY(key);
+                long parentKey = tileKey(tx >> 1, ty >> 1, level);
+                float[] parent = parents.get(parentKey);
+                if (parent == null) {
+                    parent = new float[CELLS * CELLS];
+                    parents.put(parentKey, parent);
+                }
+                float[] child = entry.getValue();
+                int offsetX = (tx & 1) * CELLS / 2;
+                int offsetY = (ty & 1) * CELLS / 2;
+                for (int cy = 0; cy < CELLS; cy++) {
+                    int row = (offsetY + cy / 2) * CELLS + offsetX;
+                    for (int cx = 0; cx < CELLS; cx++) {
+                        parent[row + cx / 2] += child[cy * CELLS + cx];
+                    }
+                }
+            }
+            levels[level] = parents;
+        }
+        for (int level = 0; level <= maxLevel; level++) {
+            double max = 0;
+            for (float[] cells : levels[level].values()) {
+                for (float value : cells) {
+                    max = Math.max(max, value);
+                }
+            }
+            levelMax[level] = max;
+        }
+    }
+
+    private void groupPoints(Builder builder, Map<Long, int[]> counts) {
+        int size = 1 << maxLevel;
+        for (Map.Entry<Long, int[]> entry : counts.entrySet()) {
+            pointsByTile.put(entry.getKey(), new double[entry.getValue()[0] * 3]);
+            entry.getValue()[0] = 0;
+        }
+        for (int i = 0; i < builder.count; i++) {
+            double x = builder.points[i * 3];
+            double y = builder.points[i * 3 + 1];
+            long key = tileKey(Math.min(size - 1, (int) (x * size)),
+                Math.min(size - 1, (int) (y * size)), maxLevel);
+            int[] fill = counts.get(key);
+            double[] points = pointsByTile.get(key);
+            System.arraycopy(builder.points, i * 3, points, fill[0] * 3, 3);
+            fill[0]++;
+        }
+    }
+
+    int getMaxLevel() {
+        return maxLevel;
+    }
+
+    /** The number of grids stored across all levels. */
+    int getGridCount() {
+        int count = 0;
+        for (Map<Long, float[]> level : levels) {
+            count += level.size();
+        }
+        return count;
+    }
+
+    @Override
+    public Tile getTile(int x, int y, int zoom) {
+        Renderer renderer = renderers.get();
+        if (!renderer.gather(x, y, zoom)) {
+            return NO_TILE;
+        }
+        renderer.colorize(intensityScale(zoom));
+        return encoder.encode(renderer.pixels, TILE_SIZE_PX);
+    }
+
+    /** Renders a tile's pixels without encoding them, for tests and benchmarks. */
+    int[] renderPixels(int x, int y, int zoom) {
+        Renderer renderer = renderers.get();
+        renderer.gather(x, y, zoom);
+        renderer.colorize(intensityScale(zoom));
+        return renderer.pixels;
+    }
+
+    private double intensityScale(int zoom) {
+        double max;
+        if (zoom <= maxLevel) {
+            max = levelMax[zoom];
+        } else {
+            // Cells hold a quarter of the points per extra zoom level, on average.
+            max = Math.max(maxWeight, levelMax[maxLevel] / Math.pow(4, zoom - maxLevel));
+        }
+        return max == 0 ? 0 : (COLOR_MAP_SIZE - 1) / max;
+    }
+
+    private static long tileKey(int x, int y, int zoom) {
+        return ((long) zoom << 58) | ((long) x << 29) | y;
+    }
+
+    private static int keyX(long key) {
+        return (int) ((key >>> 29) & ((1 << 29) - 1));
+    }
+
+    private static int keyY(long key) {
+        return (int) (key & ((1 << 29) - 1));
+    }
+
+    /** Per-thread buffers: the padded cell grid, its blur and the tile's pixels. */
+    private final class Renderer {
+        final int span = CELLS + padCells * 2;
+        final float[] cells = new float[span * span];
+        final float[] temp = new float[span * span];
+        final int[] pixels = new int[TILE_SIZE_PX * TILE_SIZE_PX];
+
+        /** Fills the padded cell grid for a tile. Returns false if it is empty. */
+        boolean gather(int x, int y, int zoom) {
+            Arrays.fill(cells, 0);
+            return zoom <= maxLevel ? copyLevel(x, y, zoom) : binPoints(x, y, zoom);
+        }
+
+        /** Copies the tile's grid and the borders of its eight neighbours. */
+        private boolean copyLevel(int x, int y, int zoom) {
+            int size = 1 << zoom;
+            boolean any = false;
+            for (int dy = -1; dy <= 1; dy++) {
+                int ny = y + dy;
+                if (ny < 0 || ny >= size) {
+                    continue;
+                }
+                for (int dx = -1; dx <= 1; dx++) {
+                    int nx = Math.floorMod(x + dx, size);
+                    float[] grid = levels[zoom].get(tileKey(nx, ny, zoom));
+                    if (grid == null) {
+                        continue;
+                    }
+                    // The part of the neighbour's grid that lands inside the padded span.
+                    int fromX = Math.max(0, -dx * CELLS - padCells);
+                    int toX = Math.min(CELLS, -dx * CELLS + CELLS + padCells);
+                    int fromY = Math.max(0, -dy * CELLS - padCells);
+                    int toY = Math.min(CELLS, -dy * CELLS + CELLS + padCells);
+                    for (int cy = fromY; cy < toY; cy++) {
+                        int target = (cy + dy * CELLS + padCells) * span + dx * CELLS + padCells;
+                        for (int cx = fromX; cx < toX; cx++) {
+                            float value = grid[cy * CELLS + cx];
+                            if (value != 0) {
+                                cells[target + cx] += value;
+                                any = true;
+                            }
+                        }
+                    }
+                }
+            }
+            return any;
+        }
+
+        /** Bins the points near a tile deeper than the last level into cells. */
+        private boolean binPoints(int x, int y, int zoom) {
+            int size = 1 << zoom;
+            double pad = (double) padCells / CELLS;
+            boolean any = false;
+            int minTx = (int) Math.floor((x - pad) / size * (1 << maxLevel));
+            int maxTx = (int) Math.floor((x + 1 + pad) / size * (1 << maxLevel));
+            int minTy = Math.max(0, (int) Math.floor((y - pad) / size * (1 << maxLevel)));
+            int maxTy = Math.min((1 << maxLevel) - 1,
+                (int) Math.floor((y + 1 + pad) / size * (1 << maxLevel)));
+            for (int ty = minTy; ty <= maxTy; ty++) {
+                for (int tx = minTx; tx <= maxTx; tx++) {
+                    int wrapped = Math.floorMod(tx, 1 << maxLevel);
+                    double[] points = pointsByTile.get(tileKey(wrapped, ty, maxLevel));
+                    if (points == null) {
+                        continue;
+                    }
+                    // Shift wrapped tiles back next to the tile being drawn.
+                    double offset = (double) (tx - wrapped) / (1 << maxLevel);
+                    for (int i = 0; i < points.length; i += 3) {
+                        double px = ((points[i] + offset) * size - x) * CELLS + padCells;
+                        double py = (points[i + 1] * size - y) * CELLS + padCells;
+                        if (px >= 0 && px < span && py >= 0 && py < span) {
+                            cells[(int) py * span + (int) px] += (float) points[i + 2];
+                            any = true;
+                        }
+                    }
+                }
+            }
+            return any;
+        }
+
+        /** Blurs the cells, then upsamples them bilinearly to pixels and colors them. */
+        void colorize(double scale) {
+            blur();
+            for (int py = 0; py < TILE_SIZE_PX; py++) {
+                // Cell centers sit at (c + 0.5) * CELL_PX.
+                float fy = (py + 0.5f) / CELL_PX - 0.5f;
+                int cy = (int) Math.floor(fy);
+                float ty = fy - cy;
+                int row0 = (cy + padCells) * span;
+                int row1 = row0 + span;
+                for (int px = 0; px < TILE_SIZE_PX; px++) {
+                    float fx = (px + 0.5f) / CELL_PX - 0.5f;
+                    int cx = (int) Math.floor(fx);
+                    float tx = fx - cx;
+                    int col = cx + padCells;
+                    float top =
+                        cells[row0 + col] + (cells[row0 + col + 1] - cells[row0 + col]) * tx;
+                    float bottom =
+                        cells[row1 + col] + (cells[row1 + col + 1] - cells[row1 + col]) * tx;
+                    float value = top + (bottom - top) * ty;
+                    if (value <= 0) {
+                        pixels[py * TILE_SIZE_PX + px] = HeatmapColors.TRANSPARENT;
+                    } else {
+                        int index = Math.min((int) (value * scale), colorMap.length - 1);
+                        pixels[py * TILE_SIZE_PX + px] = colorMap[index];
+                    }
+                }
+            }
+        }
+
+        /** Separable Gaussian blur of the padded grid, in place. */
+        private void blur() {
+            int radius = padCells;
+            Arrays.fill(temp, 0);
+            for (int row = 0; row < span; row++) {
+                for (int col = 0; col < span; col++) {
+                    float value = cells[row * span + col];
+                    if (value == 0) {
+                        continue;
+                    }
+                    int start = Math.max(0, col - radius);
+                    int end = Math.min(span - 1, col + radius);
+                    for (int k = start; k <= end; k++) {
+                        temp[row * span + k] += value * kernel[k - col + radius];
+                    }
+                }
+            }
+            Arrays.fill(cells, 0);
+            for (int row = 0; row < span; row++) {
+                for (int col = 0; col < span; col++) {
+                    float value = temp[row * span + col];
+                    if (value == 0) {
+                        continue;
+                    }
+                    int start = Math.max(0, row - radius);
+                    int end = Math.min(span - 1, row + radius);
+                    for (int k = start; k <= end; k++) {
+                        cells[k * span + col] += value * kernel[k - row + radius];
+                    }
+                }
+            }
+        }
+    }
+
+    /** Collects points and builds the pyramid. */
+    static class Builder {
+        private double[] points = new double[3 * 1024];
+        private int count;
+        private int radiusPx = 20;
+        private int maxLevel = 7;
+        private int[] colors = {HeatmapColors.rgb(102, 225, 0), HeatmapColors.rgb(255, 0, 0)};
+        private float[] startPoints = {0.2f, 1f};
+        private TileEncoder encoder;
+
+        Builder add(double latitude, double longitude, double weight) {
+            if (count * 3 == points.length) {
+                points = Arrays.copyOf(points, points.length * 2);
+            }
+            points[count * 3] = GeoJsonTileIndex.worldX(longitude);
+            points[count * 3 + 1] = GeoJsonTileIndex.worldY(latitude);
+            points[count * 3 + 2] = weight;
+            count++;
+            return this;
+        }
+
+        /** Adds every point of a packed set. */
+        Builder addAll(HeatmapPointSet pointSet) {
+            pointSet.forEach(this::add);
+            return this;
+        }
+
+        /**
+         * Kernel radius in tile pixels, as for {@code HeatmapTileProvider}. Must be at least 1, so
+         * that every tile reads a border of cells from its neighbours.
+         */
+        Builder radius(int radiusPx) {
+            if (radiusPx < 1) {
+                throw new IllegalArgumentException("Radius must be at least 1 pixel: " + radiusPx);
+            }
+            this.radiusPx = radiusPx;
+            return this;
+        }
+
+        /**
+         * The deepest zoom with a precomputed grid, 7 by default. Every tile that holds points
+         * costs 16 KB at each level, so each extra level can quadruple the memory used.
+         */
+        Builder maxLevel(int maxLevel) {
+            this.maxLevel = maxLevel;
+            return this;
+        }
+
+        Builder gradient(int[] colors, float[] startPoints) {
+            this.colors = colors;
+            this.startPoints = startPoints;
+            return this;
+        }
+
+        /** How tiles are encoded, PNG by default. Tests pass one that needs no device. */
+        Builder encoder(TileEncoder encoder) {
+            this.encoder = encoder;
+            return this;
+        }
+
+        DensityPyramidTileProvider build() {
+            return new DensityPyramidTileProvider(this);
+        }
+    }
+}
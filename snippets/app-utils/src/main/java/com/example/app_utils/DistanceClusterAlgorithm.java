@@ -0,0 +1,84 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+/**
+ * Clusters items around seeds, like the library's {@code NonHierarchicalDistanceBasedAlgorithm}:
+ * each item not yet taken starts a cluster and takes every free item within a screen distance of
+ * it, found with a box query on the index instead of the library's per-call quadtree. Clusters sit
+ * on their seed item, so they do not jump to a grid.
+ */
+final class DistanceClusterAlgorithm implements ClusterAlgorithm {
+
+    private static final int CHECK_INTERVAL = 256;
+
+    private final int maxDistancePx;
+
+    /** @param maxDistancePx how far from its seed an item can be, in pixels of a 256 pixel tile */
+    DistanceClusterAlgorithm(int maxDistancePx) {
+        this.maxDistancePx = maxDistancePx;
+    }
+
+    @Override
+    public Clusters cluster(ClusterPointIndex index, int zoom, Cancellation cancellation) {
+        double span = maxDistancePx / (256.0 * (1L << zoom));
+        boolean[] taken = new boolean[index.size()];
+        Clusters.Builder builder = new Clusters.Builder(zoom, 64);
+        // The visitor is reused for every seed to keep the loop allocation free.
+        Collector collector = new Collector(index, taken);
+        int seeds = 0;
+        for (int p = 0; p < index.size(); p++) {
+            if (taken[p]) {
+                continue;
+            }
+            if (++seeds % CHECK_INTERVAL == 0) {
+                cancellation.check();
+            }
+            double seedX = index.x(p);
+            double seedY = index.y(p);
+            collector.reset();
+            index.query(seedX - span, seedY - span, seedX + span, seedY + span, collector);
+            builder.add(collector.lowestItem, seedX, seedY, collector.count);
+        }
+        return builder.build();
+    }
+
+    private static final class Collector implements ClusterPointIndex.Visitor {
+        private final ClusterPointIndex index;
+        private final boolean[] taken;
+        int count;
+        int lowestItem;
+
+        Collector(ClusterPointIndex index, boolean[] taken) {
+            this.index = index;
+            this.taken = taken;
+        }
+
+        void reset() {
+            count = 0;
+            lowestItem = Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void visit(int position) {
+            if (taken[position]) {
+                return;
+            }
+            taken[position] = true;
+            count++;
+            lowestItem = Math.min(lowestItem, index.item(position));
+        }
+    }
+}
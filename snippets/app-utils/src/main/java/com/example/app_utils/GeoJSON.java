@@ -20,6 +20,8 @@ import android.util.Log;
 
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.TileOverlay;
+import com.google.android.gms.maps.model.TileOverlayOptions;
 import com.google.maps.android.data.Feature;
 import com.google.maps.android.data.Layer;
 import com.google.maps.android.data.geojson.GeoJsonFeature;
@@ -34,6 +36,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -65,6 +68,38 @@ class GeoJSON {
         // [END maps_android_util_geojson_remove_layer]
     }
 
+    private void addGeoJsonTileOverlay(Context context) throws IOException {
+        // [START maps_android_util_geojson_tile_overlay]
+        // For collections with thousands of features, index the geometry once and draw it into
+        // tiles instead of adding a marker, polyline or polygon per feature. The file is streamed
+        // one feature at a time, so the document is never held in memory as a whole.
+        InputStream inputStream = context.getResources().openRawResource(R.raw.geojson_file);
+        GeoJsonTileIndex.Builder builder = new GeoJsonTileIndex.Builder();
+        GeoJsonStreamParser.parse(inputStream, builder::addFeature);
+        GeoJsonTileIndex index = builder.build();
+
+        float density = context.getResources().getDisplayMetrics().density;
+        GeoJsonTileProvider provider = new GeoJsonTileProvider(index, density,
+            Color.argb(96, 66, 133, 244), Color.rgb(66, 133, 244), 2, 4);
+        TileOverlay overlay = map.addTileOverlay(new TileOverlayOptions().tileProvider(provider));
+
+        // Hit-test clicks against the same index.
+        map.setOnMapClickListener(latLng -> {
+            int feature = index.hitTest(latLng.latitude, latLng.longitude,
+                map.getCameraPosition().zoom, 12);
+            if (feature >= 0) {
+                Log.i("GeoJsonClick", "Feature clicked: " + index.getTag(feature));
+            }
+        });
+        // [END maps_android_util_geojson_tile_overlay]
+
+        // [START maps_android_util_geojson_tile_overlay_remove]
+        // The provider keeps a bitmap per tile thread; free them once the overlay is gone.
+        overlay.remove();
+        provider.release();
+        // [END maps_android_util_geojson_tile_overlay_remove]
+    }
+
     private void geoJsonFeature(GeoJsonLayer layer) {
         // [START maps_android_util_geojson_point_feature]
         GeoJsonPoint point = new GeoJsonPoint(new LatLng(0, 0));
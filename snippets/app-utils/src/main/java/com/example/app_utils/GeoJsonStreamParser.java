@@ -0,0 +1,360 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a GeoJSON FeatureCollection (or a single Feature or geometry) from a stream and hands
+ * the features to a {@link FeatureHandler} one at a time, so the whole document is never held in
+ * memory. The {@link Feature} passed to the handler is reused for the next feature; copy what
+ * needs to outlive the callback.
+ */
+class GeoJsonStreamParser {
+
+    interface FeatureHandler {
+        void onFeature(Feature feature) throws IOException;
+    }
+
+    /**
+     * One feature. Its geometry is flattened into positions, rings and parts: a Point or a
+     * LineString is one part with one ring, a Polygon or MultiLineString is one part with one
+     * ring per polygon ring or line, and a MultiPolygon has one part per polygon. A
+     * GeometryCollection contributes one geometry per member.
+     */
+    static final class Feature {
+        private int geometryCount;
+        private String[] geometryTypes = new String[2];
+        private int[] geometryPartStart = new int[2];
+
+        private int partCount;
+        private int[] partRingStart = new int[2];
+
+        private int ringCount;
+        private int[] ringPositionStart = new int[2];
+
+        private int positionCount;
+        /** Longitude, latitude pairs, in GeoJSON order. */
+        private double[] positions = new double[64];
+
+        private Map<String, Object> properties;
+
+        int getGeometryCount() {
+            return geometryCount;
+        }
+
+        String getGeometryType(int geometry) {
+            return geometryTypes[geometry];
+        }
+
+        int getPartStart(int geometry) {
+            return geometryPartStart[geometry];
+        }
+
+        int getPartEnd(int geometry) {
+            return geometryPartStart[geometry + 1];
+        }
+
+        int getRingStart(int part) {
+            return partRingStart[part];
+        }
+
+        int getRingEnd(int part) {
+            return partRingStart[part + 1];
+        }
+
+        int getPositionStart(int ring) {
+            return ringPositionStart[ring];
+        }
+
+        int getPositionEnd(int ring) {
+            return ringPositionStart[ring + 1];
+        }
+
+        double getLatitude(int position) {
+            return positions[position * 2 + 1];
+        }
+
+        double getLongitude(int position) {
+            return positions[position * 2];
+        }
+
+        /** The feature's properties, or an empty map. A new map is created for each feature. */
+        Map<String, Object> getProperties() {
+            return properties;
+        }
+
+        private void reset() {
+            geometryCount = 0;
+            partCount = 0;
+            ringCount = 0;
+            positionCount = 0;
+            properties = new HashMap<>();
+        }
+
+        private void beginGeometry() {
+            if (geometryCount + 1 >= geometryPartStart.length) {
+                geometryTypes = Arrays.copyOf(geometryTypes, geometryTypes.length * 2);
+                geometryPartStart = Arrays.copyOf(geometryPartStart, geometryPartStart.length * 2);
+            }
+            geometryPartStart[geometryCount] = partCount;
+        }
+
+        private void endGeometry(String type) {
+            geometryTypes[geometryCount] = type;
+            geometryCount++;
+            geometryPartStart[geometryCount] = partCount;
+        }
+
+        private void beginPart() {
+            if (partCount + 1 >= partRingStart.length) {
+                partRingStart = Arrays.copyOf(partRingStart, partRingStart.length * 2);
+            }
+            partRingStart[partCount++] = ringCount;
+            partRingStart[partCount] = ringCount;
+        }
+
+        private void beginRing() {
+            if (ringCount + 1 >= ringPositionStart.length) {
+                ringPositionStart = Arrays.copyOf(ringPositionStart, ringPositionStart.length * 2);
+            }
+            ringPositionStart[ringCount++] = positionCount;
+            ringPositionStart[ringCount] = positionCount;
+            partRingStart[partCount] = ringCount;
+        }
+
+        private void addPosition(double longitude, double latitude) {
+            if (positionCount * 2 + 2 > positions.length) {
+                positions = Arrays.copyOf(positions, positions.length * 2);
+            }
+            positions[positionCount * 2] = longitude;
+            positions[positionCount * 2 + 1] = latitude;
+            positionCount++;
+            ringPositionStart[ringCount] = positionCount;
+        }
+    }
+
+    private GeoJsonStreamParser() {
+    }
+
+    /** Parses the stream and closes it. Returns the number of features handled. */
+    static int parse(InputStream in, FeatureHandler handler) throws IOException {
+        try (JsonStreamReader reader = new JsonStreamReader(in)) {
+            Feature feature = new Feature();
+            return readObject(reader, feature, handler);
+        }
+    }
+
+    /**
+     * Reads a FeatureCollection, Feature or bare geometry. Member order is not fixed in GeoJSON,
+     * so "type" is only interpreted once the whole object has been read.
+     */
+    private static int readObject(JsonStreamReader reader, Feature feature,
+            FeatureHandler handler) throws IOException {
+        feature.reset();
+        String type = null;
+        int handled = 0;
+        boolean hasGeometry = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case "type":
+                    type = reader.nextString();
+                    break;
+                case "features":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        handled += readObject(reader, feature, handler);
+                    }
+                    reader.endArray();
+                    break;
+                case "geometry":
+                    if (reader.peek() == JsonStreamReader.Token.NULL) {
+                        reader.nextNull();
+                    } else {
+                        readGeometry(reader, feature);
+                        hasGeometry = true;
+                    }
+                    break;
+                case "properties":
+                    if (reader.peek() == JsonStreamReader.Token.NULL) {
+                        reader.nextNull();
+                    } else {
+                        feature.properties = readMap(reader);
+                    }
+                    break;
+                case "coordinates":
+                case "geometries":
+                    // A bare geometry at the top level.
+                    readGeometryMember(reader, feature, name);
+                    hasGeometry = true;
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if ("Feature".equals(type) && hasGeometry) {
+            handler.onFeature(feature);
+            handled++;
+        } else if (type != null && !"FeatureCollection".equals(type) && hasGeometry) {
+            // A bare geometry; its coordinates were buffered without a type.
+            if (!"GeometryCollection".equals(type)) {
+                feature.geometryTypes[feature.geometryCount - 1] = type;
+            }
+            handler.onFeature(feature);
+            handled++;
+        }
+        return handled;
+    }
+
+    private static void readGeometry(JsonStreamReader reader, Feature feature)
+            throws IOException {
+        String type = null;
+        int geometry = feature.geometryCount;
+        boolean read = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("type")) {
+                type = reader.nextString();
+            } else if (name.equals("coordinates") || name.equals("geometries")) {
+                readGeometryMember(reader, feature, name);
+                read = true;
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (read && !"GeometryCollection".equals(type)) {
+            feature.geometryTypes[geometry] = type;
+        }
+    }
+
+    private static void readGeometryMember(JsonStreamReader reader, Feature feature, String name)
+            throws IOException {
+        if (name.equals("geometries")) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                readGeometry(reader, feature);
+            }
+            reader.endArray();
+            return;
+        }
+        feature.beginGeometry();
+        readCoordinates(reader, feature);
+        feature.endGeometry(null);
+    }
+
+    /**
+     * Reads a coordinates value of any nesting depth: 1 for a Point, 2 for a LineString or
+     * MultiPoint, 3 for a Polygon or MultiLineString and 4 for a MultiPolygon. The depth is
+     * found by descending to the first number; after that the innermost level holds positions,
+     * the level above it rings and the level above that parts.
+     */
+    private static void readCoordinates(JsonStreamReader reader, Feature feature)
+            throws IOException {
+        reader.beginArray();
+        int depth = 1;
+        while (reader.peek() == JsonStreamReader.Token.BEGIN_ARRAY) {
+            reader.beginArray();
+            depth++;
+        }
+        if (reader.peek() != JsonStreamReader.Token.NUMBER) {
+            // Empty geometry.
+            for (int i = 0; i < depth; i++) {
+                reader.endArray();
+            }
+            return;
+        }
+        feature.beginPart();
+        feature.beginRing();
+        int level = depth;
+        while (level > 0) {
+            if (level == depth) {
+                readPositionBody(reader, feature);
+                level--;
+            } else if (reader.hasNext()) {
+                reader.beginArray();
+                level++;
+                if (level == depth - 1) {
+                    feature.beginRing();
+                } else if (level == depth - 2) {
+                    feature.beginPart();
+                }
+            } else {
+                reader.endArray();
+                level--;
+            }
+        }
+    }
+
+    /** Reads [lng, lat, ...] whose opening bracket has been consumed. */
+    private static void readPositionBody(JsonStreamReader reader, Feature feature)
+            throws IOException {
+        double longitude = reader.nextDouble();
+        double latitude = reader.nextDouble();
+        while (reader.hasNext()) {
+            // Altitude and other extra values are ignored.
+            reader.skipValue();
+        }
+        reader.endArray();
+        feature.addPosition(longitude, latitude);
+    }
+
+    private static Map<String, Object> readMap(JsonStreamReader reader) throws IOException {
+        Map<String, Object> map = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            map.put(name, readValue(reader));
+        }
+        reader.endObject();
+        return map;
+    }
+
+    private static Object readValue(JsonStreamReader reader) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                return readMap(reader);
+            case BEGIN_ARRAY:
+                List<Object> list = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    list.add(readValue(reader));
+                }
+                reader.endArray();
+                return list;
+            case STRING:
+                return reader.nextString();
+            case NUMBER:
+                return reader.nextDouble();
+            case BOOLEAN:
+                return reader.nextBoolean();
+            default:
+                reader.nextNull();
+                return null;
+        }
+    }
+}
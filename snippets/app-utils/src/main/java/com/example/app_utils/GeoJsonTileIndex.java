@@ -0,0 +1,686 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A read-only spatial index over GeoJSON points, line strings and polygons, used to rasterize
+ * large feature collections into tiles instead of adding one map object per feature.
+ * <p>
+ * Geometry is projected once into Web Mercator world coordinates (0..1 on both axes) and stored
+ * in flat primitive arrays. A fixed grid over feature bounding boxes answers "which features
+ * touch this tile" queries. For each zoom level a Douglas-Peucker simplified copy of the geometry
+ * (tolerance: a fraction of a pixel at that zoom) is built on first use, and {@link #query}
+ * clips it to the tile before handing it to a {@link GeometrySink} in tile pixel coordinates.
+ * <p>
+ * Queries and hit tests may run concurrently from the map's tile threads.
+ */
+class GeoJsonTileIndex {
+
+    static final int POINT = 0;
+    static final int LINE_STRING = 1;
+    static final int POLYGON = 2;
+
+    /** Receives the clipped geometry of one tile, in pixels relative to the tile origin. */
+    interface GeometrySink {
+        void point(int feature, float x, float y);
+
+        void lineString(int feature, float[] xy, int count);
+
+        /** Called once per ring; {@code firstRing} marks the start of a new polygon. */
+        void polygonRing(int feature, float[] xy, int count, boolean firstRing);
+    }
+
+    /** The index grid has 2^GRID_ZOOM cells along each axis. */
+    private static final int GRID_ZOOM = 8;
+    private static final int GRID_SIZE = 1 << GRID_ZOOM;
+
+    /** Zoom levels above this one draw the full resolution geometry. */
+    private static final int MAX_SIMPLIFIED_ZOOM = 18;
+
+    /** Simplification tolerance, in pixels at the zoom level being simplified for. */
+    private static final double SIMPLIFY_TOLERANCE_PX = 0.5;
+
+    /** Tiles are clipped to their bounds padded by this many pixels, so strokes do not seam. */
+    private static final double CLIP_BUFFER_PX = 8;
+
+    private final int featureCount;
+    private final byte[] featureType;
+    /** Feature i owns rings featureRingStart[i] until featureRingStart[i + 1]. */
+    private final int[] featureRingStart;
+    /** Bounding box per feature: minX, minY, maxX, maxY. */
+    private final double[] featureBounds;
+    private final Object[] featureTags;
+
+    private final Geometry fullResolution;
+
+    /** Lazily built simplified geometry, by zoom level. */
+    private final Geometry[] simplified = new Geometry[MAX_SIMPLIFIED_ZOOM + 1];
+
+    /** Feature ids per grid cell, in CSR layout. */
+    private final int[] cellStart;
+    private final int[] cellFeatures;
+
+    private final ThreadLocal<QueryScratch> scratch;
+
+    private GeoJsonTileIndex(Builder builder) {
+        featureCount = builder.featureCount;
+        featureType = Arrays.copyOf(builder.featureType, featureCount);
+        featureRingStart = Arrays.copyOf(builder.featureRingStart, featureCount + 1);
+        featureRingStart[featureCount] = builder.ringCount;
+        featureBounds = Arrays.copyOf(builder.featureBounds, featureCount * 4);
+        featureTags = builder.featureTags.toArray();
+        int[] ringStart = Arrays.copyOf(builder.ringStart, builder.ringCount + 1);
+        ringStart[builder.ringCount] = builder.coordCount;
+        fullResolution = new Geometry(ringStart,
+                Arrays.copyOf(builder.coords, builder.coordCount * 2));
+
+        // Count, then fill, the features overlapping each grid cell.
+        int[] counts = new int[GRID_SIZE * GRID_SIZE + 1];
+        for (int f = 0; f < featureCount; f++) {
+            forEachCell(f, (cell) -> counts[cell + 1]++);
+        }
+        for (int i = 1; i < counts.length; i++) {
+            counts[i] += counts[i - 1];
+        }
+        cellStart = counts;
+        cellFeatures = new int[counts[counts.length - 1]];
+        int[] fill = Arrays.copyOf(counts, counts.length);
+        for (int f = 0; f < featureCount; f++) {
+            final int feature = f;
+            forEachCell(f, (cell) -> cellFeatures[fill[cell]++] = feature);
+        }
+
+        int maxRingLength = 0;
+        for (int r = 0; r < builder.ringCount; r++) {
+            maxRingLength = Math.max(maxRingLength, ringStart[r + 1] - ringStart[r]);
+        }
+        final int bufferSize = maxRingLength * 2 + 8;
+        scratch = ThreadLocal.withInitial(() -> new QueryScratch(featureCount, bufferSize));
+    }
+
+    int getFeatureCount() {
+        return featureCount;
+    }
+
+    Object getTag(int feature) {
+        return featureTags[feature];
+    }
+
+    /**
+     * Emits the geometry of every feature that touches tile (x, y, zoom), simplified for the zoom
+     * level and clipped to the tile, to {@code sink}. Returns the number of features emitted.
+     */
+    int query(int x, int y, int zoom, int tileSizePx, GeometrySink sink) {
+        double scale = (double) (1L << zoom);
+        double pixelsPerUnit = scale * tileSizePx;
+        double buffer = CLIP_BUFFER_PX / pixelsPerUnit;
+        double minX = x / scale - buffer;
+        double minY = y / scale - buffer;
+        double maxX = (x + 1) / scale + buffer;
+        double maxY = (y + 1) / scale + buffer;
+        double originX = x / scale;
+        double originY = y / scale;
+
+        Geometry geometry = geometryFor(zoom);
+        QueryScratch s = scratch.get();
+        s.stamp++;
+        int candidates = 0;
+
+        int cellMinX = cell(minX);
+        int cellMaxX = cell(maxX);
+        int cellMinY = cell(minY);
+        int cellMaxY = cell(maxY);
+        for (int cy = cellMinY; cy <= cellMaxY; cy++) {
+            for (int cx = cellMinX; cx <= cellMaxX; cx++) {
+                int c = cy * GRID_SIZE + cx;
+                for (int i = cellStart[c]; i < cellStart[c + 1]; i++) {
+                    int f = cellFeatures[i];
+                    if (s.seen[f] == s.stamp) {
+                        continue;
+                    }
+                    s.seen[f] = s.stamp;
+                    if (intersects(f, minX, minY, maxX, maxY)) {
+                        s.candidates[candidates++] = f;
+                    }
+                }
+            }
+        }
+
+        // Draw in insertion order so overlapping features stack the same way on every tile.
+        Arrays.sort(s.candidates, 0, candidates);
+        int emitted = 0;
+        for (int i = 0; i < candidates; i++) {
+            if (emit(s.candidates[i], geometry, s, minX, minY, maxX, maxY, originX, originY,
+                    pixelsPerUnit, sink)) {
+                emitted++;
+            }
+        }
+        return emitted;
+    }
+
+    /**
+     * Returns the topmost feature at the given position, or -1. Points and line strings match
+     * within {@code tolerancePx} pixels at {@code zoom}; polygons match if they contain the
+     * position.
+     */
+    int hitTest(double latitude, double longitude, float zoom, double tolerancePx) {
+        double px = worldX(longitude);
+        double py = worldY(latitude);
+        double tolerance = tolerancePx / (256 * Math.pow(2, zoom));
+        double toleranceSq = tolerance * tolerance;
+        QueryScratch s = scratch.get();
+        s.stamp++;
+
+        int best = -1;
+        for (int cy = cell(py - tolerance); cy <= cell(py + tolerance); cy++) {
+            for (int cx = cell(px - tolerance); cx <= cell(px + tolerance); cx++) {
+                int c = cy * GRID_SIZE + cx;
+                for (int i = cellStart[c]; i < cellStart[c + 1]; i++) {
+                    int f = cellFeatures[i];
+                    if (f <= best || s.seen[f] == s.stamp) {
+                        continue;
+                    }
+                    s.seen[f] = s.stamp;
+                    if (!intersects(f, px - tolerance, py - tolerance, px + tolerance,
+                            py + tolerance)) {
+                        continue;
+                    }
+                    if (hits(f, px, py, toleranceSq)) {
+                        best = f;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private boolean emit(int f, Geometry geometry, QueryScratch s, double minX, double minY,
+            double maxX, double maxY, double originX, double originY, double pixelsPerUnit,
+            GeometrySink sink) {
+        double[] coords = geometry.coords;
+        int[] ringStart = geometry.ringStart;
+        int type = featureType[f];
+        boolean any = false;
+        for (int r = featureRingStart[f]; r < featureRingStart[f + 1]; r++) {
+            int start = ringStart[r];
+            int end = ringStart[r + 1];
+            if (type == POINT) {
+                sink.point(f, (float) ((coords[start * 2] - originX) * pixelsPerUnit),
+                        (float) ((coords[start * 2 + 1] - originY) * pixelsPerUnit));
+                any = true;
+            } else if (type == LINE_STRING) {
+                any |= emitClippedLine(f, coords, start, end, s, minX, minY, maxX, maxY,
+                        originX, originY, pixelsPerUnit, sink);
+            } else {
+                int count = Clipping.clipRing(coords, start, end, minX, minY, maxX, maxY, s.ring);
+                if (count >= 3) {
+                    if (s.pixels.length < count * 2) {
+                        s.pixels = new float[count * 2];
+                    }
+                    toPixels(s.ring.out, count, s.pixels, originX, originY, pixelsPerUnit);
+                    sink.polygonRing(f, s.pixels, count, r == featureRingStart[f]);
+                    any = true;
+                } else if (r == featureRingStart[f]) {
+                    // The exterior ring is outside the tile, so the holes are too.
+                    return false;
+                }
+            }
+        }
+        return any;
+    }
+
+    /** Splits a line string into the runs of segments that cross the clip rectangle. */
+    private static boolean emitClippedLine(int f, double[] coords, int start, int end,
+            QueryScratch s, double minX, double minY, double maxX, double maxY, double originX,
+            double originY, double pixelsPerUnit, GeometrySink sink) {
+        boolean any = false;
+        int run = 0;
+        double[] segment = s.segment;
+        for (int i = start; i + 1 < end; i++) {
+            boolean visible = Clipping.clipSegment(coords[i * 2], coords[i * 2 + 1],
+                    coords[i * 2 + 2], coords[i * 2 + 3], minX, minY, maxX, maxY, segment);
+            if (!visible) {
+                if (run > 1) {
+                    sink.lineString(f, s.pixels, run);
+                    any = true;
+                }
+                run = 0;
+                continue;
+            }
+            if (run == 0) {
+                s.pixels[0] = (float) ((segment[0] - originX) * pixelsPerUnit);
+                s.pixels[1] = (float) ((segment[1] - originY) * pixelsPerUnit);
+                run = 1;
+            }
+            s.pixels[run * 2] = (float) ((segment[2] - originX) * pixelsPerUnit);
+            s.pixels[run * 2 + 1] = (float) ((segment[3] - originY) * pixelsPerUnit);
+            run++;
+            // The segment left the clip rectangle, so the next one starts a new run.
+            if (segment[2] != coords[i * 2 + 2] || segment[3] != coords[i * 2 + 3]) {
+                sink.lineString(f, s.pixels, run);
+                any = true;
+                run = 0;
+            }
+        }
+        if (run > 1) {
+            sink.lineString(f, s.pixels, run);
+            any = true;
+        }
+        return any;
+    }
+
+    private boolean hits(int f, double px, double py, double toleranceSq) {
+        double[] coords = fullResolution.coords;
+        int[] ringStart = fullResolution.ringStart;
+        int type = featureType[f];
+        if (type == POLYGON) {
+            boolean inside = false;
+            for (int r = featureRingStart[f]; r < featureRingStart[f + 1]; r++) {
+                // Even-odd across all rings, so holes are excluded.
+                inside ^= Clipping.ringContains(coords, ringStart[r], ringStart[r + 1], px, py);
+            }
+            return inside;
+        }
+        for (int r = featureRingStart[f]; r < featureRingStart[f + 1]; r++) {
+            int start = ringStart[r];
+            int end = ringStart[r + 1];
+            if (type == POINT) {
+                double dx = coords[start * 2] - px;
+                double dy = coords[start * 2 + 1] - py;
+                if (dx * dx + dy * dy <= toleranceSq) {
+                    return true;
+                }
+                continue;
+            }
+            for (int i = start; i + 1 < end; i++) {
+                if (Clipping.segmentDistanceSq(px, py, coords[i * 2], coords[i * 2 + 1],
+                        coords[i * 2 + 2], coords[i * 2 + 3]) <= toleranceSq) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Geometry geometryFor(int zoom) {
+        if (zoom > MAX_SIMPLIFIED_ZOOM) {
+            return fullResolution;
+        }
+        Geometry geometry = simplified[zoom];
+        if (geometry == null) {
+            synchronized (simplified) {
+                geometry = simplified[zoom];
+                if (geometry == null) {
+                    geometry = simplify(SIMPLIFY_TOLERANCE_PX / (256.0 * (1L << zoom)));
+                    simplified[zoom] = geometry;
+                }
+            }
+        }
+        return geometry;
+    }
+
+    private Geometry simplify(double tolerance) {
+        double[] source = fullResolution.coords;
+        int[] sourceRingStart = fullResolution.ringStart;
+        int rings = sourceRingStart.length - 1;
+        double[] out = new double[source.length];
+        int[] ringStart = new int[rings + 1];
+        int count = 0;
+        boolean[] keep = new boolean[0];
+        for (int f = 0; f < featureCount; f++) {
+            int minPoints = featureType[f] == POLYGON ? 4 : 2;
+            for (int r = featureRingStart[f]; r < featureRingStart[f + 1]; r++) {
+                ringStart[r] = count;
+                int start = sourceRingStart[r];
+                int end = sourceRingStart[r + 1];
+                int length = end - start;
+                if (featureType[f] == POINT || length <= minPoints) {
+                    System.arraycopy(source, start * 2, out, count * 2, length * 2);
+                    count += length;
+                    continue;
+                }
+                if (keep.length < length) {
+                    keep = new boolean[length];
+                }
+                Arrays.fill(keep, 0, length, false);
+                Clipping.douglasPeucker(source, start, end, tolerance * tolerance, keep);
+                for (int i = 0; i < length; i++) {
+                    if (keep[i]) {
+                        out[count * 2] = source[(start + i) * 2];
+                        out[count * 2 + 1] = source[(start + i) * 2 + 1];
+                        count++;
+                    }
+                }
+            }
+        }
+        ringStart[rings] = count;
+        return new Geometry(ringStart, Arrays.copyOf(out, count * 2));
+    }
+
+    private boolean intersects(int f, double minX, double minY, double maxX, double maxY) {
+        return featureBounds[f * 4] <= maxX && featureBounds[f * 4 + 2] >= minX
+                && featureBounds[f * 4 + 1] <= maxY && featureBounds[f * 4 + 3] >= minY;
+    }
+
+    private interface CellVisitor {
+        void visit(int cell);
+    }
+
+    private void forEachCell(int f, CellVisitor visitor) {
+        int minX = cell(featureBounds[f * 4]);
+        int minY = cell(featureBounds[f * 4 + 1]);
+        int maxX = cell(featureBounds[f * 4 + 2]);
+        int maxY = cell(featureBounds[f * 4 + 3]);
+        for (int cy = minY; cy <= maxY; cy++) {
+            for (int cx = minX; cx <= maxX; cx++) {
+                visitor.visit(cy * GRID_SIZE + cx);
+            }
+        }
+    }
+
+    private static int cell(double world) {
+        return Math.max(0, Math.min(GRID_SIZE - 1, (int) (world * GRID_SIZE)));
+    }
+
+    private static void toPixels(double[] world, int count, float[] out, double originX,
+            double originY, double pixelsPerUnit) {
+        for (int i = 0; i < count; i++) {
+            out[i * 2] = (float) ((world[i * 2] - originX) * pixelsPerUnit);
+            out[i * 2 + 1] = (float) ((world[i * 2 + 1] - originY) * pixelsPerUnit);
+        }
+    }
+
+    /** Web Mercator x in the range [0, 1). */
+    static double worldX(double longitude) {
+        return (longitude + 180) / 360;
+    }
+
+    /** Web Mercator y in the range [0, 1], 0 being the north edge. */
+    static double worldY(double latitude) {
+        double clamped = Math.max(-85.05112878, Math.min(85.05112878, latitude));
+        double sin = Math.sin(Math.toRadians(clamped));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+
+    /** Flat coordinate storage: ring r owns points ringStart[r] until ringStart[r + 1]. */
+    private static final class Geometry {
+        final int[] ringStart;
+        final double[] coords;
+
+        Geometry(int[] ringStart, double[] coords) {
+            this.ringStart = ringStart;
+            this.coords = coords;
+        }
+    }
+
+    /** Per-thread buffers, so that queries do not allocate. */
+    private static final class QueryScratch {
+        final int[] seen;
+        final int[] candidates;
+        int stamp;
+        final Clipping.RingBuffer ring;
+        float[] pixels;
+        final double[] segment = new double[4];
+
+        QueryScratch(int featureCount, int ringBufferSize) {
+            seen = new int[featureCount];
+            candidates = new int[featureCount];
+            // Sized for the longest ring; clipping one that crosses the tile edges often grows
+            // them.
+            ring = new Clipping.RingBuffer(ringBufferSize);
+            pixels = new float[ringBufferSize * 2];
+        }
+    }
+
+    /**
+     * Collects features in longitude/latitude order and projects them. Rings of a polygon must be
+     * closed or not consistently; the first ring is the exterior, the rest are holes.
+     */
+    static class Builder {
+        private int featureCount;
+        private byte[] featureType = new byte[64];
+        private int[] featureRingStart = new int[65];
+        private double[] featureBounds = new double[256];
+        private final List<Object> featureTags = new ArrayList<>();
+
+        private int ringCount;
+        private int[] ringStart = new int[64];
+
+        private int coordCount;
+        private double[] coords = new double[1024];
+
+        /** Adds a point feature. */
+        Builder addPoint(double latitude, double longitude, Object tag) {
+            beginFeature(POINT, tag);
+            beginRing();
+            addCoordinate(latitude, longitude);
+            endFeature();
+            return this;
+        }
+
+        /** Adds a line string given as alternating latitude, longitude values. */
+        Builder addLineString(double[] latLngs, Object tag) {
+            beginFeature(LINE_STRING, tag);
+            addRing(latLngs);
+            endFeature();
+            return this;
+        }
+
+        /**
+         * Adds a polygon whose rings are given as alternating latitude, longitude values. The
+         * first ring is the exterior, the others are holes.
+         */
+        Builder addPolygon(double[][] rings, Object tag) {
+            beginFeature(POLYGON, tag);
+            for (double[] ring : rings) {
+                addRing(ring);
+            }
+            endFeature();
+            return this;
+        }
+
+        GeoJsonTileIndex build() {
+            return new GeoJsonTileIndex(this);
+        }
+
+        void beginFeature(int type, Object tag) {
+            if (featureCount == featureType.length) {
+                featureType = Arrays.copyOf(featureType, featureCount * 2);
+                featureRingStart = Arrays.copyOf(featureRingStart, featureCount * 2 + 1);
+                featureBounds = Arrays.copyOf(featureBounds, featureCount * 8);
+            }
+            featureType[featureCount] = (byte) type;
+            featureRingStart[featureCount] = ringCount;
+            featureBounds[featureCount * 4] = Double.MAX_VALUE;
+            featureBounds[featureCount * 4 + 1] = Double.MAX_VALUE;
+            featureBounds[featureCount * 4 + 2] = -Double.MAX_VALUE;
+            featureBounds[featureCount * 4 + 3] = -Double.MAX_VALUE;
+            featureTags.add(tag);
+        }
+
+        void beginRing() {
+            if (ringCount + 1 >= ringStart.length) {
+                ringStart = Arrays.copyOf(ringStart, ringStart.length * 2);
+            }
+            ringStart[ringCount++] = coordCount;
+        }
+
+        void addCoordinate(double latitude, double longitude) {
+            if (coordCount * 2 + 2 > coords.length) {
+                coords = Arrays.copyOf(coords, coords.length * 2);
+            }
+            double x = worldX(longitude);
+            double y = worldY(latitude);
+            coords[coordCount * 2] = x;
+            coords[coordCount * 2 + 1] = y;
+            coordCount++;
+            int b = featureCount * 4;
+            featureBounds[b] = Math.min(featureBounds[b], x);
+            featureBounds[b + 1] = Math.min(featureBounds[b + 1], y);
+            featureBounds[b + 2] = Math.max(featureBounds[b + 2], x);
+            featureBounds[b + 3] = Math.max(featureBounds[b + 3], y);
+        }
+
+        void endFeature() {
+            featureCount++;
+        }
+
+        /**
+         * Adds every Point, LineString and Polygon (including the Multi* variants) of a GeoJSON
+         * FeatureCollection. The feature's "properties" object is used as its tag.
+         */
+        Builder addFeatureCollection(JSONObject collection) throws JSONException {
+            JSONArray features = collection.getJSONArray("features");
+            for (int i = 0; i < features.length(); i++) {
+                JSONObject feature = features.getJSONObject(i);
+                JSONObject geometry = feature.optJSONObject("geometry");
+                if (geometry != null) {
+                    addGeometry(geometry, feature.optJSONObject("properties"));
+                }
+            }
+            return this;
+        }
+
+        private void addGeometry(JSONObject geometry, Object tag) throws JSONException {
+            String type = geometry.getString("type");
+            JSONArray coordinates = geometry.optJSONArray("coordinates");
+            switch (type) {
+                case "Point":
+                    addPoint(coordinates.getDouble(1), coordinates.getDouble(0), tag);
+                    break;
+                case "MultiPoint":
+                    for (int i = 0; i < coordinates.length(); i++) {
+                        JSONArray point = coordinates.getJSONArray(i);
+                        addPoint(point.getDouble(1), point.getDouble(0), tag);
+                    }
+                    break;
+                case "LineString":
+                    addLineString(toLatLngs(coordinates), tag);
+                    break;
+                case "MultiLineString":
+                    for (int i = 0; i < coordinates.length(); i++) {
+                        addLineString(toLatLngs(coordinates.getJSONArray(i)), tag);
+                    }
+                    break;
+                case "Polygon":
+                    addPolygon(toRings(coordinates), tag);
+                    break;
+                case "MultiPolygon":
+                    for (int i = 0; i < coordinates.length(); i++) {
+                        addPolygon(toRings(coordinates.getJSONArray(i)), tag);
+                    }
+                    break;
+                case "GeometryCollection":
+                    JSONArray geometries = geometry.getJSONArray("geometries");
+                    for (int i = 0; i < geometries.length(); i++) {
+                        addGeometry(geometries.getJSONObject(i), tag);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * Adds the geometries of a feature read by {@link GeoJsonStreamParser}, copying its
+         * coordinates so the parser can reuse the feature. Its properties are used as the tag.
+         */
+        Builder addFeature(GeoJsonStreamParser.Feature feature) {
+            Object tag = feature.getProperties();
+            for (int g = 0; g < feature.getGeometryCount(); g++) {
+                String type = feature.getGeometryType(g);
+                if (type == null) {
+                    continue;
+                }
+                for (int part = feature.getPartStart(g); part < feature.getPartEnd(g); part++) {
+                    switch (type) {
+                        case "Point":
+                        case "MultiPoint":
+                            for (int ring = feature.getRingStart(part);
+                                    ring < feature.getRingEnd(part); ring++) {
+                                for (int p = feature.getPositionStart(ring);
+                                        p < feature.getPositionEnd(ring); p++) {
+                                    addPoint(feature.getLatitude(p), feature.getLongitude(p), tag);
+                                }
+                            }
+                            break;
+                        case "LineString":
+                        case "MultiLineString":
+                            for (int ring = feature.getRingStart(part);
+                                    ring < feature.getRingEnd(part); ring++) {
+                                beginFeature(LINE_STRING, tag);
+                                addRing(feature, ring);
+                                endFeature();
+                            }
+                            break;
+                        case "Polygon":
+                        case "MultiPolygon":
+                            beginFeature(POLYGON, tag);
+                            for (int ring = feature.getRingStart(part);
+                                    ring < feature.getRingEnd(part); ring++) {
+                                addRing(feature, ring);
+                            }
+                            endFeature();
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+            return this;
+        }
+
+        private void addRing(GeoJsonStreamParser.Feature feature, int ring) {
+            beginRing();
+            for (int p = feature.getPositionStart(ring); p < feature.getPositionEnd(ring); p++) {
+                addCoordinate(feature.getLatitude(p), feature.getLongitude(p));
+            }
+        }
+
+        private static double[][] toRings(JSONArray rings) throws JSONException {
+            double[][] result = new double[rings.length()][];
+            for (int i = 0; i < rings.length(); i++) {
+                result[i] = toLatLngs(rings.getJSONArray(i));
+            }
+            return result;
+        }
+
+        /** Converts GeoJSON [lng, lat] positions to alternating latitude, longitude values. */
+        private static double[] toLatLngs(JSONArray positions) throws JSONException {
+            double[] result = new double[positions.length() * 2];
+            for (int i = 0; i < positions.length(); i++) {
+                JSONArray position = positions.getJSONArray(i);
+                result[i * 2] = position.getDouble(1);
+                result[i * 2 + 1] = position.getDouble(0);
+            }
+            return result;
+        }
+
+        private void addRing(double[] latLngs) {
+            beginRing();
+            for (int i = 0; i + 1 < latLngs.length; i += 2) {
+                addCoordinate(latLngs[i], latLngs[i + 1]);
+            }
+        }
+    }
+}
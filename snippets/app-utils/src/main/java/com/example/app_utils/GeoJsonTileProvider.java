@@ -0,0 +1,181 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rasterizes the features of a {@link GeoJsonTileIndex} into map tiles. Only the features that
+ * touch a tile are drawn, so the cost of a tile depends on what is in it rather than on the size
+ * of the whole data set. Tiles with no features are reported as {@link #NO_TILE}. Call
+ * {@link #release()} once the overlay has been removed to free the per-thread bitmaps.
+ */
+class GeoJsonTileProvider implements TileProvider {
+
+    private static final int TILE_SIZE_DP = 256;
+
+    private final GeoJsonTileIndex index;
+    private final int tileSizePx;
+    private final int fillColor;
+    private final int strokeColor;
+    private final float strokeWidthPx;
+    private final float pointRadiusPx;
+
+    /** Every renderer handed out so far, so that release() can reach other threads' bitmaps. */
+    private final Set<Renderer> allRenderers = ConcurrentHashMap.newKeySet();
+
+    private final ThreadLocal<Renderer> renderers = ThreadLocal.withInitial(() -> {
+        Renderer renderer = new Renderer();
+        allRenderers.add(renderer);
+        return renderer;
+    });
+
+    private volatile boolean released;
+
+    GeoJsonTileProvider(GeoJsonTileIndex index, float density, int fillColor, int strokeColor,
+            float strokeWidthDp, float pointRadiusDp) {
+        this.index = index;
+        this.tileSizePx = (int) (TILE_SIZE_DP * density);
+        this.fillColor = fillColor;
+        this.strokeColor = strokeColor;
+        this.strokeWidthPx = strokeWidthDp * density;
+        this.pointRadiusPx = pointRadiusDp * density;
+    }
+
+    @Override
+    public Tile getTile(int x, int y, int zoom) {
+        if (released) {
+            return NO_TILE;
+        }
+        Renderer renderer = renderers.get();
+        // Only release() contends for the lock.
+        synchronized (renderer) {
+            if (released) {
+                // Covers a renderer created while release() was running.
+                renderer.recycle();
+                return NO_TILE;
+            }
+            renderer.bitmap.eraseColor(Color.TRANSPARENT);
+            int features = index.query(x, y, zoom, tileSizePx, renderer);
+            renderer.flushPolygon();
+            if (features == 0) {
+                return NO_TILE;
+            }
+            renderer.stream.reset();
+            renderer.bitmap.compress(Bitmap.CompressFormat.PNG, 100, renderer.stream);
+            return new Tile(tileSizePx, tileSizePx, renderer.stream.toByteArray());
+        }
+    }
+
+    /**
+     * Recycles every thread's bitmap. Tiles requested afterwards are {@link #NO_TILE}. Safe to
+     * call from any thread, and more than once.
+     */
+    void release() {
+        released = true;
+        for (Renderer renderer : allRenderers) {
+            synchronized (renderer) {
+                renderer.recycle();
+            }
+        }
+        allRenderers.clear();
+    }
+
+    /** Per-thread drawing state that receives the clipped geometry of one tile at a time. */
+    private final class Renderer implements GeoJsonTileIndex.GeometrySink {
+        final Bitmap bitmap = Bitmap.createBitmap(tileSizePx, tileSizePx, Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(bitmap);
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream(32 * 1024);
+        final Path path = new Path();
+        final Paint fill = new Paint(Paint.ANTI_ALIAS_FLAG);
+        final Paint stroke = new Paint(Paint.ANTI_ALIAS_FLAG);
+        final Paint point = new Paint(Paint.ANTI_ALIAS_FLAG);
+        boolean pathPending;
+        boolean recycled;
+
+        Renderer() {
+            path.setFillType(Path.FillType.EVEN_ODD);
+            fill.setStyle(Paint.Style.FILL);
+            fill.setColor(fillColor);
+            stroke.setStyle(Paint.Style.STROKE);
+            stroke.setColor(strokeColor);
+            stroke.setStrokeWidth(strokeWidthPx);
+            stroke.setStrokeJoin(Paint.Join.ROUND);
+            stroke.setStrokeCap(Paint.Cap.ROUND);
+            point.setStyle(Paint.Style.FILL);
+            point.setColor(strokeColor);
+        }
+
+        @Override
+        public void point(int feature, float x, float y) {
+            flushPolygon();
+            canvas.drawCircle(x, y, pointRadiusPx, point);
+        }
+
+        @Override
+        public void lineString(int feature, float[] xy, int count) {
+            flushPolygon();
+            path.reset();
+            path.moveTo(xy[0], xy[1]);
+            for (int i = 1; i < count; i++) {
+                path.lineTo(xy[i * 2], xy[i * 2 + 1]);
+            }
+            canvas.drawPath(path, stroke);
+            path.reset();
+        }
+
+        @Override
+        public void polygonRing(int feature, float[] xy, int count, boolean firstRing) {
+            if (firstRing) {
+                flushPolygon();
+            }
+            path.moveTo(xy[0], xy[1]);
+            for (int i = 1; i < count; i++) {
+                path.lineTo(xy[i * 2], xy[i * 2 + 1]);
+            }
+            path.close();
+            pathPending = true;
+        }
+
+        void recycle() {
+            if (!recycled) {
+                recycled = true;
+                bitmap.recycle();
+            }
+        }
+
+        /** Draws the polygon collected so far, holes included. */
+        void flushPolygon() {
+            if (!pathPending) {
+                return;
+            }
+            canvas.drawPath(path, fill);
+            canvas.drawPath(path, stroke);
+            path.reset();
+            pathPending = false;
+        }
+    }
+}
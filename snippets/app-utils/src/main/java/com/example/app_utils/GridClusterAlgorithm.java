@@ -0,0 +1,93 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+import java.util.Arrays;
+
+/**
+ * Clusters items by the screen-sized grid cell they fall in, like the library's
+ * {@code GridBasedAlgorithm}. One pass over the index, so it is the cheapest choice when clusters
+ * snapping to a grid is acceptable. Clusters sit at the mean of their items.
+ */
+final class GridClusterAlgorithm implements ClusterAlgorithm {
+
+    private static final int CHECK_INTERVAL = 4096;
+
+    private final int gridSizePx;
+
+    /** @param gridSizePx the width of a grid cell on screen, in pixels of a 256 pixel tile */
+    GridClusterAlgorithm(int gridSizePx) {
+        this.gridSizePx = gridSizePx;
+    }
+
+    @Override
+    public Clusters cluster(ClusterPointIndex index, int zoom, Cancellation cancellation) {
+        double cellsPerWorld = Math.ceil(256.0 * (1L << zoom) / gridSizePx);
+        // Open addressing from cell key to slot, sized for one cell per item at worst.
+        int capacity = Integer.highestOneBit(Math.max(16, index.size() * 2 - 1)) << 1;
+        long[] keys = new long[capacity];
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, -1);
+        int mask = capacity - 1;
+
+        int cellCount = 0;
+        int[] ids = new int[16];
+        double[] sumX = new double[16];
+        double[] sumY = new double[16];
+        int[] counts = new int[16];
+        for (int p = 0; p < index.size(); p++) {
+            if (p % CHECK_INTERVAL == 0) {
+                cancellation.check();
+            }
+            double px = index.x(p);
+            double py = index.y(p);
+            long key = ((long) (py * cellsPerWorld) << 32) | (long) (px * cellsPerWorld);
+            int h = (int) (mix(key) & mask);
+            while (slots[h] >= 0 && keys[h] != key) {
+                h = (h + 1) & mask;
+            }
+            int slot = slots[h];
+            if (slot < 0) {
+                if (cellCount == ids.length) {
+                    int grown = cellCount * 2;
+                    ids = Arrays.copyOf(ids, grown);
+                    sumX = Arrays.copyOf(sumX, grown);
+                    sumY = Arrays.copyOf(sumY, grown);
+                    counts = Arrays.copyOf(counts, grown);
+                }
+                slot = cellCount++;
+                keys[h] = key;
+                slots[h] = slot;
+                ids[slot] = Integer.MAX_VALUE;
+            }
+            ids[slot] = Math.min(ids[slot], index.item(p));
+            sumX[slot] += px;
+            sumY[slot] += py;
+            counts[slot]++;
+        }
+
+        Clusters.Builder builder = new Clusters.Builder(zoom, cellCount);
+        for (int slot = 0; slot < cellCount; slot++) {
+            builder.add(ids[slot], sumX[slot] / counts[slot], sumY[slot] / counts[slot],
+                counts[slot]);
+        }
+        return builder.build();
+    }
+
+    private static long mix(long key) {
+        key *= 0x9e3779b97f4a7c15L;
+        return key ^ (key >>> 29);
+    }
+}
@@ -0,0 +1,92 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+/**
+ * The kernel and color ramp shared by the heatmap tile providers. Colors are packed ARGB ints,
+ * split and joined with bit operations rather than {@code android.graphics.Color}, so that the
+ * rendering math runs in local unit tests.
+ */
+final class HeatmapColors {
+
+    /** A fully transparent pixel. */
+    static final int TRANSPARENT = 0;
+
+    private HeatmapColors() {
+    }
+
+    /** A Gaussian kernel of the given radius, as {@code HeatmapTileProvider} uses. */
+    static double[] generateKernel(int radius, double sigma) {
+        double[] kernel = new double[radius * 2 + 1];
+        for (int i = -radius; i <= radius; i++) {
+            kernel[i + radius] = Math.exp(-i * i / (2 * sigma * sigma));
+        }
+        return kernel;
+    }
+
+    /**
+     * Interpolates between the gradient colors like {@code Gradient}. Entry 0 is fully
+     * transparent so that the faint edge of a kernel fades out.
+     */
+    static int[] generateColorMap(int[] colors, float[] startPoints, int size) {
+        int[] map = new int[size];
+        for (int i = 0; i < size; i++) {
+            float fraction = (float) i / (size - 1);
+            if (fraction <= startPoints[0]) {
+                // Fade the first color in from transparent.
+                float alpha = startPoints[0] == 0 ? 1 : fraction / startPoints[0];
+                map[i] = withAlpha(colors[0], alpha);
+                continue;
+            }
+            int upper = 1;
+            while (upper < startPoints.length - 1 && fraction > startPoints[upper]) {
+                upper++;
+            }
+            if (fraction >= startPoints[startPoints.length - 1]) {
+                map[i] = colors[colors.length - 1];
+                continue;
+            }
+            float t = (fraction - startPoints[upper - 1])
+                / (startPoints[upper] - startPoints[upper - 1]);
+            map[i] = interpolate(colors[upper - 1], colors[upper], t);
+        }
+        return map;
+    }
+
+    /** An opaque color from its red, green and blue components, like {@code Color.rgb}. */
+    static int rgb(int red, int green, int blue) {
+        return argb(255, red, green, blue);
+    }
+
+    static int argb(int alpha, int red, int green, int blue) {
+        return (alpha << 24) | (red << 16) | (green << 8) | blue;
+    }
+
+    private static int withAlpha(int color, float alpha) {
+        return argb(Math.round((color >>> 24) * alpha), (color >> 16) & 0xff,
+            (color >> 8) & 0xff, color & 0xff);
+    }
+
+    private static int interpolate(int from, int to, float t) {
+        int result = 0;
+        // Alpha, red, green and blue in turn, from the top byte down.
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            int a = (from >>> shift) & 0xff;
+            int b = (to >>> shift) & 0xff;
+            result |= Math.round(a + (b - a) * t) << shift;
+        }
+        return result;
+    }
+}
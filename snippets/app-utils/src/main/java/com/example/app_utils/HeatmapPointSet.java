@@ -0,0 +1,332 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.maps.android.heatmaps.WeightedLatLng;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only set of heatmap points in a compact binary file that can be memory-mapped, so
+ * loading it costs neither a JSON parse nor a {@link LatLng} per point on the heap.
+ *
+ * <p>The file starts with a 16-byte little-endian header: the magic number {@code "HMPT"}, a
+ * version, flags (bit 0 set when points carry a weight) and the point count. Each point follows
+ * as the zigzag varint difference of its latitude and longitude from the previous point, in
+ * units of 1e-7 degrees, then its weight as a float if the set is weighted. Nearby points,
+ * which is what heatmaps are made of, usually take four to six bytes.
+ */
+final class HeatmapPointSet {
+
+    static final int MAGIC = 0x54504d48; // "HMPT" read little-endian.
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+
+    private static final int FLAG_WEIGHTED = 1;
+    private static final double SCALE = 1e7;
+
+    /** Receives decoded points without boxing. */
+    interface PointConsumer {
+        void accept(double latitude, double longitude, double weight);
+    }
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final boolean weighted;
+
+    private HeatmapPointSet(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (this.buffer.remaining() < HEADER_BYTES || this.buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a packed heatmap point set");
+        }
+        int version = this.buffer.getShort(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported point set version " + version);
+        }
+        weighted = (this.buffer.getShort(6) & FLAG_WEIGHTED) != 0;
+        count = this.buffer.getInt(8);
+    }
+
+    /** Memory-maps a file written by {@link Writer} or {@link #convertJson}. */
+    static HeatmapPointSet map(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            // The mapping stays valid after the channel is closed.
+            return new HeatmapPointSet(
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /** Reads a point set from a buffer holding a whole file, for example a bundled asset. */
+    static HeatmapPointSet wrap(ByteBuffer buffer) throws IOException {
+        return new HeatmapPointSet(buffer);
+    }
+
+    int size() {
+        return count;
+    }
+
+    boolean isWeighted() {
+        return weighted;
+    }
+
+    /** Decodes every point in file order. Unweighted points are reported with a weight of 1. */
+    void forEach(PointConsumer consumer) {
+        Cursor cursor = new Cursor();
+        for (int i = 0; i < count; i++) {
+            cursor.next();
+            consumer.accept(cursor.latitude(), cursor.longitude(), cursor.weight);
+        }
+    }
+
+    /**
+     * A collection view to pass to {@code HeatmapTileProvider.Builder.weightedData()}. Points are
+     * decoded while the provider iterates, so no intermediate list is built.
+     */
+    Collection<WeightedLatLng> asWeightedLatLngs() {
+        return new AbstractCollection<WeightedLatLng>() {
+            @Override
+            public Iterator<WeightedLatLng> iterator() {
+                return new Iterator<WeightedLatLng>() {
+                    private final Cursor cursor = new Cursor();
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < count;
+                    }
+
+                    @Override
+                    public WeightedLatLng next() {
+                        if (index == count) {
+                            throw new NoSuchElementException();
+                        }
+                        index++;
+                        cursor.next();
+                        return new WeightedLatLng(
+                            new LatLng(cursor.latitude(), cursor.longitude()), cursor.weight);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    /** Sequential decoder over the mapped buffer. */
+    private final class Cursor {
+        private int position = HEADER_BYTES;
+        private long latE7;
+        private long lngE7;
+        double weight = 1;
+
+        void next() {
+            latE7 += readZigzag();
+            lngE7 += readZigzag();
+            if (weighted) {
+                weight = buffer.getFloat(position);
+                position += 4;
+            }
+        }
+
+        double latitude() {
+            return latE7 / SCALE;
+        }
+
+        double longitude() {
+            return lngE7 / SCALE;
+        }
+
+        private long readZigzag() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(position++);
+                value |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+
+    /**
+     * Converts the JSON layout of {@code res/raw/police_stations.json}, an array of
+     * {@code {"lat": ..., "lng": ...}} objects with an optional {@code "intensity"}, into a
+     * packed file. The set is weighted if the first point has an intensity. The file is written
+     * next to {@code out} and renamed into place, so a partial conversion is never mapped.
+     * Returns the number of points.
+     */
+    static int convertJson(InputStream json, File out) throws IOException {
+        File temp = new File(out.getPath() + ".tmp");
+        Writer writer = null;
+        int count = 0;
+        try (JsonStreamReader reader = new JsonStreamReader(json)) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                double lat = 0;
+                double lng = 0;
+                double intensity = Double.NaN;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if (name.equals("lat")) {
+                        lat = reader.nextDouble();
+                    } else if (name.equals("lng")) {
+                        lng = reader.nextDouble();
+                    } else if (name.equals("intensity")) {
+                        intensity = reader.nextDouble();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                if (writer == null) {
+                    writer = new Writer(temp, !Double.isNaN(intensity));
+                }
+                if (writer.weighted) {
+                    writer.add(lat, lng, Double.isNaN(intensity) ? 1 : intensity);
+                } else if (!Double.isNaN(intensity)) {
+                    throw new IOException("Point " + count + " has an intensity but the first"
+                        + " point does not");
+                } else {
+                    writer.add(lat, lng);
+                }
+                count++;
+            }
+            reader.endArray();
+            if (writer == null) {
+                writer = new Writer(temp, false);
+            }
+            // Cleared first so that a failing close is not retried below.
+            Writer finished = writer;
+            writer = null;
+            finished.close();
+            if (!temp.renameTo(out)) {
+                throw new IOException("Could not rename " + temp + " to " + out);
+            }
+        } catch (IOException | RuntimeException e) {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException closeFailure) {
+                    e.addSuppressed(closeFailure);
+                }
+            }
+            throw e;
+        } finally {
+            temp.delete();
+        }
+        return count;
+    }
+
+    /** Appends points to a new packed file. The header is completed by {@link #close()}. */
+    static final class Writer implements Closeable {
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final ByteBuffer block = ByteBuffer.allocate(64 * 1024)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        private final boolean weighted;
+        private int count;
+        private long latE7;
+        private long lngE7;
+
+        Writer(File file, boolean weighted) throws IOException {
+            this.file = new RandomAccessFile(file, "rw");
+            this.file.setLength(0);
+            this.channel = this.file.getChannel();
+            this.weighted = weighted;
+            // Leave room for the header.
+            block.position(HEADER_BYTES);
+        }
+
+        void add(double latitude, double longitude) throws IOException {
+            if (weighted) {
+                throw new IllegalStateException("Weighted point sets need a weight per point");
+            }
+            append(latitude, longitude);
+        }
+
+        void add(double latitude, double longitude, double weight) throws IOException {
+            if (!weighted) {
+                throw new IllegalStateException("Unweighted point sets cannot store weights");
+            }
+            append(latitude, longitude);
+            block.putFloat((float) weight);
+        }
+
+        private void append(double latitude, double longitude) throws IOException {
+            if (block.remaining() < 24) {
+                flush();
+            }
+            long lat = Math.round(latitude * SCALE);
+            long lng = Math.round(longitude * SCALE);
+            writeZigzag(lat - latE7);
+            writeZigzag(lng - lngE7);
+            latE7 = lat;
+            lngE7 = lng;
+            count++;
+        }
+
+        private void writeZigzag(long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7fL) != 0) {
+                block.put((byte) ((zigzag & 0x7f) | 0x80));
+                zigzag >>>= 7;
+            }
+            block.put((byte) zigzag);
+        }
+
+        private void flush() throws IOException {
+            block.flip();
+            while (block.hasRemaining()) {
+                channel.write(block);
+            }
+            block.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                block.putInt(MAGIC)
+                    .putShort((short) VERSION)
+                    .putShort((short) (weighted ? FLAG_WEIGHTED : 0))
+                    .putInt(count)
+                    .putInt(0);
+                block.flip();
+                channel.write(block, 0);
+                block.clear();
+            } finally {
+                file.close();
+            }
+        }
+    }
+}
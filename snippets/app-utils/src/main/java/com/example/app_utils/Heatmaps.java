@@ -16,6 +16,7 @@ package com.example.app_utils;
 
 import android.content.Context;
 import android.graphics.Color;
+import android.util.JsonReader;
 import android.widget.Toast;
 
 import androidx.annotation.RawRes;
@@ -29,14 +30,13 @@ import com.google.maps.android.heatmaps.HeatmapTileProvider;
 import com.google.maps.android.heatmaps.WeightedLatLng;
 import com.google.maps.example.utils.R;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
 
 class Heatmaps {
 
@@ -50,7 +50,7 @@ class Heatmaps {
         // Get the data: latitude/longitude positions of police stations.
         try {
             latLngs = readItems(R.raw.police_stations);
-        } catch (JSONException e) {
+        } catch (IOException e) {
             Toast.makeText(context, "Problem reading list of locations.", Toast.LENGTH_LONG).show();
         }
 
@@ -63,21 +63,106 @@ class Heatmaps {
         TileOverlay overlay = map.addTileOverlay(new TileOverlayOptions().tileProvider(provider));
     }
 
-    private List<LatLng> readItems(@RawRes int resource) throws JSONException {
+    private List<LatLng> readItems(@RawRes int resource) throws IOException {
         List<LatLng> result = new ArrayList<>();
         InputStream inputStream = context.getResources().openRawResource(resource);
-        String json = new Scanner(inputStream).useDelimiter("\\A").next();
-        JSONArray array = new JSONArray(json);
-        for (int i = 0; i < array.length(); i++) {
-            JSONObject object = array.getJSONObject(i);
-            double lat = object.getDouble("lat");
-            double lng = object.getDouble("lng");
-            result.add(new LatLng(lat, lng));
+        // Read the array one object at a time instead of loading the whole file into a string.
+        try (JsonReader reader =
+            new JsonReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                double lat = 0;
+                double lng = 0;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if (name.equals("lat")) {
+                        lat = reader.nextDouble();
+                    } else if (name.equals("lng")) {
+                        lng = reader.nextDouble();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                result.add(new LatLng(lat, lng));
+            }
+            reader.endArray();
         }
         return result;
     }
     // [END maps_android_utils_heatmap_simple]
 
+    private void addHeatMapFromPackedPoints() {
+        // [START maps_android_utils_heatmap_packed]
+        // Convert the JSON once into a compact binary file, then memory-map it on later launches
+        // instead of parsing the JSON and holding a LatLng per point.
+        File packed = new File(context.getFilesDir(), "police_stations.hmpt");
+        HeatmapPointSet points;
+        try {
+            if (!packed.exists()) {
+                HeatmapPointSet.convertJson(
+                    context.getResources().openRawResource(R.raw.police_stations), packed);
+            }
+            points = HeatmapPointSet.map(packed);
+        } catch (IOException e) {
+            Toast.makeText(context, "Problem reading list of locations.", Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        // The provider reads the points straight from the mapped file.
+        HeatmapTileProvider provider = new HeatmapTileProvider.Builder()
+            .weightedData(points.asWeightedLatLngs())
+            .build();
+        TileOverlay overlay = map.addTileOverlay(new TileOverlayOptions().tileProvider(provider));
+        // [END maps_android_utils_heatmap_packed]
+    }
+
+    private void addDensityPyramidHeatmap(HeatmapPointSet points) {
+        // [START maps_android_utils_heatmap_pyramid]
+        // For country-scale data, sum the points into a grid per zoom level once, so that
+        // zoomed-out tiles cost the same as zoomed-in ones however many points they cover.
+        DensityPyramidTileProvider provider = new DensityPyramidTileProvider.Builder()
+            .addAll(points)
+            .radius(20)
+            .build();
+        TileOverlay overlay = map.addTileOverlay(new TileOverlayOptions().tileProvider(provider));
+        // [END maps_android_utils_heatmap_pyramid]
+    }
+
+    private IncrementalHeatmapTileProvider liveProvider;
+    private TileOverlay liveOverlay;
+
+    private void addLiveHeatmap() {
+        // [START maps_android_utils_heatmap_incremental]
+        // For data that changes point by point, keep the rendered tiles and only redraw the ones
+        // around the points that changed.
+        int[] colors = {
+            Color.rgb(102, 225, 0), // green
+            Color.rgb(255, 0, 0)    // red
+        };
+        float[] startPoints = {
+            0.2f, 1f
+        };
+        liveProvider = new IncrementalHeatmapTileProvider(20, 10, colors, startPoints, 256);
+        liveOverlay = map.addTileOverlay(new TileOverlayOptions().tileProvider(liveProvider));
+        // [END maps_android_utils_heatmap_incremental]
+    }
+
+    private void onIncidentUpdates(List<LatLng> added, List<Integer> removed) {
+        // [START maps_android_utils_heatmap_incremental_update]
+        for (int id : removed) {
+            liveProvider.removePoint(id);
+        }
+        for (LatLng latLng : added) {
+            // Keep the returned id to remove the point later.
+            int id = liveProvider.addPoint(latLng.latitude, latLng.longitude, 1);
+        }
+        // Once per batch: only the tiles around the changed points are rendered again.
+        liveProvider.refresh(liveOverlay);
+        // [END maps_android_utils_heatmap_incremental_update]
+    }
+
     private void customizeHeatmap(List<LatLng> latLngs) {
         // [START maps_android_utils_heatmap_customize]
         // Create the gradient.
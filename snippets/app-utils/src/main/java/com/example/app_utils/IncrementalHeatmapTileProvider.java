@@ -0,0 +1,395 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileOverlay;
+import com.google.android.gms.maps.model.TileProvider;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A heatmap whose points can be added and removed one at a time. Rendered tiles are kept, and a
+ * change only drops the tiles within the kernel radius of the point that changed, at every zoom
+ * level. {@link TileOverlay} can only be flushed as a whole, so {@link #refresh} still calls
+ * {@link TileOverlay#clearTileCache()}, but the map then gets the untouched tiles back from this
+ * provider's cache and only the affected ones are rendered again.
+ *
+ * <p>Intensities are scaled against a fixed maximum rather than one derived from the data, so
+ * adding a point never changes the colors of tiles far away from it. Everything up to the colored
+ * pixels is plain Java; only the {@link TileEncoder} touches Android graphics.
+ */
+class IncrementalHeatmapTileProvider implements TileProvider {
+
+    static final int TILE_SIZE_PX = 512;
+    static final int MAX_ZOOM = 21;
+
+    /** Points are bucketed into a 256x256 grid over the world, which is zoom 8. */
+    private static final int GRID_ZOOM = 8;
+    private static final int GRID_SIZE = 1 << GRID_ZOOM;
+    private static final int COLOR_MAP_SIZE = 1000;
+
+    private final int radiusPx;
+    private final double maxIntensity;
+    private final double[] kernel;
+    private final int[] colorMap;
+    private final TileEncoder encoder;
+
+    // Point storage. Slots of removed points are reused.
+    private double[] pointX = new double[256];
+    private double[] pointY = new double[256];
+    private double[] pointWeight = new double[256];
+    private int[] pointCell = new int[256];
+    private int slotCount;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private final Map<Integer, int[]> cells = new HashMap<>();
+
+    private final Map<Long, Tile> tiles;
+    /** Tiles being rendered, and the number of threads rendering each. */
+    private final Map<Long, Integer> inFlight = new HashMap<>();
+    /** Tiles that were invalidated while being rendered and must not be cached. */
+    private final Set<Long> staleInFlight = new HashSet<>();
+    private boolean needsRefresh;
+
+    private final ThreadLocal<Renderer> renderers = ThreadLocal.withInitial(Renderer::new);
+
+    private long tilesRendered;
+    private long tilesFromCache;
+    private long tilesInvalidated;
+
+    /**
+     * @param radiusPx kernel radius in tile pixels, as for {@code HeatmapTileProvider}
+     * @param maxIntensity the summed intensity that maps to the last gradient color
+     * @param colors gradient colors, as for {@code Gradient}
+     * @param startPoints where each color starts, from 0 to 1, as for {@code Gradient}
+     * @param maxCachedTiles how many rendered tiles to keep
+     */
+    IncrementalHeatmapTileProvider(int radiusPx, double maxIntensity, int[] colors,
+            float[] startPoints, int maxCachedTiles) {
+        this(radiusPx, maxIntensity, colors, startPoints, maxCachedTiles, new PngTileEncoder());
+    }
+
+    IncrementalHeatmapTileProvider(int radiusPx, double maxIntensity, int[] colors,
+            float[] startPoints, final int maxCachedTiles, TileEncoder encoder) {
+        this.radiusPx = radiusPx;
+        this.maxIntensity = maxIntensity;
+        this.kernel = HeatmapColors.generateKernel(radiusPx, radiusPx / 3.0);
+        this.colorMap = HeatmapColors.generateColorMap(colors, startPoints, COLOR_MAP_SIZE);
+        this.encoder = encoder;
+        this.tiles = new LinkedHashMap<Long, Tile>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Tile> eldest) {
+                return size() > maxCachedTiles;
+            }
+        };
+    }
+
+    /** Adds a point and returns its id for {@link #removePoint}. */
+    synchronized int addPoint(double latitude, double longitude, double intensity) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (slotCount == pointX.length) {
+                int capacity = slotCount * 2;
+                pointX = Arrays.copyOf(pointX, capacity);
+                pointY = Arrays.copyOf(pointY, capacity);
+                pointWeight = Arrays.copyOf(pointWeight, capacity);
+                pointCell = Arrays.copyOf(pointCell, capacity);
+            }
+            slot = slotCount++;
+        }
+        double x = GeoJsonTileIndex.worldX(longitude);
+        double y = GeoJsonTileIndex.worldY(latitude);
+        int cell = cellOf(x, y);
+        pointX[slot] = x;
+        pointY[slot] = y;
+        pointWeight[slot] = intensity;
+        pointCell[slot] = cell;
+        int[] members = cells.get(cell);
+        if (members == null) {
+            // members[0] is the number of points in the cell.
+            members = new int[4];
+        } else if (members[0] + 1 == members.length) {
+            members = Arrays.copyOf(members, members.length * 2);
+        }
+        members[++members[0]] = slot;
+        cells.put(cell, members);
+        invalidate(x, y);
+        return slot;
+    }
+
+    /** Removes a point added by {@link #addPoint}. Returns false if it was already removed. */
+    synchronized boolean removePoint(int id) {
+        if (id < 0 || id >= slotCount || Double.isNaN(pointWeight[id])) {
+            return false;
+        }
+        int[] members = cells.get(pointCell[id]);
+        for (int i = 1; i <= members[0]; i++) {
+            if (members[i] == id) {
+                members[i] = members[members[0]--];
+                break;
+            }
+        }
+        if (members[0] == 0) {
+            cells.remove(pointCell[id]);
+        }
+        invalidate(pointX[id], pointY[id]);
+        pointWeight[id] = Double.NaN;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = id;
+        return true;
+    }
+
+    /**
+     * Moves a point, keeping its intensity. Returns the point's new id, or -1 if it had been
+     * removed.
+     */
+    synchronized int movePoint(int id, double latitude, double longitude) {
+        if (id < 0 || id >= slotCount) {
+            return -1;
+        }
+        double intensity = pointWeight[id];
+        return removePoint(id) ? addPoint(latitude, longitude, intensity) : -1;
+    }
+
+    /**
+     * Makes the map pick up the changes since the last call. Call it once per batch of updates,
+     * for example once a second for a live feed, rather than after every point.
+     */
+    void refresh(TileOverlay overlay) {
+        synchronized (this) {
+            if (!needsRefresh) {
+                return;
+            }
+            needsRefresh = false;
+        }
+        overlay.clearTileCache();
+    }
+
+    @Override
+    public Tile getTile(int x, int y, int zoom) {
+        long key = tileKey(x, y, zoom);
+        synchronized (this) {
+            Tile cached = tiles.get(key);
+            if (cached != null) {
+                tilesFromCache++;
+                return cached;
+            }
+            Integer count = inFlight.get(key);
+            inFlight.put(key, count == null ? 1 : count + 1);
+        }
+        Renderer renderer = renderers.get();
+        boolean empty = !renderer.accumulate(x, y, zoom);
+        Tile tile = empty ? NO_TILE : encoder.encode(renderer.colorize(), TILE_SIZE_PX);
+        synchronized (this) {
+            tilesRendered++;
+            int count = inFlight.get(key);
+            if (count == 1) {
+                inFlight.remove(key);
+            } else {
+                inFlight.put(key, count - 1);
+            }
+            if (!staleInFlight.contains(key)) {
+                tiles.put(key, tile);
+            } else if (count == 1) {
+                staleInFlight.remove(key);
+            }
+        }
+        return tile;
+    }
+
+    /** Drops the cached tiles that a point at world coordinates (x, y) draws into. */
+    private void invalidate(double x, double y) {
+        for (int zoom = 0; zoom <= MAX_ZOOM; zoom++) {
+            int size = 1 << zoom;
+            double pad = (double) radiusPx / TILE_SIZE_PX;
+            int minX = (int) Math.floor(x * size - pad);
+            int maxX = (int) Math.floor(x * size + pad);
+            int minY = Math.max(0, (int) Math.floor(y * size - pad));
+            int maxY = Math.min(size - 1, (int) Math.floor(y * size + pad));
+            for (int tx = minX; tx <= maxX; tx++) {
+                int wrappedX = Math.floorMod(tx, size);
+                for (int ty = minY; ty <= maxY; ty++) {
+                    long key = tileKey(wrappedX, ty, zoom);
+                    if (tiles.remove(key) != null) {
+                        tilesInvalidated++;
+                    }
+                    if (inFlight.containsKey(key)) {
+                        staleInFlight.add(key);
+                    }
+                }
+            }
+        }
+        needsRefresh = true;
+    }
+
+    synchronized long getTilesRendered() {
+        return tilesRendered;
+    }
+
+    synchronized long getTilesFromCache() {
+        return tilesFromCache;
+    }
+
+    synchronized long getTilesInvalidated() {
+        return tilesInvalidated;
+    }
+
+    synchronized boolean isCached(int x, int y, int zoom) {
+        return tiles.containsKey(tileKey(x, y, zoom));
+    }
+
+    private static long tileKey(int x, int y, int zoom) {
+        return ((long) zoom << 58) | ((long) x << 29) | y;
+    }
+
+    private static int cellOf(double x, double y) {
+        int cx = Math.min(GRID_SIZE - 1, Math.max(0, (int) (x * GRID_SIZE)));
+        int cy = Math.min(GRID_SIZE - 1, Math.max(0, (int) (y * GRID_SIZE)));
+        return cy * GRID_SIZE + cx;
+    }
+
+    /** Per-thread buffers for one tile: bucketed weights, the blurred intensities and pixels. */
+    private final class Renderer {
+        final int span = TILE_SIZE_PX + radiusPx * 2;
+        final double[] grid = new double[span * span];
+        final double[] blurred = new double[span * span];
+        final int[] pixels = new int[TILE_SIZE_PX * TILE_SIZE_PX];
+
+        /** Buckets the points around the tile into {@link #grid}. Returns false if none. */
+        boolean accumulate(int x, int y, int zoom) {
+            Arrays.fill(grid, 0);
+            int size = 1 << zoom;
+            double pad = (double) radiusPx / TILE_SIZE_PX;
+            double minX = (x - pad) / size;
+            double maxX = (x + 1 + pad) / size;
+            double minY = (y - pad) / size;
+            double maxY = (y + 1 + pad) / size;
+            boolean any = false;
+            synchronized (IncrementalHeatmapTileProvider.this) {
+                // Tiles at the antimeridian also see points from the other side of the world.
+                for (int shift = -1; shift <= 1; shift++) {
+                    if (minX + shift > 1 || maxX + shift < 0) {
+                        continue;
+                    }
+                    any |= accumulateRange(Math.max(0, minX + shift), Math.min(1, maxX + shift),
+                        minY, maxY, shift, x, y, size);
+                }
+            }
+            return any;
+        }
+
+        private boolean accumulateRange(double minX, double maxX, double minY, double maxY,
+                int shift, int tileX, int tileY, int size) {
+            int minCellX = (int) (minX * GRID_SIZE);
+            int maxCellX = Math.min(GRID_SIZE - 1, (int) (maxX * GRID_SIZE));
+            int minCellY = Math.max(0, (int) (minY * GRID_SIZE));
+            int maxCellY = Math.min(GRID_SIZE - 1, (int) (maxY * GRID_SIZE));
+            boolean any = false;
+            long cellRange = (long) (maxCellX - minCellX + 1) * (maxCellY - minCellY + 1);
+            if (cellRange > cells.size()) {
+                // Zoomed out: fewer occupied cells than cells in range.
+                for (int[] members : cells.values()) {
+                    any |= accumulateCell(members, minX, maxX, minY, maxY, shift, tileX, tileY,
+                        size);
+                }
+                return any;
+            }
+            for (int cy = minCellY; cy <= maxCellY; cy++) {
+                for (int cx = minCellX; cx <= maxCellX; cx++) {
+                    int[] members = cells.get(cy * GRID_SIZE + cx);
+                    if (members != null) {
+                        any |= accumulateCell(members, minX, maxX, minY, maxY, shift, tileX,
+                            tileY, size);
+                    }
+                }
+            }
+            return any;
+        }
+
+        private boolean accumulateCell(int[] members, double minX, double maxX, double minY,
+                double maxY, int shift, int tileX, int tileY, int size) {
+            boolean any = false;
+            for (int i = 1; i <= members[0]; i++) {
+                int slot = members[i];
+                double px = pointX[slot];
+                double py = pointY[slot];
+                if (px < minX || px > maxX || py < minY || py > maxY) {
+                    continue;
+                }
+                int gx = (int) (((px - shift) * size - tileX) * TILE_SIZE_PX) + radiusPx;
+                int gy = (int) ((py * size - tileY) * TILE_SIZE_PX) + radiusPx;
+                if (gx >= 0 && gx < span && gy >= 0 && gy < span) {
+                    grid[gy * span + gx] += pointWeight[slot];
+                    any = true;
+                }
+            }
+            return any;
+        }
+
+        /** Blurs the grid with the kernel and colors the tile. */
+        int[] colorize() {
+            // Horizontal pass into blurred, then vertical pass reading blurred.
+            int diameter = kernel.length;
+            Arrays.fill(blurred, 0);
+            for (int row = 0; row < span; row++) {
+                int offset = row * span;
+                for (int col = 0; col < span; col++) {
+                    double value = grid[offset + col];
+                    if (value == 0) {
+                        continue;
+                    }
+                    int start = Math.max(radiusPx, col - radiusPx);
+                    int end = Math.min(span - radiusPx - 1, col + radiusPx);
+                    for (int k = start; k <= end; k++) {
+                        blurred[offset + k] += value * kernel[k - col + radiusPx];
+                    }
+                }
+            }
+            double scale = (colorMap.length - 1) / maxIntensity;
+            for (int py = 0; py < TILE_SIZE_PX; py++) {
+                int row = py + radiusPx;
+                for (int px = 0; px < TILE_SIZE_PX; px++) {
+                    int col = px + radiusPx;
+                    double sum = 0;
+                    for (int k = 0; k < diameter; k++) {
+                        int r = row - radiusPx + k;
+                        sum += blurred[r * span + col] * kernel[k];
+                    }
+                    int index = Math.min((int) (sum * scale), colorMap.length - 1);
+                    pixels[py * TILE_SIZE_PX + px] =
+                        sum == 0 ? HeatmapColors.TRANSPARENT : colorMap[index];
+                }
+            }
+            return pixels;
+        }
+    }
+
+    /** Renders a tile's pixels without encoding them, for tests. */
+    int[] renderPixels(int x, int y, int zoom) {
+        Renderer renderer = renderers.get();
+        renderer.accumulate(x, y, zoom);
+        return renderer.colorize().clone();
+    }
+}
@@ -0,0 +1,470 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A minimal pull parser for strict JSON with the same shape as {@code android.util.JsonReader}.
+ * It reads through a fixed-size buffer, so documents of any size can be walked with constant
+ * memory, and parses numbers without creating intermediate strings. Unlike the platform class it
+ * has no Android dependencies, so the parsers built on it can be benchmarked on the JVM.
+ */
+class JsonStreamReader implements Closeable {
+
+    enum Token {
+        BEGIN_ARRAY, END_ARRAY, BEGIN_OBJECT, END_OBJECT, NAME, STRING, NUMBER, BOOLEAN, NULL,
+        END_DOCUMENT
+    }
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * Mantissas with more digits than this fall back to {@link Double#parseDouble}. Up to 15
+     * digits are exact in a double, so one multiplication or division by an exact power of ten
+     * gives a correctly rounded result.
+     */
+    private static final int MAX_FAST_DIGITS = 15;
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15,
+        1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    /** Container stack: true for objects, false for arrays. */
+    private boolean[] inObject = new boolean[32];
+    /** Whether the current container already has an element, so a comma is expected. */
+    private boolean[] hasElement = new boolean[32];
+    /** Whether the next string in the current object is a name. */
+    private boolean expectName;
+    private int depth;
+
+    private Token peeked;
+
+    private final StringBuilder scratch = new StringBuilder();
+
+    JsonStreamReader(InputStream in) {
+        this(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    JsonStreamReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    Token peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+        int c = nextNonWhitespace();
+        if (depth > 0) {
+            if (c == ']' || c == '}') {
+                // Handled below.
+            } else if (hasElement[depth - 1]) {
+                if (inObject[depth - 1] && !expectName) {
+                    // After a name: the value follows a colon.
+                    if (c != ':') {
+                        throw syntaxError("Expected ':'");
+                    }
+                    c = nextNonWhitespace();
+                } else {
+                    if (c != ',') {
+                        throw syntaxError("Expected ','");
+                    }
+                    c = nextNonWhitespace();
+                }
+            } else if (inObject[depth - 1] && !expectName) {
+                if (c != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                c = nextNonWhitespace();
+            }
+        }
+        switch (c) {
+            case -1:
+                peeked = Token.END_DOCUMENT;
+                break;
+            case '[':
+                peeked = Token.BEGIN_ARRAY;
+                break;
+            case ']':
+                peeked = Token.END_ARRAY;
+                break;
+            case '{':
+                peeked = Token.BEGIN_OBJECT;
+                break;
+            case '}':
+                peeked = Token.END_OBJECT;
+                break;
+            case '"':
+                peeked = depth > 0 && inObject[depth - 1] && expectName ? Token.NAME : Token.STRING;
+                break;
+            case 't':
+            case 'f':
+                peeked = Token.BOOLEAN;
+                break;
+            case 'n':
+                peeked = Token.NULL;
+                break;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    peeked = Token.NUMBER;
+                } else {
+                    throw syntaxError("Unexpected character '" + (char) c + "'");
+                }
+        }
+        // Leave the first character of the token unread.
+        position--;
+        return peeked;
+    }
+
+    boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_ARRAY && token != Token.END_OBJECT
+                && token != Token.END_DOCUMENT;
+    }
+
+    void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        position++;
+        push(false);
+    }
+
+    void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        position++;
+        pop();
+    }
+
+    void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        position++;
+        push(true);
+    }
+
+    void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        position++;
+        pop();
+    }
+
+    String nextName() throws IOException {
+        expect(Token.NAME);
+        position++;
+        String name = readString();
+        hasElement[depth - 1] = true;
+        expectName = false;
+        return name;
+    }
+
+    String nextString() throws IOException {
+        expect(Token.STRING);
+        position++;
+        String value = readString();
+        valueConsumed();
+        return value;
+    }
+
+    boolean nextBoolean() throws IOException {
+        expect(Token.BOOLEAN);
+        boolean value = buffer[position] == 't';
+        skipLiteral(value ? "true" : "false");
+        valueConsumed();
+        return value;
+    }
+
+    void nextNull() throws IOException {
+        expect(Token.NULL);
+        skipLiteral("null");
+        valueConsumed();
+    }
+
+    double nextDouble() throws IOException {
+        expect(Token.NUMBER);
+        double value = readNumber();
+        valueConsumed();
+        return value;
+    }
+
+    /** Skips the next value, including nested arrays and objects. */
+    void skipValue() throws IOException {
+        int startDepth = depth;
+        do {
+            switch (peek()) {
+                case BEGIN_ARRAY:
+                    beginArray();
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    break;
+                case BEGIN_OBJECT:
+                    beginObject();
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    break;
+                case NAME:
+                    nextName();
+                    break;
+                case STRING:
+                    nextString();
+                    break;
+                case NUMBER:
+                    nextDouble();
+                    break;
+                case BOOLEAN:
+                    nextBoolean();
+                    break;
+                case NULL:
+                    nextNull();
+                    break;
+                default:
+                    throw syntaxError("Unexpected end of document");
+            }
+        } while (depth > startDepth);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void expect(Token token) throws IOException {
+        Token actual = peek();
+        if (actual != token) {
+            throw syntaxError("Expected " + token + " but was " + actual);
+        }
+        peeked = null;
+        // peek() left the first character of the token unread.
+        fill(1);
+    }
+
+    private void push(boolean object) {
+        if (depth == inObject.length) {
+            inObject = Arrays.copyOf(inObject, depth * 2);
+            hasElement = Arrays.copyOf(hasElement, depth * 2);
+        }
+        inObject[depth] = object;
+        hasElement[depth] = false;
+        depth++;
+        expectName = object;
+    }
+
+    private void pop() {
+        depth--;
+        valueConsumed();
+    }
+
+    private void valueConsumed() {
+        if (depth > 0) {
+            hasElement[depth - 1] = true;
+            expectName = inObject[depth - 1];
+        }
+    }
+
+    private String readString() throws IOException {
+        scratch.setLength(0);
+        readStringInto(scratch);
+        return scratch.toString();
+    }
+
+    /** Reads the rest of a string whose opening quote has been consumed. */
+    private void readStringInto(StringBuilder out) throws IOException {
+        while (true) {
+            if (position == limit && !fill(1)) {
+                throw syntaxError("Unterminated string");
+            }
+            char c = buffer[position++];
+            if (c == '"') {
+                return;
+            }
+            if (c != '\\') {
+                out.append(c);
+                continue;
+            }
+            if (position == limit && !fill(1)) {
+                throw syntaxError("Unterminated escape");
+            }
+            char escaped = buffer[position++];
+            switch (escaped) {
+                case 'n':
+                    out.append('\n');
+                    break;
+                case 't':
+                    out.append('\t');
+                    break;
+                case 'r':
+                    out.append('\r');
+                    break;
+                case 'b':
+                    out.append('\b');
+                    break;
+                case 'f':
+                    out.append('\f');
+                    break;
+                case 'u':
+                    if (!fill(4)) {
+                        throw syntaxError("Unterminated escape");
+                    }
+                    out.append((char) Integer.parseInt(new String(buffer, position, 4), 16));
+                    position += 4;
+                    break;
+                default:
+                    out.append(escaped);
+                    break;
+            }
+        }
+    }
+
+    private double readNumber() throws IOException {
+        boolean negative = false;
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean fast = true;
+        scratch.setLength(0);
+
+        int c = read();
+        if (c == '-') {
+            negative = true;
+            scratch.append('-');
+            c = read();
+        }
+        while (c >= '0' && c <= '9') {
+            scratch.append((char) c);
+            if (digits < MAX_FAST_DIGITS) {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) {
+                    digits++;
+                }
+            } else {
+                fast = false;
+            }
+            c = read();
+        }
+        if (c == '.') {
+            scratch.append('.');
+            c = read();
+            while (c >= '0' && c <= '9') {
+                scratch.append((char) c);
+                if (digits < MAX_FAST_DIGITS) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    exponent--;
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                } else {
+                    fast = false;
+                }
+                c = read();
+            }
+        }
+        if (c == 'e' || c == 'E') {
+            scratch.append('e');
+            c = read();
+            boolean negativeExponent = false;
+            if (c == '+' || c == '-') {
+                negativeExponent = c == '-';
+                scratch.append((char) c);
+                c = read();
+            }
+            int explicit = 0;
+            while (c >= '0' && c <= '9') {
+                scratch.append((char) c);
+                explicit = Math.min(explicit * 10 + (c - '0'), 10_000);
+                c = read();
+            }
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+        if (c != -1) {
+            // Give back the character that ended the number.
+            position--;
+        }
+
+        if (fast && exponent >= -22 && exponent <= 22) {
+            double value = exponent < 0
+                    ? mantissa / POWERS_OF_TEN[-exponent]
+                    : mantissa * POWERS_OF_TEN[exponent];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(scratch.toString());
+    }
+
+    private void skipLiteral(String literal) throws IOException {
+        if (!fill(literal.length())) {
+            throw syntaxError("Unexpected end of document");
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (buffer[position + i] != literal.charAt(i)) {
+                throw syntaxError("Expected " + literal);
+            }
+        }
+        position += literal.length();
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill(1)) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        while (true) {
+            int c = read();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                if (c == -1) {
+                    // Keep position arithmetic in peek() consistent.
+                    position++;
+                }
+                return c;
+            }
+        }
+    }
+
+    /** Makes sure at least {@code minimum} characters are buffered. Returns false at EOF. */
+    private boolean fill(int minimum) throws IOException {
+        if (limit - position >= minimum) {
+            return true;
+        }
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        while (limit < minimum) {
+            int read = reader.read(buffer, limit, buffer.length - limit);
+            if (read == -1) {
+                return false;
+            }
+            limit += read;
+        }
+        return true;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " at depth " + depth);
+    }
+}
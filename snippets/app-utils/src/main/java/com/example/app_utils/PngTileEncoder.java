@@ -0,0 +1,52 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+import android.graphics.Bitmap;
+
+import com.google.android.gms.maps.model.Tile;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Encodes tiles as PNG through a bitmap and output buffer kept per rendering thread. This is the
+ * only part of the heatmap providers that needs the Android graphics classes.
+ */
+final class PngTileEncoder implements TileEncoder {
+
+    private final ThreadLocal<Buffers> buffers = new ThreadLocal<>();
+
+    @Override
+    public Tile encode(int[] pixels, int sizePx) {
+        Buffers b = buffers.get();
+        if (b == null || b.bitmap.getWidth() != sizePx) {
+            b = new Buffers(sizePx);
+            buffers.set(b);
+        }
+        b.bitmap.setPixels(pixels, 0, sizePx, 0, 0, sizePx, sizePx);
+        b.stream.reset();
+        b.bitmap.compress(Bitmap.CompressFormat.PNG, 100, b.stream);
+        return new Tile(sizePx, sizePx, b.stream.toByteArray());
+    }
+
+    private static final class Buffers {
+        final Bitmap bitmap;
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream(64 * 1024);
+
+        Buffers(int sizePx) {
+            bitmap = Bitmap.createBitmap(sizePx, sizePx, Bitmap.Config.ARGB_8888);
+        }
+    }
+}
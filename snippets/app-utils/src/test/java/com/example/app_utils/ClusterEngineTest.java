@@ -0,0 +1,249 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks the cluster algorithms and the diffs {@link ClusterEngine} hands out, and times
+ * clustering per zoom for 10k, 100k and 1M items. The benchmark only runs with
+ * {@code -Pbenchmarks}.
+ */
+public class ClusterEngineTest {
+
+    // Three items in central London, two in its northwest and one in Paris.
+    private static final double[] LATITUDES = {51.50, 48.85, 51.5001, 51.5002, 51.70, 51.7001};
+    private static final double[] LONGITUDES = {-0.12, 2.35, -0.1201, -0.1202, -0.30, -0.3001};
+
+    @Test
+    public void indexQueryMatchesAScan() {
+        Random random = new Random(1);
+        int count = 5000;
+        double[] lat = new double[count];
+        double[] lng = new double[count];
+        for (int i = 0; i < count; i++) {
+            lat[i] = 51.5 + random.nextGaussian();
+            lng[i] = -0.12 + random.nextGaussian();
+        }
+        ClusterPointIndex index = ClusterPointIndex.fromLatLngs(lat, lng, count);
+        double minX = GeoJsonTileIndex.worldX(-0.5);
+        double maxX = GeoJsonTileIndex.worldX(0.5);
+        double minY = GeoJsonTileIndex.worldY(52);
+        double maxY = GeoJsonTileIndex.worldY(51);
+
+        int[] found = new int[1];
+        index.query(minX, minY, maxX, maxY, position -> found[0]++);
+        int expected = 0;
+        for (int i = 0; i < count; i++) {
+            if (lng[i] >= -0.5 && lng[i] <= 0.5 && lat[i] >= 51 && lat[i] <= 52) {
+                expected++;
+            }
+        }
+        assertEquals(expected, found[0]);
+    }
+
+    @Test
+    public void bothAlgorithmsSeparateTheGroups() {
+        ClusterPointIndex index = ClusterPointIndex.fromLatLngs(LATITUDES, LONGITUDES, 6);
+        for (ClusterAlgorithm algorithm
+                : new ClusterAlgorithm[] {new GridClusterAlgorithm(100),
+                    new DistanceClusterAlgorithm(100)}) {
+            ClusterAlgorithm.Clusters clusters = algorithm.cluster(index, 10, () -> false);
+
+            assertEquals(3, clusters.size);
+            // Sorted by id, each the lowest item index in the cluster.
+            assertEquals(0, clusters.ids[0]);
+            assertEquals(3, clusters.counts[0]);
+            assertEquals(1, clusters.ids[1]);
+            assertEquals(1, clusters.counts[1]);
+            assertEquals(4, clusters.ids[2]);
+            assertEquals(2, clusters.counts[2]);
+        }
+    }
+
+    @Test
+    public void everyItemIsInOneCluster() {
+        Random random = new Random(2);
+        int count = 20_000;
+        double[] lat = new double[count];
+        double[] lng = new double[count];
+        for (int i = 0; i < count; i++) {
+            lat[i] = -33.9 + random.nextGaussian() * 0.2;
+            lng[i] = 151.2 + random.nextGaussian() * 0.2;
+        }
+        ClusterPointIndex index = ClusterPointIndex.fromLatLngs(lat, lng, count);
+        for (ClusterAlgorithm algorithm
+                : new ClusterAlgorithm[] {new GridClusterAlgorithm(100),
+                    new DistanceClusterAlgorithm(100)}) {
+            for (int zoom = 0; zoom <= 18; zoom += 3) {
+                ClusterAlgorithm.Clusters clusters = algorithm.cluster(index, zoom, () -> false);
+                int total = 0;
+                for (int i = 0; i < clusters.size; i++) {
+                    total += clusters.counts[i];
+                }
+                assertEquals(count, total);
+            }
+        }
+    }
+
+    @Test
+    public void diffKeepsIdsThatSurvive() {
+        ClusterPointIndex index = ClusterPointIndex.fromLatLngs(LATITUDES, LONGITUDES, 6);
+        ClusterAlgorithm algorithm = new DistanceClusterAlgorithm(100);
+        // Zoom 7 has London as one cluster, zoom 10 splits it.
+        ClusterAlgorithm.Clusters zoomedOut = algorithm.cluster(index, 7, () -> false);
+        ClusterAlgorithm.Clusters zoomedIn = algorithm.cluster(index, 10, () -> false);
+
+        ClusterEngine.Diff first = ClusterEngine.diff(null, zoomedOut);
+        assertEquals(zoomedOut.size, first.added.size());
+
+        ClusterEngine.Diff diff = ClusterEngine.diff(zoomedOut, zoomedIn);
+        // Cluster 0 shrinks from five items to three, cluster 4 splits off; Paris stays put.
+        assertEquals(1, diff.added.size());
+        assertEquals(4, diff.added.get(0).id);
+        assertEquals(0, diff.removed.size());
+        assertEquals(1, diff.changed.size());
+        assertEquals(0, diff.changed.get(0).id);
+        assertEquals(3, diff.changed.get(0).count);
+
+        assertTrue(ClusterEngine.diff(zoomedIn, zoomedIn).isEmpty());
+    }
+
+    @Test
+    public void supersededZoomsAreNeverDelivered() throws InterruptedException {
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        ClusterAlgorithm distance = new DistanceClusterAlgorithm(100);
+        // Zoom 3 blocks until it is cancelled.
+        ClusterAlgorithm algorithm = (index, zoom, cancellation) -> {
+            if (zoom == 3) {
+                slowStarted.countDown();
+                while (true) {
+                    cancellation.check();
+                    Thread.yield();
+                }
+            }
+            return distance.cluster(index, zoom, cancellation);
+        };
+        List<ClusterEngine.Diff> diffs = new ArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(1);
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+        ClusterEngine engine = new ClusterEngine(algorithm, workers, Runnable::run, diff -> {
+            diffs.add(diff);
+            delivered.countDown();
+        });
+        try {
+            engine.setViewport(3, 40, -10, 60, 10);
+            engine.setItems(LATITUDES, LONGITUDES, 6);
+            assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+
+            engine.setViewport(10, 51.4, -0.4, 51.8, 0);
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        } finally {
+            workers.shutdown();
+            assertTrue(workers.awaitTermination(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(1, diffs.size());
+        assertEquals(10, diffs.get(0).zoom);
+        // Both London clusters; Paris is outside the padded viewport.
+        assertEquals(2, diffs.get(0).added.size());
+    }
+
+    @Test
+    public void panningAtTheSameZoomReusesTheClusters() throws InterruptedException {
+        ClusterAlgorithm distance = new DistanceClusterAlgorithm(100);
+        AtomicInteger runs = new AtomicInteger();
+        ClusterAlgorithm algorithm = (index, zoom, cancellation) -> {
+            runs.incrementAndGet();
+            return distance.cluster(index, zoom, cancellation);
+        };
+        LinkedBlockingQueue<ClusterEngine.Diff> diffs = new LinkedBlockingQueue<>();
+        ExecutorService workers = Executors.newSingleThreadExecutor();
+        ClusterEngine engine = new ClusterEngine(algorithm, workers, Runnable::run, diffs::add);
+        try {
+            engine.setItems(LATITUDES, LONGITUDES, 6);
+            engine.setViewport(10, 51.4, -0.4, 51.8, 0);
+            assertEquals(2, diffs.poll(5, TimeUnit.SECONDS).added.size());
+
+            // Pan to Paris: London goes and Paris comes from the same clusters.
+            engine.setViewport(10, 48.7, 2.2, 49.0, 2.5);
+            ClusterEngine.Diff pan = diffs.poll(5, TimeUnit.SECONDS);
+            assertEquals(1, pan.added.size());
+            assertEquals(2, pan.removed.size());
+            assertEquals(1, runs.get());
+
+            engine.setViewport(11, 48.7, 2.2, 49.0, 2.5);
+        } finally {
+            workers.shutdown();
+            assertTrue(workers.awaitTermination(5, TimeUnit.SECONDS));
+        }
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    public void benchmarkClusteringPerZoom() {
+        assumeTrue(Boolean.getBoolean("benchmarks"));
+        for (int count : new int[] {10_000, 100_000, 1_000_000}) {
+            Random random = new Random(count);
+            double[] lat = new double[count];
+            double[] lng = new double[count];
+            // City-scale data: a few dense neighbourhoods around London.
+            for (int i = 0; i < count; i++) {
+                int hub = random.nextInt(8);
+                lat[i] = 51.5 + (hub - 4) * 0.03 + random.nextGaussian() * 0.05;
+                lng[i] = -0.12 + (hub % 3 - 1) * 0.05 + random.nextGaussian() * 0.08;
+            }
+            long start = System.nanoTime();
+            ClusterPointIndex index = ClusterPointIndex.fromLatLngs(lat, lng, count);
+            System.out.println(String.format("%d items: index %.0fms",
+                count, (System.nanoTime() - start) / 1e6));
+
+            for (ClusterAlgorithm algorithm
+                    : new ClusterAlgorithm[] {new GridClusterAlgorithm(100),
+                        new DistanceClusterAlgorithm(100)}) {
+                StringBuilder report =
+                    new StringBuilder("  " + algorithm.getClass().getSimpleName());
+                for (int zoom : new int[] {4, 8, 11, 14, 17}) {
+                    // Warm up, then take the best of three.
+                    algorithm.cluster(index, zoom, () -> false);
+                    long best = Long.MAX_VALUE;
+                    int clusters = 0;
+                    for (int i = 0; i < 3; i++) {
+                        start = System.nanoTime();
+                        clusters = algorithm.cluster(index, zoom, () -> false).size;
+                        best = Math.min(best, System.nanoTime() - start);
+                    }
+                    report.append(String.format("  z%d: %.1fms (%d)", zoom, best / 1e6,
+                        clusters));
+                }
+                System.out.println(report);
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import org.junit.Test;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that {@link ColumnarClusterItems} gives back what was added, and measures its heap
+ * footprint and the garbage collection during reclustering against {@code Clustering.MyItem}.
+ * The measurement only runs with {@code -Pbenchmarks}.
+ */
+public class ColumnarClusterItemsTest {
+
+    @Test
+    public void itemsRoundTrip() {
+        ColumnarClusterItems items = new ColumnarClusterItems.Builder()
+            .add(51.5145160, -0.1270060, "Title 0", "Snippet 0")
+            .add(-33.8688, 151.2093, "", null)
+            .add(48.8566, 2.3522, null, "Caf\u00e9")
+            .build();
+
+        assertEquals(3, items.size());
+        assertEquals(51.5145160, items.getLatitude(0), 1e-7);
+        assertEquals(-0.1270060, items.getLongitude(0), 1e-7);
+        assertEquals("Title 0", items.getTitle(0));
+        assertEquals("Snippet 0", items.getSnippet(0));
+        assertEquals("", items.getTitle(1));
+        assertNull(items.getSnippet(1));
+        assertNull(items.getTitle(2));
+        assertEquals("Caf\u00e9", items.getSnippet(2));
+    }
+
+    @Test
+    public void viewsReadTheColumns() {
+        ColumnarClusterItems items = new ColumnarClusterItems.Builder()
+            .add(51.5, -0.12, "London", "UK")
+            .add(48.85, 2.35, "Paris", "France")
+            .build();
+
+        ColumnarClusterItems.Item paris = items.item(1);
+        LatLng position = paris.getPosition();
+        assertEquals(48.85, position.latitude, 1e-7);
+        assertEquals(2.35, position.longitude, 1e-7);
+        assertEquals("Paris", paris.getTitle());
+        assertEquals("France", paris.getSnippet());
+        assertEquals(items.item(1), paris);
+        assertEquals(items.item(1).hashCode(), paris.hashCode());
+        assertNotEquals(items.item(0), paris);
+    }
+
+    @Test
+    public void indexMatchesTheDoubleIndex() {
+        Random random = new Random(4);
+        int count = 10_000;
+        double[] lat = new double[count];
+        double[] lng = new double[count];
+        ColumnarClusterItems.Builder builder = new ColumnarClusterItems.Builder();
+        for (int i = 0; i < count; i++) {
+            lat[i] = 51.5 + random.nextGaussian() * 0.1;
+            lng[i] = -0.12 + random.nextGaussian() * 0.2;
+            builder.add(lat[i], lng[i], null, null);
+        }
+        ClusterAlgorithm algorithm = new DistanceClusterAlgorithm(100);
+        for (int zoom : new int[] {8, 12, 16}) {
+            ClusterAlgorithm.Clusters fromDoubles = algorithm.cluster(
+                ClusterPointIndex.fromLatLngs(lat, lng, count), zoom, () -> false);
+            ClusterAlgorithm.Clusters fromColumns =
+                algorithm.cluster(builder.build().buildIndex(), zoom, () -> false);
+
+            // Rounding to 1e-7 degrees can move an item across a cell edge, but hardly ever.
+            assertEquals(fromDoubles.size, fromColumns.size, fromDoubles.size / 1000.0);
+        }
+    }
+
+    @Test
+    public void benchmarkHeapAndGarbageCollection() {
+        assumeTrue(Boolean.getBoolean("benchmarks"));
+        int count = 1_000_000;
+        Random random = new Random(5);
+        double[] lat = new double[count];
+        double[] lng = new double[count];
+        for (int i = 0; i < count; i++) {
+            lat[i] = 51.5 + random.nextGaussian() * 0.1;
+            lng[i] = -0.12 + random.nextGaussian() * 0.2;
+        }
+
+        long before = usedHeap();
+        Clustering clustering = new Clustering();
+        List<Clustering.MyItem> objects = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            objects.add(clustering.new MyItem(lat[i], lng[i], "Title " + i, "Snippet " + i));
+        }
+        long objectHeap = usedHeap() - before;
+        String objectGc = recluster(() -> {
+            // An object store has to read every position back out of its items first.
+            double[] itemLat = new double[count];
+            double[] itemLng = new double[count];
+            for (int i = 0; i < count; i++) {
+                LatLng position = objects.get(i).getPosition();
+                itemLat[i] = position.latitude;
+                itemLng[i] = position.longitude;
+            }
+            return ClusterPointIndex.fromLatLngs(itemLat, itemLng, count);
+        });
+        assertEquals(count, objects.size());
+        objects.clear();
+
+        before = usedHeap();
+        ColumnarClusterItems columns = buildColumns(lat, lng);
+        long columnHeap = usedHeap() - before;
+        String columnGc = recluster(columns::buildIndex);
+        assertEquals(count, columns.size());
+
+        System.out.println(String.format(
+            "%d items: MyItem objects %.0fMB, %s; columns %.0fMB, %s",
+            count, objectHeap / 1e6, objectGc, columnHeap / 1e6, columnGc));
+    }
+
+    private static ColumnarClusterItems buildColumns(double[] lat, double[] lng) {
+        ColumnarClusterItems.Builder builder = new ColumnarClusterItems.Builder();
+        for (int i = 0; i < lat.length; i++) {
+            builder.add(lat[i], lng[i], "Title " + i, "Snippet " + i);
+        }
+        return builder.build();
+    }
+
+    private interface IndexSource {
+        ClusterPointIndex build();
+    }
+
+    /** Rebuilds the index and clusters at four zooms, three times, and reports the collections. */
+    private static String recluster(IndexSource source) {
+        ClusterAlgorithm algorithm = new DistanceClusterAlgorithm(100);
+        long collections = -gcCount();
+        long gcMillis = -gcMillis();
+        long start = System.nanoTime();
+        for (int round = 0; round < 3; round++) {
+            ClusterPointIndex index = source.build();
+            for (int zoom : new int[] {6, 9, 12, 15}) {
+                algorithm.cluster(index, zoom, () -> false);
+            }
+        }
+        collections += gcCount();
+        gcMillis += gcMillis();
+        return String.format("%d collections taking %dms over %.0fms of reclustering",
+            collections, gcMillis, (System.nanoTime() - start) / 1e6);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, bean.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, bean.getCollectionTime());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,152 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Checks the levels of {@link DensityPyramidTileProvider} and benchmarks its tiles against
+ * rendering from the raw points on every request, which is what {@code HeatmapTileProvider}
+ * does. {@link IncrementalHeatmapTileProvider#renderPixels} stands in for it, since the library
+ * provider needs a device to draw. The benchmark only runs with {@code -Pbenchmarks}.
+ */
+public class DensityPyramidTileProviderTest {
+
+    private static final int CENTER = DensityPyramidTileProvider.TILE_SIZE_PX / 2;
+    private static final int CENTER_PIXEL =
+        CENTER * DensityPyramidTileProvider.TILE_SIZE_PX + CENTER;
+
+    /** Keeps the tile's first pixel, so tests can see what was drawn without a device. */
+    private static final TileEncoder ENCODER = (pixels, sizePx) -> new Tile(sizePx, sizePx,
+        new byte[] {(byte) (pixels[0] >>> 24)});
+
+    @Test
+    public void everyLevelColorsThePoint() {
+        DensityPyramidTileProvider provider = new DensityPyramidTileProvider.Builder()
+            .maxLevel(6)
+            .add(-0.001, 0.001, 1)
+            .build();
+
+        // One grid per level holds the point.
+        assertEquals(7, provider.getGridCount());
+        for (int zoom = 1; zoom <= 8; zoom++) {
+            // The point sits at the top-left corner of tile (n, n).
+            int n = 1 << (zoom - 1);
+            int[] pixels = provider.renderPixels(n, n, zoom);
+            assertNotEquals(0, pixels[0]);
+            assertEquals(0, pixels[CENTER_PIXEL]);
+        }
+    }
+
+    @Test
+    public void pointsBleedIntoNeighbouringTiles() {
+        DensityPyramidTileProvider provider = new DensityPyramidTileProvider.Builder()
+            .maxLevel(4)
+            .add(-0.001, 0.001, 1)
+            .build();
+
+        // The tile up and to the left of the point's tile, from the pyramid and past it.
+        int size = DensityPyramidTileProvider.TILE_SIZE_PX;
+        int last = size * size - 1;
+        assertNotEquals(0, provider.renderPixels(7, 7, 4)[last]);
+        assertNotEquals(0, provider.renderPixels(31, 31, 6)[last]);
+    }
+
+    @Test
+    public void emptyTilesAreNoTile() {
+        DensityPyramidTileProvider provider = new DensityPyramidTileProvider.Builder()
+            .encoder(ENCODER)
+            .add(10, 10, 1)
+            .build();
+
+        assertSame(TileProvider.NO_TILE, provider.getTile(0, 0, 3));
+        assertSame(TileProvider.NO_TILE, provider.getTile(0, 0, 12));
+    }
+
+    @Test
+    public void tilesWithPointsAreEncoded() {
+        DensityPyramidTileProvider provider = new DensityPyramidTileProvider.Builder()
+            .encoder(ENCODER)
+            .maxLevel(4)
+            .add(-0.001, 0.001, 1)
+            .build();
+
+        Tile tile = provider.getTile(16, 16, 5);
+        assertEquals(DensityPyramidTileProvider.TILE_SIZE_PX, tile.width);
+        // The point's corner is drawn opaque enough to see.
+        assertNotEquals(0, tile.data[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void radiusBelowOnePixelIsRejected() {
+        new DensityPyramidTileProvider.Builder().radius(0);
+    }
+
+    @Test
+    public void benchmarkAgainstPerRequestRendering() {
+        assumeTrue(Boolean.getBoolean("benchmarks"));
+        int[] colors = {0xff66e100, 0xffff0000};
+        float[] startPoints = {0.2f, 1f};
+        for (int count : new int[] {10_000, 100_000, 1_000_000}) {
+            Random random = new Random(count);
+            DensityPyramidTileProvider.Builder builder = new DensityPyramidTileProvider.Builder();
+            IncrementalHeatmapTileProvider perRequest =
+                new IncrementalHeatmapTileProvider(20, 10, colors, startPoints, 0, ENCODER);
+            // Country-scale data: clusters spread over Australia.
+            for (int i = 0; i < count; i++) {
+                double lat = -25 + random.nextGaussian() * 8;
+                double lng = 134 + random.nextGaussian() * 10;
+                builder.add(lat, lng, 1);
+                perRequest.addPoint(lat, lng, 1);
+            }
+            long start = System.nanoTime();
+            DensityPyramidTileProvider pyramid = builder.build();
+            double buildMs = (System.nanoTime() - start) / 1e6;
+
+            StringBuilder report = new StringBuilder(String.format(
+                "%d points: build %.0fms, %d grids", count, buildMs, pyramid.getGridCount()));
+            for (int zoom : new int[] {3, 5, 8, 11}) {
+                int x = (int) (GeoJsonTileIndex.worldX(134) * (1 << zoom));
+                int y = (int) (GeoJsonTileIndex.worldY(-25) * (1 << zoom));
+                // Warm up, then time a few renders of the same tile.
+                pyramid.renderPixels(x, y, zoom);
+                perRequest.renderPixels(x, y, zoom);
+                start = System.nanoTime();
+                for (int i = 0; i < 5; i++) {
+                    pyramid.renderPixels(x, y, zoom);
+                }
+                double pyramidMs = (System.nanoTime() - start) / 5e6;
+                start = System.nanoTime();
+                for (int i = 0; i < 5; i++) {
+                    perRequest.renderPixels(x, y, zoom);
+                }
+                double perRequestMs = (System.nanoTime() - start) / 5e6;
+                report.append(String.format("  z%d: pyramid %.1fms, per request %.1fms",
+                    zoom, pyramidMs, perRequestMs));
+            }
+            System.out.println(report);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+/**
+ * Checks that {@link GeoJsonStreamParser} reads every geometry type regardless of member order,
+ * and compares its parse time and peak heap with reading the whole file into a string and parsing
+ * it with org.json. The benchmark only runs when the system property {@code benchmarks} is set
+ * ({@code -Pbenchmarks} in Gradle). Its document is about 10 MB; set {@code geojson.benchmark.mb}
+ * to 100 as well to run the large case.
+ */
+public class GeoJsonStreamParserTest {
+
+    @Test
+    public void readsEveryGeometryTypeInAnyMemberOrder() throws IOException {
+        String json = "{\"features\": ["
+            + "{\"properties\": {\"name\": \"p\", \"n\": 1.5, \"tags\": [\"a\", true, null]},"
+            + " \"geometry\": {\"coordinates\": [-122.5, 37.75, 12], \"type\": \"Point\"},"
+            + " \"type\": \"Feature\"},"
+            + "{\"type\": \"Feature\", \"geometry\": {\"type\": \"LineString\","
+            + " \"coordinates\": [[0, 0], [1, 1], [2, 0]]}, \"properties\": null},"
+            + "{\"type\": \"Feature\", \"geometry\": {\"type\": \"Polygon\", \"coordinates\":"
+            + " [[[0, 0], [4, 0], [4, 4], [0, 0]], [[1, 1], [2, 1], [2, 2], [1, 1]]]}},"
+            + "{\"type\": \"Feature\", \"geometry\": {\"type\": \"MultiPolygon\", \"coordinates\":"
+            + " [[[[0, 0], [1, 0], [1, 1], [0, 0]]], [[[5, 5], [6, 5], [6, 6], [5, 5]],"
+            + " [[5.2, 5.2], [5.4, 5.2], [5.4, 5.4], [5.2, 5.2]]]]}},"
+            + "{\"type\": \"Feature\", \"geometry\": {\"type\": \"GeometryCollection\","
+            + " \"geometries\": [{\"type\": \"Point\", \"coordinates\": [3, 4]},"
+            + " {\"type\": \"MultiLineString\", \"coordinates\": [[[0, 0], [1, 1]], [[2, 2], [3, 3]]]}]}},"
+            + "{\"type\": \"Feature\", \"geometry\": null, \"properties\": {}}"
+            + "], \"type\": \"FeatureCollection\", \"bbox\": [-180, -90, 180, 90]}";
+        List<String> summaries = new ArrayList<>();
+
+        int count = GeoJsonStreamParser.parse(stream(json), feature -> summaries.add(summarize(feature)));
+
+        assertEquals(5, count);
+        assertEquals("Point[(37.75,-122.5)]", summaries.get(0));
+        assertEquals("LineString[(0.0,0.0)(1.0,1.0)(0.0,2.0)]", summaries.get(1));
+        assertEquals("Polygon[(0.0,0.0)(0.0,4.0)(4.0,4.0)(0.0,0.0)|(1.0,1.0)(1.0,2.0)(2.0,2.0)(1.0,1.0)]",
+            summaries.get(2));
+        assertEquals("MultiPolygon[(0.0,0.0)(0.0,1.0)(1.0,1.0)(0.0,0.0)]"
+            + "[(5.0,5.0)(5.0,6.0)(6.0,6.0)(5.0,5.0)|(5.2,5.2)(5.2,5.4)(5.4,5.4)(5.2,5.2)]",
+            summaries.get(3));
+        assertEquals("Point[(4.0,3.0)] MultiLineString[(0.0,0.0)(1.0,1.0)|(2.0,2.0)(3.0,3.0)]",
+            summaries.get(4));
+    }
+
+    @Test
+    public void readsPropertiesAndEscapes() throws IOException {
+        String json = "{\"type\": \"Feature\", \"properties\": {\"name\": \"a\\\"b\\u00e9\\n\","
+            + " \"count\": -12, \"ratio\": 6.02e23, \"nested\": {\"x\": [1, 2]}, \"none\": null},"
+            + " \"geometry\": {\"type\": \"Point\", \"coordinates\": [1e-3, -0.000001]}}";
+        List<Map<String, Object>> properties = new ArrayList<>();
+        double[] position = new double[2];
+
+        GeoJsonStreamParser.parse(stream(json), feature -> {
+            properties.add(feature.getProperties());
+            position[0] = feature.getLatitude(0);
+            position[1] = feature.getLongitude(0);
+        });
+
+        Map<String, Object> map = properties.get(0);
+        assertEquals("a\"b\u00e9\n", map.get("name"));
+        assertEquals(-12.0, map.get("count"));
+        assertEquals(6.02e23, (Double) map.get("ratio"), 1e10);
+        assertEquals("{x=[1.0, 2.0]}", map.get("nested").toString());
+        assertNull(map.get("none"));
+        assertEquals(-0.000001, position[0], 0);
+        assertEquals(0.001, position[1], 0);
+    }
+
+    @Test
+    public void streamedFeaturesBuildTheSameIndex() throws IOException {
+        GeoJsonTileIndex.Builder builder = new GeoJsonTileIndex.Builder();
+        String json = "{\"type\": \"FeatureCollection\", \"features\": ["
+            + "{\"type\": \"Feature\", \"geometry\": {\"type\": \"Polygon\", \"coordinates\":"
+            + " [[[0, 0], [40, 0], [40, 40], [0, 40], [0, 0]], [[10, 10], [20, 10], [20, 20],"
+            + " [10, 20], [10, 10]]]}, \"properties\": {\"id\": \"square\"}},"
+            + "{\"type\": \"Feature\", \"geometry\": {\"type\": \"MultiPoint\","
+            + " \"coordinates\": [[-100, 10], [-90, 10]]}}]}";
+
+        GeoJsonStreamParser.parse(stream(json), builder::addFeature);
+        GeoJsonTileIndex index = builder.build();
+
+        assertEquals(3, index.getFeatureCount());
+        assertEquals(0, index.hitTest(5, 5, 5, 10));
+        assertEquals(-1, index.hitTest(15, 15, 5, 10));
+        assertEquals(2, index.hitTest(10, -90, 5, 10));
+    }
+
+    @Test
+    public void benchmarkStreamingAgainstTreeParse() throws Exception {
+        assumeTrue(Boolean.getBoolean("benchmarks"));
+        int megabytes = Integer.getInteger("geojson.benchmark.mb", 10);
+        File file = File.createTempFile("features", ".geojson");
+        try {
+            int features = writeFeatureCollection(file, megabytes * 1024L * 1024L);
+
+            // Warm up both paths once before measuring.
+            streamFile(file);
+            treeParseFile(file);
+
+            Result streaming = measure(() -> streamFile(file));
+            Result tree = measure(() -> treeParseFile(file));
+            assertEquals(features, streaming.features);
+            assertEquals(features, tree.features);
+            System.out.println(String.format(
+                "%d MB, %d features: streaming %.0fms peak %.1fMB, string + org.json %.0fms"
+                    + " peak %.1fMB",
+                megabytes, features, streaming.nanos / 1e6, streaming.peakBytes / 1e6,
+                tree.nanos / 1e6, tree.peakBytes / 1e6));
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static int streamFile(File file) throws IOException {
+        GeoJsonTileIndex.Builder builder = new GeoJsonTileIndex.Builder();
+        int features = GeoJsonStreamParser.parse(new FileInputStream(file), builder::addFeature);
+        builder.build();
+        return features;
+    }
+
+    /** The path the snippets used before: read the whole file, then build a JSON tree. */
+    private static int treeParseFile(File file) throws Exception {
+        String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        JSONObject collection = new JSONObject(json);
+        GeoJsonTileIndex.Builder builder = new GeoJsonTileIndex.Builder();
+        builder.addFeatureCollection(collection);
+        builder.build();
+        return collection.getJSONArray("features").length();
+    }
+
+    private static final class Result {
+        long nanos;
+        long peakBytes;
+        int features;
+    }
+
+    /** Times a task while a sampling thread records the highest heap use above the baseline. */
+    private static Result measure(Callable<Integer> task) throws Exception {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long baseline = runtime.totalMemory() - runtime.freeMemory();
+        long[] peak = {baseline};
+        Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peak[0] = Math.max(peak[0], runtime.totalMemory() - runtime.freeMemory());
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.start();
+        Result result = new Result();
+        long start = System.nanoTime();
+        result.features = task.call();
+        result.nanos = System.nanoTime() - start;
+        sampler.interrupt();
+        sampler.join();
+        result.peakBytes = peak[0] - baseline;
+        return result;
+    }
+
+    /** Writes random points, lines and polygons until the file reaches the target size. */
+    private static int writeFeatureCollection(File file, long targetBytes) throws IOException {
+        Random random = new Random(42);
+        int features = 0;
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+                StandardCharsets.UTF_8)) {
+            StringBuilder feature = new StringBuilder(4096);
+            writer.write("{\"type\": \"FeatureCollection\", \"features\": [");
+            long written = 0;
+            while (written < targetBytes) {
+                feature.setLength(0);
+                if (features > 0) {
+                    feature.append(',');
+                }
+                appendFeature(feature, features, random);
+                writer.append(feature);
+                written += feature.length();
+                features++;
+            }
+            writer.write("]}");
+        }
+        return features;
+    }
+
+    private static void appendFeature(StringBuilder out, int id, Random random) {
+        double lat = random.nextDouble() * 140 - 70;
+        double lng = random.nextDouble() * 340 - 170;
+        out.append("{\"type\": \"Feature\", \"properties\": {\"id\": ").append(id)
+            .append(", \"name\": \"feature ").append(id).append("\"}, \"geometry\": ");
+        switch (id % 3) {
+            case 0:
+                out.append("{\"type\": \"Point\", \"coordinates\": [")
+                    .append(lng).append(", ").append(lat).append("]}");
+                break;
+            case 1:
+                out.append("{\"type\": \"LineString\", \"coordinates\": [");
+                for (int v = 0; v < 16; v++) {
+                    out.append(v == 0 ? "[" : ", [").append(lng + v * 0.01).append(", ")
+                        .append(lat + Math.sin(v) * 0.01).append(']');
+                }
+                out.append("]}");
+                break;
+            default:
+                out.append("{\"type\": \"Polygon\", \"coordinates\": [[");
+                for (int v = 0; v <= 16; v++) {
+                    double angle = 2 * Math.PI * (v % 16) / 16;
+                    out.append(v == 0 ? "[" : ", [").append(lng + Math.cos(angle) * 0.05)
+                        .append(", ").append(lat + Math.sin(angle) * 0.05).append(']');
+                }
+                out.append("]]}");
+                break;
+        }
+        out.append('}');
+    }
+
+    private static InputStream stream(String json) {
+        return new BufferedInputStream(
+            new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** Formats each geometry as Type[(lat,lng)...|ring...][part...]. */
+    private static String summarize(GeoJsonStreamParser.Feature feature) {
+        StringBuilder out = new StringBuilder();
+        for (int g = 0; g < feature.getGeometryCount(); g++) {
+            if (g > 0) {
+                out.append(' ');
+            }
+            out.append(feature.getGeometryType(g));
+            for (int part = feature.getPartStart(g); part < feature.getPartEnd(g); part++) {
+                out.append('[');
+                for (int ring = feature.getRingStart(part); ring < feature.getRingEnd(part);
+                        ring++) {
+                    if (ring > feature.getRingStart(part)) {
+                        out.append('|');
+                    }
+                    for (int p = feature.getPositionStart(ring); p < feature.getPositionEnd(ring);
+                            p++) {
+                        out.append('(').append(feature.getLatitude(p)).append(',')
+                            .append(feature.getLongitude(p)).append(')');
+                    }
+                }
+                out.append(']');
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,243 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Checks tile queries and hit tests of {@link GeoJsonTileIndex}, and benchmarks index build and
+ * per-tile query cost at 1k, 10k and 100k features when the system property {@code benchmarks}
+ * is set ({@code -Pbenchmarks} in Gradle). Drawing itself needs a device and is not measured here.
+ */
+public class GeoJsonTileIndexTest {
+
+    @Test
+    public void queryReturnsOnlyFeaturesTouchingTheTile() {
+        GeoJsonTileIndex index = new GeoJsonTileIndex.Builder()
+            .addPoint(10, 10, "east")
+            .addPoint(10, -170, "west")
+            .build();
+        CountingSink sink = new CountingSink();
+
+        // At zoom 1, tile (1, 0) covers the north-east quadrant.
+        assertEquals(1, index.query(1, 0, 1, 256, sink));
+        assertEquals(1, sink.points);
+        assertEquals(0, index.query(1, 1, 1, 256, new CountingSink()));
+    }
+
+    @Test
+    public void polygonIsClippedToTheTile() {
+        GeoJsonTileIndex index = new GeoJsonTileIndex.Builder()
+            .addPolygon(new double[][] {square(0, 0, 40)}, "square")
+            .build();
+        CountingSink sink = new CountingSink();
+
+        index.query(1, 0, 1, 256, sink);
+
+        assertEquals(1, sink.rings);
+        assertTrue(sink.maxCoordinate <= 256 + 8);
+        assertTrue(sink.minCoordinate >= -8);
+    }
+
+    @Test
+    public void hitTestRespectsHoles() {
+        GeoJsonTileIndex index = new GeoJsonTileIndex.Builder()
+            .addPolygon(new double[][] {square(0, 0, 10), square(0, 0, 2)}, "donut")
+            .addLineString(new double[] {20, 20, 20, 30}, "line")
+            .build();
+
+        assertEquals(0, index.hitTest(5, 5, 5, 10));
+        assertEquals(-1, index.hitTest(0, 0, 5, 10));
+        assertEquals(1, index.hitTest(20, 25, 5, 10));
+        assertEquals("line", index.getTag(1));
+    }
+
+    @Test
+    public void sawtoothRingIsClippedWithoutOverflowing() {
+        // Every tooth pokes out across x = 0 and back, so the clipped ring has more points than
+        // the original.
+        int teeth = 40;
+        double[] ring = new double[(teeth * 2 + 2) * 2];
+        int n = 0;
+        for (int i = 0; i < teeth; i++) {
+            ring[n++] = -1;
+            ring[n++] = i * 0.2;
+            ring[n++] = 1;
+            ring[n++] = i * 0.2 + 0.1;
+        }
+        ring[n++] = 5;
+        ring[n++] = teeth * 0.2;
+        ring[n++] = 5;
+        ring[n++] = 0;
+        int points = n / 2;
+        Clipping.RingBuffer buffer = new Clipping.RingBuffer(points);
+
+        int count = Clipping.clipRing(ring, 0, points, 0, 0, 10, 10, buffer);
+
+        assertEquals(teeth * 3 + 2, count);
+        for (int i = 0; i < count; i++) {
+            assertTrue(buffer.out[i * 2] >= 0);
+        }
+    }
+
+    @Test
+    public void sawtoothPolygonAcrossATileEdgeIsDrawn() {
+        // A polygon whose west side zig-zags across the prime meridian, the west edge of tile
+        // (2^18, 2^18 - 1) at zoom 19, where geometry is drawn at full resolution.
+        int teeth = 50;
+        double[] ring = new double[(teeth * 2 + 2) * 2];
+        int n = 0;
+        for (int i = 0; i < teeth; i++) {
+            ring[n++] = i * 1e-5;
+            ring[n++] = -1e-4;
+            ring[n++] = i * 1e-5 + 5e-6;
+            ring[n++] = 1e-4;
+        }
+        ring[n++] = teeth * 1e-5;
+        ring[n++] = 3e-4;
+        ring[n++] = 0;
+        ring[n++] = 3e-4;
+        int points = n / 2;
+        GeoJsonTileIndex index = new GeoJsonTileIndex.Builder()
+            .addPolygon(new double[][] {ring}, "saw")
+            .build();
+        CountingSink sink = new CountingSink();
+
+        assertEquals(1, index.query(1 << 18, (1 << 18) - 1, 19, 256, sink));
+        assertEquals(1, sink.rings);
+        assertTrue(sink.vertices > points);
+    }
+
+    @Test
+    public void benchmarkQueryCost() {
+        assumeTrue(Boolean.getBoolean("benchmarks"));
+        for (int features : new int[] {1_000, 10_000, 100_000}) {
+            long start = System.nanoTime();
+            GeoJsonTileIndex index = randomIndex(features, new Random(features));
+            long buildNanos = System.nanoTime() - start;
+
+            StringBuilder report = new StringBuilder(String.format(
+                "features=%d build=%.1fms", features, buildNanos / 1e6));
+            for (int zoom : new int[] {2, 6, 10}) {
+                // Warm the per-zoom simplification and the JIT, then time a block of tiles.
+                queryBlock(index, zoom);
+                CountingSink sink = new CountingSink();
+                start = System.nanoTime();
+                int tiles = queryBlock(index, zoom, sink);
+                double perTileUs = (System.nanoTime() - start) / 1e3 / tiles;
+                report.append(String.format("  z%d: %.1fus/tile %.0f vertices/tile",
+                    zoom, perTileUs, (double) sink.vertices / tiles));
+            }
+            System.out.println(report);
+        }
+    }
+
+    private static int queryBlock(GeoJsonTileIndex index, int zoom) {
+        return queryBlock(index, zoom, new CountingSink());
+    }
+
+    /** Queries a block of up to 8x8 tiles around the center of the world. */
+    private static int queryBlock(GeoJsonTileIndex index, int zoom, CountingSink sink) {
+        int size = 1 << zoom;
+        int half = Math.min(4, size / 2);
+        int tiles = 0;
+        for (int x = size / 2 - half; x < size / 2 + half; x++) {
+            for (int y = size / 2 - half; y < size / 2 + half; y++) {
+                index.query(x, y, zoom, 256, sink);
+                tiles++;
+            }
+        }
+        return tiles;
+    }
+
+    /** A mix of points, 32-vertex lines and 32-vertex polygons within 30 degrees of (0, 0). */
+    private static GeoJsonTileIndex randomIndex(int features, Random random) {
+        GeoJsonTileIndex.Builder builder = new GeoJsonTileIndex.Builder();
+        for (int i = 0; i < features; i++) {
+            double lat = random.nextDouble() * 60 - 30;
+            double lng = random.nextDouble() * 60 - 30;
+            switch (i % 3) {
+                case 0:
+                    builder.addPoint(lat, lng, i);
+                    break;
+                case 1:
+                    double[] line = new double[64];
+                    for (int v = 0; v < 32; v++) {
+                        line[v * 2] = lat + v * 0.01;
+                        line[v * 2 + 1] = lng + Math.sin(v) * 0.01;
+                    }
+                    builder.addLineString(line, i);
+                    break;
+                default:
+                    double[] ring = new double[66];
+                    for (int v = 0; v <= 32; v++) {
+                        double angle = 2 * Math.PI * v / 32;
+                        ring[v * 2] = lat + Math.sin(angle) * 0.05;
+                        ring[v * 2 + 1] = lng + Math.cos(angle) * 0.05;
+                    }
+                    builder.addPolygon(new double[][] {ring}, i);
+                    break;
+            }
+        }
+        return builder.build();
+    }
+
+    private static double[] square(double lat, double lng, double halfSize) {
+        return new double[] {
+            lat - halfSize, lng - halfSize,
+            lat - halfSize, lng + halfSize,
+            lat + halfSize, lng + halfSize,
+            lat + halfSize, lng - halfSize,
+            lat - halfSize, lng - halfSize,
+        };
+    }
+
+    private static class CountingSink implements GeoJsonTileIndex.GeometrySink {
+        int points;
+        int lines;
+        int rings;
+        long vertices;
+        float minCoordinate = Float.MAX_VALUE;
+        float maxCoordinate = -Float.MAX_VALUE;
+
+        @Override
+        public void point(int feature, float x, float y) {
+            points++;
+            vertices++;
+        }
+
+        @Override
+        public void lineString(int feature, float[] xy, int count) {
+            lines++;
+            vertices += count;
+        }
+
+        @Override
+        public void polygonRing(int feature, float[] xy, int count, boolean firstRing) {
+            rings++;
+            vertices += count;
+            for (int i = 0; i < count * 2; i++) {
+                minCoordinate = Math.min(minCoordinate, xy[i]);
+                maxCoordinate = Math.max(maxCoordinate, xy[i]);
+            }
+        }
+    }
+}
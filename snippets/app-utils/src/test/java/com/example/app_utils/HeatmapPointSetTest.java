@@ -0,0 +1,238 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.maps.android.heatmaps.WeightedLatLng;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Round-trips points through {@link HeatmapPointSet} and compares loading a million-point set
+ * from JSON into a {@code List<LatLng>} with mapping and decoding the packed file. The comparison
+ * is a benchmark and only runs with {@code -Pbenchmarks}.
+ */
+public class HeatmapPointSetTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("heatmap").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void convertsJsonWithinFixedPointPrecision() throws IOException {
+        String json = "[{\"lat\" : -37.1886, \"lng\" : 145.708 } ,"
+            + " {\"lng\": -179.9999999, \"lat\": 89.9999999, \"name\": \"edge\"},"
+            + " {\"lat\": -37.18861234, \"lng\": 145.70801234}]";
+        File file = new File(dir, "points.hmpt");
+
+        assertEquals(3, HeatmapPointSet.convertJson(stream(json), file));
+        HeatmapPointSet points = HeatmapPointSet.map(file);
+
+        assertEquals(3, points.size());
+        assertFalse(points.isWeighted());
+        List<double[]> decoded = new ArrayList<>();
+        points.forEach((lat, lng, weight) -> decoded.add(new double[] {lat, lng, weight}));
+        assertEquals(-37.1886, decoded.get(0)[0], 1e-7);
+        assertEquals(145.708, decoded.get(0)[1], 1e-7);
+        assertEquals(89.9999999, decoded.get(1)[0], 1e-7);
+        assertEquals(-179.9999999, decoded.get(1)[1], 1e-7);
+        assertEquals(-37.1886123, decoded.get(2)[0], 1e-7);
+        assertEquals(1, decoded.get(2)[2], 0);
+        List<WeightedLatLng> weighted = new ArrayList<>(points.asWeightedLatLngs());
+        assertEquals(3, weighted.size());
+        assertEquals(1, weighted.get(2).getIntensity(), 0);
+        assertFalse(new File(dir, "points.hmpt.tmp").exists());
+    }
+
+    @Test
+    public void keepsWeights() throws IOException {
+        File file = new File(dir, "weighted.hmpt");
+        try (HeatmapPointSet.Writer writer = new HeatmapPointSet.Writer(file, true)) {
+            writer.add(1, 2, 0.5);
+            writer.add(-1, -2, 20);
+        }
+
+        HeatmapPointSet points = HeatmapPointSet.map(file);
+        double[] sum = new double[3];
+        points.forEach((lat, lng, weight) -> {
+            sum[0] += lat;
+            sum[1] += lng;
+            sum[2] += weight;
+        });
+
+        assertTrue(points.isWeighted());
+        assertEquals(0, sum[0], 1e-9);
+        assertEquals(0, sum[1], 1e-9);
+        assertEquals(20.5, sum[2], 1e-6);
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws IOException {
+        File file = new File(dir, "points.hmpt");
+        HeatmapPointSet.convertJson(stream("[{\"lat\": 1, \"lng\": 2}]"), file);
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+
+        bytes.put(4, (byte) (HeatmapPointSet.VERSION + 1));
+        try {
+            HeatmapPointSet.wrap(bytes);
+            fail("Expected a version error");
+        } catch (IOException expected) {
+            // Expected.
+        }
+        try {
+            byte[] json = "[{\"lat\": 1, \"lng\": 2}]".getBytes(StandardCharsets.UTF_8);
+            HeatmapPointSet.wrap(ByteBuffer.wrap(json));
+            fail("Expected a format error");
+        } catch (IOException expected) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void benchmarkMillionPointLoad() throws IOException {
+        assumeTrue(Boolean.getBoolean("benchmarks"));
+        int count = 1_000_000;
+        File json = new File(dir, "points.json");
+        writeJson(json, count, new Random(7));
+        File packed = new File(dir, "points.hmpt");
+        HeatmapPointSet.convertJson(new FileInputStream(json), packed);
+
+        // Warm up both paths once.
+        readJson(json);
+        sumPacked(packed);
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long start = System.nanoTime();
+        List<LatLng> list = readJson(json);
+        long jsonNanos = System.nanoTime() - start;
+        System.gc();
+        long jsonHeap = runtime.totalMemory() - runtime.freeMemory() - heapBefore;
+        assertEquals(count, list.size());
+        list = null;
+
+        System.gc();
+        heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        start = System.nanoTime();
+        HeatmapPointSet points = HeatmapPointSet.map(packed);
+        long mapNanos = System.nanoTime() - start;
+        double sum = sumPacked(packed);
+        long decodeNanos = System.nanoTime() - start - mapNanos;
+        System.gc();
+        long packedHeap = runtime.totalMemory() - runtime.freeMemory() - heapBefore;
+        assertEquals(count, points.size());
+        assertTrue(sum != 0);
+
+        System.out.println(String.format(
+            "%d points: JSON %.1fMB, parse to List<LatLng> %.0fms retaining %.1fMB;"
+                + " packed %.1fMB, map %.2fms, decode %.0fms retaining %.1fMB",
+            count, json.length() / 1e6, jsonNanos / 1e6, jsonHeap / 1e6,
+            packed.length() / 1e6, mapNanos / 1e6, decodeNanos / 1e6, packedHeap / 1e6));
+    }
+
+    /** The path {@code Heatmaps.readItems} takes. */
+    private static List<LatLng> readJson(File file) throws IOException {
+        List<LatLng> result = new ArrayList<>();
+        try (JsonStreamReader reader = new JsonStreamReader(new FileInputStream(file))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                double lat = 0;
+                double lng = 0;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if (name.equals("lat")) {
+                        lat = reader.nextDouble();
+                    } else if (name.equals("lng")) {
+                        lng = reader.nextDouble();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                result.add(new LatLng(lat, lng));
+            }
+            reader.endArray();
+        }
+        return result;
+    }
+
+    private static double sumPacked(File file) throws IOException {
+        double[] sum = new double[1];
+        HeatmapPointSet.map(file).forEach((lat, lng, weight) -> sum[0] += lat + lng);
+        return sum[0];
+    }
+
+    /** Clustered points in the police_stations.json layout. */
+    private static void writeJson(File file, int count, Random random) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+                StandardCharsets.UTF_8)) {
+            writer.write("[\n");
+            double lat = -37.8;
+            double lng = 145.0;
+            for (int i = 0; i < count; i++) {
+                if (i % 1000 == 0) {
+                    lat = random.nextDouble() * 120 - 60;
+                    lng = random.nextDouble() * 340 - 170;
+                }
+                writer.write(String.format(Locale.US, "{\"lat\" : %.4f, \"lng\" : %.4f }%s\n",
+                    lat + random.nextGaussian() * 0.05, lng + random.nextGaussian() * 0.05,
+                    i + 1 < count ? " ," : ""));
+            }
+            writer.write("]\n");
+        }
+    }
+
+    private static BufferedInputStream stream(String json) {
+        return new BufferedInputStream(
+            new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,194 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.app_utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.android.gms.maps.model.Tile;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Checks which tiles {@link IncrementalHeatmapTileProvider} drops when points change, and, with
+ * {@code -Pbenchmarks}, compares a second of live updates against rebuilding every visible tile.
+ * Tiles are rendered to pixels and handed to an encoder that skips the PNG step, which needs a
+ * device.
+ */
+public class IncrementalHeatmapTileProviderTest {
+
+    private static final int[] COLORS = {0xff66e100, 0xffff0000};
+    private static final float[] START_POINTS = {0.2f, 1f};
+
+    /** Wraps nothing; the tests only look at which tiles were rendered and cached. */
+    private static final TileEncoder ENCODER = (pixels, sizePx) -> new Tile(sizePx, sizePx,
+        new byte[0]);
+
+    @Test
+    public void addingAPointOnlyDropsNearbyTiles() {
+        IncrementalHeatmapTileProvider provider = newProvider();
+        // Zoom 4 tiles (8, 8) and (2, 2), far apart.
+        provider.getTile(8, 8, 4);
+        provider.getTile(2, 2, 4);
+        assertTrue(provider.isCached(8, 8, 4));
+        assertTrue(provider.isCached(2, 2, 4));
+
+        // The center of tile (8, 8) at zoom 4.
+        provider.addPoint(tileCenterLatitude(8, 4), tileCenterLongitude(8, 4), 1);
+
+        assertFalse(provider.isCached(8, 8, 4));
+        assertTrue(provider.isCached(2, 2, 4));
+        assertEquals(1, provider.getTilesInvalidated());
+    }
+
+    @Test
+    public void pointsNearATileEdgeDropBothTiles() {
+        IncrementalHeatmapTileProvider provider = newProvider();
+        provider.getTile(8, 8, 4);
+        provider.getTile(7, 8, 4);
+
+        // Just inside tile (8, 8), within the kernel radius of tile (7, 8).
+        double lng = longitudeAt(8.005 / 16);
+        provider.addPoint(tileCenterLatitude(8, 4), lng, 1);
+
+        assertFalse(provider.isCached(8, 8, 4));
+        assertFalse(provider.isCached(7, 8, 4));
+    }
+
+    @Test
+    public void removingAPointClearsItsPixels() {
+        IncrementalHeatmapTileProvider provider = newProvider();
+        int id = provider.addPoint(tileCenterLatitude(8, 4), tileCenterLongitude(8, 4), 5);
+        int center = IncrementalHeatmapTileProvider.TILE_SIZE_PX / 2;
+        int centerPixel = center * IncrementalHeatmapTileProvider.TILE_SIZE_PX + center;
+
+        assertNotEquals(0, provider.renderPixels(8, 8, 4)[centerPixel]);
+
+        assertTrue(provider.removePoint(id));
+        assertFalse(provider.removePoint(id));
+        assertEquals(0, provider.renderPixels(8, 8, 4)[centerPixel]);
+    }
+
+    @Test
+    public void cachedTilesAreServedWithoutRendering() {
+        IncrementalHeatmapTileProvider provider = newProvider();
+        provider.addPoint(tileCenterLatitude(8, 4), tileCenterLongitude(8, 4), 1);
+
+        provider.getTile(8, 8, 4);
+        provider.getTile(8, 8, 4);
+
+        assertEquals(1, provider.getTilesRendered());
+        assertEquals(1, provider.getTilesFromCache());
+    }
+
+    @Test
+    public void colorMapFadesInTheFirstColor() {
+        int[] map = HeatmapColors.generateColorMap(COLORS, START_POINTS, 101);
+
+        assertEquals(0x0066e100, map[0]);
+        assertEquals(0x8066e100, map[10]);
+        assertEquals(COLORS[0], map[20]);
+        // Halfway between the two colors, every channel is about halfway too.
+        assertEquals(0xff, map[60] >>> 24);
+        assertEquals((0x66 + 0xff) / 2, (map[60] >> 16) & 0xff, 1);
+        assertEquals(0xe1 / 2, (map[60] >> 8) & 0xff, 1);
+        assertEquals(0, map[60] & 0xff);
+        assertEquals(COLORS[1], map[100]);
+    }
+
+    @Test
+    public void benchmarkLiveUpdates() {
+        assumeTrue(Boolean.getBoolean("benchmarks"));
+        int points = 10_000;
+        int updatesPerSecond = 20;
+        int zoom = 12;
+        // A 4x3 block of visible tiles around Melbourne.
+        int baseX = (int) (GeoJsonTileIndex.worldX(145.0) * (1 << zoom)) - 2;
+        int baseY = (int) (GeoJsonTileIndex.worldY(-37.8) * (1 << zoom)) - 1;
+        Random random = new Random(3);
+        IncrementalHeatmapTileProvider provider = newProvider();
+        int[] ids = new int[points];
+        for (int i = 0; i < points; i++) {
+            ids[i] = provider.addPoint(-37.8 + random.nextGaussian() * 0.5,
+                145.0 + random.nextGaussian() * 0.5, 1);
+        }
+        renderVisible(provider, baseX, baseY, zoom);
+
+        // Incremental: one second of updates, then the map asks for the visible tiles again.
+        long renderedBefore = provider.getTilesRendered();
+        long start = System.nanoTime();
+        for (int i = 0; i < updatesPerSecond; i++) {
+            int index = random.nextInt(points);
+            ids[index] = provider.movePoint(ids[index], -37.8 + random.nextGaussian() * 0.5,
+                145.0 + random.nextGaussian() * 0.5);
+        }
+        renderVisible(provider, baseX, baseY, zoom);
+        long incrementalNanos = System.nanoTime() - start;
+        long incrementalTiles = provider.getTilesRendered() - renderedBefore;
+
+        // Full flush: what updateData() plus clearTileCache() costs, every visible tile again.
+        IncrementalHeatmapTileProvider fresh = newProvider();
+        for (int i = 0; i < points; i++) {
+            fresh.addPoint(-37.8 + random.nextGaussian() * 0.5,
+                145.0 + random.nextGaussian() * 0.5, 1);
+        }
+        start = System.nanoTime();
+        renderVisible(fresh, baseX, baseY, zoom);
+        long fullNanos = System.nanoTime() - start;
+
+        assertTrue(incrementalTiles <= 12);
+        System.out.println(String.format(
+            "%d points, %d moves: incremental re-rendered %d of 12 tiles in %.0fms,"
+                + " full flush %.0fms",
+            points, updatesPerSecond, incrementalTiles, incrementalNanos / 1e6,
+            fullNanos / 1e6));
+    }
+
+    private static void renderVisible(IncrementalHeatmapTileProvider provider, int baseX,
+            int baseY, int zoom) {
+        for (int x = baseX; x < baseX + 4; x++) {
+            for (int y = baseY; y < baseY + 3; y++) {
+                provider.getTile(x, y, zoom);
+            }
+        }
+    }
+
+    private static IncrementalHeatmapTileProvider newProvider() {
+        return new IncrementalHeatmapTileProvider(20, 10, COLORS, START_POINTS, 256, ENCODER);
+    }
+
+    private static double tileCenterLongitude(int x, int zoom) {
+        return longitudeAt((x + 0.5) / (1 << zoom));
+    }
+
+    private static double tileCenterLatitude(int y, int zoom) {
+        return latitudeAt((y + 0.5) / (1 << zoom));
+    }
+
+    /** Inverse of {@link GeoJsonTileIndex#worldX}. */
+    private static double longitudeAt(double worldX) {
+        return worldX * 360 - 180;
+    }
+
+    /** Inverse of {@link GeoJsonTileIndex#worldY}. */
+    private static double latitudeAt(double worldY) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * worldY))));
+    }
+}